@@ -0,0 +1,104 @@
+package ime.bench;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the synthetic images the benchmarks run on. Images have a 4:3 aspect ratio and mix smooth
+ * gradients with noise, so that neither the filters nor the encoders see trivially compressible
+ * input. The same size always produces the same pixels.
+ */
+final class BenchmarkImages {
+
+  private static final long SEED = 0x1AE5L;
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Returns the width of a 4:3 image with the given number of megapixels.
+   *
+   * @param megapixels the image size in millions of pixels
+   * @return the width in pixels
+   */
+  static int widthFor(int megapixels) {
+    return (int) Math.round(Math.sqrt(megapixels * 1_000_000.0 * 4 / 3));
+  }
+
+  /**
+   * Returns the height of a 4:3 image with the given number of megapixels.
+   *
+   * @param megapixels the image size in millions of pixels
+   * @return the height in pixels
+   */
+  static int heightFor(int megapixels) {
+    return (int) Math.round(megapixels * 1_000_000.0 / widthFor(megapixels));
+  }
+
+  /**
+   * Creates an image as the channel matrices the model stores images from.
+   *
+   * @param megapixels the image size in millions of pixels
+   * @return a map of 2D arrays for the red, green, blue and alpha channels
+   */
+  static Map<String, int[][]> channels(int megapixels) {
+    return channels(widthFor(megapixels), heightFor(megapixels));
+  }
+
+  /**
+   * Creates an image of the given dimensions as the channel matrices the model stores images from.
+   *
+   * @param width  the width in pixels
+   * @param height the height in pixels
+   * @return a map of 2D arrays for the red, green, blue and alpha channels
+   */
+  static Map<String, int[][]> channels(int width, int height) {
+    int[][] red = new int[height][width];
+    int[][] green = new int[height][width];
+    int[][] blue = new int[height][width];
+    int[][] alpha = new int[height][width];
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int noise = random.nextInt(32);
+        red[y][x] = (x * 255 / width + noise) & 0xFF;
+        green[y][x] = (y * 255 / height + noise) & 0xFF;
+        blue[y][x] = ((x + y) * 127 / (width + height) + noise * 4) & 0xFF;
+        alpha[y][x] = 255;
+      }
+    }
+    Map<String, int[][]> channels = new HashMap<>();
+    channels.put("red", red);
+    channels.put("green", green);
+    channels.put("blue", blue);
+    channels.put("alpha", alpha);
+    return channels;
+  }
+
+  /**
+   * Creates an image as a BufferedImage, in the type the controller writes for the given format.
+   *
+   * @param megapixels the image size in millions of pixels
+   * @param format     the file format the image will be written as
+   * @return the image
+   */
+  static BufferedImage bufferedImage(int megapixels, String format) {
+    Map<String, int[][]> channels = channels(megapixels);
+    int[][] red = channels.get("red");
+    int[][] green = channels.get("green");
+    int[][] blue = channels.get("blue");
+    int height = red.length;
+    int width = red[0].length;
+    BufferedImage image = new BufferedImage(width, height,
+        "png".equals(format) || "imr".equals(format) ? BufferedImage.TYPE_INT_ARGB
+            : BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, 0xFF000000 | red[y][x] << 16 | green[y][x] << 8 | blue[y][x]);
+      }
+    }
+    return image;
+  }
+}
@@ -0,0 +1,36 @@
+package ime.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line options, and always adds
+ * the GC profiler so every result reports its allocation rate next to its throughput. Results are
+ * also written as JSON to jmh-result.json unless another result file is given.
+ */
+public class BenchmarkRunner {
+
+  /**
+   * Runs the benchmarks selected on the command line, or all of them.
+   *
+   * @param args JMH command line options, for example {@code -p megapixels=1 OperationBenchmark}
+   * @throws CommandLineOptionException if the options cannot be parsed
+   * @throws RunnerException            if a benchmark fails to run
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+        .result(commandLine.getResult().orElse("jmh-result.json"))
+        .build();
+    new Runner(options).run();
+  }
+}
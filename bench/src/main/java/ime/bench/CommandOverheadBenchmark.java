@@ -0,0 +1,68 @@
+package ime.bench;
+
+import ime.CommandConstants;
+import ime.model.Model;
+import ime.model.ModelInterface;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the fixed cost of a command by running operations on an 8x8 image, where the pixel work
+ * is negligible next to looking up the filter and storing the result. Scripts made of thousands of
+ * small-image commands are dominated by this cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandOverheadBenchmark {
+
+  private static final String SOURCE = "source";
+  private static final int SIZE = 8;
+
+  @Param({
+      CommandConstants.SEPIA,
+      CommandConstants.BLUR,
+      CommandConstants.HORIZONTAL_FLIP,
+      CommandConstants.RED_COMPONENT
+  })
+  public String operation;
+
+  private ModelInterface model;
+  private List<String> commandTokens;
+
+  /**
+   * Loads the small source image into a fresh model.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    model = new Model();
+    model.convertAndStoreImage(SOURCE, BenchmarkImages.channels(SIZE, SIZE));
+    commandTokens = OperationBenchmark.commandTokens(operation, SIZE, SIZE);
+  }
+
+  /**
+   * Runs the operation once on the small image.
+   *
+   * @return the model, so the result cannot be optimized away
+   */
+  @Benchmark
+  public ModelInterface run() {
+    model.operationsFactoryCall(operation, commandTokens, model);
+    return model;
+  }
+}
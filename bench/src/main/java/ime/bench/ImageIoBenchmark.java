@@ -0,0 +1,96 @@
+package ime.bench;
+
+import ime.controller.ImageReaderFactory;
+import ime.controller.ImageWriterFactory;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures decoding and encoding each supported file format through the readers and writers the
+ * controller obtains from {@link ImageReaderFactory} and {@link ImageWriterFactory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ImageIoBenchmark {
+
+  @Param({"png", "jpg", "ppm", "imr"})
+  public String format;
+
+  @Param({"1", "12", "50"})
+  public int megapixels;
+
+  private Path directory;
+  private File input;
+  private File output;
+  private BufferedImage image;
+
+  /**
+   * Creates the image to save and writes the file to load.
+   *
+   * @throws IOException if the input file cannot be written
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("ime-bench");
+    input = directory.resolve("input." + format).toFile();
+    output = directory.resolve("output." + format).toFile();
+    image = BenchmarkImages.bufferedImage(megapixels, format);
+    ImageWriterFactory.getWriter(format).write(image, format, input);
+  }
+
+  /**
+   * Deletes the files written by the benchmark.
+   *
+   * @throws IOException if a file cannot be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(input.toPath());
+    Files.deleteIfExists(output.toPath());
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * Decodes the input file.
+   *
+   * @return the decoded image
+   * @throws IOException if the file cannot be read
+   */
+  @Benchmark
+  public BufferedImage load() throws IOException {
+    return ImageReaderFactory.getReader(format).read(input.getPath());
+  }
+
+  /**
+   * Encodes the image to the output file.
+   *
+   * @return the file written
+   * @throws IOException if the file cannot be written
+   */
+  @Benchmark
+  public File save() throws IOException {
+    ImageWriterFactory.getWriter(format).write(image, format, output);
+    return output;
+  }
+}
@@ -0,0 +1,137 @@
+package ime.bench;
+
+import ime.CommandConstants;
+import ime.model.Model;
+import ime.model.ModelInterface;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every built-in operation registered with the model's OperationsFactory, run through
+ * {@link ModelInterface#operationsFactoryCall} exactly as a script line would run it. Each
+ * invocation stores its result under the same name, so the previous result is released as it
+ * would be in a long editing session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class OperationBenchmark {
+
+  private static final String SOURCE = "source";
+  private static final String RESULT = "result";
+
+  @Param({
+      CommandConstants.BRIGHTEN,
+      CommandConstants.VERTICAL_FLIP,
+      CommandConstants.HORIZONTAL_FLIP,
+      CommandConstants.SEPIA,
+      CommandConstants.BLUR,
+      CommandConstants.SHARPEN,
+      CommandConstants.BOX_BLUR,
+      CommandConstants.GAUSSIAN_BLUR,
+      CommandConstants.RGB_SPLIT,
+      CommandConstants.RGB_COMBINE,
+      CommandConstants.RED_COMPONENT,
+      CommandConstants.GREEN_COMPONENT,
+      CommandConstants.BLUE_COMPONENT,
+      CommandConstants.LUMA_COMPONENT,
+      CommandConstants.INTENSITY_COMPONENT,
+      CommandConstants.VALUE_COMPONENT,
+      CommandConstants.HISTOGRAM,
+      CommandConstants.COLOR_CORRECT,
+      CommandConstants.LEVELS_ADJUST,
+      CommandConstants.COMPRESS,
+      CommandConstants.DOWNSCALE,
+      CommandConstants.DITHER,
+      CommandConstants.CROP,
+      CommandConstants.ROTATE_90,
+      CommandConstants.ROTATE_180,
+      CommandConstants.ROTATE_270
+  })
+  public String operation;
+
+  @Param({"1", "12", "50"})
+  public int megapixels;
+
+  private ModelInterface model;
+  private List<String> commandTokens;
+
+  /**
+   * Loads the source image into a fresh model and prepares the command line for the operation.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    model = new Model();
+    if (model.getOperationInfo(operation) == null) {
+      throw new IllegalStateException("Operation is not registered: " + operation);
+    }
+    model.convertAndStoreImage(SOURCE, BenchmarkImages.channels(megapixels));
+    if (CommandConstants.RGB_COMBINE.equals(operation)) {
+      model.operationsFactoryCall(CommandConstants.RGB_SPLIT, List.of(CommandConstants.RGB_SPLIT,
+          SOURCE, SOURCE + "-red", SOURCE + "-green", SOURCE + "-blue"), model);
+    }
+    commandTokens = commandTokens(operation, BenchmarkImages.widthFor(megapixels),
+        BenchmarkImages.heightFor(megapixels));
+  }
+
+  /**
+   * Runs the operation once on the source image.
+   *
+   * @return the model, so the result cannot be optimized away
+   */
+  @Benchmark
+  public ModelInterface run() {
+    model.operationsFactoryCall(operation, commandTokens, model);
+    return model;
+  }
+
+  /**
+   * Builds a representative command line for an operation on the source image.
+   *
+   * @param operation the operation name
+   * @param width     the width of the source image
+   * @param height    the height of the source image
+   * @return the command tokens
+   */
+  static List<String> commandTokens(String operation, int width, int height) {
+    switch (operation) {
+      case CommandConstants.BRIGHTEN:
+        return List.of(operation, "10", SOURCE, RESULT);
+      case CommandConstants.BOX_BLUR:
+        return List.of(operation, "50", SOURCE, RESULT);
+      case CommandConstants.GAUSSIAN_BLUR:
+        return List.of(operation, "20", SOURCE, RESULT);
+      case CommandConstants.RGB_SPLIT:
+        return List.of(operation, SOURCE, RESULT + "-red", RESULT + "-green", RESULT + "-blue");
+      case CommandConstants.RGB_COMBINE:
+        return List.of(operation, RESULT, SOURCE + "-red", SOURCE + "-green", SOURCE + "-blue");
+      case CommandConstants.LEVELS_ADJUST:
+        return List.of(operation, "20", "100", "255", SOURCE, RESULT);
+      case CommandConstants.COMPRESS:
+        return List.of(operation, "50", SOURCE, RESULT);
+      case CommandConstants.DOWNSCALE:
+        return List.of(operation, String.valueOf(width / 2), String.valueOf(height / 2), SOURCE,
+            RESULT);
+      case CommandConstants.CROP:
+        return List.of(operation, String.valueOf(width / 4), String.valueOf(height / 4),
+            String.valueOf(width / 2), String.valueOf(height / 2), SOURCE, RESULT);
+      default:
+        return List.of(operation, SOURCE, RESULT);
+    }
+  }
+}
@@ -0,0 +1,349 @@
+package ime.model;
+
+import java.util.Arrays;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The vector backend built on the Java Vector API, using the widest vectors of the processor.
+ * Pixels stay packed as ARGB ints in vector lanes, and are unpacked into channels with shifts and
+ * masks. Each row is processed a full vector at a time, and its remaining pixels with one masked
+ * vector.
+ *
+ * <p>Every operation repeats the arithmetic of its scalar loop lane by lane, in the same order and
+ * in the same precision, so results are identical: sepia is computed in doubles, luma and the
+ * convolutions in floats, and floating-point results are rounded and truncated as the Java casts
+ * and {@link Math#round(float)} of the scalar code do.</p>
+ *
+ * <p>This class is compiled for Java 17 with the {@code jdk.incubator.vector} module, and is only
+ * loaded by {@link VectorOperations}.</p>
+ */
+final class SimdBackend implements VectorBackend {
+
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  // Ints with as many lanes as DOUBLES, to convert to and from them
+  private static final VectorSpecies<Integer> DOUBLE_INTS =
+      VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+  // (sum * INTENSITY_MULTIPLIER) >>> INTENSITY_SHIFT equals sum / 3 for every sum up to 765
+  private static final int INTENSITY_MULTIPLIER = 43691;
+  private static final int INTENSITY_SHIFT = 17;
+  private static final float TWO_TO_23 = 8388608f;
+
+  /**
+   * Constructs the backend.
+   *
+   * @throws UnsupportedOperationException if the processor has no vectors of four ints or more,
+   *                                       on which the Vector API would be slower than scalar code
+   */
+  SimdBackend() {
+    if (INTS.length() < 4) {
+      throw new UnsupportedOperationException("No vector registers");
+    }
+  }
+
+  @Override
+  public RowTransformation brighten(int increment) {
+    return (source, destination, length) -> {
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        brighten(IntVector.fromArray(INTS, source, x), increment).intoArray(destination, x);
+      }
+      if (x < length) {
+        VectorMask<Integer> mask = INTS.indexInRange(x, length);
+        brighten(IntVector.fromArray(INTS, source, x, mask), increment)
+            .intoArray(destination, x, mask);
+      }
+    };
+  }
+
+  private static IntVector brighten(IntVector argb, int increment) {
+    return pack(argb, clamp(channel(argb, 16).add(increment)),
+        clamp(channel(argb, 8).add(increment)), clamp(channel(argb, 0).add(increment)));
+  }
+
+  @Override
+  public RowTransformation channel(int shift) {
+    return (source, destination, length) -> {
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        IntVector argb = IntVector.fromArray(INTS, source, x);
+        gray(argb, channel(argb, shift)).intoArray(destination, x);
+      }
+      if (x < length) {
+        VectorMask<Integer> mask = INTS.indexInRange(x, length);
+        IntVector argb = IntVector.fromArray(INTS, source, x, mask);
+        gray(argb, channel(argb, shift)).intoArray(destination, x, mask);
+      }
+    };
+  }
+
+  @Override
+  public RowTransformation value() {
+    return (source, destination, length) -> {
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        value(IntVector.fromArray(INTS, source, x)).intoArray(destination, x);
+      }
+      if (x < length) {
+        VectorMask<Integer> mask = INTS.indexInRange(x, length);
+        value(IntVector.fromArray(INTS, source, x, mask)).intoArray(destination, x, mask);
+      }
+    };
+  }
+
+  private static IntVector value(IntVector argb) {
+    return gray(argb, channel(argb, 16).max(channel(argb, 8)).max(channel(argb, 0)));
+  }
+
+  @Override
+  public RowTransformation intensity() {
+    return (source, destination, length) -> {
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        intensity(IntVector.fromArray(INTS, source, x)).intoArray(destination, x);
+      }
+      if (x < length) {
+        VectorMask<Integer> mask = INTS.indexInRange(x, length);
+        intensity(IntVector.fromArray(INTS, source, x, mask)).intoArray(destination, x, mask);
+      }
+    };
+  }
+
+  private static IntVector intensity(IntVector argb) {
+    // Vectors have no integer division, so dividing by 3 is a multiplication and a shift
+    IntVector sum = channel(argb, 16).add(channel(argb, 8)).add(channel(argb, 0));
+    return gray(argb, sum.mul(INTENSITY_MULTIPLIER)
+        .lanewise(VectorOperators.LSHR, INTENSITY_SHIFT));
+  }
+
+  @Override
+  public RowTransformation luma() {
+    return (source, destination, length) -> {
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        luma(IntVector.fromArray(INTS, source, x)).intoArray(destination, x);
+      }
+      if (x < length) {
+        VectorMask<Integer> mask = INTS.indexInRange(x, length);
+        luma(IntVector.fromArray(INTS, source, x, mask)).intoArray(destination, x, mask);
+      }
+    };
+  }
+
+  private static IntVector luma(IntVector argb) {
+    FloatVector luma = toFloats(channel(argb, 16)).mul(0.2126f)
+        .add(toFloats(channel(argb, 8)).mul(0.7152f))
+        .add(toFloats(channel(argb, 0)).mul(0.0722f));
+    return gray(argb, round(luma));
+  }
+
+  @Override
+  public RowTransformation matrix(double[][] matrix) {
+    double[][] m = {matrix[0].clone(), matrix[1].clone(), matrix[2].clone()};
+    // The channels of the transformed row in doubles, grown to the longest row seen
+    double[][] channels = new double[3][0];
+    return (source, destination, length) -> {
+      if (channels[0].length < length) {
+        for (int channel = 0; channel < channels.length; channel++) {
+          channels[channel] = new double[length];
+        }
+      }
+      int bound = DOUBLE_INTS.loopBound(length);
+      for (int x = 0; x < bound; x += DOUBLE_INTS.length()) {
+        matrix(IntVector.fromArray(DOUBLE_INTS, source, x), m, channels, x);
+      }
+      for (int x = bound; x < length; x++) {
+        int r = (source[x] >> 16) & 0xFF;
+        int g = (source[x] >> 8) & 0xFF;
+        int b = source[x] & 0xFF;
+        for (int row = 0; row < m.length; row++) {
+          channels[row][x] = r * m[row][0] + g * m[row][1] + b * m[row][2];
+        }
+      }
+      // Narrowing doubles to ints has no vector instruction on Java 17, so it is left to casts
+      for (int x = 0; x < length; x++) {
+        destination[x] = (source[x] & 0xFF000000)
+            | (Math.min(Math.max((int) channels[0][x], 0), 255) << 16)
+            | (Math.min(Math.max((int) channels[1][x], 0), 255) << 8)
+            | Math.min(Math.max((int) channels[2][x], 0), 255);
+      }
+    };
+  }
+
+  /**
+   * Multiplies the channels of pixels by a color matrix, storing the untruncated results.
+   *
+   * @param argb     the pixels
+   * @param m        the matrix
+   * @param channels the arrays receiving the red, green and blue results
+   * @param x        the column of the first pixel
+   */
+  private static void matrix(IntVector argb, double[][] m, double[][] channels, int x) {
+    // Unpacked here rather than with channel, whose other callers pass vectors of another shape
+    DoubleVector r = toDoubles(argb.lanewise(VectorOperators.LSHR, 16).and(0xFF));
+    DoubleVector g = toDoubles(argb.lanewise(VectorOperators.LSHR, 8).and(0xFF));
+    DoubleVector b = toDoubles(argb.and(0xFF));
+    r.mul(m[0][0]).add(g.mul(m[0][1])).add(b.mul(m[0][2])).intoArray(channels[0], x);
+    r.mul(m[1][0]).add(g.mul(m[1][1])).add(b.mul(m[1][2])).intoArray(channels[1], x);
+    r.mul(m[2][0]).add(g.mul(m[2][1])).add(b.mul(m[2][2])).intoArray(channels[2], x);
+  }
+
+  @Override
+  public RowConvolution convolution(float[][] kernel) {
+    int size = kernel.length;
+    float[][] k = new float[size][];
+    // The scalar loop sums the weights per pixel in this order, which fixes their float rounding
+    float weights = 0;
+    for (int ky = 0; ky < size; ky++) {
+      k[ky] = kernel[ky].clone();
+      for (int kx = 0; kx < size; kx++) {
+        weights += kernel[ky][kx];
+      }
+    }
+    float sumWeights = weights;
+    // The weighted sums of each channel of the row, and their rounded averages, grown to the
+    // longest row seen
+    float[][] sums = new float[3][0];
+    int[][] averages = new int[3][0];
+    return (red, green, blue, source, destination, length) -> {
+      if (sums[0].length < length) {
+        for (int channel = 0; channel < sums.length; channel++) {
+          sums[channel] = new float[length];
+          averages[channel] = new int[length];
+        }
+      }
+      // One call site per helper keeps the compiled lambda small enough for every vector
+      // operation to be compiled to instructions rather than to objects
+      for (int channel = 0; channel < sums.length; channel++) {
+        float[][] rows = channel == 0 ? red : channel == 1 ? green : blue;
+        accumulate(rows, k, sums[channel], length);
+        average(sums[channel], sumWeights, averages[channel], length);
+      }
+      int x = 0;
+      for (int bound = INTS.loopBound(length); x < bound; x += INTS.length()) {
+        pack(IntVector.fromArray(INTS, source, x), IntVector.fromArray(INTS, averages[0], x),
+            IntVector.fromArray(INTS, averages[1], x), IntVector.fromArray(INTS, averages[2], x))
+            .intoArray(destination, x);
+      }
+      for (; x < length; x++) {
+        destination[x] = (source[x] & 0xFF000000) | (averages[0][x] << 16)
+            | (averages[1][x] << 8) | averages[2][x];
+      }
+    };
+  }
+
+  /**
+   * Divides sums by the sum of the weights and rounds them, as the scalar loop does.
+   *
+   * @param sums     the weighted sums
+   * @param weights  the sum of the weights
+   * @param averages the array receiving the rounded averages, clamped to [0, 255]
+   * @param length   the number of sums
+   */
+  private static void average(float[] sums, float weights, int[] averages, int length) {
+    FloatVector divisor = FloatVector.broadcast(FLOATS, weights);
+    int x = 0;
+    for (int bound = FLOATS.loopBound(length); x < bound; x += FLOATS.length()) {
+      round(FloatVector.fromArray(FLOATS, sums, x).div(divisor)).intoArray(averages, x);
+    }
+    for (; x < length; x++) {
+      averages[x] = round(sums[x] / weights);
+    }
+  }
+
+  /**
+   * Sums the kernel's weighted values of padded rows into a row of sums, one kernel cell at a
+   * time, which adds to each sum in the order of the scalar loop. Keeping the sums in memory
+   * rather than in vectors carried from cell to cell lets the compiler keep every operation on
+   * vector instructions.
+   *
+   * @param rows   the padded rows of one channel
+   * @param kernel the kernel
+   * @param sums   the array receiving the sums
+   * @param length the number of sums
+   */
+  private static void accumulate(float[][] rows, float[][] kernel, float[] sums, int length) {
+    Arrays.fill(sums, 0, length, 0f);
+    int bound = FLOATS.loopBound(length);
+    for (int ky = 0; ky < kernel.length; ky++) {
+      float[] row = rows[ky];
+      for (int kx = 0; kx < kernel.length; kx++) {
+        float weight = kernel[ky][kx];
+        int x = 0;
+        for (; x < bound; x += FLOATS.length()) {
+          FloatVector.fromArray(FLOATS, sums, x)
+              .add(FloatVector.fromArray(FLOATS, row, x + kx).mul(weight))
+              .intoArray(sums, x);
+        }
+        for (; x < length; x++) {
+          sums[x] += row[x + kx] * weight;
+        }
+      }
+    }
+  }
+
+  private static IntVector channel(IntVector argb, int shift) {
+    return argb.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+  }
+
+  private static IntVector clamp(IntVector values) {
+    return values.max(0).min(255);
+  }
+
+  /**
+   * Packs channels into pixels, keeping the alpha of the source pixels.
+   */
+  private static IntVector pack(IntVector argb, IntVector red, IntVector green, IntVector blue) {
+    return argb.and(0xFF000000)
+        .or(red.lanewise(VectorOperators.LSHL, 16))
+        .or(green.lanewise(VectorOperators.LSHL, 8))
+        .or(blue);
+  }
+
+  /**
+   * Packs a gray value into every color channel, keeping the alpha of the source pixels.
+   */
+  private static IntVector gray(IntVector argb, IntVector value) {
+    return pack(argb, value, value, value);
+  }
+
+  private static FloatVector toFloats(IntVector values) {
+    return (FloatVector) values.convert(VectorOperators.I2F, 0);
+  }
+
+  private static DoubleVector toDoubles(IntVector values) {
+    return (DoubleVector) values.convertShape(VectorOperators.I2D, DOUBLES, 0);
+  }
+
+  /**
+   * Rounds a float and clamps it to [0, 255], as the scalar loop does.
+   */
+  private static int round(float value) {
+    return Math.min(Math.max(Math.round(value), 0), 255);
+  }
+
+  /**
+   * Rounds floats half up like {@link Math#round(float)}, and clamps them to [0, 255].
+   */
+  private static IntVector round(FloatVector values) {
+    // Clamping first leaves no NaN or negative values, where floor and rounding would differ
+    FloatVector clamped = values.max(0f).min(256f);
+    clamped = clamped.blend(0f, clamped.compare(VectorOperators.NE, clamped));
+    // Adding 2^23 leaves no bits for a fraction, which rounds to the nearest integer, ties to even
+    FloatVector nearest = clamped.add(TWO_TO_23).sub(TWO_TO_23);
+    FloatVector floor = nearest.sub(1f, nearest.compare(VectorOperators.GT, clamped));
+    // Comparing the exact fraction avoids the rounding error of adding a half before the floor
+    FloatVector rounded = floor.add(1f, clamped.sub(floor).compare(VectorOperators.GE, 0.5f));
+    // Float to int conversion has no vector instruction on Java 17, but below 2^23 the integer
+    // is the low bits of the float plus 2^23
+    return rounded.add(TWO_TO_23).reinterpretAsInts().sub(Float.floatToIntBits(TWO_TO_23))
+        .min(255);
+  }
+}
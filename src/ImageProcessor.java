@@ -1,7 +1,12 @@
+import ime.controller.BatchRunner;
+import ime.controller.CommandServer;
 import ime.controller.Controller;
-import ime.controller.ControllerInterface;
+import ime.controller.ImageWriterFactory;
+import ime.controller.StripStreamer;
+import ime.controller.Warmup;
 import ime.controller.gui.GUIController;
 import ime.controller.gui.GUIControllerInterface;
+import ime.controller.metrics.CommandMetrics;
 import ime.model.Model;
 import ime.model.ModelInterface;
 import ime.view.TerminalView;
@@ -12,6 +17,12 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -20,42 +31,235 @@ import java.io.InputStreamReader;
  */
 public class ImageProcessor {
 
+  private static final String METRICS_FLAG = "-metrics";
+  private static final String MEMO_FLAG = "-memo";
+  private static final String LAZY_FLAG = "-lazy";
+  private static final String ASYNC_FLAG = "-async";
+  private static final String WORKERS_FLAG = "-workers";
+  private static final String BUDGET_FLAG = "-budget";
+  private static final String SHARED_FLAG = "-shared";
+  private static final String WARMUP_FLAG = "-warmup";
+  private static final String OFF_HEAP_FLAG = "-offheap";
+  private static final String STREAM_FLAG = "-stream";
+  private static final String PNG_LEVEL_FLAG = "-png-level";
+  private static final int DEFAULT_WARMUP_ITERATIONS = 20;
+  private static final int DEFAULT_DAEMON_PORT = 7777;
+  private static final long MEGABYTE = 1024 * 1024;
+  private static final long DEFAULT_RESULT_CACHE_MEGABYTES = 256;
+  private static final long MEGAPIXEL = 1_000_000;
+  private static final long DEFAULT_OFF_HEAP_MEGAPIXELS = 16;
+
   /**
-   * The main method that determines the mode of operation based on command-line arguments.
+   * The main method that determines the mode of operation based on command-line arguments. In the
+   * text and script modes, {@code -metrics [path]} may be added to write the timing of every
+   * command as JSON when the application exits, to the given path or else to standard output, and
+   * {@code -memo [megabytes]} to reuse the results of repeated operations. The GUI always reuses
+   * them. {@code -lazy} defers commands until a {@code save} needs them, skipping those whose
+   * results are never saved, and {@code -async} reads and writes image files on background threads
+   * while commands run. {@code -offheap [megapixels]} stores images of at least that size, 16
+   * megapixels by default, outside the Java heap. {@code -stream [rows]} runs a script file on
+   * its image in strips of that many rows, 256 by default, for images larger than memory.
+   * {@code -png-level level} sets the deflate level of saved PNG files, from 0 to 9.
+   *
+   * <p>{@code -batch script input... output-dir} applies a script template to every input, given
+   * as files, directories or glob patterns, in parallel; {@code -workers n} sets the number of
+   * files processed at once and {@code -budget megabytes} the memory their images may use. The
+   * workers share the {@code -memo} size, which is taken out of the budget, and {@code -lazy} and
+   * {@code -async} are rejected.</p>
+   *
+   * <p>{@code -daemon [port]} serves the command language on a localhost port until killed, with
+   * an image store per connection, or one for all connections with {@code -shared}.</p>
+   *
+   * <p>{@code -warmup [iterations]} first runs every operation on a small synthetic image so that
+   * the real work starts compiled; given alone, it runs the training run and exits, which is how
+   * the build records the classes of its class data sharing archive.</p>
    *
    * @param args Command-line arguments.
    * @throws IOException If there's an error reading input or script file.
    */
   public static void main(String[] args) throws IOException {
-    if (args.length > 0) {
-      switch (args[0]) {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    CommandMetrics metrics = new CommandMetrics();
+    String metricsPath = removeOption(arguments, METRICS_FLAG);
+    String memoMegabytes = removeOption(arguments, MEMO_FLAG);
+    boolean lazy = arguments.remove(LAZY_FLAG);
+    boolean async = arguments.remove(ASYNC_FLAG);
+    boolean shared = arguments.remove(SHARED_FLAG);
+    String warmupIterations = removeOption(arguments, WARMUP_FLAG);
+    String offHeapMegapixels = removeOption(arguments, OFF_HEAP_FLAG);
+    String streamRows = removeOption(arguments, STREAM_FLAG);
+    String pngLevel = removeOption(arguments, PNG_LEVEL_FLAG);
+    if (pngLevel != null && !pngLevel.isEmpty()) {
+      ImageWriterFactory.setPngCompressionLevel(Integer.parseInt(pngLevel));
+    }
+    if (warmupIterations != null) {
+      Warmup.run(warmupIterations.isEmpty() ? DEFAULT_WARMUP_ITERATIONS
+          : Integer.parseInt(warmupIterations));
+      if (arguments.isEmpty()) {
+        return;
+      }
+    }
+    String workers = removeOption(arguments, WORKERS_FLAG);
+    String budgetMegabytes = removeOption(arguments, BUDGET_FLAG);
+    long resultCacheBytes = memoMegabytes == null ? 0
+        : MEGABYTE * (memoMegabytes.isEmpty() ? DEFAULT_RESULT_CACHE_MEGABYTES
+            : Long.parseLong(memoMegabytes));
+    long offHeapPixels = offHeapMegapixels == null ? 0
+        : MEGAPIXEL * (offHeapMegapixels.isEmpty() ? DEFAULT_OFF_HEAP_MEGAPIXELS
+            : Long.parseLong(offHeapMegapixels));
+
+    if (!arguments.isEmpty()) {
+      ModelInterface model = new Model(resultCacheBytes, offHeapPixels);
+      switch (arguments.get(0)) {
         case "-file":
-          if (args.length < 2) {
+          if (arguments.size() < 2) {
             return;
           }
-          runFromScript(args[1]);
+          if (streamRows != null) {
+            runStreamed(arguments.get(1), streamRows.isEmpty()
+                ? StripStreamer.DEFAULT_STRIP_ROWS : Integer.parseInt(streamRows), metrics);
+            break;
+          }
+          runFromScript(arguments.get(1), model, metrics, lazy, async);
           break;
         case "-text":
-          runFromCLI();
+          runFromCLI(model, metrics, lazy, async);
+          break;
+        case "-daemon":
+          int port = arguments.size() < 2 ? DEFAULT_DAEMON_PORT
+              : Integer.parseInt(arguments.get(1));
+          runDaemon(shared ? CommandServer.shared(port, model, metrics)
+              : new CommandServer(port, () -> new Model(resultCacheBytes, offHeapPixels),
+                  metrics));
+          break;
+        case "-batch":
+          if (arguments.size() < 4) {
+            return;
+          }
+          if (lazy || async) {
+            throw new IllegalArgumentException("-lazy and -async cannot be used with -batch");
+          }
+          int workerCount = workers == null || workers.isEmpty()
+              ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(workers);
+          long memoryBudget = budgetMegabytes == null || budgetMegabytes.isEmpty()
+              ? Runtime.getRuntime().maxMemory() / 2 : MEGABYTE * Long.parseLong(budgetMegabytes);
+          // Every worker has a result cache of its own, so they share the memo size, and the
+          // images in flight get what the caches leave of the budget
+          long workerCacheBytes = resultCacheBytes / workerCount;
+          long imageBudget = memoryBudget - workerCacheBytes * workerCount;
+          if (resultCacheBytes > 0 && imageBudget <= 0) {
+            throw new IllegalArgumentException("-memo must be smaller than -budget");
+          }
+          runBatch(arguments.subList(1, arguments.size()),
+              new BatchRunner(Files.readAllLines(Paths.get(arguments.get(1))), workerCount,
+                  imageBudget, () -> new Model(workerCacheBytes, offHeapPixels),
+                  new TerminalView(System.out), metrics));
           break;
         default:
+          return;
+      }
+      if (metricsPath != null) {
+        writeMetrics(metrics, metricsPath.isEmpty() ? null : metricsPath);
       }
     } else {
-      runGUI();
+      Gui.run(new Model(DEFAULT_RESULT_CACHE_MEGABYTES * MEGABYTE));
     }
   }
 
+  /**
+   * Removes an option and its value, if it has one, from the arguments.
+   *
+   * @param arguments the command-line arguments
+   * @param flag      the option
+   * @return the value of the option, an empty string if it has none, or null if it is absent
+   */
+  private static String removeOption(List<String> arguments, String flag) {
+    int index = arguments.indexOf(flag);
+    if (index < 0) {
+      return null;
+    }
+    arguments.remove(index);
+    if (index < arguments.size() && !arguments.get(index).startsWith("-")) {
+      return arguments.remove(index);
+    }
+    return "";
+  }
+
+  /**
+   * Writes the recorded metrics as JSON.
+   *
+   * @param metrics the metrics to write
+   * @param path    the file to write to, or null for standard output
+   * @throws IOException If there's an error writing the file.
+   */
+  private static void writeMetrics(CommandMetrics metrics, String path) throws IOException {
+    if (path == null) {
+      System.out.print(metrics.toJson());
+    } else {
+      Files.writeString(Paths.get(path), metrics.toJson());
+    }
+  }
+
+  /**
+   * Runs the application as a daemon, serving connections until the process is stopped.
+   *
+   * @param server the bound server
+   * @throws IOException If there's an error accepting connections.
+   */
+  private static void runDaemon(CommandServer server) throws IOException {
+    System.out.println("Listening on localhost:" + server.getPort());
+    try (server) {
+      server.serve();
+    }
+  }
+
+  /**
+   * Runs the application in batch mode.
+   *
+   * @param arguments the script path, the inputs and the output directory
+   * @param runner    the runner holding the script template
+   * @throws IOException If there's an error listing the inputs or creating the output directory.
+   */
+  private static void runBatch(List<String> arguments, BatchRunner runner) throws IOException {
+    List<Path> inputs = BatchRunner.expandInputs(arguments.subList(1, arguments.size() - 1));
+    try {
+      runner.run(inputs, Paths.get(arguments.get(arguments.size() - 1)));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a script file in strips, never holding its whole image in memory.
+   *
+   * @param scriptPath The path to the script file containing commands.
+   * @param stripRows  The number of rows processed at a time.
+   * @param metrics    The metrics to record command timings into.
+   * @throws IOException If there's an error reading the script file.
+   */
+  private static void runStreamed(String scriptPath, int stripRows, CommandMetrics metrics)
+      throws IOException {
+    new StripStreamer(Files.readAllLines(Paths.get(scriptPath)), stripRows, Model::new,
+        new TerminalView(System.out), metrics).run();
+  }
+
   /**
    * Runs the application in script mode, executing commands from a specified file.
    *
    * @param scriptPath The path to the script file containing commands.
+   * @param model      The model to run the commands on.
+   * @param metrics    The metrics to record command timings into.
+   * @param lazy       Whether to defer commands until a save needs them.
+   * @param async      Whether to read and write image files in the background.
    * @throws IOException If there's an error reading the script file.
    */
-  private static void runFromScript(String scriptPath) throws IOException {
-    ModelInterface model = new Model();
+  private static void runFromScript(String scriptPath, ModelInterface model,
+      CommandMetrics metrics, boolean lazy, boolean async) throws IOException {
     ViewInterface terminalView = new TerminalView(System.out);
     try (BufferedReader reader = new BufferedReader(new FileReader(scriptPath))) {
-      ControllerInterface controller = new Controller(reader, terminalView, model);
+      Controller controller = new Controller(reader, terminalView, model, metrics);
+      controller.setLazy(lazy);
+      controller.setAsyncIo(async);
       controller.run();
     }
   }
@@ -63,25 +267,39 @@ public class ImageProcessor {
   /**
    * Runs the application in command-line interface mode, accepting commands from standard input.
    *
+   * @param model   The model to run the commands on.
+   * @param metrics The metrics to record command timings into.
+   * @param lazy    Whether to defer commands until a save needs them.
+   * @param async   Whether to read and write image files in the background.
    * @throws IOException If there's an error reading from standard input.
    */
-  private static void runFromCLI() throws IOException {
-    ModelInterface model = new Model();
+  private static void runFromCLI(ModelInterface model, CommandMetrics metrics, boolean lazy,
+      boolean async) throws IOException {
     ViewInterface terminalView = new TerminalView(System.out);
-    ControllerInterface controller = new Controller(new InputStreamReader(System.in),
-        terminalView, model);
+    Controller controller = new Controller(new InputStreamReader(System.in), terminalView, model,
+        metrics);
+    controller.setLazy(lazy);
+    controller.setAsyncIo(async);
     controller.run();
   }
 
   /**
-   * Runs the application in graphical user interface mode.
+   * Runs the application in graphical user interface mode. Kept in its own class so that the
+   * other modes never load the GUI and Swing classes, not even to verify the main class.
    */
-  private static void runGUI() {
-    ModelInterface model = new Model();
-    /* view */
-    GraphicalIMEInterface graphicalIME = new GraphicalIME();
-    /* controller with model and view passed */
-    GUIControllerInterface guiController = new GUIController(model, graphicalIME);
-    guiController.startMethod();
+  private static final class Gui {
+
+    /**
+     * Starts the graphical user interface.
+     *
+     * @param model the model holding the images
+     */
+    private static void run(ModelInterface model) {
+      /* view */
+      GraphicalIMEInterface graphicalIME = new GraphicalIME();
+      /* controller with model and view passed */
+      GUIControllerInterface guiController = new GUIController(model, graphicalIME);
+      guiController.startMethod();
+    }
   }
 }
\ No newline at end of file
@@ -24,6 +24,8 @@ public class CommandConstants {
   public static final String RGB_SPLIT = "rgb-split";
   public static final String RGB_COMBINE = "rgb-combine";
   public static final String BLUR = "blur";
+  public static final String BOX_BLUR = "box-blur";
+  public static final String GAUSSIAN_BLUR = "gaussian-blur";
   public static final String SHARPEN = "sharpen";
   public static final String SEPIA = "sepia";
   public static final String RUN = "run";
@@ -36,4 +38,9 @@ public class CommandConstants {
   // THIS IS A NEW CONSTANT added for Dithering, this is just used for identifying
   // the dither command across the program
   public static final String DITHER = "dither";
+  public static final String CROP = "crop";
+  public static final String ROTATE_90 = "rotate-90";
+  public static final String ROTATE_180 = "rotate-180";
+  public static final String ROTATE_270 = "rotate-270";
+  public static final String STATS = "stats";
 }
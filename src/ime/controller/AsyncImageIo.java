@@ -0,0 +1,470 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import ime.view.DisplayMessageConstants;
+import ime.view.ViewInterface;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The AsyncImageIo class overlaps the decoding and encoding of images with the commands of a
+ * script. Lines are read ahead of the command being run, and the files of upcoming {@code load}s
+ * are decoded on background threads, so that they are ready when their line is reached. A
+ * {@code save} takes a copy of the image's pixels and returns at once, while a single background
+ * thread encodes and writes the files in the order they were saved.
+ *
+ * <p>Memory is bounded: at most {@link #READ_AHEAD_LINES} lines are read ahead, at most
+ * {@link #PREFETCH_LIMIT} decoded images wait for their {@code load}, and at most
+ * {@link #SAVE_LIMIT} saves are pending; reading ahead or saving blocks beyond these limits. A
+ * file with a pending save is not decoded ahead, and a {@code load} waits for pending saves to its
+ * file, so a script which loads an image it saved reads what it saved.</p>
+ */
+class AsyncImageIo {
+
+  static final int READ_AHEAD_LINES = 64;
+  static final int PREFETCH_LIMIT = 2;
+  static final int SAVE_LIMIT = 2;
+  private static final int DECODER_THREADS = 2;
+
+  private final ExecutorService decoders;
+  private final ExecutorService encoder;
+  private final Semaphore prefetchPermits;
+  private final Semaphore savePermits;
+  // Saves not yet reported, in the order they were made; guards the maps below too
+  private final Deque<PendingSave> pendingSaves;
+  // Number of saves made to each path, to detect prefetches made before a save to their file
+  private final Map<String, Integer> saveCounts;
+  // Number of saves to each path not yet written, which must not be decoded ahead
+  private final Map<String, Integer> unwritten;
+
+  /**
+   * Constructs the background decoders and encoder. Their threads are daemons, so an unflushed
+   * instance does not keep the application alive.
+   */
+  AsyncImageIo() {
+    this.decoders = Executors.newFixedThreadPool(DECODER_THREADS, AsyncImageIo::daemon);
+    this.encoder = Executors.newSingleThreadExecutor(AsyncImageIo::daemon);
+    this.prefetchPermits = new Semaphore(PREFETCH_LIMIT);
+    this.savePermits = new Semaphore(SAVE_LIMIT);
+    this.pendingSaves = new ArrayDeque<>();
+    this.saveCounts = new HashMap<>();
+    this.unwritten = new HashMap<>();
+  }
+
+  private static Thread daemon(Runnable task) {
+    Thread thread = new Thread(task, "ime-async-io");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Starts reading lines ahead on a background thread, decoding the files of the {@code load}s
+   * read. Only one reader may be in use at a time: its prefetches hold permits until their lines
+   * run, so a second reader used while a line of the first runs could wait for ever.
+   *
+   * @param reader     the source of lines
+   * @param decoder    decodes the file of a {@code load}
+   * @param prefetch   whether to decode {@code load}s ahead at all
+   * @param stopAtExit whether to stop reading after an {@code exit} line
+   * @return the lines, with the decoding of their files under way
+   */
+  ReadAhead readAhead(LineReader reader, Decoder decoder, boolean prefetch, boolean stopAtExit) {
+    return new ReadAhead(reader, decoder, prefetch, stopAtExit);
+  }
+
+  /**
+   * Returns the image a prefetch decoded for a path, unless the prefetch is for another path or
+   * the file was saved to since it was decoded. The prefetch is used up either way.
+   *
+   * @param prefetch the prefetch made for the line being run, or null
+   * @param path     the path the line loads
+   * @return the decoded image, or null if it must be decoded again
+   * @throws IOException if the file could not be decoded
+   */
+  BufferedImage take(Prefetch prefetch, String path) throws IOException {
+    if (prefetch == null) {
+      return null;
+    }
+    try {
+      if (!prefetch.path.equals(path) || prefetch.saveCount != saveCountOf(path)) {
+        return null;
+      }
+      try {
+        return prefetch.image.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(e.getMessage());
+      } catch (ExecutionException e) {
+        throw rethrow(e.getCause());
+      }
+    } finally {
+      discard(prefetch);
+    }
+  }
+
+  /**
+   * Gives up a prefetch which its line did not use, cancelling its decoding if still running.
+   *
+   * @param prefetch the prefetch, or null
+   */
+  void discard(Prefetch prefetch) {
+    if (prefetch != null && prefetch.released.compareAndSet(false, true)) {
+      prefetch.image.cancel(true);
+      prefetchPermits.release();
+    }
+  }
+
+  /**
+   * Queues the writing of an image, waiting while {@link #SAVE_LIMIT} saves are pending.
+   *
+   * @param path  the file written
+   * @param write encodes and writes the image
+   * @throws InterruptedIOException if interrupted while waiting
+   */
+  void save(String path, Encoder write) throws InterruptedIOException {
+    try {
+      savePermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+    synchronized (pendingSaves) {
+      saveCounts.merge(path, 1, Integer::sum);
+      unwritten.merge(path, 1, Integer::sum);
+      Future<?> written = encoder.submit(() -> {
+        try {
+          write.encode();
+          return null;
+        } finally {
+          synchronized (pendingSaves) {
+            unwritten.computeIfPresent(path, (key, count) -> count == 1 ? null : count - 1);
+          }
+          savePermits.release();
+        }
+      });
+      pendingSaves.addLast(new PendingSave(path, written));
+    }
+  }
+
+  /**
+   * Waits for the saves made to a path before it is read, and reports them, so that the outcome
+   * of a save is reported before a later load of its file.
+   *
+   * @param path the path about to be read
+   * @param view the view to report the saves to
+   */
+  void awaitSaves(String path, ViewInterface view) {
+    boolean pending = false;
+    synchronized (pendingSaves) {
+      for (PendingSave save : pendingSaves) {
+        pending |= save.path.equals(path);
+      }
+    }
+    if (pending) {
+      flush(view);
+    }
+  }
+
+  /**
+   * Reports the saves which have completed, in the order they were made, stopping at the first
+   * still running.
+   *
+   * @param view the view to report to
+   */
+  void reportCompleted(ViewInterface view) {
+    while (true) {
+      PendingSave save;
+      synchronized (pendingSaves) {
+        save = pendingSaves.peekFirst();
+        if (save == null || !save.written.isDone()) {
+          return;
+        }
+        pendingSaves.removeFirst();
+      }
+      report(save, view);
+    }
+  }
+
+  /**
+   * Waits for every pending save and reports it.
+   *
+   * @param view the view to report to
+   */
+  void flush(ViewInterface view) {
+    PendingSave save;
+    while (true) {
+      synchronized (pendingSaves) {
+        save = pendingSaves.pollFirst();
+      }
+      if (save == null) {
+        return;
+      }
+      report(save, view);
+    }
+  }
+
+  private void report(PendingSave save, ViewInterface view) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        save.written.get();
+        view.displayMessage(DisplayMessageConstants.SAVED_TO + save.path);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      } catch (ExecutionException e) {
+        view.displayError(DisplayMessageConstants.PROCESSING_COMMAND
+            + e.getCause().getMessage());
+        break;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean hasPendingSave(String path) {
+    synchronized (pendingSaves) {
+      return unwritten.containsKey(path);
+    }
+  }
+
+  private int saveCountOf(String path) {
+    synchronized (pendingSaves) {
+      return saveCounts.getOrDefault(path, 0);
+    }
+  }
+
+  private static IOException rethrow(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IOException(cause);
+  }
+
+  /**
+   * A source of lines, returning null at the end.
+   */
+  interface LineReader {
+
+    /**
+     * Reads the next line.
+     *
+     * @return the line, or null at the end of the input
+     * @throws IOException if the input cannot be read
+     */
+    String readLine() throws IOException;
+  }
+
+  /**
+   * Decodes an image file.
+   */
+  interface Decoder {
+
+    /**
+     * Decodes the file at a path.
+     *
+     * @param path the path of the file
+     * @return the decoded image
+     * @throws IOException if the file cannot be read
+     */
+    BufferedImage decode(String path) throws IOException;
+  }
+
+  /**
+   * Encodes and writes an image.
+   */
+  interface Encoder {
+
+    /**
+     * Encodes and writes the image.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void encode() throws IOException;
+  }
+
+  /**
+   * A line read ahead, with the decoding of its file if it is a {@code load}.
+   */
+  static final class ScriptLine {
+
+    private final String text;
+    private final Prefetch prefetch;
+
+    private ScriptLine(String text, Prefetch prefetch) {
+      this.text = text;
+      this.prefetch = prefetch;
+    }
+
+    String getText() {
+      return text;
+    }
+
+    Prefetch getPrefetch() {
+      return prefetch;
+    }
+  }
+
+  /**
+   * The decoding of a file ahead of the {@code load} reading it.
+   */
+  static final class Prefetch {
+
+    private final String path;
+    private final int saveCount;
+    private final Future<BufferedImage> image;
+    private final AtomicBoolean released;
+
+    private Prefetch(String path, int saveCount, Future<BufferedImage> image) {
+      this.path = path;
+      this.saveCount = saveCount;
+      this.image = image;
+      this.released = new AtomicBoolean();
+    }
+  }
+
+  /**
+   * A save whose outcome has not been reported yet.
+   */
+  private static final class PendingSave {
+
+    private final String path;
+    private final Future<?> written;
+
+    private PendingSave(String path, Future<?> written) {
+      this.path = path;
+      this.written = written;
+    }
+  }
+
+  /**
+   * Lines read on a background thread into a bounded queue. Reading stops after an {@code exit}
+   * line.
+   */
+  final class ReadAhead {
+
+    private final BlockingQueue<Object> lines;
+    private final Thread thread;
+
+    private ReadAhead(LineReader reader, Decoder decoder, boolean prefetch,
+        boolean stopAtExit) {
+      this.lines = new ArrayBlockingQueue<>(READ_AHEAD_LINES);
+      this.thread = daemon(() -> read(reader, decoder, prefetch, stopAtExit));
+      thread.start();
+    }
+
+    private void read(LineReader reader, Decoder decoder, boolean prefetch,
+        boolean stopAtExit) {
+      // Files saved earlier in these lines; their saves are not made yet, so they are not read
+      Set<String> savedPaths = new HashSet<>();
+      Object end = Boolean.TRUE;
+      Prefetch linePrefetch = null;
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          line = line.trim();
+          List<String> tokens = Arrays.asList(line.split("\\s+"));
+          linePrefetch = null;
+          if (tokens.size() >= 3 && tokens.get(0).equals(CommandConstants.SAVE)) {
+            savedPaths.add(tokens.get(1));
+          } else if (prefetch && tokens.size() == 3 && tokens.get(0).equals(CommandConstants.LOAD)
+              && !savedPaths.contains(tokens.get(1)) && !RawImageFormat.isRaw(tokens.get(1))
+              && !TiffTileSource.isTiff(tokens.get(1)) && !QoiImageFormat.isQoi(tokens.get(1))) {
+            // Raw files are mapped, TIFF files decoded by tiles and QOI files decoded straight
+            // into the model when loaded, with nothing to decode ahead
+            linePrefetch = prefetch(tokens.get(1), decoder);
+          }
+          lines.put(new ScriptLine(line, linePrefetch));
+          linePrefetch = null;
+          if (stopAtExit && line.equalsIgnoreCase(CommandConstants.EXIT)) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        end = e;
+      } catch (InterruptedException e) {
+        discard(linePrefetch);
+        return;
+      }
+      try {
+        lines.put(end);
+      } catch (InterruptedException e) {
+        // Closed before the end was reached
+      }
+    }
+
+    private Prefetch prefetch(String path, Decoder decoder) throws InterruptedException {
+      // A save made after the count is read makes take() decode the file again
+      int saveCount = saveCountOf(path);
+      if (hasPendingSave(path)) {
+        return null;
+      }
+      prefetchPermits.acquire();
+      return new Prefetch(path, saveCount, decoders.submit(() -> decoder.decode(path)));
+    }
+
+    /**
+     * Returns the next line, waiting for it to be read.
+     *
+     * @return the line, or null at the end of the input
+     * @throws IOException if the input could not be read
+     */
+    ScriptLine next() throws IOException {
+      Object next;
+      try {
+        next = lines.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(e.getMessage());
+      }
+      if (next instanceof ScriptLine) {
+        return (ScriptLine) next;
+      }
+      // Leave the end in place for any further call
+      lines.offer(next);
+      if (next instanceof IOException) {
+        throw (IOException) next;
+      }
+      return null;
+    }
+
+    /**
+     * Stops reading ahead and gives up the prefetches of lines not run.
+     */
+    void close() {
+      thread.interrupt();
+      Object line;
+      while ((line = lines.poll()) != null) {
+        if (line instanceof ScriptLine) {
+          discard(((ScriptLine) line).prefetch);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.controller.metrics.CommandMetrics;
+import ime.model.ModelInterface;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import ime.model.OperationInfo;
+import ime.view.ViewInterface;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The BatchRunner class applies a script template to many image files in parallel. Each line of
+ * the template may use the placeholders {@code {input}} (the input file), {@code {name}} (its name
+ * without extension), {@code {ext}} (its extension) and {@code {output}} (the output directory),
+ * for example:
+ *
+ * <pre>
+ * load {input} img
+ * sepia img img
+ * save {output}/{name}-sepia.png img
+ * </pre>
+ *
+ * <p>Placeholders are replaced after the lines are split into tokens, so paths containing spaces
+ * are passed whole to the commands.</p>
+ *
+ * <p>Files are processed by a fixed pool of workers, each owning one model, so while one worker
+ * decodes a file another processes or encodes a different one. Before a file is handed to a
+ * worker, the memory its images need is estimated from its dimensions and reserved from a budget;
+ * when the budget is used up, no further file is started until one finishes, so the number of
+ * decoded images in memory stays bounded however many files are given.</p>
+ */
+public class BatchRunner {
+
+  /**
+   * Rough number of bytes each pixel of an input occupies while its script runs: the decoded
+   * image, its channel matrices, the images the model stores and the buffers used to save them.
+   */
+  static final long BYTES_PER_PIXEL = 48;
+
+  private static final Set<String> IMAGE_EXTENSIONS = Set.of("ppm", "png", "jpg", "jpeg", "bmp",
+      "tif", "tiff", RawImageFormat.EXTENSION, QoiImageFormat.EXTENSION);
+  // PPM files are plain text with at least two characters per channel
+  private static final long PPM_BYTES_PER_PIXEL = 6;
+  private static final long BYTES_PER_PERMIT = 1024;
+
+  private final List<String> template;
+  private final int workers;
+  private final long memoryBudget;
+  private final Supplier<ModelInterface> models;
+  private final ViewInterface view;
+  private final CommandMetrics metrics;
+
+  /**
+   * Constructs a runner for the given script template.
+   *
+   * @param template     the lines of the script, with placeholders
+   * @param workers      the number of files processed at once
+   * @param memoryBudget the number of bytes the images in flight may use
+   * @param models       creates the model each worker runs its files on
+   * @param view         the view to report the outcome of each file to
+   * @param metrics      the metrics to record command timings into
+   * @throws IllegalArgumentException if workers or memoryBudget is not positive
+   */
+  public BatchRunner(List<String> template, int workers, long memoryBudget,
+      Supplier<ModelInterface> models, ViewInterface view, CommandMetrics metrics) {
+    if (workers <= 0) {
+      throw new IllegalArgumentException("Number of workers must be positive");
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive");
+    }
+    this.template = List.copyOf(template);
+    this.workers = workers;
+    this.memoryBudget = memoryBudget;
+    this.models = models;
+    this.view = view;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Expands the given arguments into image files. A directory stands for the images directly
+   * inside it, and an argument whose file name contains {@code *}, {@code ?}, {@code [} or
+   * {@code {}} is matched as a glob against the files of its directory, for shells which pass
+   * patterns through unexpanded.
+   *
+   * @param arguments files, directories or glob patterns
+   * @return the image files, in argument order and sorted within each directory or pattern
+   * @throws IOException if a directory cannot be listed
+   */
+  public static List<Path> expandInputs(List<String> arguments) throws IOException {
+    List<Path> inputs = new ArrayList<>();
+    for (String argument : arguments) {
+      Path path = Paths.get(argument);
+      String fileName = path.getFileName() == null ? "" : path.getFileName().toString();
+      if (Files.isDirectory(path)) {
+        inputs.addAll(list(path, "*"));
+      } else if (fileName.matches(".*[*?\\[{].*")) {
+        Path parent = path.getParent() == null ? Paths.get(".") : path.getParent();
+        inputs.addAll(list(parent, fileName));
+      } else {
+        inputs.add(path);
+      }
+    }
+    return inputs;
+  }
+
+  private static List<Path> list(Path directory, String glob) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+      for (Path file : stream) {
+        if (Files.isRegularFile(file) && IMAGE_EXTENSIONS.contains(extensionOf(file))) {
+          files.add(file);
+        }
+      }
+    }
+    files.sort(null);
+    return files;
+  }
+
+  /**
+   * Runs the template once for every input, writing into the output directory, and reports the
+   * outcome of each file and a summary to the view. A failing file does not stop the others.
+   *
+   * @param inputs          the image files to process
+   * @param outputDirectory the directory substituted for {@code {output}}, created if missing
+   * @return the number of files which failed
+   * @throws IOException          if the output directory cannot be created
+   * @throws InterruptedException if interrupted while waiting for the files to finish
+   */
+  public int run(List<Path> inputs, Path outputDirectory)
+      throws IOException, InterruptedException {
+    Files.createDirectories(outputDirectory);
+    int totalPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+        memoryBudget / BYTES_PER_PERMIT));
+    Semaphore budget = new Semaphore(totalPermits);
+    AtomicInteger failures = new AtomicInteger();
+    ThreadLocal<ModelInterface> workerModels = ThreadLocal.withInitial(models);
+    ExecutorService pool = Executors.newFixedThreadPool(workers);
+    try {
+      for (Path input : inputs) {
+        // A file larger than the whole budget still runs, but only on its own
+        int permits = (int) Math.max(1, Math.min(totalPermits,
+            estimateBytes(input) / BYTES_PER_PERMIT));
+        budget.acquire(permits);
+        pool.execute(() -> {
+          try {
+            if (!runFile(input, outputDirectory, workerModels.get())) {
+              failures.incrementAndGet();
+            }
+          } finally {
+            budget.release(permits);
+          }
+        });
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+    view.displayMessage("Processed " + inputs.size() + " files, " + failures.get() + " failed");
+    return failures.get();
+  }
+
+  /**
+   * Runs the template for one file, then removes the images it created from the worker's model.
+   *
+   * @return true if every command succeeded
+   */
+  private boolean runFile(Path input, Path outputDirectory, ModelInterface model) {
+    List<List<String>> script = substitute(input, outputDirectory);
+    FileView fileView = new FileView();
+    try {
+      Controller controller = new Controller(new StringReader(""), fileView, model, metrics);
+      for (List<String> commandTokens : script) {
+        if (commandTokens.get(0).equalsIgnoreCase(CommandConstants.EXIT)) {
+          break;
+        }
+        controller.executeCommandTokens(commandTokens);
+      }
+    } catch (RuntimeException e) {
+      fileView.displayError(String.valueOf(e.getMessage()));
+    } finally {
+      for (String imageName : imagesCreated(script, model)) {
+        model.removeImage(imageName);
+      }
+    }
+    synchronized (view) {
+      if (fileView.error == null) {
+        view.displayMessage(input + ": done");
+      } else {
+        view.displayError(input + ": " + fileView.error);
+      }
+    }
+    return fileView.error == null;
+  }
+
+  /**
+   * Replaces the placeholders of the template for one input. Lines are split into tokens first,
+   * so file names containing spaces stay within their token.
+   *
+   * @param input           the input file
+   * @param outputDirectory the output directory
+   * @return the tokens of the commands of the script for the input, without blank lines and
+   *         comments
+   */
+  List<List<String>> substitute(Path input, Path outputDirectory) {
+    String fileName = input.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+    List<List<String>> script = new ArrayList<>();
+    for (String line : template) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      List<String> tokens = new ArrayList<>();
+      for (String token : line.split("\\s+")) {
+        tokens.add(token.replace("{input}", input.toString())
+            .replace("{name}", name)
+            .replace("{ext}", extensionOf(input))
+            .replace("{output}", outputDirectory.toString()));
+      }
+      script.add(tokens);
+    }
+    return script;
+  }
+
+  /**
+   * Lists the names of the images the commands of a script store in the model.
+   */
+  private static List<String> imagesCreated(List<List<String>> script, ModelInterface model) {
+    List<String> names = new ArrayList<>();
+    for (List<String> tokens : script) {
+      if (tokens.get(0).equals(CommandConstants.LOAD) && tokens.size() > 2) {
+        names.add(tokens.get(2));
+        continue;
+      }
+      OperationInfo operation = model.getOperationInfo(tokens.get(0));
+      if (operation != null) {
+        for (int position : operation.getOutputPositions()) {
+          if (position < tokens.size()) {
+            names.add(tokens.get(position));
+          }
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Estimates the memory the images of one input need while its script runs, from the dimensions
+   * in the file's header where they can be read without decoding it, or from its size otherwise.
+   *
+   * @param input the input file
+   * @return the estimated number of bytes
+   */
+  static long estimateBytes(Path input) {
+    if (QoiImageFormat.isQoi(input.toString())) {
+      try (QoiImageFormat.Decoder decoder =
+          new QoiImageFormat.Decoder(Files.newInputStream(input))) {
+        QoiImageFormat.Header header = decoder.getHeader();
+        return (long) header.getWidth() * header.getHeight() * BYTES_PER_PIXEL;
+      } catch (IOException e) {
+        return 0;
+      }
+    }
+    try (ImageInputStream stream = ImageIO.createImageInputStream(input.toFile())) {
+      Iterator<javax.imageio.ImageReader> readers = stream == null ? null
+          : ImageIO.getImageReaders(stream);
+      if (readers != null && readers.hasNext()) {
+        javax.imageio.ImageReader reader = readers.next();
+        try {
+          reader.setInput(stream, true, true);
+          return (long) reader.getWidth(0) * reader.getHeight(0) * BYTES_PER_PIXEL;
+        } finally {
+          reader.dispose();
+        }
+      }
+      return Files.size(input) / PPM_BYTES_PER_PIXEL * BYTES_PER_PIXEL;
+    } catch (IOException | RuntimeException e) {
+      // Unreadable files fail when their script loads them; reserve nothing for them
+      return 0;
+    }
+  }
+
+  private static String extensionOf(Path file) {
+    String fileName = file.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
+  }
+
+  /**
+   * A view which discards progress messages and keeps the first error of a file.
+   */
+  private static final class FileView implements ViewInterface {
+
+    private String error;
+
+    @Override
+    public void displayMessage(String message) {
+      // Progress of single commands is not reported in batch mode
+    }
+
+    @Override
+    public void displayError(String error) {
+      if (this.error == null) {
+        this.error = error;
+      }
+    }
+  }
+}
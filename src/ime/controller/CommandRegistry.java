@@ -43,6 +43,7 @@ public class CommandRegistry {
     commandActions.add(CommandConstants.LOAD);
     commandActions.add(CommandConstants.SAVE);
     commandActions.add(CommandConstants.RUN);
+    commandActions.add(CommandConstants.STATS);
   }
 
   /**
@@ -58,19 +59,31 @@ public class CommandRegistry {
   public void executeCommand(String commandName, List<String> args) {
     // First, check if the command is a model-based command
 
+    LazyEvaluator lazyEvaluator = controller.getLazyEvaluator();
     if (commandActions.contains(commandName)) {
       try {
         // Use switch-case to handle local commands
         switch (commandName) {
           case CommandConstants.LOAD:
-            controller.readImage(args);
+            if (lazyEvaluator != null) {
+              lazyEvaluator.deferLoad(args);
+            } else {
+              controller.readImage(args);
+            }
             break;
           case CommandConstants.SAVE:
-            controller.saveImage(args);
+            if (lazyEvaluator != null) {
+              lazyEvaluator.save(args);
+            } else {
+              controller.saveImage(args);
+            }
             break;
           case CommandConstants.RUN:
             controller.runScript(args);
             break;
+          case CommandConstants.STATS:
+            controller.printStats();
+            break;
           default:
             throw new IllegalArgumentException("command not found!");
         }
@@ -78,6 +91,8 @@ public class CommandRegistry {
         view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
       }
 
+    } else if (lazyEvaluator != null) {
+      lazyEvaluator.deferOperation(args);
     } else {
       model.operationsFactoryCall(commandName, args, model);
     }
@@ -0,0 +1,172 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.controller.metrics.CommandMetrics;
+import ime.model.Model;
+import ime.model.ModelInterface;
+import ime.view.DisplayMessageConstants;
+import ime.view.TerminalView;
+import ime.view.ViewInterface;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * The CommandServer class runs the command language of {@link Controller} as a long-running
+ * daemon on a localhost port, so that scripts pay for JVM startup, class loading and JIT
+ * compilation once instead of once per invocation.
+ *
+ * <p>Each connection is a session reading one command per line, like the text mode. The output of
+ * every line is followed by a line holding only {@value #END_OF_RESPONSE}, so clients know when a
+ * command has finished; an invalid command is reported as an error and ends neither the session
+ * nor the server. {@code exit} or closing the connection ends the session. Each session has its
+ * own image store unless the server is given a shared one, in which case images stored by one
+ * session can be used by the others.</p>
+ */
+public class CommandServer implements Closeable {
+
+  /**
+   * The line ending the response to every command.
+   */
+  public static final String END_OF_RESPONSE = ".";
+
+  private final ServerSocket serverSocket;
+  private final Supplier<ModelInterface> models;
+  private final CommandMetrics metrics;
+  private final ExecutorService sessions;
+  private final Set<Socket> connections;
+
+  /**
+   * Binds a server to a port of the loopback interface.
+   *
+   * @param port    the port, or 0 for any free port
+   * @param models  creates the image store of each session
+   * @param metrics the metrics every session records command timings into
+   * @throws IOException if the port cannot be bound
+   */
+  public CommandServer(int port, Supplier<ModelInterface> models, CommandMetrics metrics)
+      throws IOException {
+    this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    this.models = models;
+    this.metrics = metrics;
+    this.sessions = Executors.newCachedThreadPool();
+    this.connections = Collections.synchronizedSet(new HashSet<>());
+  }
+
+  /**
+   * Binds a server whose sessions all share one image store. A {@link Model} is safe for
+   * concurrent use, so sessions run their commands on it at the same time; any other store is
+   * wrapped so that commands run one at a time.
+   *
+   * @param port    the port, or 0 for any free port
+   * @param model   the image store shared by every session
+   * @param metrics the metrics every session records command timings into
+   * @return the server
+   * @throws IOException if the port cannot be bound
+   */
+  public static CommandServer shared(int port, ModelInterface model, CommandMetrics metrics)
+      throws IOException {
+    ModelInterface sharedModel = model instanceof Model ? model : Model.synchronizedModel(model);
+    return new CommandServer(port, () -> sharedModel, metrics);
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Accepts connections until the server is closed, serving each on its own thread.
+   *
+   * @throws IOException if accepting a connection fails other than by the server being closed
+   */
+  public void serve() throws IOException {
+    while (!serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (SocketException e) {
+        if (serverSocket.isClosed()) {
+          return;
+        }
+        throw e;
+      }
+      connections.add(socket);
+      sessions.execute(() -> runSession(socket));
+    }
+  }
+
+  /**
+   * Runs one session until the client exits or disconnects.
+   *
+   * @param socket the connection
+   */
+  private void runSession(Socket socket) {
+    try (socket;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()),
+            false, StandardCharsets.UTF_8)) {
+      // Responses are flushed whole, so small ones are not held back waiting for acknowledgements
+      socket.setTcpNoDelay(true);
+      ViewInterface view = new TerminalView(out);
+      Controller controller = new Controller(in, view, models.get(), metrics);
+      view.displayMessage(DisplayMessageConstants.INITIAL_PROMPT + END_OF_RESPONSE);
+      out.flush();
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.equalsIgnoreCase(CommandConstants.EXIT)) {
+          view.displayMessage(DisplayMessageConstants.EXIT);
+          out.flush();
+          break;
+        }
+        try {
+          controller.executeCommandLine(line);
+        } catch (RuntimeException e) {
+          view.displayError(String.valueOf(e.getMessage()));
+        }
+        view.displayMessage(END_OF_RESPONSE);
+        out.flush();
+      }
+    } catch (IOException e) {
+      // The client went away; nothing is left to report to
+    } finally {
+      connections.remove(socket);
+    }
+  }
+
+  /**
+   * Stops accepting connections and ends the open sessions.
+   *
+   * @throws IOException if the server socket cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    synchronized (connections) {
+      for (Socket socket : connections) {
+        socket.close();
+      }
+    }
+    sessions.shutdown();
+  }
+}
@@ -1,6 +1,9 @@
 package ime.controller;
 
 import ime.CommandConstants;
+import ime.model.ModelInterface;
+import ime.model.OperationInfo;
+import ime.model.OperationParameter;
 import java.util.List;
 
 /**
@@ -14,13 +17,17 @@ import java.util.List;
 public class CommandValidator {
 
   /**
-   * Validates the provided command tokens.
+   * Validates the provided command tokens. Commands other than the built-in ones are checked
+   * against the description of the operation the model has under that name, such as an operation
+   * of a provider.
    *
    * @param tokens the list of command tokens to validate
+   * @param model  the model the command would run on
    * @throws IllegalArgumentException if the command is invalid or if the number of arguments is
    *                                  incorrect for the given command
    */
-  public static void validateCommand(List<String> tokens) throws IllegalArgumentException {
+  public static void validateCommand(List<String> tokens, ModelInterface model)
+      throws IllegalArgumentException {
     if (tokens.isEmpty()) {
       throw new IllegalArgumentException("Empty command");
     }
@@ -29,6 +36,8 @@ public class CommandValidator {
 
     switch (command) {
       case CommandConstants.LOAD:
+        validateLoad(tokens);
+        break;
       case CommandConstants.SAVE:
         validateLoadSave(tokens);
         break;
@@ -40,6 +49,9 @@ public class CommandValidator {
       case CommandConstants.INTENSITY_COMPONENT:
       case CommandConstants.HORIZONTAL_FLIP:
       case CommandConstants.VERTICAL_FLIP:
+      case CommandConstants.ROTATE_90:
+      case CommandConstants.ROTATE_180:
+      case CommandConstants.ROTATE_270:
         validateTwoImageCommand(tokens);
         break;
       case CommandConstants.BLUR:
@@ -51,6 +63,10 @@ public class CommandValidator {
       case CommandConstants.BRIGHTEN:
         validateBrighten(tokens);
         break;
+      case CommandConstants.BOX_BLUR:
+      case CommandConstants.GAUSSIAN_BLUR:
+        validateSizedBlur(tokens);
+        break;
       case CommandConstants.RGB_SPLIT:
         validateRgbSplit(tokens);
         break;
@@ -75,8 +91,81 @@ public class CommandValidator {
       case CommandConstants.DITHER:
         validateDither(tokens);
         break;
+      case CommandConstants.CROP:
+        validateCrop(tokens);
+        break;
+      case CommandConstants.STATS:
+        validateStats(tokens);
+        break;
       default:
-        throw new IllegalArgumentException("Invalid command: " + command);
+        validateOperation(tokens, model.getOperationInfo(tokens.get(0)));
+    }
+  }
+
+  /**
+   * Validates a command against the description of its operation: the tokens must be the
+   * operation's parameters, optionally followed by {@code split <percent>} when the operation
+   * supports it, and no image name may be the {@code split} keyword.
+   *
+   * @param tokens    the command tokens to validate
+   * @param operation the description of the operation, or null if no operation has the name
+   * @throws IllegalArgumentException if there is no such operation, or the arguments do not match
+   *                                  its parameters
+   */
+  private static void validateOperation(List<String> tokens, OperationInfo operation) {
+    if (operation == null) {
+      throw new IllegalArgumentException("Invalid command: " + tokens.get(0).toLowerCase());
+    }
+    List<OperationParameter> parameters = operation.getParameters();
+    int arguments = parameters.size() + 1;
+    if (operation.supportsSplit() && tokens.size() == arguments + 2) {
+      validateSplit(tokens, arguments);
+    } else if (tokens.size() != arguments) {
+      throw new IllegalArgumentException(operation.getName() + " command requires "
+          + parameters.size() + " arguments");
+    }
+    for (int position : operation.getInputPositions()) {
+      validateImageName(tokens, position, parameters.get(position - 1));
+    }
+    for (int position : operation.getOutputPositions()) {
+      validateImageName(tokens, position, parameters.get(position - 1));
+    }
+  }
+
+  /**
+   * Validates a trailing {@code split <percent>}, the percent being an integer from 0 to 100.
+   *
+   * @param tokens   the command tokens to validate
+   * @param position the position of the {@code split} keyword
+   * @throws IllegalArgumentException if the keyword or the percent is invalid
+   */
+  private static void validateSplit(List<String> tokens, int position) {
+    if (!tokens.get(position).equals("split")) {
+      throw new IllegalArgumentException("Expected split, got " + tokens.get(position));
+    }
+    int percent;
+    try {
+      percent = Integer.parseInt(tokens.get(position + 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Split percent must be an integer");
+    }
+    if (percent < 0 || percent > 100) {
+      throw new IllegalArgumentException("Split percent must be between 0 and 100");
+    }
+  }
+
+  /**
+   * Validates the image name at a position of a command.
+   *
+   * @param tokens    the command tokens to validate
+   * @param position  the position of the image name
+   * @param parameter the parameter the image name is given for
+   * @throws IllegalArgumentException if the image name is the {@code split} keyword
+   */
+  private static void validateImageName(List<String> tokens, int position,
+      OperationParameter parameter) {
+    if (tokens.get(position).equals("split")) {
+      throw new IllegalArgumentException("Missing image name for " + parameter.getName());
     }
   }
 
@@ -118,6 +207,21 @@ public class CommandValidator {
     }
   }
 
+  /**
+   * Validates the load command, whose file path and image name may be followed by
+   * {@link LoadOptions}.
+   *
+   * @param tokens the command tokens to validate
+   * @throws IllegalArgumentException if the number of arguments is incorrect, or the options are
+   *                                  invalid
+   */
+  private static void validateLoad(List<String> tokens) {
+    if (tokens.size() < 3) {
+      throw new IllegalArgumentException("Invalid number of arguments");
+    }
+    LoadOptions.parse(tokens, 3);
+  }
+
   /**
    * Validates commands that require loading or saving an image.
    *
@@ -172,6 +276,37 @@ public class CommandValidator {
     }
   }
 
+  /**
+   * Validates the box-blur and gaussian-blur commands, whose size precedes the two image names and
+   * the optional split. The size of a box-blur is its radius, an integer; that of a gaussian-blur
+   * is its sigma, a number.
+   *
+   * @param tokens the command tokens to validate
+   * @throws IllegalArgumentException if the number of arguments is incorrect, if the size is not
+   *                                  of the right kind of number, or if the split is invalid
+   */
+  private static void validateSizedBlur(List<String> tokens) {
+    if (tokens.size() != 4 && tokens.size() != 6) {
+      throw new IllegalArgumentException(tokens.get(0) + " command requires 3 arguments");
+    }
+    if (tokens.get(0).equalsIgnoreCase(CommandConstants.BOX_BLUR)) {
+      try {
+        Integer.parseInt(tokens.get(1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Blur radius must be an integer");
+      }
+    } else {
+      try {
+        Double.parseDouble(tokens.get(1));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Blur sigma must be a number");
+      }
+    }
+    if (tokens.size() == 6) {
+      validateSplit(tokens, 4);
+    }
+  }
+
   /**
    * Validates the rgb-split command and its arguments.
    *
@@ -208,6 +343,18 @@ public class CommandValidator {
     }
   }
 
+  /**
+   * Validates the stats command, which takes no arguments.
+   *
+   * @param tokens the command tokens to validate
+   * @throws IllegalArgumentException if any arguments are given
+   */
+  private static void validateStats(List<String> tokens) {
+    if (tokens.size() != 1) {
+      throw new IllegalArgumentException("stats command takes no arguments");
+    }
+  }
+
   /**
    * Validates the dither command and its arguments.
    *
@@ -219,4 +366,24 @@ public class CommandValidator {
       throw new IllegalArgumentException("dither command requires 2 arguments");
     }
   }
+
+  /**
+   * Validates the crop command and its arguments.
+   *
+   * @param tokens the command tokens to validate
+   * @throws IllegalArgumentException if the number of arguments is incorrect or if the region is
+   *                                  not given as integers
+   */
+  private static void validateCrop(List<String> tokens) {
+    if (tokens.size() != 7) {
+      throw new IllegalArgumentException("crop command requires 6 arguments");
+    }
+    try {
+      for (int i = 1; i <= 4; i++) {
+        Integer.parseInt(tokens.get(i));
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Crop region must be given as integers");
+    }
+  }
 }
@@ -1,7 +1,15 @@
 package ime.controller;
 
 import ime.CommandConstants;
+import ime.controller.metrics.CommandMetrics;
+import ime.controller.metrics.CommandPhase;
+import ime.controller.metrics.ImageFileEvent;
+import ime.controller.metrics.ImageFileEvents;
+import ime.model.ImageStrips;
 import ime.model.ModelInterface;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import ime.model.TileSource;
 import ime.view.DisplayMessageConstants;
 import ime.view.ViewInterface;
 import java.awt.image.BufferedImage;
@@ -10,11 +18,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * The Controller class orchestrates image processing operations by interacting with the model and
@@ -22,22 +32,75 @@ import java.util.Set;
  */
 public class Controller implements ControllerInterface {
 
-  private static final Set<String> ARGB_TYPES = Set.of("png");
+  private static final Set<String> ARGB_TYPES = Set.of("png", "tif", "tiff",
+      RawImageFormat.EXTENSION, QoiImageFormat.EXTENSION);
   private final ModelInterface model;
   private final ViewInterface view;
   private final Readable in;
   private final CommandRegistry commandRegistry;
+  private final CommandMetrics metrics;
+  private LazyEvaluator lazyEvaluator;
+  private AsyncImageIo asyncIo;
+  // The decoding of the file of the load being run, if it was read ahead
+  private AsyncImageIo.Prefetch currentPrefetch;
 
   /**
    * Constructs a Controller with the specified input source and view.
    */
   public Controller(Readable in, ViewInterface view, ModelInterface model) {
+    this(in, view, model, new CommandMetrics());
+  }
+
+  /**
+   * Constructs a Controller with the specified input source and view, recording the timing of
+   * every command into the given metrics.
+   *
+   * @param in      the source of commands
+   * @param view    the view to report to
+   * @param model   the model holding the images
+   * @param metrics the metrics to record command timings into
+   */
+  public Controller(Readable in, ViewInterface view, ModelInterface model,
+      CommandMetrics metrics) {
     this.model = model;
     this.in = in;
     this.view = view;
+    this.metrics = metrics;
     this.commandRegistry = new CommandRegistry(model, this, view);
   }
 
+  /**
+   * Sets whether commands are deferred until a {@code save} needs their result. In lazy mode,
+   * commands whose results are never saved are not run, a command repeated on the same inputs is
+   * run once, and errors in a deferred command are reported by the {@code save} which runs it.
+   *
+   * @param lazy true to defer commands, false to run each command as it is read
+   */
+  public void setLazy(boolean lazy) {
+    this.lazyEvaluator = lazy ? new LazyEvaluator(model, this) : null;
+  }
+
+  /**
+   * Sets whether image files are read and written on background threads. When on, lines are read
+   * ahead and the files of upcoming {@code load}s are decoded while earlier commands run, and a
+   * {@code save} returns once the image is copied, its file being written in the background. Saved
+   * files are reported as they complete, and all are written before {@link #run} returns.
+   *
+   * @param async true to overlap image I/O with commands, false to read and write in line
+   */
+  public void setAsyncIo(boolean async) {
+    this.asyncIo = async ? new AsyncImageIo() : null;
+  }
+
+  /**
+   * Returns the evaluator deferring commands, if lazy mode is on.
+   *
+   * @return the evaluator, or null if commands run as they are read
+   */
+  LazyEvaluator getLazyEvaluator() {
+    return lazyEvaluator;
+  }
+
   /**
    * Checks if a line is empty or a comment (starts with #).
    *
@@ -93,8 +156,9 @@ public class Controller implements ControllerInterface {
    * and processes the command.
    *
    * @param line the command line to be executed
+   * @throws IllegalArgumentException if the command is invalid
    */
-  private void executeCommandLine(String line) {
+  void executeCommandLine(String line) {
     line = line.trim();
     if (!isLineEmpty(line)) {
       view.displayMessage(DisplayMessageConstants.PROCESSING_COMMAND + line);
@@ -108,15 +172,29 @@ public class Controller implements ControllerInterface {
     Scanner scanner = new Scanner(this.in);
     String line;
     view.displayMessage(DisplayMessageConstants.INITIAL_PROMPT);
-    while (scanner.hasNextLine()) {
-      line = scanner.nextLine().trim();
-      if (line.equalsIgnoreCase(CommandConstants.EXIT)) {
-        view.displayMessage(DisplayMessageConstants.EXIT);
-        break;
+    if (asyncIo != null) {
+      try {
+        executePipelined(() -> scanner.hasNextLine() ? scanner.nextLine() : null);
+      } catch (IOException e) {
+        view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
+      } finally {
+        asyncIo.flush(view);
+      }
+    } else {
+      while (scanner.hasNextLine()) {
+        line = scanner.nextLine().trim();
+        if (line.equalsIgnoreCase(CommandConstants.EXIT)) {
+          view.displayMessage(DisplayMessageConstants.EXIT);
+          break;
+        }
+        executeCommandLine(line);
       }
-      executeCommandLine(line);
     }
     scanner.close();
+    if (lazyEvaluator != null) {
+      view.displayMessage(DisplayMessageConstants.SKIPPED_COMMANDS
+          + lazyEvaluator.countSkipped());
+    }
   }
 
   /**
@@ -153,9 +231,47 @@ public class Controller implements ControllerInterface {
    * @throws IOException if there's an error reading the script file
    */
   private void processScriptFile(BufferedReader scriptReader) throws IOException {
+    // Not read ahead: the reader of the enclosing input may hold every prefetch permit, and it
+    // only gives them back once this script is done
     String line;
     while ((line = scriptReader.readLine()) != null) {
       executeCommandLine(line.trim());
+      if (asyncIo != null) {
+        asyncIo.reportCompleted(view);
+      }
+    }
+  }
+
+  /**
+   * Executes lines read ahead on a background thread, which decodes the files of upcoming loads
+   * meanwhile, reporting saves as they complete. Only the input of the controller is read ahead;
+   * scripts it runs are executed line by line.
+   *
+   * @param reader the source of lines
+   * @throws IOException if there's an error reading the lines
+   */
+  private void executePipelined(AsyncImageIo.LineReader reader) throws IOException {
+    // Deferred loads may never run, so their files are not decoded ahead
+    AsyncImageIo.ReadAhead lines = asyncIo.readAhead(reader, this::decodeImage,
+        lazyEvaluator == null, true);
+    try {
+      AsyncImageIo.ScriptLine line;
+      while ((line = lines.next()) != null) {
+        if (line.getText().equalsIgnoreCase(CommandConstants.EXIT)) {
+          view.displayMessage(DisplayMessageConstants.EXIT);
+          break;
+        }
+        currentPrefetch = line.getPrefetch();
+        try {
+          executeCommandLine(line.getText());
+        } finally {
+          asyncIo.discard(currentPrefetch);
+          currentPrefetch = null;
+          asyncIo.reportCompleted(view);
+        }
+      }
+    } finally {
+      lines.close();
     }
   }
 
@@ -166,16 +282,61 @@ public class Controller implements ControllerInterface {
    * @return true if the command was processed successfully, false otherwise
    */
   private boolean processCommand(String command) {
+    CommandMetrics.Timer timer = metrics.start();
     List<String> commandTokens = parseCommandTokens(command);
-    CommandValidator.validateCommand(commandTokens);
+    metrics.record(commandTokens.get(0), CommandPhase.PARSE, timer);
+    return processCommandTokens(commandTokens);
+  }
+
+  /**
+   * Executes a command already split into tokens, whose tokens may contain spaces, such as a line
+   * of a batch template whose placeholders were replaced by file paths.
+   *
+   * @param commandTokens the command tokens, the command name first
+   */
+  void executeCommandTokens(List<String> commandTokens) {
+    view.displayMessage(DisplayMessageConstants.PROCESSING_COMMAND
+        + String.join(" ", commandTokens));
+    boolean isCommandExecuted = processCommandTokens(commandTokens);
+    view.displayMessage(DisplayMessageConstants.EXECUTED_COMMAND + isCommandExecuted);
+  }
+
+  /**
+   * Validates and executes the tokens of a command.
+   *
+   * @param commandTokens the command tokens
+   * @return true if the command was processed successfully, false otherwise
+   */
+  private boolean processCommandTokens(List<String> commandTokens) {
+    String commandName = commandTokens.get(0);
+    CommandMetrics.Timer timer = metrics.start();
+    try {
+      CommandValidator.validateCommand(commandTokens, model);
+    } finally {
+      metrics.record(commandName, CommandPhase.VALIDATE, timer);
+    }
+
+    timer = metrics.start();
     try {
       executeRegisteredCommand(commandTokens);
     } catch (IOException e) {
       view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
+    } catch (UncheckedIOException e) {
+      // A tile of an image loaded from a TIFF file could not be decoded
+      view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
+    } finally {
+      metrics.record(commandName, CommandPhase.EXECUTE, timer);
     }
     return true;
   }
 
+  /**
+   * Displays the timing and allocation statistics recorded for the commands run so far.
+   */
+  void printStats() {
+    view.displayMessage(metrics.formatTable());
+  }
+
   /**
    * Parses a command string into a list of command tokens.
    *
@@ -199,29 +360,181 @@ public class Controller implements ControllerInterface {
   /**
    * Reads an image from a file and stores it in the model.
    *
-   * @param commandTokens a list of command tokens, where the second token is the file path and the
-   *                      third is the image name
+   * @param commandTokens a list of command tokens, where the second token is the file path, the
+   *                      third is the image name and any further ones are {@link LoadOptions}
    * @throws IOException if there's an error reading the image file
    */
   void readImage(List<String> commandTokens) throws IOException {
     String imageFilePath = commandTokens.get(1);
     String imageName = commandTokens.get(2);
-    BufferedImage bufferedImage = loadBufferedImage(imageFilePath);
-    Map<String, int[][]> imagePixelArr = convertTo2DPixelArray(bufferedImage);
-    model.convertAndStoreImage(imageName, imagePixelArr);
+    LoadOptions options = LoadOptions.parse(commandTokens, 3);
+    if (options.isFullImage() && RawImageFormat.isRaw(imageFilePath)) {
+      loadRawImage(imageFilePath, imageName);
+      return;
+    }
+    if (options.isFullImage() && TiffTileSource.isTiff(imageFilePath)) {
+      loadTiffImage(imageFilePath, imageName);
+      return;
+    }
+    if (options.isFullImage() && QoiImageFormat.isQoi(imageFilePath)) {
+      loadQoiImage(imageFilePath, imageName);
+      return;
+    }
+    BufferedImage bufferedImage = null;
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(imageFilePath, view);
+      // Loads with options are not decoded ahead, and drop any prefetch they were given
+      bufferedImage = options.isFullImage() ? asyncIo.take(currentPrefetch, imageFilePath) : null;
+      asyncIo.discard(currentPrefetch);
+      currentPrefetch = null;
+    }
+    if (bufferedImage == null) {
+      bufferedImage = decodeImage(imageFilePath, options);
+    }
+    storeDecodedImage(imageName, bufferedImage);
+  }
+
+  /**
+   * Stores a decoded image in the model. An image of a size the model keeps off the heap is copied
+   * straight into it a row at a time; others are stored through channel matrices.
+   *
+   * @param imageName the name to store the image under
+   * @param image     the decoded image
+   */
+  private void storeDecodedImage(String imageName, BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (ImageStrips.isOffHeapSize(model, height, width)) {
+      ImageStrips.store(model, imageName, height, width,
+          (row, y) -> image.getRGB(0, y, width, 1, row, 0, width));
+      return;
+    }
+    model.convertAndStoreImage(imageName, convertTo2DPixelArray(image));
+  }
+
+  /**
+   * Loads a file of the native raw format by mapping it straight into the model, with no decoding
+   * to time, once pending saves of the file are written.
+   *
+   * @param imageFilePath the path to the raw file
+   * @param imageName     the name to store the image under
+   * @throws IOException if the file is not a valid raw image
+   */
+  private void loadRawImage(String imageFilePath, String imageName) throws IOException {
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(imageFilePath, view);
+      asyncIo.discard(currentPrefetch);
+      currentPrefetch = null;
+    }
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginLoad();
+    RawImageFormat.Header header;
+    try {
+      header = RawImageFormat.load(model, imageName, imageFilePath);
+    } finally {
+      metrics.record(CommandConstants.LOAD, CommandPhase.DECODE, timer);
+    }
+    ImageFileEvents.complete(event, imageFilePath, header.getWidth(), header.getHeight());
+  }
+
+  /**
+   * Loads a TIFF file by reading its header only, once pending saves of the file are written. Its
+   * tiles are decoded when operations first read them.
+   *
+   * @param imageFilePath the path to the TIFF file
+   * @param imageName     the name to store the image under
+   * @throws IOException if the file is not a TIFF file that can be read
+   */
+  private void loadTiffImage(String imageFilePath, String imageName) throws IOException {
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(imageFilePath, view);
+      asyncIo.discard(currentPrefetch);
+      currentPrefetch = null;
+    }
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginLoad();
+    TiffTileSource source;
+    try {
+      source = TiffTileSource.open(imageFilePath);
+      TileSource.store(model, imageName, source);
+    } finally {
+      metrics.record(CommandConstants.LOAD, CommandPhase.DECODE, timer);
+    }
+    ImageFileEvents.complete(event, imageFilePath, source.getWidth(), source.getHeight());
+  }
+
+  /**
+   * Loads a QOI file by decoding it row by row straight into the model, once pending saves of the
+   * file are written.
+   *
+   * @param imageFilePath the path to the QOI file
+   * @param imageName     the name to store the image under
+   * @throws IOException if the file is not a valid QOI image
+   */
+  private void loadQoiImage(String imageFilePath, String imageName) throws IOException {
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(imageFilePath, view);
+      asyncIo.discard(currentPrefetch);
+      currentPrefetch = null;
+    }
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginLoad();
+    QoiImageFormat.Header header;
+    try {
+      header = QoiImageFormat.load(model, imageName, imageFilePath);
+    } finally {
+      metrics.record(CommandConstants.LOAD, CommandPhase.DECODE, timer);
+    }
+    ImageFileEvents.complete(event, imageFilePath, header.getWidth(), header.getHeight());
+  }
+
+  /**
+   * Decodes an image file, recording its decoding time. May be called on any thread.
+   *
+   * @param imageFilePath the path to the image file
+   * @return the decoded image
+   * @throws IOException if there's an error reading the image file
+   */
+  private BufferedImage decodeImage(String imageFilePath) throws IOException {
+    return decodeImage(imageFilePath, LoadOptions.NONE);
+  }
+
+  /**
+   * Decodes part of an image file, or a subsampled copy of it, recording its decoding time. May be
+   * called on any thread.
+   *
+   * @param imageFilePath the path to the image file
+   * @param options       the region and subsampling to decode
+   * @return the decoded image
+   * @throws IOException if there's an error reading the image file
+   */
+  private BufferedImage decodeImage(String imageFilePath, LoadOptions options)
+      throws IOException {
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginLoad();
+    BufferedImage bufferedImage;
+    try {
+      bufferedImage = loadBufferedImage(imageFilePath, options);
+    } finally {
+      metrics.record(CommandConstants.LOAD, CommandPhase.DECODE, timer);
+    }
+    ImageFileEvents.complete(event, imageFilePath, bufferedImage);
+    return bufferedImage;
   }
 
   /**
    * Loads a BufferedImage from a file.
    *
    * @param imageFilePath the path to the image file
+   * @param options       the region and subsampling to decode
    * @return a BufferedImage object representing the loaded image
    * @throws IOException if there's an error reading the image file
    */
-  private BufferedImage loadBufferedImage(String imageFilePath) throws IOException {
+  private BufferedImage loadBufferedImage(String imageFilePath, LoadOptions options)
+      throws IOException {
     String fileType = getFileExtension(imageFilePath);
     ImageReader reader = ImageReaderFactory.getReader(fileType);
-    return reader.read(imageFilePath);
+    return reader.read(imageFilePath, options);
   }
 
   /**
@@ -234,17 +547,115 @@ public class Controller implements ControllerInterface {
   void saveImage(List<String> commandTokens) throws IOException {
     String outputPath = commandTokens.get(1);
     String imageName = commandTokens.get(2);
-    Map<String, int[][]> matrices = fetchImageMatrices(imageName);
+    if (RawImageFormat.isRaw(outputPath)) {
+      saveRawImage(imageName, outputPath);
+      return;
+    }
+    if (QoiImageFormat.isQoi(outputPath)) {
+      saveQoiImage(imageName, outputPath);
+      return;
+    }
+    Supplier<BufferedImage> image;
+    if (ImageStrips.isOffHeap(model, imageName)) {
+      BufferedImage copy = fetchBufferedImage(imageName, outputPath);
+      if (copy == null) {
+        return;
+      }
+      image = () -> copy;
+    } else {
+      Map<String, int[][]> matrices = fetchImageMatrices(imageName);
+      if (matrices == null) {
+        return;
+      }
+      image = () -> createBufferedImage(matrices, outputPath);
+    }
 
-    if (matrices == null) {
+    if (asyncIo != null) {
+      // The matrices or rows are a copy, so the image may change while they are written
+      asyncIo.save(outputPath, () -> encodeImage(image, outputPath));
       return;
     }
+    encodeImage(image, outputPath);
+    view.displayMessage(DisplayMessageConstants.SAVED_TO + outputPath);
+  }
 
-    BufferedImage image = createBufferedImage(matrices, outputPath);
-    writeImageToFile(image, outputPath);
+  /**
+   * Saves an image in the native raw format, writing straight from the stored image. Raw saves
+   * are quick enough to make in order even in asynchronous mode, which also spares taking a copy
+   * of the image.
+   *
+   * @param imageName  the name of the image
+   * @param outputPath the path where the image should be saved
+   * @throws IOException if there's an error writing the image file
+   */
+  private void saveRawImage(String imageName, String outputPath) throws IOException {
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(outputPath, view);
+    }
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginSave();
+    RawImageFormat.Header header;
+    try {
+      header = RawImageFormat.save(model, imageName, outputPath);
+    } catch (IllegalArgumentException e) {
+      view.displayError(e.getMessage());
+      return;
+    } finally {
+      metrics.record(CommandConstants.SAVE, CommandPhase.ENCODE, timer);
+    }
+    ImageFileEvents.complete(event, outputPath, header.getWidth(), header.getHeight());
     view.displayMessage(DisplayMessageConstants.SAVED_TO + outputPath);
   }
 
+  /**
+   * Saves an image as a QOI file, encoding straight from the stored image. QOI saves are quick
+   * enough to make in order even in asynchronous mode, which also spares taking a copy of the
+   * image.
+   *
+   * @param imageName  the name of the image
+   * @param outputPath the path where the image should be saved
+   * @throws IOException if there's an error writing the image file
+   */
+  private void saveQoiImage(String imageName, String outputPath) throws IOException {
+    if (asyncIo != null) {
+      asyncIo.awaitSaves(outputPath, view);
+    }
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginSave();
+    QoiImageFormat.Header header;
+    try {
+      header = QoiImageFormat.save(model, imageName, outputPath);
+    } catch (IllegalArgumentException e) {
+      view.displayError(e.getMessage());
+      return;
+    } finally {
+      metrics.record(CommandConstants.SAVE, CommandPhase.ENCODE, timer);
+    }
+    ImageFileEvents.complete(event, outputPath, header.getWidth(), header.getHeight());
+    view.displayMessage(DisplayMessageConstants.SAVED_TO + outputPath);
+  }
+
+  /**
+   * Encodes an image and writes it to a file, recording the encoding time. May be called on any
+   * thread.
+   *
+   * @param source     creates the image to write
+   * @param outputPath the path where the image should be saved
+   * @throws IOException if there's an error writing the image file
+   */
+  private void encodeImage(Supplier<BufferedImage> source, String outputPath) throws IOException {
+    CommandMetrics.Timer timer = metrics.start();
+    ImageFileEvent event = ImageFileEvents.beginSave();
+    BufferedImage image;
+    try {
+      image = source.get();
+      writeImageToFile(image, outputPath);
+    } finally {
+      metrics.record(CommandConstants.SAVE, CommandPhase.ENCODE, timer);
+    }
+    ImageFileEvents.complete(event, outputPath, image);
+  }
+
   /**
    * Fetches the image matrices from the model for a given image name.
    *
@@ -260,6 +671,46 @@ public class Controller implements ControllerInterface {
     }
   }
 
+  /**
+   * Copies an image of the model into a BufferedImage a row at a time, without going through
+   * channel matrices.
+   *
+   * @param imageName  the name of the image to fetch
+   * @param outputPath the output path for the image, used to determine if alpha channel should be
+   *                   included
+   * @return the copy, or null if the image could not be read
+   */
+  private BufferedImage fetchBufferedImage(String imageName, String outputPath) {
+    try (ImageStrips.Rows rows = ImageStrips.open(model, imageName)) {
+      int width = rows.getWidth();
+      BufferedImage image = newBufferedImage(width, rows.getHeight(), outputPath);
+      int[] row = new int[width];
+      for (int y = 0; y < rows.getHeight(); y++) {
+        rows.read(y, row);
+        image.setRGB(0, y, width, 1, row, 0, width);
+      }
+      return image;
+    } catch (IllegalArgumentException e) {
+      view.displayError(e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Creates an empty BufferedImage of the type a file format is written from.
+   *
+   * @param width      the width of the image
+   * @param height     the height of the image
+   * @param outputPath the output path for the image, used to determine if alpha channel should be
+   *                   included
+   * @return the empty image
+   */
+  private static BufferedImage newBufferedImage(int width, int height, String outputPath) {
+    boolean isARGB = ARGB_TYPES.contains(getFileExtension(outputPath));
+    return new BufferedImage(width, height,
+        isARGB ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+  }
+
   /**
    * Creates a BufferedImage from the given image matrices.
    *
@@ -272,8 +723,7 @@ public class Controller implements ControllerInterface {
     int height = matrices.get("red").length;
     int width = matrices.get("red")[0].length;
     boolean isARGB = ARGB_TYPES.contains(getFileExtension(outputPath));
-    BufferedImage image = new BufferedImage(width, height,
-        isARGB ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    BufferedImage image = newBufferedImage(width, height, outputPath);
 
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
@@ -18,4 +18,19 @@ public interface ImageReader {
    *                     exist or is not accessible
    */
   BufferedImage read(String filePath) throws IOException;
+
+  /**
+   * Reads part of an image, or a subsampled copy of it, from the specified file path. This
+   * implementation decodes the whole image and then applies the options; readers which can apply
+   * them while decoding override it.
+   *
+   * @param filePath the path of the image file to read
+   * @param options  the region and subsampling to decode
+   * @return a BufferedImage object representing the part of the image read
+   * @throws IOException              if an error occurs while reading the image
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  default BufferedImage read(String filePath, LoadOptions options) throws IOException {
+    return options.applyTo(read(filePath));
+  }
 }
@@ -1,5 +1,8 @@
 package ime.controller;
 
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+
 /**
  * Factory class for creating instances of {ImageReader}. This class provides a method to obtain an
  * appropriate image reader based on the specified file type.
@@ -16,6 +19,15 @@ public class ImageReaderFactory {
     if (fileType.equalsIgnoreCase("ppm")) {
       return new PPMImageReader();
     }
+    if (fileType.equalsIgnoreCase(RawImageFormat.EXTENSION)) {
+      return new RawImageReader();
+    }
+    if (fileType.equalsIgnoreCase(QoiImageFormat.EXTENSION)) {
+      return new QoiImageReader();
+    }
+    if (fileType.equalsIgnoreCase("tif") || fileType.equalsIgnoreCase("tiff")) {
+      return new TiffImageReader();
+    }
     return new StandardImageReader();
   }
 }
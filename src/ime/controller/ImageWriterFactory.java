@@ -1,11 +1,30 @@
 package ime.controller;
 
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import java.util.zip.Deflater;
+
 /**
  * Factory class for creating instances of {ImageWriter}. This class provides a method to obtain an
  * appropriate image writer based on the specified file type.
  */
 public class ImageWriterFactory {
 
+  private static volatile int pngCompressionLevel = PngImageWriter.DEFAULT_LEVEL;
+
+  /**
+   * Sets the deflate level of the PNG files written from then on.
+   *
+   * @param level the level, from 0 for no compression to 9 for the smallest files
+   * @throws IllegalArgumentException if the level is out of range
+   */
+  public static void setPngCompressionLevel(int level) {
+    if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("PNG compression level must be between 0 and 9");
+    }
+    pngCompressionLevel = level;
+  }
+
   /**
    * Retrieves an {ImageWriter} instance based on the specified file type.
    *
@@ -16,6 +35,18 @@ public class ImageWriterFactory {
     if (fileType.equalsIgnoreCase("ppm")) {
       return new PPMImageWriter();
     }
+    if (fileType.equalsIgnoreCase("png")) {
+      return new PngImageWriter(pngCompressionLevel);
+    }
+    if (fileType.equalsIgnoreCase(RawImageFormat.EXTENSION)) {
+      return new RawImageWriter();
+    }
+    if (fileType.equalsIgnoreCase(QoiImageFormat.EXTENSION)) {
+      return new QoiImageWriter();
+    }
+    if (fileType.equalsIgnoreCase("tif") || fileType.equalsIgnoreCase("tiff")) {
+      return new TiffImageWriter();
+    }
     return new StandardImageWriter();
   }
 }
@@ -0,0 +1,297 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.model.ModelInterface;
+import ime.model.OperationInfo;
+import ime.model.OperationParameter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The LazyEvaluator class defers the commands of a script into a graph instead of running them as
+ * they are read. Only a {@code save} causes work: it runs the commands producing the saved image,
+ * and the commands those depend on, and nothing else. Results which are never saved are never
+ * computed, and a command repeated with the same parameters on the same inputs is only run once.
+ *
+ * <p>Every image a deferred command produces is stored in the model under a versioned name, so
+ * that a later command reusing a name cannot overwrite an image an earlier, not yet run, command
+ * still needs. Versions which can no longer be reached from any name are removed from the model
+ * after each save.</p>
+ */
+class LazyEvaluator {
+
+  private static final String VERSION_PREFIX = "#";
+
+  private final ModelInterface model;
+  private final Controller controller;
+  // The node and versioned image currently bound to each name used by the script
+  private final Map<String, Binding> bindings;
+  // Nodes by the command and inputs they compute, for sharing repeated commands
+  private final Map<List<String>, Node> nodes;
+  // Number of saves made to each path, so that a load after a save reads the file anew
+  private final Map<String, Integer> saveCounts;
+  private int nextVersion;
+
+  /**
+   * Constructs an evaluator running deferred commands on the given model and controller.
+   *
+   * @param model      the model running operations
+   * @param controller the controller loading and saving images
+   */
+  LazyEvaluator(ModelInterface model, Controller controller) {
+    this.model = model;
+    this.controller = controller;
+    this.bindings = new HashMap<>();
+    this.nodes = new HashMap<>();
+    this.saveCounts = new HashMap<>();
+  }
+
+  /**
+   * Defers a {@code load} command.
+   *
+   * @param commandTokens the command tokens: load, the file path, the image name and any load
+   *                      options
+   */
+  void deferLoad(List<String> commandTokens) {
+    // Loads of one file with different options, or between saves to it, are different nodes
+    List<String> key = new ArrayList<>(commandTokens);
+    key.remove(2);
+    key.add(VERSION_PREFIX + saveCounts.getOrDefault(commandTokens.get(1), 0));
+    Node node = nodes.get(key);
+    if (node == null) {
+      node = new Node(new ArrayList<>(commandTokens), List.of(), List.of(2));
+      node.tokens.set(2, newVersion(commandTokens.get(2)));
+      nodes.put(key, node);
+    }
+    bindings.put(commandTokens.get(2), new Binding(node, node.tokens.get(2)));
+  }
+
+  /**
+   * Defers an operation of the model. Operations the model does not describe, or given too few
+   * arguments, are run at once so that they fail as they would without deferral.
+   *
+   * @param commandTokens the command tokens
+   */
+  void deferOperation(List<String> commandTokens) {
+    String commandName = commandTokens.get(0);
+    OperationInfo operation = model.getOperationInfo(commandName);
+    if (operation == null || commandTokens.size() <= operation.getParameters().size()) {
+      model.operationsFactoryCall(commandName, commandTokens, model);
+      return;
+    }
+
+    List<String> tokens = new ArrayList<>(commandTokens);
+    List<String> key = new ArrayList<>();
+    List<Node> inputs = new ArrayList<>();
+    key.add(commandName);
+    for (int position = 1; position < tokens.size(); position++) {
+      OperationParameter.Role role = roleOf(operation, position);
+      if (role == OperationParameter.Role.INPUT_IMAGE) {
+        Binding binding = bindings.get(tokens.get(position));
+        if (binding != null) {
+          tokens.set(position, binding.version);
+          inputs.add(binding.node);
+        }
+        key.add(tokens.get(position));
+      } else if (role == OperationParameter.Role.OUTPUT_IMAGE) {
+        key.add(VERSION_PREFIX);
+      } else {
+        key.add(tokens.get(position));
+      }
+    }
+
+    Node node = nodes.get(key);
+    if (node == null) {
+      for (int position : operation.getOutputPositions()) {
+        tokens.set(position, newVersion(tokens.get(position)));
+      }
+      node = new Node(tokens, inputs, operation.getOutputPositions());
+      nodes.put(key, node);
+    }
+    for (int position : operation.getOutputPositions()) {
+      bindings.put(commandTokens.get(position), new Binding(node, node.tokens.get(position)));
+    }
+  }
+
+  /**
+   * Runs a {@code save} command, first running every deferred command the saved image depends
+   * on. Deferred loads of the file saved to are run before it is written, since names bound to
+   * them refer to the file as it was. Images no longer reachable from any name are removed from
+   * the model afterwards.
+   *
+   * @param commandTokens the command tokens: save, the file path and the image name
+   * @throws IOException if an image cannot be read or written
+   */
+  void save(List<String> commandTokens) throws IOException {
+    Binding binding = bindings.get(commandTokens.get(2));
+    if (binding != null) {
+      evaluate(binding.node);
+    }
+    String path = commandTokens.get(1);
+    for (Node node : liveNodes()) {
+      if (!node.executed && CommandConstants.LOAD.equals(node.tokens.get(0))
+          && path.equals(node.tokens.get(1))) {
+        execute(node);
+      }
+    }
+    saveCounts.merge(path, 1, Integer::sum);
+    if (binding == null) {
+      controller.saveImage(commandTokens);
+      return;
+    }
+    controller.saveImage(List.of(commandTokens.get(0), path, binding.version));
+    collectUnreachable();
+  }
+
+  /**
+   * Counts the deferred commands which never had to run.
+   *
+   * @return the number of commands skipped so far
+   */
+  int countSkipped() {
+    int skipped = 0;
+    for (Node node : nodes.values()) {
+      if (!node.everExecuted) {
+        skipped++;
+      }
+    }
+    return skipped;
+  }
+
+  /**
+   * Runs a node after the nodes it depends on, in dependency order, skipping those already run.
+   *
+   * @param target the node to run
+   * @throws IOException if an image cannot be read
+   */
+  private void evaluate(Node target) throws IOException {
+    // Iterative post-order walk, since chains of commands can be long
+    Deque<Node> stack = new ArrayDeque<>();
+    Set<Node> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+    stack.push(target);
+    while (!stack.isEmpty()) {
+      Node node = stack.peek();
+      if (node.executed) {
+        stack.pop();
+      } else if (expanded.add(node)) {
+        for (Node input : node.inputs) {
+          if (!input.executed) {
+            stack.push(input);
+          }
+        }
+      } else {
+        stack.pop();
+        execute(node);
+      }
+    }
+  }
+
+  private void execute(Node node) throws IOException {
+    String commandName = node.tokens.get(0);
+    if (CommandConstants.LOAD.equals(commandName)) {
+      controller.readImage(node.tokens);
+    } else {
+      model.operationsFactoryCall(commandName, node.tokens, model);
+    }
+    node.executed = true;
+    node.everExecuted = true;
+  }
+
+  /**
+   * Removes from the model the images of run nodes which neither a name nor a pending node can
+   * reach any more. Such nodes are marked as not run, so a repeated command recomputes them.
+   */
+  private void collectUnreachable() {
+    Set<Node> live = liveNodes();
+    Set<String> liveVersions = new HashSet<>();
+    for (Binding binding : bindings.values()) {
+      liveVersions.add(binding.version);
+    }
+    for (Node node : nodes.values()) {
+      if (node.executed && !live.contains(node)) {
+        for (int position : node.outputs) {
+          if (!liveVersions.contains(node.tokens.get(position))) {
+            model.removeImage(node.tokens.get(position));
+          }
+        }
+        node.executed = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the nodes a name is bound to, and the nodes a node not yet run needs.
+   */
+  private Set<Node> liveNodes() {
+    Set<Node> live = Collections.newSetFromMap(new IdentityHashMap<>());
+    Deque<Node> pending = new ArrayDeque<>();
+    for (Binding binding : bindings.values()) {
+      if (live.add(binding.node)) {
+        pending.push(binding.node);
+      }
+    }
+    while (!pending.isEmpty()) {
+      Node node = pending.pop();
+      if (!node.executed) {
+        for (Node input : node.inputs) {
+          if (live.add(input)) {
+            pending.push(input);
+          }
+        }
+      }
+    }
+    return live;
+  }
+
+  private String newVersion(String name) {
+    return VERSION_PREFIX + (nextVersion++) + ":" + name;
+  }
+
+  private static OperationParameter.Role roleOf(OperationInfo operation, int position) {
+    List<OperationParameter> parameters = operation.getParameters();
+    return position <= parameters.size() ? parameters.get(position - 1).getRole()
+        : OperationParameter.Role.VALUE;
+  }
+
+  /**
+   * A deferred command, with its image names replaced by versioned names.
+   */
+  private static final class Node {
+
+    private final List<String> tokens;
+    private final List<Node> inputs;
+    private final List<Integer> outputs;
+    // Whether the node's images are held by the model, and whether it ever ran
+    private boolean executed;
+    private boolean everExecuted;
+
+    private Node(List<String> tokens, List<Node> inputs, List<Integer> outputs) {
+      this.tokens = tokens;
+      this.inputs = inputs;
+      this.outputs = outputs;
+    }
+  }
+
+  /**
+   * The versioned image a name refers to, and the node producing it.
+   */
+  private static final class Binding {
+
+    private final Node node;
+    private final String version;
+
+    private Binding(Node node, String version) {
+      this.node = node;
+      this.version = version;
+    }
+  }
+}
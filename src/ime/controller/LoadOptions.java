@@ -0,0 +1,223 @@
+package ime.controller;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import javax.imageio.ImageReadParam;
+
+/**
+ * The options of a {@code load} command which let readers decode less than the whole image:
+ *
+ * <pre>
+ *   load path name [region x y width height] [subsample factor | size width height]
+ * </pre>
+ *
+ * <p>{@code region} decodes only a rectangle of the image. {@code subsample} keeps every
+ * {@code factor}-th pixel of every {@code factor}-th row, starting with the top left one.
+ * {@code size} picks the largest subsampling factor which keeps the decoded image at least
+ * {@code width} by {@code height}, and lets readers use a reduced-resolution copy stored in the
+ * file instead, so that a following {@code downscale} to that size reads as few pixels as
+ * possible. The region applies first, and the subsampling to the region.</p>
+ */
+public final class LoadOptions {
+
+  /**
+   * The options of a load decoding the whole image at full resolution.
+   */
+  public static final LoadOptions NONE = new LoadOptions(null, 1, 0, 0);
+
+  private static final String REGION = "region";
+  private static final String SUBSAMPLE = "subsample";
+  private static final String SIZE = "size";
+
+  private final Rectangle region;
+  private final int subsample;
+  private final int targetWidth;
+  private final int targetHeight;
+
+  private LoadOptions(Rectangle region, int subsample, int targetWidth, int targetHeight) {
+    this.region = region;
+    this.subsample = subsample;
+    this.targetWidth = targetWidth;
+    this.targetHeight = targetHeight;
+  }
+
+  /**
+   * Parses the options following the file path and image name of a {@code load} command.
+   *
+   * @param tokens the tokens of the command
+   * @param first  the index of the first option token
+   * @return the options, {@link #NONE} if there are no option tokens
+   * @throws IllegalArgumentException if an option is unknown, repeated, or has missing or
+   *                                  non-positive values, or both subsample and size are given
+   */
+  public static LoadOptions parse(List<String> tokens, int first) {
+    Rectangle region = null;
+    int subsample = 0;
+    int targetWidth = 0;
+    int targetHeight = 0;
+    int index = first;
+    while (index < tokens.size()) {
+      String option = tokens.get(index).toLowerCase();
+      switch (option) {
+        case REGION:
+          if (region != null) {
+            throw new IllegalArgumentException("Load option region is given twice");
+          }
+          int x = parseValue(tokens, index + 1, option, 0);
+          int y = parseValue(tokens, index + 2, option, 0);
+          region = new Rectangle(x, y, parseValue(tokens, index + 3, option, 1),
+              parseValue(tokens, index + 4, option, 1));
+          index += 5;
+          break;
+        case SUBSAMPLE:
+          if (subsample != 0) {
+            throw new IllegalArgumentException("Load option subsample is given twice");
+          }
+          subsample = parseValue(tokens, index + 1, option, 1);
+          index += 2;
+          break;
+        case SIZE:
+          if (targetWidth != 0) {
+            throw new IllegalArgumentException("Load option size is given twice");
+          }
+          targetWidth = parseValue(tokens, index + 1, option, 1);
+          targetHeight = parseValue(tokens, index + 2, option, 1);
+          index += 3;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown load option: " + tokens.get(index));
+      }
+    }
+    if (subsample != 0 && targetWidth != 0) {
+      throw new IllegalArgumentException("Load options subsample and size cannot both be given");
+    }
+    if (region == null && subsample == 0 && targetWidth == 0) {
+      return NONE;
+    }
+    return new LoadOptions(region, Math.max(subsample, 1), targetWidth, targetHeight);
+  }
+
+  private static int parseValue(List<String> tokens, int index, String option, int minimum) {
+    if (index >= tokens.size()) {
+      throw new IllegalArgumentException("Load option " + option + " is missing values");
+    }
+    int value;
+    try {
+      value = Integer.parseInt(tokens.get(index));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Load option " + option + " takes whole numbers");
+    }
+    if (value < minimum) {
+      throw new IllegalArgumentException(
+          "Load option " + option + " values must be at least " + minimum);
+    }
+    return value;
+  }
+
+  /**
+   * Tells whether these options decode the whole image at full resolution.
+   *
+   * @return true for {@link #NONE}
+   */
+  public boolean isFullImage() {
+    return this == NONE;
+  }
+
+  /**
+   * Tells whether a reduced-resolution copy of the whole image stored in the file, such as a
+   * thumbnail, may be loaded instead of the image. It may when a target size was given, no region
+   * was, and the copy is at least as large as the target size.
+   *
+   * @param width  the width of the copy
+   * @param height the height of the copy
+   * @return true if the copy may be loaded instead
+   */
+  public boolean accepts(int width, int height) {
+    return targetWidth > 0 && region == null && width >= targetWidth && height >= targetHeight;
+  }
+
+  /**
+   * Returns the region to decode from an image of the given size.
+   *
+   * @param sourceWidth  the width of the image in the file
+   * @param sourceHeight the height of the image in the file
+   * @return the region, the whole image if no region was given
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  public Rectangle region(int sourceWidth, int sourceHeight) {
+    if (region == null) {
+      return new Rectangle(0, 0, sourceWidth, sourceHeight);
+    }
+    if (region.x + region.width > sourceWidth || region.y + region.height > sourceHeight) {
+      throw new IllegalArgumentException("Load region must lie inside the "
+          + sourceWidth + "x" + sourceHeight + " image");
+    }
+    return new Rectangle(region);
+  }
+
+  /**
+   * Returns the subsampling factor for decoding a region of the given size: the factor given, or
+   * the largest one meeting the target size.
+   *
+   * @param regionWidth  the width of the region decoded
+   * @param regionHeight the height of the region decoded
+   * @return the factor, 1 for full resolution
+   */
+  public int subsampling(int regionWidth, int regionHeight) {
+    if (targetWidth == 0) {
+      return subsample;
+    }
+    return Math.max(1, Math.min(regionWidth / targetWidth, regionHeight / targetHeight));
+  }
+
+  /**
+   * Sets the source region and subsampling of an ImageIO read.
+   *
+   * @param param        the parameters of the read
+   * @param sourceWidth  the width of the image in the file
+   * @param sourceHeight the height of the image in the file
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  public void applyTo(ImageReadParam param, int sourceWidth, int sourceHeight) {
+    Rectangle decoded = region(sourceWidth, sourceHeight);
+    param.setSourceRegion(decoded);
+    int factor = subsampling(decoded.width, decoded.height);
+    param.setSourceSubsampling(factor, factor, 0, 0);
+  }
+
+  /**
+   * Applies the options to an image decoded in full, for readers which cannot apply them while
+   * decoding.
+   *
+   * @param image the decoded image
+   * @return the image of the region, subsampled; the image itself for {@link #NONE}
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  public BufferedImage applyTo(BufferedImage image) {
+    if (isFullImage()) {
+      return image;
+    }
+    Rectangle decoded = region(image.getWidth(), image.getHeight());
+    int factor = subsampling(decoded.width, decoded.height);
+    BufferedImage result = new BufferedImage(subsampledLength(decoded.width, factor),
+        subsampledLength(decoded.height, factor), BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < result.getHeight(); y++) {
+      for (int x = 0; x < result.getWidth(); x++) {
+        result.setRGB(x, y, image.getRGB(decoded.x + x * factor, decoded.y + y * factor));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of pixels kept from a run of pixels subsampled by a factor.
+   *
+   * @param length the length of the run
+   * @param factor the subsampling factor
+   * @return the number of pixels kept
+   */
+  public static int subsampledLength(int length, int factor) {
+    return (length + factor - 1) / factor;
+  }
+}
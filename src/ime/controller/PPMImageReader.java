@@ -1,5 +1,6 @@
 package ime.controller;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -10,6 +11,9 @@ import java.util.Objects;
  * Implementation of the {@link ImageReader} interface for reading images in the PPM (Portable
  * Pixmap) format. This class provides the functionality to read PPM files and convert them into
  * {@link BufferedImage} objects.
+ *
+ * <p>Reads with a region or subsampling only parse the values of the pixels kept, and stop after
+ * the last row of the region.</p>
  */
 public class PPMImageReader implements ImageReader {
 
@@ -23,18 +27,34 @@ public class PPMImageReader implements ImageReader {
    */
   @Override
   public BufferedImage read(String filePath) {
-    return readPPM(filePath);
+    return readPPM(filePath, LoadOptions.NONE);
+  }
+
+  /**
+   * Reads part of a PPM image, or a subsampled copy of it, from the specified file path.
+   *
+   * @param filePath the path to the PPM file to read.
+   * @param options  the region and subsampling to decode
+   * @return a {@link BufferedImage} representation of the part of the image read.
+   * @throws RuntimeException         if an error occurs while reading the image, such as invalid
+   *                                  format or I/O issues.
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  @Override
+  public BufferedImage read(String filePath, LoadOptions options) {
+    return readPPM(filePath, options);
   }
 
   /**
    * Reads a PPM image from the specified file path and converts it into a {@link BufferedImage}.
    *
    * @param filePath the path to the PPM file to read.
+   * @param options  the region and subsampling to decode
    * @return a {@link BufferedImage} representation of the read PPM image.
    * @throws RuntimeException if an error occurs while reading the image, such as invalid format or
    *                          I/O issues.
    */
-  private BufferedImage readPPM(String filePath) {
+  private BufferedImage readPPM(String filePath, LoadOptions options) {
     try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
       String line;
 
@@ -63,14 +83,26 @@ public class PPMImageReader implements ImageReader {
         }
       }
 
-      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-      for (int y = 0; y < height; y++) {
+      Rectangle region = options.region(width, height);
+      int factor = options.subsampling(region.width, region.height);
+      BufferedImage image = new BufferedImage(
+          LoadOptions.subsampledLength(region.width, factor),
+          LoadOptions.subsampledLength(region.height, factor), BufferedImage.TYPE_INT_RGB);
+      for (int y = 0; y < region.y + region.height; y++) {
+        boolean keptRow = y >= region.y && (y - region.y) % factor == 0;
         for (int x = 0; x < width; x++) {
+          if (!keptRow || x < region.x || x >= region.x + region.width
+              || (x - region.x) % factor != 0) {
+            br.readLine();
+            br.readLine();
+            br.readLine();
+            continue;
+          }
           int r = Integer.parseInt(br.readLine());
           int g = Integer.parseInt(br.readLine());
           int b = Integer.parseInt(br.readLine());
           int rgb = (r << 16) | (g << 8) | b;
-          image.setRGB(x, y, rgb);
+          image.setRGB((x - region.x) / factor, (y - region.y) / factor, rgb);
         }
       }
 
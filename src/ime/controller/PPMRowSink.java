@@ -0,0 +1,72 @@
+package ime.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes an image to a plain (P3) PPM file one row at a time, in the layout of
+ * {@link PPMImageWriter}: one channel value per line, with alpha dropped.
+ */
+class PPMRowSink extends RowSink {
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final OutputStream out;
+  private final int width;
+  private final byte[] line;
+
+  /**
+   * Creates the file and writes its header.
+   *
+   * @param filePath the path of the file
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @throws IOException if the file cannot be written
+   */
+  PPMRowSink(String filePath, int width, int height) throws IOException {
+    super(filePath);
+    this.out = new BufferedOutputStream(Files.newOutputStream(getTemporary()), BUFFER_BYTES);
+    this.width = width;
+    // Room for three values of up to three digits, each ending a line
+    this.line = new byte[12];
+    try {
+      out.write(("P3\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  void write(int[] argb) throws IOException {
+    for (int x = 0; x < width; x++) {
+      int length = appendValue(argb[x] >> 16 & 0xFF, 0);
+      length = appendValue(argb[x] >> 8 & 0xFF, length);
+      length = appendValue(argb[x] & 0xFF, length);
+      out.write(line, 0, length);
+    }
+  }
+
+  @Override
+  void closeFile() throws IOException {
+    out.close();
+  }
+
+  /**
+   * Appends a channel value and a line break to the line buffer.
+   */
+  private int appendValue(int value, int length) {
+    if (value >= 100) {
+      line[length++] = (byte) ('0' + value / 100);
+    }
+    if (value >= 10) {
+      line[length++] = (byte) ('0' + value / 10 % 10);
+    }
+    line[length++] = (byte) ('0' + value % 10);
+    line[length++] = '\n';
+    return length;
+  }
+}
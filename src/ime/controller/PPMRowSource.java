@@ -0,0 +1,110 @@
+package ime.controller;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads the rows of a plain (P3) PPM file one at a time, parsing the values as they are needed.
+ * Like {@link PPMImageReader}, it reads every value as an 8-bit channel whatever the maximum value
+ * of the file, and makes every pixel opaque.
+ */
+class PPMRowSource implements RowSource {
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final InputStream in;
+  private final int width;
+  private final int height;
+
+  /**
+   * Opens a PPM file and reads its header.
+   *
+   * @param filePath the path of the file
+   * @throws IOException if the file cannot be read or is not a plain PPM file
+   */
+  PPMRowSource(String filePath) throws IOException {
+    this.in = new BufferedInputStream(Files.newInputStream(Paths.get(filePath)), BUFFER_BYTES);
+    try {
+      if (skipSeparators() != 'P' || nextByte() != '3') {
+        throw new IOException("Invalid PPM file format");
+      }
+      this.width = nextValue();
+      this.height = nextValue();
+      nextValue();
+      if (width <= 0 || height <= 0) {
+        throw new IOException("Invalid PPM dimensions: " + width + "x" + height);
+      }
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void next(int[] argb) throws IOException {
+    for (int x = 0; x < width; x++) {
+      int r = nextValue();
+      int g = nextValue();
+      int b = nextValue();
+      argb[x] = 0xFF000000 | (r & 0xFF) << 16 | (g & 0xFF) << 8 | (b & 0xFF);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Reads the next decimal value, skipping whitespace and comments before it.
+   */
+  private int nextValue() throws IOException {
+    int c = skipSeparators();
+    if (c < '0' || c > '9') {
+      throw new IOException("Invalid PPM file: expected a number");
+    }
+    int value = 0;
+    while (c >= '0' && c <= '9') {
+      value = value * 10 + (c - '0');
+      c = in.read();
+    }
+    return value;
+  }
+
+  /**
+   * Skips whitespace and comments, returning the first byte after them.
+   */
+  private int skipSeparators() throws IOException {
+    int c = nextByte();
+    while (Character.isWhitespace(c) || c == '#') {
+      if (c == '#') {
+        while (c != '\n' && c != '\r') {
+          c = nextByte();
+        }
+      }
+      c = nextByte();
+    }
+    return c;
+  }
+
+  private int nextByte() throws IOException {
+    int c = in.read();
+    if (c < 0) {
+      throw new IOException("Invalid PPM file: pixels are truncated");
+    }
+    return c;
+  }
+}
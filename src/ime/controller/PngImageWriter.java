@@ -0,0 +1,372 @@
+package ime.controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Implementation of the {@link ImageWriter} interface for PNG files, compressing on every core. The
+ * rows of the image are cut into strips of about {@link #DEFAULT_STRIP_BYTES} bytes, and each strip
+ * is filtered and deflated as its own task, the way pigz compresses gzip files:
+ *
+ * <ul>
+ *   <li>every row gets the PNG filter which makes its bytes smallest in absolute value, the
+ *   heuristic libpng uses;</li>
+ *   <li>each strip is deflated by a {@link Deflater} of its own, primed with the last 32 KB of the
+ *   filtered strip before it as its dictionary, so matches reaching back across the strip boundary
+ *   are still found;</li>
+ *   <li>strips end with a sync flush rather than a final block, so that their outputs concatenate
+ *   into one deflate stream, which is written as the IDAT chunks of the file, one per strip, after
+ *   a zlib header, with the Adler-32 checksums of the strips combined into the stream's one.</li>
+ * </ul>
+ *
+ * <p>Images with an alpha channel are written as 8-bit RGBA, others as 8-bit RGB.</p>
+ */
+public class PngImageWriter implements ImageWriter {
+
+  /**
+   * The number of filtered bytes a strip holds at least, unless the image is smaller.
+   */
+  static final int DEFAULT_STRIP_BYTES = 256 * 1024;
+
+  /**
+   * The deflate level used unless another is set, the level ImageIO's PNG writer uses.
+   */
+  public static final int DEFAULT_LEVEL = 4;
+
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int DICTIONARY_BYTES = 32 * 1024;
+  private static final int ADLER_BASE = 65521;
+  private static final int COLOR_RGB = 2;
+  private static final int COLOR_RGBA = 6;
+
+  private final int level;
+  private final int stripBytes;
+
+  /**
+   * Constructs a writer compressing at the given level.
+   *
+   * @param level the deflate level, from 0 for no compression to 9 for the smallest files
+   * @throws IllegalArgumentException if the level is out of range
+   */
+  public PngImageWriter(int level) {
+    this(level, DEFAULT_STRIP_BYTES);
+  }
+
+  /**
+   * Constructs a writer compressing at the given level, in strips of the given size.
+   *
+   * @param level      the deflate level, from 0 to 9
+   * @param stripBytes the number of filtered bytes a strip holds at least
+   * @throws IllegalArgumentException if the level is out of range or the strip size is not
+   *                                  positive
+   */
+  PngImageWriter(int level, int stripBytes) {
+    if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("PNG compression level must be between 0 and 9");
+    }
+    if (stripBytes <= 0) {
+      throw new IllegalArgumentException("Strip size must be positive");
+    }
+    this.level = level;
+    this.stripBytes = stripBytes;
+  }
+
+  /**
+   * Writes the specified image to a PNG file.
+   *
+   * @param image      the {@link BufferedImage} to write
+   * @param format     the format of the image, ignored as every image is written as PNG
+   * @param outputFile the file to write
+   * @throws IOException if the file could not be written
+   */
+  @Override
+  public void write(BufferedImage image, String format, File outputFile) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean alpha = image.getColorModel().hasAlpha();
+    int rowBytes = 1 + width * (alpha ? 4 : 3);
+    int stripRows = Math.max(1, stripBytes / rowBytes);
+    int strips = (height + stripRows - 1) / stripRows;
+
+    // Each strip is deflated once it and the strip before it, its dictionary, are filtered
+    List<CompletableFuture<byte[]>> filtered = new ArrayList<>(strips);
+    List<CompletableFuture<Strip>> deflated = new ArrayList<>(strips);
+    for (int strip = 0; strip < strips; strip++) {
+      int firstRow = strip * stripRows;
+      int rows = Math.min(stripRows, height - firstRow);
+      filtered.add(CompletableFuture.supplyAsync(
+          () -> filter(image, alpha, firstRow, rows, rowBytes)));
+      boolean last = strip == strips - 1;
+      CompletableFuture<byte[]> dictionary = strip == 0
+          ? CompletableFuture.completedFuture(null) : filtered.get(strip - 1);
+      deflated.add(filtered.get(strip).thenCombineAsync(dictionary,
+          (data, previous) -> deflate(data, previous, last)));
+    }
+
+    try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(outputFile.toPath()));
+        DataOutputStream out = new DataOutputStream(file)) {
+      out.write(SIGNATURE);
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream fields = new DataOutputStream(header);
+      fields.writeInt(width);
+      fields.writeInt(height);
+      fields.writeByte(8);
+      fields.writeByte(alpha ? COLOR_RGBA : COLOR_RGB);
+      fields.writeByte(0);
+      fields.writeByte(0);
+      fields.writeByte(0);
+      writeChunk(out, "IHDR", header.toByteArray(), 0, header.size());
+
+      // The zlib header: deflate with a 32 KB window, its check bits making it a multiple of 31
+      byte[] zlibHeader = {0x78, (byte) 0x9C};
+      writeChunk(out, "IDAT", zlibHeader, 0, zlibHeader.length);
+      long adler = 1;
+      for (int index = 0; index < strips; index++) {
+        Strip strip = join(deflated.get(index));
+        adler = combineAdler32(adler, strip.adler, strip.length);
+        writeChunk(out, "IDAT", strip.compressed, 0, strip.compressed.length);
+        // The next strip holds on to these bytes as its dictionary until it is deflated
+        filtered.set(index, null);
+      }
+      byte[] trailer = {(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8),
+          (byte) adler};
+      writeChunk(out, "IDAT", trailer, 0, trailer.length);
+      writeChunk(out, "IEND", new byte[0], 0, 0);
+    } finally {
+      for (CompletableFuture<Strip> future : deflated) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private static Strip join(CompletableFuture<Strip> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      throw new IOException("Could not compress the image: " + e.getCause().getMessage(),
+          e.getCause());
+    }
+  }
+
+  /**
+   * Filters consecutive rows of an image, each preceded by its filter type byte.
+   */
+  private static byte[] filter(BufferedImage image, boolean alpha, int firstRow, int rows,
+      int rowBytes) {
+    int width = image.getWidth();
+    int[] argb = new int[width];
+    byte[] previous = new byte[rowBytes - 1];
+    byte[] current = new byte[rowBytes - 1];
+    if (firstRow > 0) {
+      unpack(image, alpha, firstRow - 1, argb, previous);
+    }
+    byte[] filtered = new byte[rows * rowBytes];
+    int bytesPerPixel = alpha ? 4 : 3;
+    for (int row = 0; row < rows; row++) {
+      unpack(image, alpha, firstRow + row, argb, current);
+      int type = chooseFilter(current, previous, bytesPerPixel);
+      filtered[row * rowBytes] = (byte) type;
+      applyFilter(type, current, previous, bytesPerPixel, filtered, row * rowBytes + 1);
+      byte[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return filtered;
+  }
+
+  /**
+   * Copies a row of an image into bytes in PNG channel order.
+   */
+  private static void unpack(BufferedImage image, boolean alpha, int y, int[] argb,
+      byte[] bytes) {
+    int width = argb.length;
+    if ((image.getType() == BufferedImage.TYPE_INT_ARGB
+        || image.getType() == BufferedImage.TYPE_INT_RGB)
+        && image.getRaster().getParent() == null) {
+      int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      System.arraycopy(pixels, y * width, argb, 0, width);
+    } else {
+      image.getRGB(0, y, width, 1, argb, 0, width);
+    }
+    int index = 0;
+    for (int pixel : argb) {
+      bytes[index++] = (byte) (pixel >> 16);
+      bytes[index++] = (byte) (pixel >> 8);
+      bytes[index++] = (byte) pixel;
+      if (alpha) {
+        bytes[index++] = (byte) (pixel >>> 24);
+      }
+    }
+  }
+
+  /**
+   * Returns the PNG filter type whose filtered bytes, taken as signed values, have the smallest
+   * sum in absolute value, computing the five sums in one pass.
+   */
+  private static int chooseFilter(byte[] row, byte[] above, int bytesPerPixel) {
+    long[] costs = new long[5];
+    for (int i = 0; i < row.length; i++) {
+      int x = row[i] & 0xFF;
+      int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+      int b = above[i] & 0xFF;
+      int c = i >= bytesPerPixel ? above[i - bytesPerPixel] & 0xFF : 0;
+      costs[0] += Math.abs((byte) x);
+      costs[1] += Math.abs((byte) (x - a));
+      costs[2] += Math.abs((byte) (x - b));
+      costs[3] += Math.abs((byte) (x - ((a + b) >>> 1)));
+      costs[4] += Math.abs((byte) (x - paeth(a, b, c)));
+    }
+    int best = 0;
+    for (int type = 1; type < costs.length; type++) {
+      if (costs[type] < costs[best]) {
+        best = type;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Applies a PNG filter to a row, writing the filtered bytes from an offset of an array.
+   */
+  private static void applyFilter(int type, byte[] row, byte[] above, int bytesPerPixel,
+      byte[] out, int offset) {
+    for (int i = 0; i < row.length; i++) {
+      int x = row[i] & 0xFF;
+      int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+      int b = above[i] & 0xFF;
+      int c = i >= bytesPerPixel ? above[i - bytesPerPixel] & 0xFF : 0;
+      int predictor;
+      switch (type) {
+        case 0:
+          predictor = 0;
+          break;
+        case 1:
+          predictor = a;
+          break;
+        case 2:
+          predictor = b;
+          break;
+        case 3:
+          predictor = (a + b) >>> 1;
+          break;
+        default:
+          predictor = paeth(a, b, c);
+          break;
+      }
+      out[offset + i] = (byte) (x - predictor);
+    }
+  }
+
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  /**
+   * Deflates a filtered strip into raw deflate data, ending with a sync flush unless it is the
+   * last strip, which ends the stream.
+   */
+  private Strip deflate(byte[] data, byte[] previous, boolean last) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (previous != null) {
+        int length = Math.min(DICTIONARY_BYTES, previous.length);
+        deflater.setDictionary(previous, previous.length - length, length);
+      }
+      deflater.setInput(data);
+      if (last) {
+        deflater.finish();
+      }
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+      byte[] buffer = new byte[64 * 1024];
+      int flush = last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+      while (true) {
+        int count = deflater.deflate(buffer, 0, buffer.length, flush);
+        compressed.write(buffer, 0, count);
+        // A sync flush is complete once it leaves room in the buffer
+        if (last ? deflater.finished() : count < buffer.length) {
+          break;
+        }
+      }
+      Adler32 adler = new Adler32();
+      adler.update(data);
+      return new Strip(compressed.toByteArray(), adler.getValue(), data.length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns the Adler-32 checksum of two sequences of bytes one after the other, from their own
+   * checksums, as zlib's adler32_combine does.
+   */
+  static long combineAdler32(long first, long second, long secondLength) {
+    long remainder = secondLength % ADLER_BASE;
+    long sum1 = first & 0xFFFF;
+    long sum2 = (remainder * sum1) % ADLER_BASE;
+    sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+    sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+    if (sum1 >= ADLER_BASE) {
+      sum1 -= ADLER_BASE;
+    }
+    if (sum1 >= ADLER_BASE) {
+      sum1 -= ADLER_BASE;
+    }
+    if (sum2 >= 2L * ADLER_BASE) {
+      sum2 -= 2L * ADLER_BASE;
+    }
+    if (sum2 >= ADLER_BASE) {
+      sum2 -= ADLER_BASE;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
+  private static void writeChunk(DataOutputStream out, String type, byte[] data, int offset,
+      int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, offset, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, offset, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  /**
+   * A deflated strip, with the checksum and length of its filtered bytes.
+   */
+  private static final class Strip {
+
+    private final byte[] compressed;
+    private final long adler;
+    private final long length;
+
+    private Strip(byte[] compressed, long adler, long length) {
+      this.compressed = compressed;
+      this.adler = adler;
+      this.length = length;
+    }
+  }
+}
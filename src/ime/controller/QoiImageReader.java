@@ -0,0 +1,76 @@
+package ime.controller;
+
+import ime.model.QoiImageFormat;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Implementation of the {@link ImageReader} interface for QOI files, described by
+ * {@link QoiImageFormat}. Rows are decoded straight into the raster of the image. Controllers which
+ * store images in a model load QOI files with {@link QoiImageFormat#load} instead, which decodes
+ * straight into the stored image.
+ */
+public class QoiImageReader implements ImageReader {
+
+  /**
+   * Reads a QOI image from the specified file path.
+   *
+   * @param filePath the path of the QOI file to read
+   * @return a {@link BufferedImage} of type {@code TYPE_INT_ARGB} holding the pixels of the file
+   * @throws IOException if the file could not be read, or is not a valid QOI image
+   */
+  @Override
+  public BufferedImage read(String filePath) throws IOException {
+    return read(filePath, LoadOptions.NONE);
+  }
+
+  /**
+   * Reads part of a QOI image, or a subsampled copy of it, from the specified file path. Every
+   * pixel depends on the ones before it, so the rows above the region are decoded and dropped,
+   * but decoding stops after the last row of the region.
+   *
+   * @param filePath the path of the QOI file to read
+   * @param options  the region and subsampling to decode
+   * @return a {@link BufferedImage} of type {@code TYPE_INT_ARGB} holding the pixels read
+   * @throws IOException              if the file could not be read, or is not a valid QOI image
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  @Override
+  public BufferedImage read(String filePath, LoadOptions options) throws IOException {
+    try (QoiImageFormat.Decoder decoder =
+        new QoiImageFormat.Decoder(Files.newInputStream(Paths.get(filePath)))) {
+      QoiImageFormat.Header header = decoder.getHeader();
+      Rectangle region = options.region(header.getWidth(), header.getHeight());
+      int factor = options.subsampling(region.width, region.height);
+      BufferedImage image = new BufferedImage(LoadOptions.subsampledLength(region.width, factor),
+          LoadOptions.subsampledLength(region.height, factor), BufferedImage.TYPE_INT_ARGB);
+      int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      int width = image.getWidth();
+      if (options.isFullImage()) {
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+          decoder.readRow(row, width);
+          System.arraycopy(row, 0, pixels, y * width, width);
+        }
+        return image;
+      }
+      int[] row = new int[header.getWidth()];
+      int lastRow = region.y + (image.getHeight() - 1) * factor;
+      for (int y = 0; y <= lastRow; y++) {
+        decoder.readRow(row, row.length);
+        int offset = y - region.y;
+        if (offset >= 0 && offset % factor == 0) {
+          int start = offset / factor * width;
+          for (int x = 0; x < width; x++) {
+            pixels[start + x] = row[region.x + x * factor];
+          }
+        }
+      }
+      return image;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package ime.controller;
+
+import ime.model.QoiImageFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Implementation of the {@link ImageWriter} interface for QOI files, described by
+ * {@link QoiImageFormat}. Images without an alpha channel are written with three channels.
+ * Controllers which store images in a model save QOI files with {@link QoiImageFormat#save}
+ * instead, which encodes straight from the stored image.
+ */
+public class QoiImageWriter implements ImageWriter {
+
+  /**
+   * Writes the specified image to a QOI file.
+   *
+   * @param image      the {@link BufferedImage} to write
+   * @param format     the format of the image, ignored as there is a single QOI format
+   * @param outputFile the file to write
+   * @throws IOException if the file could not be written
+   */
+  @Override
+  public void write(BufferedImage image, String format, File outputFile) throws IOException {
+    int width = image.getWidth();
+    QoiImageFormat.Header header = new QoiImageFormat.Header(width, image.getHeight(),
+        image.getColorModel().hasAlpha());
+    try (QoiImageFormat.Encoder encoder = new QoiImageFormat.Encoder(
+        Files.newOutputStream(outputFile.toPath()), header)) {
+      int[] argb = new int[width];
+      for (int y = 0; y < image.getHeight(); y++) {
+        image.getRGB(0, y, width, 1, argb, 0, width);
+        encoder.writeRow(argb, width);
+      }
+      encoder.finish();
+    }
+  }
+}
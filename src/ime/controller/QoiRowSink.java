@@ -0,0 +1,54 @@
+package ime.controller;
+
+import ime.model.QoiImageFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Writes an image to a QOI file one row at a time, encoding each as it is written.
+ */
+class QoiRowSink extends RowSink {
+
+  private final QoiImageFormat.Encoder encoder;
+  private final int width;
+  private final int height;
+  private int rows;
+  private boolean closed;
+
+  /**
+   * Creates the file and writes its header.
+   *
+   * @param filePath the path of the file
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @throws IOException if the file cannot be written
+   */
+  QoiRowSink(String filePath, int width, int height) throws IOException {
+    super(filePath);
+    this.width = width;
+    this.height = height;
+    this.encoder = new QoiImageFormat.Encoder(Files.newOutputStream(getTemporary()),
+        new QoiImageFormat.Header(width, height, true));
+  }
+
+  @Override
+  void write(int[] argb) throws IOException {
+    encoder.writeRow(argb, width);
+    rows++;
+  }
+
+  @Override
+  void closeFile() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (rows == height) {
+        encoder.finish();
+      }
+    } finally {
+      encoder.close();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package ime.controller;
+
+import ime.model.QoiImageFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads the rows of a QOI file one at a time, decoding each as it is read.
+ */
+class QoiRowSource implements RowSource {
+
+  private final QoiImageFormat.Decoder decoder;
+  private final int width;
+  private final int height;
+
+  /**
+   * Opens a QOI file and reads its header.
+   *
+   * @param filePath the path of the file
+   * @throws IOException if the file cannot be read or is not a valid QOI image
+   */
+  QoiRowSource(String filePath) throws IOException {
+    this.decoder = new QoiImageFormat.Decoder(Files.newInputStream(Paths.get(filePath)));
+    this.width = decoder.getHeader().getWidth();
+    this.height = decoder.getHeader().getHeight();
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void next(int[] argb) throws IOException {
+    decoder.readRow(argb, width);
+  }
+
+  @Override
+  public void close() throws IOException {
+    decoder.close();
+  }
+}
@@ -0,0 +1,73 @@
+package ime.controller;
+
+import ime.model.RawImageFormat;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation of the {@link ImageReader} interface for the native raw format described by
+ * {@link RawImageFormat}. The pixels are mapped from the file and copied in bulk into the raster of
+ * the image. Controllers which store images in a model load raw files with
+ * {@link RawImageFormat#load} instead, which skips this copy.
+ */
+public class RawImageReader implements ImageReader {
+
+  /**
+   * Reads a raw image from the specified file path.
+   *
+   * @param filePath the path of the raw file to read
+   * @return a {@link BufferedImage} of type {@code TYPE_INT_ARGB} holding the pixels of the file
+   * @throws IOException if the file could not be read, or is not a valid raw image
+   */
+  @Override
+  public BufferedImage read(String filePath) throws IOException {
+    return read(filePath, LoadOptions.NONE);
+  }
+
+  /**
+   * Reads part of a raw image, or a subsampled copy of it, from the specified file path. Only the
+   * rows of the region are read from the mapped file.
+   *
+   * @param filePath the path of the raw file to read
+   * @param options  the region and subsampling to decode
+   * @return a {@link BufferedImage} of type {@code TYPE_INT_ARGB} holding the pixels read
+   * @throws IOException              if the file could not be read, or is not a valid raw image
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  @Override
+  public BufferedImage read(String filePath, LoadOptions options) throws IOException {
+    try (FileChannel file = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      RawImageFormat.Header header = RawImageFormat.readHeader(file);
+      Rectangle region = options.region(header.getWidth(), header.getHeight());
+      int factor = options.subsampling(region.width, region.height);
+      BufferedImage image = new BufferedImage(LoadOptions.subsampledLength(region.width, factor),
+          LoadOptions.subsampledLength(region.height, factor), BufferedImage.TYPE_INT_ARGB);
+      int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      long firstPixel = (long) region.y * header.getWidth();
+      IntBuffer source = file.map(FileChannel.MapMode.READ_ONLY,
+              RawImageFormat.HEADER_BYTES + Integer.BYTES * firstPixel,
+              (long) Integer.BYTES * region.height * header.getWidth())
+          .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+      int width = image.getWidth();
+      for (int y = 0; y < image.getHeight(); y++) {
+        int rowStart = y * factor * header.getWidth() + region.x;
+        if (factor == 1) {
+          source.position(rowStart);
+          source.get(pixels, y * width, width);
+        } else {
+          for (int x = 0; x < width; x++) {
+            pixels[y * width + x] = source.get(rowStart + x * factor);
+          }
+        }
+      }
+      return image;
+    }
+  }
+}
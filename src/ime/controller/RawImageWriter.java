@@ -0,0 +1,47 @@
+package ime.controller;
+
+import ime.model.RawImageFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation of the {@link ImageWriter} interface for the native raw format described by
+ * {@link RawImageFormat}. Rows are gathered into a direct buffer and written with bulk channel
+ * transfers. Controllers which store images in a model save raw files with
+ * {@link RawImageFormat#save} instead, which writes straight from the stored image.
+ */
+public class RawImageWriter implements ImageWriter {
+
+  /**
+   * Writes the specified image to a raw file.
+   *
+   * @param image      the {@link BufferedImage} to write
+   * @param format     the format of the image, ignored as there is a single raw format
+   * @param outputFile the file to write
+   * @throws IOException if the file could not be written
+   */
+  @Override
+  public void write(BufferedImage image, String format, File outputFile) throws IOException {
+    int width = image.getWidth();
+    int[] argb = new int[width];
+    ByteBuffer row = ByteBuffer.allocateDirect(width * Integer.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    try (FileChannel file = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      RawImageFormat.writeHeader(file, image.getHeight(), width);
+      for (int y = 0; y < image.getHeight(); y++) {
+        image.getRGB(0, y, width, 1, argb, 0, width);
+        row.clear();
+        row.asIntBuffer().put(argb);
+        while (row.hasRemaining()) {
+          file.write(row);
+        }
+      }
+    }
+  }
+}
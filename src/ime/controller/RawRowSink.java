@@ -0,0 +1,55 @@
+package ime.controller;
+
+import ime.model.RawImageFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes an image to a file of the native raw format one row at a time, with a channel write per
+ * row.
+ */
+class RawRowSink extends RowSink {
+
+  private final FileChannel file;
+  private final int width;
+  private final ByteBuffer row;
+
+  /**
+   * Creates the file and writes its header.
+   *
+   * @param filePath the path of the file
+   * @param width    the width of the image
+   * @param height   the height of the image
+   * @throws IOException if the file cannot be written
+   */
+  RawRowSink(String filePath, int width, int height) throws IOException {
+    super(filePath);
+    this.file = FileChannel.open(getTemporary(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    this.width = width;
+    this.row = ByteBuffer.allocateDirect(width * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      RawImageFormat.writeHeader(file, height, width);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  void write(int[] argb) throws IOException {
+    row.clear();
+    row.asIntBuffer().put(argb, 0, width);
+    while (row.hasRemaining()) {
+      file.write(row);
+    }
+  }
+
+  @Override
+  void closeFile() throws IOException {
+    file.close();
+  }
+}
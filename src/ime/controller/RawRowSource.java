@@ -0,0 +1,66 @@
+package ime.controller;
+
+import ime.model.RawImageFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the rows of a file of the native raw format one at a time, with a channel read per row.
+ */
+class RawRowSource implements RowSource {
+
+  private final FileChannel file;
+  private final int width;
+  private final int height;
+  private final ByteBuffer row;
+
+  /**
+   * Opens a raw file and reads its header.
+   *
+   * @param filePath the path of the file
+   * @throws IOException if the file cannot be read or is not a valid raw image
+   */
+  RawRowSource(String filePath) throws IOException {
+    this.file = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    try {
+      RawImageFormat.Header header = RawImageFormat.readHeader(file);
+      this.width = header.getWidth();
+      this.height = header.getHeight();
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+    this.row = ByteBuffer.allocateDirect(width * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void next(int[] argb) throws IOException {
+    row.clear();
+    while (row.hasRemaining()) {
+      if (file.read(row) < 0) {
+        throw new IOException("Invalid raw image file: pixels are truncated");
+      }
+    }
+    row.flip();
+    row.asIntBuffer().get(argb, 0, width);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+}
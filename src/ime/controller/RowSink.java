@@ -0,0 +1,88 @@
+package ime.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A file an image is written to one row at a time, from top to bottom. The rows go to a temporary
+ * file next to the target, which only replaces the target once every row is written, so a failed
+ * run leaves no partial image behind and a file may be saved over the file it is read from.
+ */
+abstract class RowSink implements Closeable {
+
+  private final Path target;
+  private final Path temporary;
+  private boolean finished;
+
+  /**
+   * Constructs a sink writing to the given path.
+   *
+   * @param path the path of the file to write
+   */
+  RowSink(String path) {
+    this.target = Paths.get(path);
+    this.temporary = target.resolveSibling(target.getFileName() + ".part");
+  }
+
+  /**
+   * Returns the temporary file the rows are written to.
+   *
+   * @return the path of the temporary file
+   */
+  Path getTemporary() {
+    return temporary;
+  }
+
+  /**
+   * Writes the next row of the image.
+   *
+   * @param argb the row, as 0xAARRGGBB pixels
+   * @throws IOException if the row cannot be written
+   */
+  abstract void write(int[] argb) throws IOException;
+
+  /**
+   * Flushes and closes the temporary file. Called once the last row is written, or when writing
+   * fails; it may be called more than once.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  abstract void closeFile() throws IOException;
+
+  /**
+   * Completes the file once every row is written, moving it over the target.
+   *
+   * @throws IOException if the file cannot be written or moved
+   */
+  void finish() throws IOException {
+    closeFile();
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finished = true;
+  }
+
+  /**
+   * Closes the file, deleting it if it was not finished.
+   *
+   * @throws IOException if the file cannot be closed or deleted
+   */
+  @Override
+  public void close() throws IOException {
+    if (!finished) {
+      try {
+        closeFile();
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package ime.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of the rows of an image, read from top to bottom one row at a time, so that an image
+ * can be processed without ever holding all of it in memory.
+ */
+interface RowSource extends Closeable {
+
+  /**
+   * Returns the height of the image.
+   *
+   * @return the number of rows
+   */
+  int getHeight();
+
+  /**
+   * Returns the width of the image.
+   *
+   * @return the number of pixels in each row
+   */
+  int getWidth();
+
+  /**
+   * Reads the next row of the image.
+   *
+   * @param argb the array receiving the row, as 0xAARRGGBB pixels
+   * @throws IOException if the row cannot be read
+   */
+  void next(int[] argb) throws IOException;
+}
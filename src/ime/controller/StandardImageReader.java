@@ -3,12 +3,19 @@ package ime.controller;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.stream.ImageInputStream;
 
 /**
  * Implementation of the {@link ImageReader} interface for reading images using the standard Java
  * ImageIO library. This class provides functionality to load images from various formats supported
  * by ImageIO.
+ *
+ * <p>Regions and subsampling are passed to ImageIO through {@link ImageReadParam}, so the pixels
+ * left out are never stored. A load with a target size uses a thumbnail embedded in the file, such
+ * as the JFIF thumbnail of a JPEG file, when one is large enough.</p>
  */
 public class StandardImageReader implements ImageReader {
 
@@ -24,4 +31,63 @@ public class StandardImageReader implements ImageReader {
   public BufferedImage read(String filePath) throws IOException {
     return ImageIO.read(new File(filePath));
   }
+
+  /**
+   * Reads part of an image, or a subsampled copy of it, from the specified file path.
+   *
+   * @param filePath the path of the image file to be read
+   * @param options  the region and subsampling to decode
+   * @return a {@link BufferedImage} representation of the part of the image read
+   * @throws IOException              if an error occurs during reading the image, such as if the
+   *                                  file does not exist or is not in a valid format
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  @Override
+  public BufferedImage read(String filePath, LoadOptions options) throws IOException {
+    if (options.isFullImage()) {
+      return read(filePath);
+    }
+    try (ImageInputStream stream = ImageIO.createImageInputStream(new File(filePath))) {
+      Iterator<javax.imageio.ImageReader> readers = stream == null ? null
+          : ImageIO.getImageReaders(stream);
+      if (readers == null || !readers.hasNext()) {
+        throw new IOException("Unsupported image file: " + filePath);
+      }
+      javax.imageio.ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, false);
+        BufferedImage thumbnail = readThumbnail(reader, options);
+        if (thumbnail != null) {
+          return thumbnail;
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        options.applyTo(param, reader.getWidth(0), reader.getHeight(0));
+        return reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Reads the smallest thumbnail of the first image which the options accept instead of the
+   * image, if the file has one.
+   */
+  private static BufferedImage readThumbnail(javax.imageio.ImageReader reader,
+      LoadOptions options) throws IOException {
+    if (!reader.readerSupportsThumbnails() || !reader.hasThumbnails(0)) {
+      return null;
+    }
+    int chosen = -1;
+    long chosenPixels = Long.MAX_VALUE;
+    for (int index = 0; index < reader.getNumThumbnails(0); index++) {
+      int width = reader.getThumbnailWidth(0, index);
+      int height = reader.getThumbnailHeight(0, index);
+      if (options.accepts(width, height) && (long) width * height < chosenPixels) {
+        chosen = index;
+        chosenPixels = (long) width * height;
+      }
+    }
+    return chosen < 0 ? null : reader.readThumbnail(0, chosen);
+  }
 }
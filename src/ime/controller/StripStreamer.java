@@ -0,0 +1,598 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.controller.metrics.CommandMetrics;
+import ime.controller.metrics.CommandPhase;
+import ime.model.ImageDownscaling;
+import ime.model.ImageStrips;
+import ime.model.ModelInterface;
+import ime.model.OperationInfo;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import ime.view.DisplayMessageConstants;
+import ime.view.ViewInterface;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The StripStreamer class runs a script on an image too large to hold in memory, by reading it in
+ * horizontal strips of rows and passing each strip through the script's operations before the
+ * next one is read. Rows are read from a plain PPM, raw or QOI file as they are needed and written
+ * to the saved files as soon as they are computed, so memory use depends on the width of the image
+ * and the strip height, not on the image height.
+ *
+ * <p>A script can be streamed if it loads one image, runs only operations which keep every row in
+ * place, and saves to PPM, raw or QOI files. Pointwise operations, neighborhood operations such as
+ * {@code blur} and {@code horizontal-flip} run on each strip with the model's own commands; a
+ * neighborhood operation is given the rows around the strip it reads, so strips come out exactly
+ * as they would from the whole image. {@code vertical-flip} and {@code downscale} move rows, and
+ * start a new stage which reads the rows of the previous one in the order it needs: downscaling
+ * reads them in order, three at a time, while flipping spills them to a temporary file and reads
+ * them back from the bottom.</p>
+ */
+public class StripStreamer {
+
+  /**
+   * The number of rows in a strip when none is given.
+   */
+  public static final int DEFAULT_STRIP_ROWS = 256;
+
+  private static final String PPM_EXTENSION = ".ppm";
+
+  private final List<String> script;
+  private final int stripRows;
+  private final Supplier<ModelInterface> models;
+  private final ViewInterface view;
+  private final CommandMetrics metrics;
+
+  /**
+   * Constructs a streamer for the given script.
+   *
+   * @param script    the lines of the script
+   * @param stripRows the number of rows computed at a time
+   * @param models    creates the model each stage runs its strips on
+   * @param view      the view to report to
+   * @param metrics   the metrics to record command timings into
+   * @throws IllegalArgumentException if stripRows is not positive
+   */
+  public StripStreamer(List<String> script, int stripRows, Supplier<ModelInterface> models,
+      ViewInterface view, CommandMetrics metrics) {
+    if (stripRows <= 0) {
+      throw new IllegalArgumentException("Strip height must be positive");
+    }
+    this.script = List.copyOf(script);
+    this.stripRows = stripRows;
+    this.models = models;
+    this.view = view;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Streams the script, reporting each saved file, or why the script could not be streamed, to
+   * the view.
+   *
+   * @return true if every image was saved
+   */
+  public boolean run() {
+    List<Stage> stages;
+    try {
+      ModelInterface model = models.get();
+      stages = plan(parse(script, model), model);
+    } catch (IllegalArgumentException e) {
+      view.displayError(DisplayMessageConstants.CANNOT_STREAM + e.getMessage());
+      return false;
+    }
+    view.displayMessage(DisplayMessageConstants.STREAMING + stripRows);
+    List<RowSink> sinks = new ArrayList<>();
+    List<RowSource> sources = new ArrayList<>();
+    try {
+      stream(stages, sources, sinks);
+      for (RowSink sink : sinks) {
+        sink.finish();
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
+      return false;
+    } finally {
+      closeAll(sources, sinks);
+    }
+    for (Stage stage : stages) {
+      for (List<String> step : stage.steps) {
+        if (CommandConstants.SAVE.equals(step.get(0))) {
+          view.displayMessage(DisplayMessageConstants.SAVED_TO + step.get(1));
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Splits the lines of a script into command tokens, leaving out blank lines and comments and
+   * stopping at {@code exit}, and validates each command against the model's operations.
+   */
+  private static List<List<String>> parse(List<String> lines, ModelInterface model) {
+    List<List<String>> commands = new ArrayList<>();
+    for (String line : lines) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      if (line.equalsIgnoreCase(CommandConstants.EXIT)) {
+        break;
+      }
+      List<String> tokens = Arrays.asList(line.split("\\s+"));
+      CommandValidator.validateCommand(tokens, model);
+      commands.add(tokens);
+    }
+    return commands;
+  }
+
+  /**
+   * Divides the commands into stages: a new stage starts at every operation moving rows, and
+   * every save joins the last stage producing the image it saves.
+   *
+   * @param commands the command tokens
+   * @param model    the model describing the operations
+   * @return the stages, the first reading the loaded file
+   * @throws IllegalArgumentException if the script cannot be streamed
+   */
+  private static List<Stage> plan(List<List<String>> commands, ModelInterface model) {
+    if (commands.isEmpty() || !CommandConstants.LOAD.equals(commands.get(0).get(0))) {
+      throw new IllegalArgumentException("a streamed script must start with a load");
+    }
+    List<String> load = commands.get(0);
+    if (load.size() != 3) {
+      throw new IllegalArgumentException("load options cannot be streamed");
+    }
+    checkStreamable(load.get(1));
+    List<Stage> stages = new ArrayList<>();
+    stages.add(new Stage(load, load.get(2)));
+    Set<String> savedPaths = new HashSet<>();
+    for (List<String> tokens : commands.subList(1, commands.size())) {
+      String commandName = tokens.get(0);
+      Stage stage = stages.get(stages.size() - 1);
+      if (CommandConstants.LOAD.equals(commandName)) {
+        throw new IllegalArgumentException("only one image can be loaded");
+      } else if (CommandConstants.SAVE.equals(commandName)) {
+        checkStreamable(tokens.get(1));
+        if (!savedPaths.add(tokens.get(1))) {
+          throw new IllegalArgumentException(tokens.get(1) + " is saved more than once");
+        }
+        producerOf(stages, tokens.get(2)).steps.add(tokens);
+        continue;
+      }
+      OperationInfo operation = model.getOperationInfo(commandName);
+      if (operation == null || tokens.size() <= operation.getParameters().size()) {
+        throw new IllegalArgumentException(commandName + " cannot be streamed");
+      }
+      for (int position : operation.getInputPositions()) {
+        if (!stage.names.contains(tokens.get(position))) {
+          throw new IllegalArgumentException(tokens.get(position)
+              + " is not an image of the current stage of the stream");
+        }
+      }
+      if (isStageBoundary(commandName)) {
+        stage.outputName = tokens.get(operation.getInputPositions().get(0));
+        stages.add(new Stage(tokens, tokens.get(operation.getOutputPositions().get(0))));
+      } else if (operation.isPointwise() || operation.isNeighborhood()
+          || CommandConstants.HORIZONTAL_FLIP.equals(commandName)) {
+        stage.steps.add(tokens);
+        stage.halo += operation.getRadius();
+        for (int position : operation.getOutputPositions()) {
+          stage.names.add(tokens.get(position));
+        }
+      } else {
+        throw new IllegalArgumentException(commandName
+            + " cannot be streamed, as it reads the whole image");
+      }
+    }
+    if (savedPaths.isEmpty()) {
+      throw new IllegalArgumentException("a streamed script must save an image");
+    }
+    // Stages after the last save compute nothing that is kept
+    while (stages.get(stages.size() - 1).steps.stream()
+        .noneMatch(step -> CommandConstants.SAVE.equals(step.get(0)))) {
+      stages.remove(stages.size() - 1);
+      stages.get(stages.size() - 1).outputName = null;
+    }
+    return stages;
+  }
+
+  private static boolean isStageBoundary(String commandName) {
+    return CommandConstants.VERTICAL_FLIP.equals(commandName)
+        || CommandConstants.DOWNSCALE.equals(commandName);
+  }
+
+  private static Stage producerOf(List<Stage> stages, String imageName) {
+    for (int index = stages.size() - 1; index >= 0; index--) {
+      if (stages.get(index).names.contains(imageName)) {
+        return stages.get(index);
+      }
+    }
+    throw new IllegalArgumentException("Image not found: " + imageName);
+  }
+
+  private static void checkStreamable(String filePath) {
+    if (!RawImageFormat.isRaw(filePath) && !QoiImageFormat.isQoi(filePath)
+        && !filePath.toLowerCase(Locale.ROOT).endsWith(PPM_EXTENSION)) {
+      throw new IllegalArgumentException(filePath
+          + " cannot be streamed, only PPM, raw and QOI files are read and written in strips");
+    }
+  }
+
+  /**
+   * Opens the loaded file, chains the stages onto it and runs them, writing every saved file.
+   */
+  private void stream(List<Stage> stages, List<RowSource> sources, List<RowSink> sinks)
+      throws IOException {
+    String loadPath = stages.get(0).boundary.get(1);
+    RowSource rows;
+    if (RawImageFormat.isRaw(loadPath)) {
+      rows = new RawRowSource(loadPath);
+    } else if (QoiImageFormat.isQoi(loadPath)) {
+      rows = new QoiRowSource(loadPath);
+    } else {
+      rows = new PPMRowSource(loadPath);
+    }
+    sources.add(rows);
+    List<StageRows> runs = new ArrayList<>();
+    for (Stage stage : stages) {
+      if (!runs.isEmpty()) {
+        rows = boundary(stage.boundary, rows);
+        sources.add(rows);
+      }
+      StageRows run = new StageRows(stage, rows, runs.isEmpty(), sinks);
+      runs.add(run);
+      rows = run;
+    }
+    // Later stages pull the rows they need from earlier ones; whatever is left is still saved
+    for (int index = runs.size() - 1; index >= 0; index--) {
+      runs.get(index).drain();
+    }
+  }
+
+  private RowSource boundary(List<String> tokens, RowSource input) throws IOException {
+    if (CommandConstants.VERTICAL_FLIP.equals(tokens.get(0))) {
+      return new ReversedRows(input);
+    }
+    int targetWidth = Integer.parseInt(tokens.get(1));
+    int targetHeight = Integer.parseInt(tokens.get(2));
+    ImageDownscaling.checkTargetSize(input.getWidth(), input.getHeight(), targetWidth,
+        targetHeight);
+    return new DownscaledRows(input, targetWidth, targetHeight);
+  }
+
+  private static RowSink createSink(String filePath, int width, int height) throws IOException {
+    if (RawImageFormat.isRaw(filePath)) {
+      return new RawRowSink(filePath, width, height);
+    }
+    if (QoiImageFormat.isQoi(filePath)) {
+      return new QoiRowSink(filePath, width, height);
+    }
+    return new PPMRowSink(filePath, width, height);
+  }
+
+  private void closeAll(List<RowSource> sources, List<RowSink> sinks) {
+    List<Closeable> closeables = new ArrayList<>(sinks);
+    closeables.addAll(sources);
+    for (Closeable closeable : closeables) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        view.displayError(DisplayMessageConstants.PROCESSING_COMMAND + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Part of a script whose operations keep every row in place: the command producing its input,
+   * and the operations and saves run on each strip, in script order.
+   */
+  private static final class Stage {
+
+    // The load, or the operation moving the rows of the previous stage
+    private final List<String> boundary;
+    private final String inputName;
+    private final List<List<String>> steps;
+    private final Set<String> names;
+    // Rows read beyond each side of a strip, enough for every neighborhood operation in turn
+    private int halo;
+    // The image the next stage reads, if there is one
+    private String outputName;
+
+    private Stage(List<String> boundary, String inputName) {
+      this.boundary = boundary;
+      this.inputName = inputName;
+      this.steps = new ArrayList<>();
+      this.names = new HashSet<>();
+      names.add(inputName);
+    }
+  }
+
+  /**
+   * Runs a stage a strip at a time on its own model, reading the rows of the strip and its halo
+   * from the input, and serves the rows of its output image to the next stage.
+   */
+  private final class StageRows implements RowSource {
+
+    private final Stage stage;
+    private final RowSource input;
+    private final boolean decodes;
+    private final ModelInterface model;
+    private final int height;
+    private final int width;
+    private final List<RowSink> stepSinks;
+    // Input rows from windowFirst on, the strip and its halo
+    private final int[][] window;
+    private int windowFirst;
+    private int windowCount;
+    private int nextStrip;
+    private final int[][] strip;
+    // Rows of the output image of the last strip, and the next one to serve
+    private int outputCount;
+    private int outputNext;
+    private final int[][] output;
+
+    private StageRows(Stage stage, RowSource input, boolean decodes, List<RowSink> sinks)
+        throws IOException {
+      this.stage = stage;
+      this.input = input;
+      this.decodes = decodes;
+      this.model = models.get();
+      this.height = input.getHeight();
+      this.width = input.getWidth();
+      int rows = Math.min(stripRows, height);
+      this.window = new int[Math.min(rows + 2 * stage.halo, height)][width];
+      this.strip = new int[rows][width];
+      this.output = stage.outputName == null ? null : new int[rows][width];
+      this.stepSinks = new ArrayList<>();
+      for (List<String> step : stage.steps) {
+        RowSink sink = null;
+        if (CommandConstants.SAVE.equals(step.get(0))) {
+          sink = createSink(step.get(1), width, height);
+          sinks.add(sink);
+        }
+        stepSinks.add(sink);
+      }
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public void next(int[] argb) throws IOException {
+      if (outputNext == outputCount) {
+        computeStrip();
+      }
+      System.arraycopy(output[outputNext++], 0, argb, 0, width);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Computes the strips the next stage did not pull, for the files they are saved to.
+     */
+    private void drain() throws IOException {
+      while (nextStrip < height) {
+        computeStrip();
+      }
+    }
+
+    private void computeStrip() throws IOException {
+      int first = nextStrip;
+      int end = Math.min(first + strip.length, height);
+      int windowStart = Math.max(0, first - stage.halo);
+      int windowEnd = Math.min(height, end + stage.halo);
+      fillWindow(windowStart, windowEnd);
+
+      ImageStrips.store(model, stage.inputName, window, windowCount, width);
+      for (int index = 0; index < stage.steps.size(); index++) {
+        List<String> step = stage.steps.get(index);
+        RowSink sink = stepSinks.get(index);
+        CommandMetrics.Timer timer = metrics.start();
+        if (sink == null) {
+          try {
+            model.operationsFactoryCall(step.get(0), step, model);
+          } finally {
+            metrics.record(step.get(0), CommandPhase.EXECUTE, timer);
+          }
+        } else {
+          ImageStrips.fetch(model, step.get(2), first - windowStart, strip, end - first);
+          for (int y = 0; y < end - first; y++) {
+            sink.write(strip[y]);
+          }
+          metrics.record(CommandConstants.SAVE, CommandPhase.ENCODE, timer);
+        }
+      }
+      if (output != null) {
+        ImageStrips.fetch(model, stage.outputName, first - windowStart, output, end - first);
+        outputCount = end - first;
+        outputNext = 0;
+      }
+      nextStrip = end;
+    }
+
+    /**
+     * Moves the window onto the given input rows, keeping the rows it already holds and reading
+     * the rest.
+     */
+    private void fillWindow(int start, int end) throws IOException {
+      int dropped = Math.min(start - windowFirst, windowCount);
+      if (dropped > 0) {
+        // Rotate the dropped arrays to the back, to be refilled
+        int[][] reused = Arrays.copyOf(window, dropped);
+        System.arraycopy(window, dropped, window, 0, window.length - dropped);
+        System.arraycopy(reused, 0, window, window.length - dropped, dropped);
+        windowCount -= dropped;
+      }
+      windowFirst = start;
+      CommandMetrics.Timer timer = metrics.start();
+      while (windowFirst + windowCount < end) {
+        input.next(window[windowCount++]);
+      }
+      if (decodes) {
+        metrics.record(CommandConstants.LOAD, CommandPhase.DECODE, timer);
+      }
+    }
+  }
+
+  /**
+   * Serves the rows of its input from the bottom up, for {@code vertical-flip}. The input is
+   * first copied to a temporary file, from which rows are read back a strip at a time.
+   */
+  private final class ReversedRows implements RowSource {
+
+    private final RowSource input;
+    private final int height;
+    private final int width;
+    private final Path spill;
+    private final FileChannel file;
+    private final ByteBuffer strip;
+    private final IntBuffer pixels;
+    // Rows from stripFirst on are in the buffer; nextRow counts down
+    private int stripFirst;
+    private int nextRow;
+
+    private ReversedRows(RowSource input) throws IOException {
+      this.input = input;
+      this.height = input.getHeight();
+      this.width = input.getWidth();
+      this.spill = Files.createTempFile("strip", "." + RawImageFormat.EXTENSION);
+      this.file = FileChannel.open(spill, StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.DELETE_ON_CLOSE);
+      this.strip = ByteBuffer.allocateDirect(Math.min(stripRows, height) * width * Integer.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      this.pixels = strip.asIntBuffer();
+      this.nextRow = -1;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public void next(int[] argb) throws IOException {
+      if (nextRow < 0) {
+        spillInput();
+        nextRow = height - 1;
+        stripFirst = height;
+      }
+      if (nextRow < stripFirst) {
+        readStrip(Math.max(0, nextRow + 1 - pixels.capacity() / width), nextRow + 1);
+      }
+      pixels.position((nextRow - stripFirst) * width);
+      pixels.get(argb, 0, width);
+      nextRow--;
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+      Files.deleteIfExists(spill);
+    }
+
+    private void spillInput() throws IOException {
+      int[] row = new int[width];
+      ByteBuffer bytes = ByteBuffer.allocateDirect(width * Integer.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      for (int y = 0; y < height; y++) {
+        input.next(row);
+        bytes.clear();
+        bytes.asIntBuffer().put(row);
+        while (bytes.hasRemaining()) {
+          file.write(bytes);
+        }
+      }
+    }
+
+    private void readStrip(int first, int end) throws IOException {
+      strip.clear();
+      strip.limit((end - first) * width * Integer.BYTES);
+      long position = (long) first * width * Integer.BYTES;
+      while (strip.hasRemaining()) {
+        int read = file.read(strip, position + strip.position());
+        if (read < 0) {
+          throw new IOException("Temporary rows are truncated");
+        }
+      }
+      stripFirst = first;
+    }
+  }
+
+  /**
+   * Serves the rows of its input downscaled, for {@code downscale}. Each downscaled row reads at
+   * most three consecutive input rows, so the input is read in order into a ring of three rows.
+   */
+  private static final class DownscaledRows implements RowSource {
+
+    private final RowSource input;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final int[][] slots;
+    private int rowsRead;
+    private int nextRow;
+
+    private DownscaledRows(RowSource input, int targetWidth, int targetHeight) {
+      this.input = input;
+      this.targetWidth = targetWidth;
+      this.targetHeight = targetHeight;
+      this.slots = new int[3][input.getWidth()];
+    }
+
+    @Override
+    public int getHeight() {
+      return targetHeight;
+    }
+
+    @Override
+    public int getWidth() {
+      return targetWidth;
+    }
+
+    @Override
+    public void next(int[] argb) throws IOException {
+      int sourceHeight = input.getHeight();
+      int last = ImageDownscaling.lastSourceRow(sourceHeight, targetHeight, nextRow);
+      while (rowsRead <= last) {
+        input.next(slots[rowsRead % 3]);
+        rowsRead++;
+      }
+      ImageDownscaling.downscaleRow(row -> slots[row % 3], sourceHeight, input.getWidth(),
+          targetWidth, targetHeight, nextRow, argb);
+      nextRow++;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
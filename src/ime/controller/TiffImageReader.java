@@ -0,0 +1,83 @@
+package ime.controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation of the {@link ImageReader} interface for TIFF files, decoding the tiles of a
+ * {@link TiffTileSource} in parallel. Controllers which store images in a model load TIFF files
+ * with {@link ime.model.TileSource#store} instead, which only decodes the tiles operations read.
+ * The file is closed again before a read returns.
+ */
+public class TiffImageReader implements ImageReader {
+
+  /**
+   * Reads a TIFF image from the specified file path.
+   *
+   * @param filePath the path of the TIFF file to read
+   * @return a {@link BufferedImage} of type {@code TYPE_INT_ARGB} holding the pixels of the file
+   * @throws IOException if the file could not be read, or is not a TIFF file
+   */
+  @Override
+  public BufferedImage read(String filePath) throws IOException {
+    try (TiffTileSource source = TiffTileSource.open(filePath)) {
+      return read(source);
+    }
+  }
+
+  /**
+   * Decodes every tile of a source into one image.
+   */
+  private static BufferedImage read(TiffTileSource source) throws IOException {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int tileWidth = source.getTileWidth();
+    int tileHeight = source.getTileHeight();
+    int tileColumns = (width + tileWidth - 1) / tileWidth;
+    int tileRows = (height + tileHeight - 1) / tileHeight;
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    try {
+      IntStream.range(0, tileColumns * tileRows).parallel().forEach(index -> {
+        int x = (index % tileColumns) * tileWidth;
+        int y = (index / tileColumns) * tileHeight;
+        int[] tile = new int[tileWidth * tileHeight];
+        try {
+          source.readTile(index % tileColumns, index / tileColumns, tile);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        int count = Math.min(tileWidth, width - x);
+        for (int row = 0; row < Math.min(tileHeight, height - y); row++) {
+          System.arraycopy(tile, row * tileWidth, pixels, (y + row) * width + x, count);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return image;
+  }
+
+  /**
+   * Reads part of a TIFF image, or a subsampled copy of it, from the specified file path. Only the
+   * tiles under the region are decoded.
+   *
+   * @param filePath the path of the TIFF file to read
+   * @param options  the region and subsampling to decode
+   * @return a {@link BufferedImage} holding the pixels read
+   * @throws IOException              if the file could not be read, or is not a TIFF file
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  @Override
+  public BufferedImage read(String filePath, LoadOptions options) throws IOException {
+    if (options.isFullImage()) {
+      return read(filePath);
+    }
+    try (TiffTileSource source = TiffTileSource.open(filePath)) {
+      return source.read(options);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package ime.controller;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Implementation of the {@link ImageWriter} interface for tiled TIFF files. Images are written in
+ * uncompressed tiles of {@link #TILE_SIZE} pixels square, so that {@link TiffTileSource} can later
+ * read any region of them without decoding the rest. The file is written under a temporary name
+ * and then moved over the target, so images still reading the file it replaces keep their pixels.
+ */
+public class TiffImageWriter implements ImageWriter {
+
+  /**
+   * Edge length, in pixels, of the tiles written.
+   */
+  static final int TILE_SIZE = 256;
+
+  /**
+   * Writes the specified image to a tiled TIFF file.
+   *
+   * @param image      the {@link BufferedImage} to write
+   * @param format     the format of the image, ignored as every TIFF file is written alike
+   * @param outputFile the file to write
+   * @throws IOException if the file could not be written
+   */
+  @Override
+  public void write(BufferedImage image, String format, File outputFile) throws IOException {
+    Iterator<javax.imageio.ImageWriter> plugins = ImageIO.getImageWritersByFormatName("tiff");
+    if (!plugins.hasNext()) {
+      throw new IOException("No TIFF writer is available");
+    }
+    javax.imageio.ImageWriter writer = plugins.next();
+    Path target = outputFile.toPath();
+    Path temporary = target.resolveSibling(target.getFileName() + ".part");
+    try {
+      Files.deleteIfExists(temporary);
+      try (ImageOutputStream output = ImageIO.createImageOutputStream(temporary.toFile())) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setTiling(TILE_SIZE, TILE_SIZE, 0, 0);
+        writer.setOutput(output);
+        writer.write(null, new IIOImage(image, null, null), param);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    } finally {
+      writer.dispose();
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
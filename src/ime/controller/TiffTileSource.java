@@ -0,0 +1,291 @@
+package ime.controller;
+
+import ime.model.TileSource;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.plugins.tiff.BaselineTIFFTagSet;
+import javax.imageio.plugins.tiff.TIFFDirectory;
+import javax.imageio.plugins.tiff.TIFFField;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * A {@link TileSource} reading the tiles of a TIFF file on demand, through the TIFF plugin of
+ * ImageIO and {@link ImageReadParam#setSourceRegion}. Opening a file only reads its header and the
+ * offsets of its tiles, whatever its size. Tiled files are read a tile of the file at a time;
+ * files stored in strips of rows are read in bands of whole rows, at least
+ * {@link #MIN_BAND_ROWS} high, since a strip is decompressed as a whole.
+ *
+ * <p>Tiles may be decoded on several threads at once. Each thread takes an ImageIO reader of its
+ * own from a pool, and every reader reads the file with positional reads on the one channel opened
+ * with the source. The channel stays open until the source is closed, so images keep reading the
+ * file they were loaded from even if it is replaced in the meantime. A source which is never
+ * closed closes its channel once it is no longer reachable.</p>
+ *
+ * <p>The TIFF plugin of the JDK reads classic TIFF files only; BigTIFF files, the variant with
+ * 64-bit offsets for files over 4 GB, are rejected when opened.</p>
+ */
+final class TiffTileSource implements TileSource {
+
+  /**
+   * The minimum height of the bands files stored in strips of rows are read in.
+   */
+  static final int MIN_BAND_ROWS = 64;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private final FileChannel file;
+  private final Queue<javax.imageio.ImageReader> readers = new ConcurrentLinkedQueue<>();
+  private final int width;
+  private final int height;
+  private final int tileWidth;
+  private final int tileHeight;
+  private Cleaner.Cleanable closer;
+
+  private TiffTileSource(FileChannel file) throws IOException {
+    this.file = file;
+    javax.imageio.ImageReader reader = newReader(true);
+    try {
+      width = reader.getWidth(0);
+      height = reader.getHeight(0);
+      if (reader.isImageTiled(0)) {
+        tileWidth = reader.getTileWidth(0);
+        tileHeight = reader.getTileHeight(0);
+      } else {
+        tileWidth = width;
+        tileHeight = Math.min(height, Math.max(MIN_BAND_ROWS, reader.getTileHeight(0)));
+      }
+    } catch (IOException | RuntimeException e) {
+      reader.dispose();
+      throw e;
+    }
+    readers.add(reader);
+  }
+
+  /**
+   * Tells whether a path names a TIFF file, by its extension.
+   *
+   * @param path the file path
+   * @return true if the path ends with {@code .tif} or {@code .tiff}, in any case
+   */
+  static boolean isTiff(String path) {
+    int lastDot = path.lastIndexOf('.');
+    String extension = lastDot < 0 ? "" : path.substring(lastDot + 1);
+    return extension.equalsIgnoreCase("tif") || extension.equalsIgnoreCase("tiff");
+  }
+
+  /**
+   * Opens a TIFF file, reading its header.
+   *
+   * @param path the path of the file
+   * @return the tile source of the first image of the file
+   * @throws IOException if the file could not be read, or is not a TIFF file the plugin can read
+   */
+  static TiffTileSource open(String path) throws IOException {
+    FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    try {
+      TiffTileSource source = new TiffTileSource(file);
+      source.closer = CLEANER.register(source, new Closer(file, source.readers));
+      return source;
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a reader of the file, which only reads forward through the images of the file for the
+   * readers of the pool.
+   */
+  private javax.imageio.ImageReader newReader(boolean pooled) throws IOException {
+    Iterator<javax.imageio.ImageReader> plugins = ImageIO.getImageReadersByFormatName("tiff");
+    if (!plugins.hasNext()) {
+      throw new IOException("No TIFF reader is available");
+    }
+    javax.imageio.ImageReader reader = plugins.next();
+    reader.setInput(new ChannelInputStream(file), pooled, pooled);
+    return reader;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getTileWidth() {
+    return tileWidth;
+  }
+
+  @Override
+  public int getTileHeight() {
+    return tileHeight;
+  }
+
+  @Override
+  public void readTile(int tileColumn, int tileRow, int[] argb) throws IOException {
+    int x = tileColumn * tileWidth;
+    int y = tileRow * tileHeight;
+    int regionWidth = Math.min(tileWidth, width - x);
+    int regionHeight = Math.min(tileHeight, height - y);
+    BufferedImage region = readRegion(new Rectangle(x, y, regionWidth, regionHeight));
+    region.getRGB(0, 0, regionWidth, regionHeight, argb, 0, tileWidth);
+  }
+
+  /**
+   * Closes the file and disposes of the pooled readers. Tiles read afterwards fail.
+   */
+  @Override
+  public void close() {
+    closer.clean();
+  }
+
+  /**
+   * Decodes a region of the image, with a reader from the pool.
+   *
+   * @param region the region, inside the image
+   * @return the decoded region
+   * @throws IOException if the region could not be read
+   */
+  private BufferedImage readRegion(Rectangle region) throws IOException {
+    javax.imageio.ImageReader reader = readers.poll();
+    if (reader == null) {
+      reader = newReader(true);
+    }
+    try {
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceRegion(region);
+      return reader.read(0, param);
+    } finally {
+      readers.add(reader);
+    }
+  }
+
+  /**
+   * Reads part of the image, or a subsampled copy of it. A load with a target size reads the
+   * smallest reduced-resolution image stored in the file which is large enough, if the file is a
+   * pyramid of such images.
+   *
+   * @param options the region and subsampling to decode
+   * @return the part of the image read
+   * @throws IOException              if the file could not be read
+   * @throws IllegalArgumentException if the region does not lie inside the image
+   */
+  BufferedImage read(LoadOptions options) throws IOException {
+    javax.imageio.ImageReader reader = newReader(false);
+    try {
+      int chosen = 0;
+      long chosenPixels = (long) width * height;
+      int images = options.accepts(width, height) ? reader.getNumImages(true) : 1;
+      for (int index = 1; index < images; index++) {
+        long pixels = (long) reader.getWidth(index) * reader.getHeight(index);
+        if (isReducedResolution(reader, index) && pixels < chosenPixels
+            && options.accepts(reader.getWidth(index), reader.getHeight(index))) {
+          chosen = index;
+          chosenPixels = pixels;
+        }
+      }
+      ImageReadParam param = reader.getDefaultReadParam();
+      options.applyTo(param, reader.getWidth(chosen), reader.getHeight(chosen));
+      return reader.read(chosen, param);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  /**
+   * Tells whether an image of the file is marked as a reduced-resolution copy of another one,
+   * rather than a page of its own.
+   */
+  private static boolean isReducedResolution(javax.imageio.ImageReader reader, int index)
+      throws IOException {
+    TIFFField type = TIFFDirectory.createFromMetadata(reader.getImageMetadata(index))
+        .getTIFFField(BaselineTIFFTagSet.TAG_NEW_SUBFILE_TYPE);
+    return type != null
+        && (type.getAsInt(0) & BaselineTIFFTagSet.NEW_SUBFILE_TYPE_REDUCED_RESOLUTION) != 0;
+  }
+
+  /**
+   * Closes the file and disposes of the readers of a source once it is closed or unreachable.
+   */
+  private static final class Closer implements Runnable {
+
+    private final FileChannel file;
+    private final Queue<javax.imageio.ImageReader> readers;
+
+    private Closer(FileChannel file, Queue<javax.imageio.ImageReader> readers) {
+      this.file = file;
+      this.readers = readers;
+    }
+
+    @Override
+    public void run() {
+      javax.imageio.ImageReader reader;
+      while ((reader = readers.poll()) != null) {
+        reader.dispose();
+      }
+      try {
+        file.close();
+      } catch (IOException e) {
+        // Nothing is left to read the file
+      }
+    }
+  }
+
+  /**
+   * An ImageIO input stream reading a file channel with positional reads, so that many streams
+   * can read one channel at the same time.
+   */
+  private static final class ChannelInputStream extends ImageInputStreamImpl {
+
+    private final FileChannel file;
+
+    private ChannelInputStream(FileChannel file) {
+      this.file = file;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      return read(single, 0, 1) <= 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      checkClosed();
+      bitOffset = 0;
+      if (length == 0) {
+        return 0;
+      }
+      int count = file.read(ByteBuffer.wrap(bytes, offset, length), streamPos);
+      if (count > 0) {
+        streamPos += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long length() {
+      try {
+        return file.size();
+      } catch (IOException e) {
+        return -1;
+      }
+    }
+  }
+}
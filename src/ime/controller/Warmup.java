@@ -0,0 +1,187 @@
+package ime.controller;
+
+import ime.CommandConstants;
+import ime.controller.metrics.CommandMetrics;
+import ime.model.Model;
+import ime.model.ModelInterface;
+import ime.model.OperationInfo;
+import ime.model.OperationParameter;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
+import ime.view.ViewInterface;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The Warmup class runs a short training run of every operation the model offers, with and
+ * without split where supported, on a small synthetic image, and saves and loads it in every file
+ * format. Run before real work, it loads the classes the work needs and lets the JIT compiler
+ * compile the hot loops, so the first real commands do not run in the interpreter. Run while
+ * dumping a class data sharing archive, it puts those classes in the archive.
+ *
+ * <p>The training run has its own model and metrics, so it leaves no images or timings behind.</p>
+ */
+public final class Warmup {
+
+  static final int IMAGE_SIZE = 32;
+  private static final String IMAGE_NAME = "warmup";
+  private static final List<String> FILE_FORMATS = List.of("ppm", "png", "jpg", "bmp", "tif",
+      RawImageFormat.EXTENSION, QoiImageFormat.EXTENSION);
+
+  private Warmup() {
+  }
+
+  /**
+   * Runs the training run the given number of times.
+   *
+   * @param iterations the number of times to run every operation
+   * @return the number of commands which failed, such as operations of providers whose parameters
+   *         cannot be guessed
+   * @throws IOException if the temporary directory for the file formats cannot be used
+   */
+  public static int run(int iterations) throws IOException {
+    ModelInterface model = new Model();
+    List<String> commands = commands(model);
+    Path directory = Files.createTempDirectory("ime-warmup");
+    FailureView view = new FailureView();
+    try {
+      Controller controller = new Controller(new StringReader(""), view, model,
+          new CommandMetrics());
+      for (int iteration = 0; iteration < iterations; iteration++) {
+        model.convertAndStoreImage(IMAGE_NAME, syntheticImage());
+        for (String command : commands) {
+          execute(controller, command, view);
+        }
+        for (String format : FILE_FORMATS) {
+          String file = directory.resolve(IMAGE_NAME + "." + format).toString();
+          execute(controller, CommandConstants.SAVE + " " + file + " " + IMAGE_NAME, view);
+          execute(controller, CommandConstants.LOAD + " " + file + " " + IMAGE_NAME, view);
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+    return view.failures;
+  }
+
+  private static void execute(Controller controller, String command, FailureView view) {
+    try {
+      controller.executeCommandLine(command);
+    } catch (RuntimeException e) {
+      view.failures++;
+    }
+  }
+
+  /**
+   * Builds one command per operation, plus one with split for those accepting it, reading the
+   * synthetic image and writing images of their own.
+   *
+   * @param model the model whose operations are run
+   * @return the commands
+   */
+  static List<String> commands(ModelInterface model) {
+    List<String> commands = new ArrayList<>();
+    for (OperationInfo operation : model.getOperations()) {
+      StringBuilder command = new StringBuilder(operation.getName());
+      for (OperationParameter parameter : operation.getParameters()) {
+        command.append(' ');
+        switch (parameter.getRole()) {
+          case INPUT_IMAGE:
+            command.append(IMAGE_NAME);
+            break;
+          case OUTPUT_IMAGE:
+            command.append(IMAGE_NAME).append('-').append(operation.getName()).append('-')
+                .append(parameter.getName());
+            break;
+          default:
+            command.append(sampleValue(parameter.getName()));
+        }
+      }
+      commands.add(command.toString());
+      String split = command + " split 50";
+      if (operation.supportsSplit() && isValid(split, model)) {
+        commands.add(split);
+      }
+    }
+    return commands;
+  }
+
+  /**
+   * Checks a command against the validator, which does not accept split for every operation whose
+   * provider supports it.
+   */
+  private static boolean isValid(String command, ModelInterface model) {
+    try {
+      CommandValidator.validateCommand(Arrays.asList(command.split(" ")), model);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Chooses a value valid for the synthetic image for a parameter of the built-in operations.
+   */
+  private static String sampleValue(String name) {
+    switch (name) {
+      case "black":
+        return "20";
+      case "mid":
+        return "100";
+      case "white":
+        return "230";
+      case "x":
+      case "y":
+        return "0";
+      case "width":
+      case "height":
+        return String.valueOf(IMAGE_SIZE / 2);
+      default:
+        return "10";
+    }
+  }
+
+  private static Map<String, int[][]> syntheticImage() {
+    Map<String, int[][]> channels = new HashMap<>();
+    String[] names = {"red", "green", "blue", "alpha"};
+    for (int channel = 0; channel < names.length; channel++) {
+      int[][] values = new int[IMAGE_SIZE][IMAGE_SIZE];
+      for (int y = 0; y < IMAGE_SIZE; y++) {
+        for (int x = 0; x < IMAGE_SIZE; x++) {
+          values[y][x] = channel == 3 ? 255 : (x * 8 + y * (channel + 1) * 4) & 0xFF;
+        }
+      }
+      channels.put(names[channel], values);
+    }
+    return channels;
+  }
+
+  /**
+   * A view which discards messages and counts errors.
+   */
+  private static final class FailureView implements ViewInterface {
+
+    private int failures;
+
+    @Override
+    public void displayMessage(String message) {
+      // The training run reports nothing but its failures
+    }
+
+    @Override
+    public void displayError(String error) {
+      failures++;
+    }
+  }
+}
@@ -5,7 +5,11 @@ import ime.controller.ImageReader;
 import ime.controller.ImageReaderFactory;
 import ime.controller.ImageWriter;
 import ime.controller.ImageWriterFactory;
+import ime.controller.metrics.ImageFileEvent;
+import ime.controller.metrics.ImageFileEvents;
 import ime.model.ModelInterface;
+import ime.model.QoiImageFormat;
+import ime.model.RawImageFormat;
 import ime.view.DisplayMessageConstants;
 import ime.view.gui.GraphicalIMEInterface;
 import java.awt.image.BufferedImage;
@@ -24,24 +28,40 @@ import java.util.Set;
  */
 public class GUIController implements GUIControllerInterface, GUIFeaturesInterface {
 
-  private static final Set<String> ARGB_TYPES = Set.of("png");
-  private static String currentImageName;
+  private static final Set<String> ARGB_TYPES = Set.of("png", "tif", "tiff",
+      RawImageFormat.EXTENSION, QoiImageFormat.EXTENSION);
   private final ModelInterface model;
   private final GraphicalIMEInterface gui;
-  private final List<String> imageVersions;
+  private final VersionHistory versionHistory;
+  private String currentImageName;
   private String fileExtension;
-  private int versionIndex;
+  private int currentVersion;
 
   /**
-   * Initializes the GUIController with the specified model and GUI interface.
+   * Initializes the GUIController with the specified model and GUI interface, using the default
+   * version retention policy.
    *
    * @param model The model interface providing the business logic for image processing.
    * @param gui   The graphical interface for interacting with the user.
    */
   public GUIController(ModelInterface model, GraphicalIMEInterface gui) {
+    this(model, gui, VersionRetentionPolicy.defaults());
+  }
+
+  /**
+   * Initializes the GUIController with the specified model, GUI interface and limits on the memory
+   * used by the version history.
+   *
+   * @param model           The model interface providing the business logic for image processing.
+   * @param gui             The graphical interface for interacting with the user.
+   * @param retentionPolicy The limits on how many versions are kept in memory.
+   */
+  public GUIController(ModelInterface model, GraphicalIMEInterface gui,
+      VersionRetentionPolicy retentionPolicy) {
     this.model = model;
     this.gui = gui;
-    this.imageVersions = new ArrayList<>();
+    this.versionHistory = new VersionHistory(model, retentionPolicy);
+    this.currentVersion = -1;
   }
 
   /**
@@ -96,14 +116,13 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     File selectedFile = gui.loadImage();
     try {
       currentImageName = selectedFile.getName().trim().split("\\.")[0];
-      imageVersions.add(currentImageName);
-      versionIndex = imageVersions.size() - 1;
       fileExtension = selectedFile.getPath().trim().split("\\.")[1];
       List<String> list = new ArrayList<>();
       list.add(CommandConstants.LOAD);
       list.add(selectedFile.getPath());
       list.add(currentImageName);
       readImage(list);
+      currentVersion = versionHistory.addRoot(currentImageName);
       gui.displayMessage("Image loaded successfully.");
 
       updateImageDisplay();
@@ -113,14 +132,15 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
   }
 
   /**
-   * Manages versioning of images by storing each modified version and updating the display.
+   * Manages versioning of images by recording each modified version in the version history and
+   * updating the display.
    *
-   * @param currentImgName The name of the current image version.
+   * @param filter The operation which produced the new version.
+   * @param args   The arguments the operation was run with, ending with the new version's name.
    */
-  private void imageVersioning(String currentImgName) {
-    currentImageName = currentImgName;
-    imageVersions.add(currentImageName);
-    versionIndex = imageVersions.size() - 1;
+  private void imageVersioning(String filter, List<String> args) {
+    currentVersion = versionHistory.addVersion(currentVersion, filter, args);
+    currentImageName = versionHistory.get(currentVersion).getName();
     updateImageDisplay(); // Add this line to update the display
     try {
       gui.offerToSaveImage(this, currentImageName, fileExtension);
@@ -130,18 +150,17 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
   }
 
   /**
-   * Updates the GUI display to show the current image version.
+   * Updates the GUI display to show the current image version. The display reads the visible part
+   * of the image from the model as it paints, so no copy of the whole image is made here.
    */
   public void updateImageDisplay() {
     try {
-      String currentVersion = imageVersions.get(versionIndex);
-      BufferedImage img = this.getCurrentImage(currentVersion);
-      gui.updateImageDisplay(img);
-      if (img != null) {
-        updateHistogram(); // Make sure to update the histogram as well
-      } else {
-        gui.displayMessage("Error: Image not found");
-      }
+      versionHistory.ensureResident(currentVersion);
+      String versionName = versionHistory.get(currentVersion).getName();
+      versionHistory.capture(currentVersion);
+      gui.updateImageDisplay(new ModelTileSource(model, versionName,
+          !ARGB_TYPES.contains(fileExtension)));
+      updateHistogram(); // Make sure to update the histogram as well
     } catch (Exception ex) {
       gui.displayError("Error displaying image: " + ex.getMessage());
     }
@@ -150,8 +169,10 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
   @Override
   public void saveImage(String filePath, String currentImageName, String fileExtension)
       throws IOException {
+    ImageFileEvent event = ImageFileEvents.beginSave();
     BufferedImage image = getCurrentImage(currentImageName);
     writeImageToFile(image, filePath);
+    ImageFileEvents.complete(event, filePath, image);
     gui.displayMessage(DisplayMessageConstants.SAVED_TO + filePath);
   }
 
@@ -164,7 +185,9 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
   void readImage(List<String> args) throws IOException {
     String imageFilePath = args.get(1);
     String imageName = args.get(2);
+    ImageFileEvent event = ImageFileEvents.beginLoad();
     BufferedImage bufferedImage = loadBufferedImage(imageFilePath);
+    ImageFileEvents.complete(event, imageFilePath, bufferedImage);
     Map<String, int[][]> imagePixelArr = convertTo2DPixelArray(bufferedImage);
     model.convertAndStoreImage(imageName, imagePixelArr);
   }
@@ -263,7 +286,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     args.add(CommandConstants.BRIGHTEN);
     args.add(brightenIntensity);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.BRIGHTEN);
+    args.add(nextVersionName(CommandConstants.BRIGHTEN));
     applyFilter(args.get(0), args);
   }
 
@@ -279,7 +302,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     args.add(CommandConstants.COMPRESS);
     args.add(compressionRatio);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.COMPRESS);
+    args.add(nextVersionName(CommandConstants.COMPRESS));
     applyFilter(args.get(0), args);
   }
 
@@ -288,7 +311,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.HORIZONTAL_FLIP);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.HORIZONTAL_FLIP);
+    args.add(nextVersionName(CommandConstants.HORIZONTAL_FLIP));
 
     applyFilter(args.get(0), args);
   }
@@ -298,7 +321,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.VERTICAL_FLIP);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.VERTICAL_FLIP);
+    args.add(nextVersionName(CommandConstants.VERTICAL_FLIP));
 
     applyFilter(args.get(0), args);
   }
@@ -308,7 +331,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.RED_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.RED_COMPONENT);
+    args.add(nextVersionName(CommandConstants.RED_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -318,7 +341,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.GREEN_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.GREEN_COMPONENT);
+    args.add(nextVersionName(CommandConstants.GREEN_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -328,7 +351,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.BLUE_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.BLUE_COMPONENT);
+    args.add(nextVersionName(CommandConstants.BLUE_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -338,7 +361,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.VALUE_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.VALUE_COMPONENT);
+    args.add(nextVersionName(CommandConstants.VALUE_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -348,7 +371,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.INTENSITY_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.INTENSITY_COMPONENT);
+    args.add(nextVersionName(CommandConstants.INTENSITY_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -358,7 +381,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.LUMA_COMPONENT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.LUMA_COMPONENT);
+    args.add(nextVersionName(CommandConstants.LUMA_COMPONENT));
 
     applyFilter(args.get(0), args);
   }
@@ -368,7 +391,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.COLOR_CORRECT);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.COLOR_CORRECT);
+    args.add(nextVersionName(CommandConstants.COLOR_CORRECT));
 
     gui.splitView(this, args.get(0), args,
         currentImageName);
@@ -379,7 +402,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.BLUR);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.BLUR);
+    args.add(nextVersionName(CommandConstants.BLUR));
 
     gui.splitView(this, args.get(0), args,
         currentImageName);
@@ -390,7 +413,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.SHARPEN);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.SHARPEN);
+    args.add(nextVersionName(CommandConstants.SHARPEN));
 
     gui.splitView(this, args.get(0), args,
         currentImageName);
@@ -402,7 +425,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.SEPIA);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.SEPIA);
+    args.add(nextVersionName(CommandConstants.SEPIA));
 
     gui.splitView(this, args.get(0), args,
         currentImageName);
@@ -418,7 +441,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     List<String> args = new ArrayList<>();
     args.add(CommandConstants.DITHER);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.DITHER);
+    args.add(nextVersionName(CommandConstants.DITHER));
 
     gui.splitView(this, args.get(0), args, currentImageName);
   }
@@ -449,7 +472,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     args.add(midPoint);
     args.add(whitePoint);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.LEVELS_ADJUST);
+    args.add(nextVersionName(CommandConstants.LEVELS_ADJUST));
     gui.splitView(this, args.get(0), args,
         currentImageName);
   }
@@ -478,7 +501,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
     args.add(targetWidth);
     args.add(targetHeight);
     args.add(currentImageName);
-    args.add(currentImageName + "-" + CommandConstants.DOWNSCALE);
+    args.add(nextVersionName(CommandConstants.DOWNSCALE));
 
     applyFilter(args.get(0), args);
   }
@@ -488,8 +511,7 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
   public void applyFilter(String filter, List<String> args) {
     try {
       model.operationsFactoryCall(filter, args, model);
-      currentImageName += "-" + filter;
-      imageVersioning(currentImageName);
+      imageVersioning(filter, args);
       updateImageDisplay();
     } catch (RuntimeException e) {
       gui.displayError(e.getMessage());
@@ -528,10 +550,10 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
 
   @Override
   public void windowClosing() throws IOException {
-    if (imageVersions.size() <= 0) {
+    if (versionHistory.size() <= 0) {
       return;
     }
-    gui.offerToSaveImage(this, imageVersions.get(versionIndex), fileExtension);
+    gui.offerToSaveImage(this, versionHistory.get(currentVersion).getName(), fileExtension);
   }
 
   /**
@@ -539,10 +561,8 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
    */
   @Override
   public void nextVersion() {
-    if (versionIndex < imageVersions.size() - 1) {
-      versionIndex++;
-      currentImageName = imageVersions.get(versionIndex);
-      updateImageDisplay();
+    if (currentVersion < versionHistory.size() - 1) {
+      switchToVersion(currentVersion + 1);
     }
   }
 
@@ -551,11 +571,43 @@ public class GUIController implements GUIControllerInterface, GUIFeaturesInterfa
    */
   @Override
   public void previousVersion() {
-    if (versionIndex > 0) {
-      versionIndex--;
-      currentImageName = imageVersions.get(versionIndex);
-      updateImageDisplay();
+    if (currentVersion > 0) {
+      switchToVersion(currentVersion - 1);
+    }
+  }
+
+  @Override
+  public void jumpToVersion(int versionNumber) {
+    if (versionNumber < 1 || versionNumber > versionHistory.size()) {
+      gui.displayError("Version must be between 1 and " + versionHistory.size());
+      return;
+    }
+    switchToVersion(versionNumber - 1);
+  }
+
+  /**
+   * Makes the given version current and displays it. Looking the version up is constant time; an
+   * evicted version is restored by the version history before it is displayed.
+   *
+   * @param versionId the id of the version to switch to
+   */
+  private void switchToVersion(int versionId) {
+    currentVersion = versionId;
+    currentImageName = versionHistory.get(currentVersion).getName();
+    updateImageDisplay();
+  }
+
+  /**
+   * Returns the model name to use for a new version derived from the current one.
+   *
+   * @param filter the operation which will produce the new version
+   * @return the name for the new version
+   */
+  private String nextVersionName(String filter) {
+    if (currentVersion < 0) {
+      return currentImageName + "-" + filter;
     }
+    return versionHistory.proposeName(currentVersion, filter);
   }
 
   /**
@@ -111,6 +111,14 @@ public interface GUIFeaturesInterface {
    */
   void nextVersion();
 
+  /**
+   * Switches directly to the given version of the image. Versions are numbered from 1, in the
+   * order they were created.
+   *
+   * @param versionNumber the number of the version to switch to
+   */
+  void jumpToVersion(int versionNumber);
+
   /**
    * Saves the current image to a user-defined location.
    *
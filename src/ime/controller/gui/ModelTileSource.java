@@ -0,0 +1,50 @@
+package ime.controller.gui;
+
+import ime.model.ImageStrips;
+import ime.model.ModelInterface;
+import ime.view.gui.ImageTileSource;
+
+/**
+ * The ModelTileSource class lets the view read an image of the model in place, a row run at a
+ * time, so displaying an image never copies it out of the model as a whole, and painting a tile
+ * only reads the pixels the tile covers.
+ */
+class ModelTileSource implements ImageTileSource {
+
+  private final ModelInterface model;
+  private final String imageName;
+  private final boolean opaque;
+
+  /**
+   * Constructs a source reading the named image of a model.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @param opaque    true to show every pixel fully opaque, for formats without an alpha channel
+   */
+  ModelTileSource(ModelInterface model, String imageName, boolean opaque) {
+    this.model = model;
+    this.imageName = imageName;
+    this.opaque = opaque;
+  }
+
+  @Override
+  public int getWidth() {
+    return ImageStrips.width(model, imageName);
+  }
+
+  @Override
+  public int getHeight() {
+    return ImageStrips.height(model, imageName);
+  }
+
+  @Override
+  public void readRow(int y, int x, int[] argb, int length) {
+    ImageStrips.fetch(model, imageName, y, x, length, argb);
+    if (opaque) {
+      for (int i = 0; i < length; i++) {
+        argb[i] |= 0xFF000000;
+      }
+    }
+  }
+}
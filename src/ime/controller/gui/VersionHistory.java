@@ -0,0 +1,318 @@
+package ime.controller.gui;
+
+import ime.model.ImageSnapshot;
+import ime.model.ModelInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The VersionHistory class records every version of an image produced in the GUI, in creation
+ * order. Each version knows its parent and the operation that derived it, so it can always be
+ * recomputed. Pixels are kept in two places, both bounded by a {@link VersionRetentionPolicy}:
+ * <ul>
+ *   <li>a limited number of versions stay as live images in the model, least recently used ones
+ *   being removed from it;</li>
+ *   <li>versions are snapshotted as {@link ImageSnapshot}s, which share the tiles of the model's
+ *   images copy-on-write, least recently used snapshots being dropped once the byte budget is
+ *   exceeded.</li>
+ * </ul>
+ * A version which is in neither place is restored by recomputing it from its parent.
+ */
+class VersionHistory {
+
+  private final ModelInterface model;
+  private final VersionRetentionPolicy policy;
+  private final List<Version> versions;
+  private final Map<String, Integer> idsByName;
+  private final Set<Integer> residentIds;
+  private final Set<Integer> snapshotIds;
+  private final Map<Object, Integer> tileReferences;
+  private long snapshotBytes;
+
+  /**
+   * Constructs an empty history over the given model.
+   *
+   * @param model  the model holding the images of resident versions
+   * @param policy the limits on resident images and snapshot memory
+   */
+  VersionHistory(ModelInterface model, VersionRetentionPolicy policy) {
+    this.model = model;
+    this.policy = policy;
+    this.versions = new ArrayList<>();
+    this.idsByName = new HashMap<>();
+    this.residentIds = new LinkedHashSet<>();
+    this.snapshotIds = new LinkedHashSet<>();
+    this.tileReferences = new IdentityHashMap<>();
+  }
+
+  /**
+   * Records an image loaded from disk, which already exists in the model, as a version without a
+   * parent.
+   *
+   * @param name the name the image is stored under in the model
+   * @return the id of the new version
+   */
+  int addRoot(String name) {
+    Version version = new Version(versions.size(), -1, name, name, null, null);
+    register(version);
+    return version.id;
+  }
+
+  /**
+   * Records a version which has just been produced in the model by running an operation on its
+   * parent. The destination image name is expected to be the last token of the arguments.
+   *
+   * @param parentId  the id of the version the operation was applied to
+   * @param operation the name of the operation
+   * @param args      the full command tokens the operation was run with
+   * @return the id of the new version
+   */
+  int addVersion(int parentId, String operation, List<String> args) {
+    Version parent = get(parentId);
+    String name = args.get(args.size() - 1);
+    Version version = new Version(versions.size(), parentId, name, parent.root, operation,
+        Collections.unmodifiableList(new ArrayList<>(args)));
+    register(version);
+    return version.id;
+  }
+
+  /**
+   * Proposes the model name for a new version derived from the given one. Names do not grow with
+   * the length of the editing chain: they are the root image name plus the operation, with a
+   * number appended only when that name is already taken by a version or an image of the model.
+   *
+   * @param parentId  the id of the version the operation will be applied to
+   * @param operation the name of the operation
+   * @return a name not used by any other version or image
+   */
+  String proposeName(int parentId, String operation) {
+    String base = get(parentId).root + "-" + operation;
+    String name = base;
+    for (int suffix = versions.size(); isTaken(name); suffix++) {
+      name = base + "-" + suffix;
+    }
+    return name;
+  }
+
+  /**
+   * Returns the version with the given id in constant time.
+   *
+   * @param id the version id
+   * @return the version
+   * @throws IndexOutOfBoundsException if no such version exists
+   */
+  Version get(int id) {
+    return versions.get(id);
+  }
+
+  /**
+   * Returns the number of versions recorded.
+   *
+   * @return the history size
+   */
+  int size() {
+    return versions.size();
+  }
+
+  /**
+   * Returns the number of bytes held by tile snapshots, counting shared tiles once.
+   *
+   * @return the snapshot memory in use
+   */
+  long getSnapshotBytes() {
+    return snapshotBytes;
+  }
+
+  /**
+   * Snapshots the image of a resident version, unless it already has a snapshot. The snapshot
+   * shares its tiles with the model's image, and through it with every version the operation left
+   * those tiles unchanged in, so only tiles no other snapshot holds add to the byte budget.
+   *
+   * @param id the version id
+   */
+  void capture(int id) {
+    Version version = get(id);
+    if (version.snapshot != null) {
+      touch(snapshotIds, id);
+      return;
+    }
+    try {
+      version.snapshot = ImageSnapshot.take(model, version.name);
+    } catch (IllegalArgumentException e) {
+      return;
+    }
+    version.snapshot.forEachTile(this::retainTile);
+    touch(snapshotIds, id);
+    enforceSnapshotBudget(id);
+  }
+
+  /**
+   * Makes sure the image of a version is present in the model, restoring it from its snapshot or
+   * recomputing it from its parent if it was evicted.
+   *
+   * @param id the version id
+   * @throws IllegalStateException if the version can no longer be restored
+   */
+  void ensureResident(int id) {
+    Version version = get(id);
+    if (residentIds.contains(id)) {
+      touch(residentIds, id);
+      return;
+    }
+    if (version.snapshot != null) {
+      version.snapshot.restore(model, version.name);
+      touch(snapshotIds, id);
+    } else if (version.parentId >= 0) {
+      ensureResident(version.parentId);
+      model.operationsFactoryCall(version.operation, version.args, model);
+    } else {
+      throw new IllegalStateException("Version " + version.name + " can no longer be restored");
+    }
+    touch(residentIds, id);
+    enforceResidentLimit(id);
+  }
+
+  /**
+   * Adds a new version to the indexes and marks it resident in the model.
+   *
+   * @param version the version to add
+   */
+  private void register(Version version) {
+    versions.add(version);
+    idsByName.put(version.name, version.id);
+    touch(residentIds, version.id);
+    enforceResidentLimit(version.id);
+  }
+
+  /**
+   * Removes least recently used versions from the model until the resident limit holds. The given
+   * version, and versions which could not be restored afterwards, are never removed.
+   *
+   * @param keepId the id of the version in use
+   */
+  private void enforceResidentLimit(int keepId) {
+    Iterator<Integer> lru = residentIds.iterator();
+    while (residentIds.size() > policy.getMaxResidentImages() && lru.hasNext()) {
+      Version candidate = get(lru.next());
+      if (candidate.id != keepId && (candidate.parentId >= 0 || candidate.snapshot != null)) {
+        lru.remove();
+        model.removeImage(candidate.name);
+      }
+    }
+  }
+
+  /**
+   * Drops least recently used snapshots until the byte budget holds. Snapshots of root versions,
+   * which cannot be recomputed, and of the given version are kept, so every version can still be
+   * reached by recomputing along its parent chain.
+   *
+   * @param keepId the id of the version in use
+   */
+  private void enforceSnapshotBudget(int keepId) {
+    Iterator<Integer> lru = snapshotIds.iterator();
+    while (snapshotBytes > policy.getMaxSnapshotBytes() && lru.hasNext()) {
+      Version candidate = get(lru.next());
+      if (candidate.id != keepId && candidate.parentId >= 0) {
+        lru.remove();
+        candidate.snapshot.forEachTile(this::releaseTile);
+        candidate.snapshot.release();
+        candidate.snapshot = null;
+      }
+    }
+  }
+
+  /**
+   * Tells whether a name is used by a version or by an image of the model.
+   *
+   * @param name the name
+   * @return true if the name is taken
+   */
+  private boolean isTaken(String name) {
+    if (idsByName.containsKey(name)) {
+      return true;
+    }
+    try {
+      return model.getImage(name) != null;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private void retainTile(Object tile, long bytes) {
+    Integer count = tileReferences.get(tile);
+    if (count == null) {
+      snapshotBytes += bytes;
+      tileReferences.put(tile, 1);
+    } else {
+      tileReferences.put(tile, count + 1);
+    }
+  }
+
+  private void releaseTile(Object tile, long bytes) {
+    int count = tileReferences.get(tile);
+    if (count == 1) {
+      tileReferences.remove(tile);
+      snapshotBytes -= bytes;
+    } else {
+      tileReferences.put(tile, count - 1);
+    }
+  }
+
+  /**
+   * Moves an id to the most recently used end of an insertion-ordered set.
+   *
+   * @param lru the set
+   * @param id  the id to move
+   */
+  private static void touch(Set<Integer> lru, int id) {
+    lru.remove(id);
+    lru.add(id);
+  }
+
+  /**
+   * One entry in the history.
+   */
+  static final class Version {
+
+    private final int id;
+    private final int parentId;
+    private final String name;
+    private final String root;
+    private final String operation;
+    private final List<String> args;
+    private ImageSnapshot snapshot;
+
+    private Version(int id, int parentId, String name, String root, String operation,
+        List<String> args) {
+      this.id = id;
+      this.parentId = parentId;
+      this.name = name;
+      this.root = root;
+      this.operation = operation;
+      this.args = args;
+    }
+
+    int getId() {
+      return id;
+    }
+
+    int getParentId() {
+      return parentId;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    boolean hasSnapshot() {
+      return snapshot != null;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package ime.controller.gui;
+
+/**
+ * The VersionRetentionPolicy class holds the limits which bound how much memory the GUI's version
+ * history may use. Two budgets are tracked separately: how many versions are kept as live images in
+ * the model, and how many bytes of tile snapshots the history itself may retain. Versions which
+ * fall outside both budgets are not lost; they are recomputed from their parent and the operation
+ * that produced them when the user navigates back to them.
+ */
+public class VersionRetentionPolicy {
+
+  /**
+   * Default number of versions kept as live images in the model.
+   */
+  public static final int DEFAULT_MAX_RESIDENT_IMAGES = 8;
+
+  /**
+   * Default budget, in bytes, for tile snapshots held by the version history.
+   */
+  public static final long DEFAULT_MAX_SNAPSHOT_BYTES = 256L * 1024 * 1024;
+
+  private final int maxResidentImages;
+  private final long maxSnapshotBytes;
+
+  /**
+   * Constructs a policy with the given limits.
+   *
+   * @param maxResidentImages maximum number of versions kept as images in the model, at least 1
+   * @param maxSnapshotBytes  maximum number of bytes of tile snapshots kept by the history, not
+   *                          negative
+   * @throws IllegalArgumentException if either limit is out of range
+   */
+  public VersionRetentionPolicy(int maxResidentImages, long maxSnapshotBytes) {
+    if (maxResidentImages < 1) {
+      throw new IllegalArgumentException("At least one version must stay resident");
+    }
+    if (maxSnapshotBytes < 0) {
+      throw new IllegalArgumentException("Snapshot budget cannot be negative");
+    }
+    this.maxResidentImages = maxResidentImages;
+    this.maxSnapshotBytes = maxSnapshotBytes;
+  }
+
+  /**
+   * Returns the policy used when none is supplied.
+   *
+   * @return a policy with the default limits
+   */
+  public static VersionRetentionPolicy defaults() {
+    return new VersionRetentionPolicy(DEFAULT_MAX_RESIDENT_IMAGES, DEFAULT_MAX_SNAPSHOT_BYTES);
+  }
+
+  /**
+   * Returns the maximum number of versions kept as images in the model.
+   *
+   * @return the resident image limit
+   */
+  public int getMaxResidentImages() {
+    return maxResidentImages;
+  }
+
+  /**
+   * Returns the maximum number of bytes of tile snapshots the history may keep.
+   *
+   * @return the snapshot byte budget
+   */
+  public long getMaxSnapshotBytes() {
+    return maxSnapshotBytes;
+  }
+}
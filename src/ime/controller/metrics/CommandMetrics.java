@@ -0,0 +1,206 @@
+package ime.controller.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The CommandMetrics class collects, for every command name and {@link CommandPhase}, histograms of
+ * the wall time, the CPU time and the bytes allocated by the thread running the phase. CPU time and
+ * allocation are read from the JVM's {@link ThreadMXBean}; on JVMs which do not support them only
+ * wall time is recorded. Results can be printed as a table or exported as JSON.
+ *
+ * <p>A phase is measured by taking a {@link Timer} when it starts and passing it to
+ * {@link #record} when it ends, on the same thread.</p>
+ */
+public class CommandMetrics {
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+  private static final double BYTES_PER_KIB = 1024.0;
+
+  private final ThreadMXBean threads;
+  private final com.sun.management.ThreadMXBean allocations;
+  private final Map<String, Map<CommandPhase, PhaseStatistics>> statistics;
+
+  /**
+   * Constructs an empty set of metrics, enabling per-thread CPU time and allocation measurement
+   * where the JVM supports them.
+   */
+  public CommandMetrics() {
+    this.threads = ManagementFactory.getThreadMXBean();
+    if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+    com.sun.management.ThreadMXBean allocationBean = null;
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      allocationBean = (com.sun.management.ThreadMXBean) threads;
+      if (!allocationBean.isThreadAllocatedMemorySupported()) {
+        allocationBean = null;
+      } else if (!allocationBean.isThreadAllocatedMemoryEnabled()) {
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+      }
+    }
+    this.allocations = allocationBean;
+    this.statistics = new TreeMap<>();
+  }
+
+  /**
+   * Starts measuring a phase on the current thread.
+   *
+   * @return the readings at the start of the phase
+   */
+  public Timer start() {
+    return new Timer(System.nanoTime(), cpuTime(), allocatedBytes());
+  }
+
+  /**
+   * Records a phase which started when the given timer was taken and ends now. Must be called on
+   * the thread which took the timer.
+   *
+   * @param command the command name
+   * @param phase   the phase measured
+   * @param timer   the readings taken at the start of the phase
+   */
+  public void record(String command, CommandPhase phase, Timer timer) {
+    long wall = System.nanoTime() - timer.wallNanos;
+    long cpu = timer.cpuNanos < 0 ? -1 : cpuTime() - timer.cpuNanos;
+    long allocated = timer.allocatedBytes < 0 ? -1 : allocatedBytes() - timer.allocatedBytes;
+    PhaseStatistics phaseStatistics;
+    synchronized (statistics) {
+      phaseStatistics = statistics
+          .computeIfAbsent(command, name -> new EnumMap<>(CommandPhase.class))
+          .computeIfAbsent(phase, p -> new PhaseStatistics());
+    }
+    phaseStatistics.wall.record(wall);
+    if (cpu >= 0) {
+      phaseStatistics.cpu.record(cpu);
+    }
+    if (allocated >= 0) {
+      phaseStatistics.allocated.record(allocated);
+    }
+  }
+
+  /**
+   * Formats the metrics as a table with one row per command and phase, giving times in
+   * milliseconds and allocation in KiB.
+   *
+   * @return the table, or a short note if nothing was recorded
+   */
+  public String formatTable() {
+    StringBuilder table = new StringBuilder();
+    synchronized (statistics) {
+      if (statistics.isEmpty()) {
+        return "No commands recorded yet";
+      }
+      table.append(String.format(Locale.ROOT, "%-20s %-9s %7s %11s %11s %11s %11s %12s %12s%n",
+          "command", "phase", "count", "wall p50", "wall p99", "cpu p50", "cpu p99",
+          "alloc p50", "alloc p99"));
+      for (Map.Entry<String, Map<CommandPhase, PhaseStatistics>> command
+          : statistics.entrySet()) {
+        for (Map.Entry<CommandPhase, PhaseStatistics> phase : command.getValue().entrySet()) {
+          PhaseStatistics values = phase.getValue();
+          table.append(String.format(Locale.ROOT,
+              "%-20s %-9s %7d %9.3fms %9.3fms %9.3fms %9.3fms %9.1fKiB %9.1fKiB%n",
+              command.getKey(), phase.getKey().getLabel(), values.wall.getCount(),
+              values.wall.getPercentile(0.5) / NANOS_PER_MILLI,
+              values.wall.getPercentile(0.99) / NANOS_PER_MILLI,
+              values.cpu.getPercentile(0.5) / NANOS_PER_MILLI,
+              values.cpu.getPercentile(0.99) / NANOS_PER_MILLI,
+              values.allocated.getPercentile(0.5) / BYTES_PER_KIB,
+              values.allocated.getPercentile(0.99) / BYTES_PER_KIB));
+        }
+      }
+    }
+    return table.toString();
+  }
+
+  /**
+   * Exports the metrics as a JSON object keyed by command name, then by phase, holding the count,
+   * mean, p50, p99 and maximum of wall time and CPU time in nanoseconds and of allocated bytes.
+   *
+   * @return the JSON document
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n  \"commands\": {");
+    synchronized (statistics) {
+      String commandSeparator = "\n";
+      for (Map.Entry<String, Map<CommandPhase, PhaseStatistics>> command
+          : statistics.entrySet()) {
+        json.append(commandSeparator).append("    ").append(quote(command.getKey())).append(": {");
+        String phaseSeparator = "\n";
+        for (Map.Entry<CommandPhase, PhaseStatistics> phase : command.getValue().entrySet()) {
+          PhaseStatistics values = phase.getValue();
+          json.append(phaseSeparator).append("      ").append(quote(phase.getKey().getLabel()))
+              .append(": {")
+              .append("\"count\": ").append(values.wall.getCount())
+              .append(", \"wallNanos\": ").append(summary(values.wall))
+              .append(", \"cpuNanos\": ").append(summary(values.cpu))
+              .append(", \"allocatedBytes\": ").append(summary(values.allocated))
+              .append("}");
+          phaseSeparator = ",\n";
+        }
+        json.append("\n    }");
+        commandSeparator = ",\n";
+      }
+    }
+    return json.append("\n  }\n}\n").toString();
+  }
+
+  private static String summary(Histogram histogram) {
+    return String.format(Locale.ROOT, "{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p99\": %d, "
+            + "\"max\": %d}", histogram.getCount(), histogram.getMean(),
+        histogram.getPercentile(0.5), histogram.getPercentile(0.99), histogram.getMax());
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private long cpuTime() {
+    return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  private long allocatedBytes() {
+    return allocations == null ? -1
+        : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * The readings of the clocks and allocation counter at the start of a phase.
+   */
+  public static final class Timer {
+
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    private Timer(long wallNanos, long cpuNanos, long allocatedBytes) {
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+  /**
+   * The histograms kept for one phase of one command.
+   */
+  private static final class PhaseStatistics {
+
+    private final Histogram wall = new Histogram();
+    private final Histogram cpu = new Histogram();
+    private final Histogram allocated = new Histogram();
+  }
+}
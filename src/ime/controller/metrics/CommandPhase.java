@@ -0,0 +1,49 @@
+package ime.controller.metrics;
+
+/**
+ * The phases a command goes through in the controller, each measured separately. Decode and encode
+ * are only recorded for commands which read or write image files, and happen inside their execute
+ * phase.
+ */
+public enum CommandPhase {
+
+  /**
+   * Splitting the command line into tokens.
+   */
+  PARSE("parse"),
+
+  /**
+   * Checking the tokens against the command's expected arguments.
+   */
+  VALIDATE("validate"),
+
+  /**
+   * Running the command, including any decode or encode it performs.
+   */
+  EXECUTE("execute"),
+
+  /**
+   * Reading and decoding an image file.
+   */
+  DECODE("decode"),
+
+  /**
+   * Encoding and writing an image file.
+   */
+  ENCODE("encode");
+
+  private final String label;
+
+  CommandPhase(String label) {
+    this.label = label;
+  }
+
+  /**
+   * Returns the name of the phase as it appears in reports.
+   *
+   * @return the phase label
+   */
+  public String getLabel() {
+    return label;
+  }
+}
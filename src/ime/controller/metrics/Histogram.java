@@ -0,0 +1,114 @@
+package ime.controller.metrics;
+
+/**
+ * A histogram of non-negative long values with logarithmic buckets, each power of two being split
+ * into 16 linear sub-buckets. Percentiles are reported as the upper bound of the bucket they fall
+ * in, which is within about 6% of the exact value, while memory stays constant however many values
+ * are recorded.
+ */
+class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] counts;
+  private long count;
+  private long sum;
+  private long min;
+  private long max;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  Histogram() {
+    this.counts = new long[BUCKET_COUNT];
+    this.min = Long.MAX_VALUE;
+    this.max = 0;
+  }
+
+  /**
+   * Records a value. Negative values are recorded as zero.
+   *
+   * @param value the value to record
+   */
+  synchronized void record(long value) {
+    value = Math.max(0, value);
+    counts[bucketOf(value)]++;
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Returns the number of values recorded.
+   *
+   * @return the count
+   */
+  synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the mean of the values recorded.
+   *
+   * @return the mean, or 0 if nothing was recorded
+   */
+  synchronized double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Returns the largest value recorded.
+   *
+   * @return the maximum, or 0 if nothing was recorded
+   */
+  synchronized long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the value below which the given fraction of the recorded values fall.
+   *
+   * @param quantile the fraction, between 0 and 1
+   * @return the percentile, or 0 if nothing was recorded
+   * @throws IllegalArgumentException if quantile is outside [0, 1]
+   */
+  synchronized long getPercentile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1");
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.max(min, Math.min(max, upperBoundOf(bucket)));
+      }
+    }
+    return max;
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+    int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
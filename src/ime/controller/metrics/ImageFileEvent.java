@@ -0,0 +1,66 @@
+package ime.controller.metrics;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+
+/**
+ * The base of the Java Flight Recorder events for an image file being read or written. The event
+ * spans the decoding or encoding of the file, and records its format, size on disk and the image
+ * dimensions.
+ *
+ * <p>A controller creates the event, calls {@link #begin()} before decoding or encoding, and
+ * {@link #complete(String, BufferedImage)} afterwards.</p>
+ */
+@Category({"Image Manipulation", "Input/Output"})
+public abstract class ImageFileEvent extends jdk.jfr.Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Format")
+  String format;
+
+  @Label("File Size")
+  @DataAmount
+  long fileBytes;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  /**
+   * Ends the event and commits it, if enabled, with the details of the file and image.
+   *
+   * @param filePath the path of the image file
+   * @param image    the decoded image, or the image encoded
+   */
+  public void complete(String filePath, BufferedImage image) {
+    complete(filePath, image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Ends the event and commits it, if enabled, with the details of the file and the dimensions of
+   * an image read or written without a {@link BufferedImage}.
+   *
+   * @param filePath    the path of the image file
+   * @param imageWidth  the width of the image
+   * @param imageHeight the height of the image
+   */
+  public void complete(String filePath, int imageWidth, int imageHeight) {
+    end();
+    if (shouldCommit()) {
+      path = filePath;
+      int lastDot = filePath.lastIndexOf('.');
+      format = lastDot < 0 ? "" : filePath.substring(lastDot + 1).toLowerCase();
+      fileBytes = new File(filePath).length();
+      width = imageWidth;
+      height = imageHeight;
+      commit();
+    }
+  }
+}
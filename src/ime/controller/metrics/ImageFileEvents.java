@@ -0,0 +1,67 @@
+package ime.controller.metrics;
+
+import java.awt.image.BufferedImage;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Starts and completes the {@link ImageFileEvent}s of the controllers. Constructing the first event
+ * of a JVM sets up the flight recorder's event machinery, which takes a few hundred milliseconds,
+ * so events are only created once the flight recorder has been started, whether from the command
+ * line or later through {@code jcmd}. Otherwise no event is created and completing does nothing.
+ */
+public final class ImageFileEvents {
+
+  private ImageFileEvents() {
+  }
+
+  /**
+   * Starts the event for an image file being read.
+   *
+   * @return the started event, or null if the flight recorder is not running
+   */
+  public static ImageFileEvent beginLoad() {
+    return FlightRecorder.isInitialized() ? begin(new ImageLoadEvent()) : null;
+  }
+
+  /**
+   * Starts the event for an image file being written.
+   *
+   * @return the started event, or null if the flight recorder is not running
+   */
+  public static ImageFileEvent beginSave() {
+    return FlightRecorder.isInitialized() ? begin(new ImageSaveEvent()) : null;
+  }
+
+  private static ImageFileEvent begin(ImageFileEvent event) {
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Completes an event started by this class, if one was.
+   *
+   * @param event    the event, or null
+   * @param filePath the path of the image file
+   * @param image    the decoded image, or the image encoded
+   */
+  public static void complete(ImageFileEvent event, String filePath, BufferedImage image) {
+    if (event != null) {
+      event.complete(filePath, image);
+    }
+  }
+
+  /**
+   * Completes an event started by this class, if one was, for an image read or written without
+   * being decoded or encoded.
+   *
+   * @param event    the event, or null
+   * @param filePath the path of the image file
+   * @param width    the width of the image
+   * @param height   the height of the image
+   */
+  public static void complete(ImageFileEvent event, String filePath, int width, int height) {
+    if (event != null) {
+      event.complete(filePath, width, height);
+    }
+  }
+}
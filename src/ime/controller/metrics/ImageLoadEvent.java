@@ -0,0 +1,14 @@
+package ime.controller.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event spanning the decoding of an image file.
+ */
+@Name("ime.ImageLoad")
+@Label("Image Load")
+@Description("An image file read and decoded")
+public class ImageLoadEvent extends ImageFileEvent {
+}
@@ -0,0 +1,14 @@
+package ime.controller.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event spanning the encoding and writing of an image file.
+ */
+@Name("ime.ImageSave")
+@Label("Image Save")
+@Description("An image encoded and written to a file")
+public class ImageSaveEvent extends ImageFileEvent {
+}
@@ -2,6 +2,7 @@ package ime.model;
 
 import static java.lang.Integer.parseInt;
 
+import ime.CommandConstants;
 import java.util.List;
 
 /**
@@ -46,7 +47,7 @@ public class AbstractFilters implements Filters {
 
   /**
    * Helper function used by filters which support split percentage to extract split percentage from
-   * commandTokens.
+   * commandTokens. Only box-blur and gaussian-blur take a split after a leading size argument.
    *
    * @param commandTokens input command string tokens, used to drive model
    * @return integer valued split percentage
@@ -56,6 +57,9 @@ public class AbstractFilters implements Filters {
     int splitPercent = 100;
     if (commandTokens.size() > 3 && commandTokens.get(3).equals("split")) {
       splitPercent = parseInt(commandTokens.get(4));
+    } else if (commandTokens.size() > 4 && isSizedBlur(commandTokens.get(0))
+        && commandTokens.get(4).equals("split")) {
+      splitPercent = parseInt(commandTokens.get(5));
     } else if (commandTokens.size() > 6 && commandTokens.get(6).equals("split")) {
       splitPercent = parseInt(commandTokens.get(7));
     }
@@ -66,5 +70,9 @@ public class AbstractFilters implements Filters {
     return splitPercent;
   }
 
+  private static boolean isSizedBlur(String command) {
+    return command.equals(CommandConstants.BOX_BLUR)
+        || command.equals(CommandConstants.GAUSSIAN_BLUR);
+  }
 
 }
@@ -0,0 +1,71 @@
+package ime.model;
+
+/**
+ * AbstractImage is the base class for image representations other than {@link Image}. It
+ * implements equality and hashing on pixel content, so images compare equal whatever their
+ * storage layout, and with the same hash code {@link Image} computes for the same pixels.
+ */
+abstract class AbstractImage implements ImageInterface {
+
+  /**
+   * Checks that the given coordinates lie inside the image.
+   *
+   * @param idx1 the row index of the pixel
+   * @param idx2 the column index of the pixel
+   * @throws IndexOutOfBoundsException if the indices are out of the image bounds
+   */
+  protected void checkBounds(int idx1, int idx2) {
+    if (idx1 < 0 || idx1 >= getHeight() || idx2 < 0 || idx2 >= getWidth()) {
+      throw new IndexOutOfBoundsException("Pixel (" + idx1 + ", " + idx2 + ") is out of bounds");
+    }
+  }
+
+  /**
+   * Returns a 64-bit hash of the image's pixels, see {@link ContentHash}. Subclasses combine
+   * hashes cached in their storage; this implementation reads every pixel.
+   *
+   * @return the content hash
+   */
+  long contentHash() {
+    return ContentHash.scan(this);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ImageInterface)) {
+      return false;
+    }
+    ImageInterface imageObj = (ImageInterface) obj;
+
+    if (this.getHeight() != imageObj.getHeight() || this.getWidth() != imageObj.getWidth()) {
+      return false;
+    }
+
+    for (int y = 0; y < this.getHeight(); y++) {
+      for (int x = 0; x < this.getWidth(); x++) {
+        if (!this.getPixel(y, x).equals(imageObj.getPixel(y, x))) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    // Same value as Arrays.deepHashCode over the rows of pixels, which Image uses
+    int result = 1;
+    for (int y = 0; y < getHeight(); y++) {
+      int rowHash = 1;
+      for (int x = 0; x < getWidth(); x++) {
+        rowHash = 31 * rowHash + getPixel(y, x).hashCode();
+      }
+      result = 31 * result + rowHash;
+    }
+    return result;
+  }
+}
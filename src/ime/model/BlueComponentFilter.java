@@ -30,7 +30,8 @@ public class BlueComponentFilter extends AbstractFilters {
 
     ImageInterface originalImage = model.getImage(imageName);
     ImageInterface blueComponent = transformation.applyTransformation(originalImage,
-        (red, green, blue, alpha) -> new Pixel(blue, blue, blue, alpha), 100);
+        (red, green, blue, alpha) -> new Pixel(blue, blue, blue, alpha),
+        VectorOperations.channel(ImageChannelConstants.BLUE), 100);
     model.storeImage(outputImageName, blueComponent);
 
   }
@@ -36,7 +36,7 @@ public class BlurFilter extends AbstractFilters {
     };
 
     ImageInterface blurredPixels = transformation.applyKernel(originalImage,
-        blurKernel, splitPercent);
+        blurKernel, VectorOperations.convolution(blurKernel), splitPercent);
     model.storeImage(destImg, blurredPixels);
 
   }
@@ -0,0 +1,53 @@
+package ime.model;
+
+import java.util.List;
+
+/**
+ * The BoxBlur class represents a filter that blurs an image by replacing each pixel with the mean
+ * of the pixels within a square around it. It keeps running sums of the pixels it averages, so a
+ * blur of any radius costs about as much as the 3x3 {@link BlurFilter}.
+ */
+public class BoxBlurFilter extends AbstractFilters {
+
+  /**
+   * The largest radius a box blur pass accepts, which keeps the running sums within an int.
+   */
+  static final int MAX_RADIUS = 1 << 20;
+
+  private final ModelInterface model;
+  private final ImageTransformation transformation;
+
+  /**
+   * Constructs a BoxBlur filter with the given model.
+   *
+   * @param model the ImageInterface model to be used for image operations
+   */
+  public BoxBlurFilter(ModelInterface model) {
+    this.model = model;
+    this.transformation = new ImageTransformation();
+  }
+
+  @Override
+  public void execute(List<String> commandTokens) throws IllegalArgumentException {
+    /* box-blur radius image-name dest-image-name [split percent] */
+
+    int radius;
+    try {
+      radius = Integer.parseInt(commandTokens.get(1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Radius must be a whole number");
+    }
+    if (radius < 1 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("Radius must be between 1 and " + MAX_RADIUS);
+    }
+    String img = commandTokens.get(2);
+    String destImg = commandTokens.get(3);
+    ImageInterface originalImage = model.getImage(img);
+
+    int splitPercent = extractSplitPercent(commandTokens);
+
+    ImageInterface blurredImage = transformation.applyBoxBlur(originalImage, new int[]{radius},
+        splitPercent);
+    model.storeImage(destImg, blurredImage);
+  }
+}
@@ -45,7 +45,7 @@ public class BrightenFilter extends AbstractFilters {
           int newBlue = blue + brightenIncrement;
 
           return new Pixel(newRed, newGreen, newBlue, alpha);
-        }, 100);
+        }, VectorOperations.brighten(brightenIncrement), 100);
 
     model.storeImage(destName, brightenedImage);
 
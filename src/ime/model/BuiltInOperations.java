@@ -0,0 +1,135 @@
+package ime.model;
+
+import static ime.model.OperationParameter.input;
+import static ime.model.OperationParameter.output;
+import static ime.model.OperationParameter.value;
+
+import ime.CommandConstants;
+import java.util.List;
+
+/**
+ * Supplies the operations built into the application.
+ */
+class BuiltInOperations implements OperationProvider {
+
+  private static final List<OperationParameter> SOURCE_DEST =
+      List.of(input("source"), output("dest"));
+
+  private static final List<OperationInfo> OPERATIONS = List.of(
+      new OperationInfo(CommandConstants.BRIGHTEN, OperationKind.POINTWISE, 0, false,
+          List.of(value("increment"), input("source"), output("dest"))),
+      new OperationInfo(CommandConstants.VERTICAL_FLIP, OperationKind.GEOMETRIC, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.HORIZONTAL_FLIP, OperationKind.GEOMETRIC, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.SEPIA, OperationKind.POINTWISE, 0, true, SOURCE_DEST),
+      new OperationInfo(CommandConstants.BLUR, OperationKind.NEIGHBORHOOD, 1, true, SOURCE_DEST),
+      new OperationInfo(CommandConstants.SHARPEN, OperationKind.NEIGHBORHOOD, 2, true,
+          SOURCE_DEST),
+      // Their radius is a parameter, and a neighborhood operation has a fixed radius
+      new OperationInfo(CommandConstants.BOX_BLUR, OperationKind.GLOBAL, 0, true,
+          List.of(value("radius"), input("source"), output("dest"))),
+      new OperationInfo(CommandConstants.GAUSSIAN_BLUR, OperationKind.GLOBAL, 0, true,
+          List.of(value("sigma"), input("source"), output("dest"))),
+      new OperationInfo(CommandConstants.RGB_SPLIT, OperationKind.POINTWISE, 0, false,
+          List.of(input("source"), output("red"), output("green"), output("blue"))),
+      new OperationInfo(CommandConstants.RGB_COMBINE, OperationKind.POINTWISE, 0, false,
+          List.of(output("dest"), input("red"), input("green"), input("blue"))),
+      new OperationInfo(CommandConstants.RED_COMPONENT, OperationKind.POINTWISE, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.GREEN_COMPONENT, OperationKind.POINTWISE, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.BLUE_COMPONENT, OperationKind.POINTWISE, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.LUMA_COMPONENT, OperationKind.POINTWISE, 0, true,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.INTENSITY_COMPONENT, OperationKind.POINTWISE, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.VALUE_COMPONENT, OperationKind.POINTWISE, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.HISTOGRAM, OperationKind.GLOBAL, 0, false, SOURCE_DEST),
+      new OperationInfo(CommandConstants.COLOR_CORRECT, OperationKind.GLOBAL, 0, true,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.LEVELS_ADJUST, OperationKind.POINTWISE, 0, true,
+          List.of(value("black"), value("mid"), value("white"), input("source"),
+              output("dest"))),
+      new OperationInfo(CommandConstants.COMPRESS, OperationKind.GLOBAL, 0, false,
+          List.of(value("percentage"), input("source"), output("dest"))),
+      new OperationInfo(CommandConstants.DOWNSCALE, OperationKind.GEOMETRIC, 0, false,
+          List.of(value("width"), value("height"), input("source"), output("dest"))),
+      new OperationInfo(CommandConstants.DITHER, OperationKind.GLOBAL, 0, true, SOURCE_DEST),
+      new OperationInfo(CommandConstants.CROP, OperationKind.GEOMETRIC, 0, false,
+          List.of(value("x"), value("y"), value("width"), value("height"), input("source"),
+              output("dest"))),
+      new OperationInfo(CommandConstants.ROTATE_90, OperationKind.GEOMETRIC, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.ROTATE_180, OperationKind.GEOMETRIC, 0, false,
+          SOURCE_DEST),
+      new OperationInfo(CommandConstants.ROTATE_270, OperationKind.GEOMETRIC, 0, false,
+          SOURCE_DEST));
+
+  @Override
+  public List<OperationInfo> getOperations() {
+    return OPERATIONS;
+  }
+
+  @Override
+  public Filters createFilter(String name, ModelInterface model) {
+    switch (name) {
+      case CommandConstants.BRIGHTEN:
+        return new BrightenFilter(model);
+      case CommandConstants.VERTICAL_FLIP:
+        return new VerticalFlipFilter(model);
+      case CommandConstants.HORIZONTAL_FLIP:
+        return new HorizontalFlipFilter(model);
+      case CommandConstants.SEPIA:
+        return new SepiaFilter(model);
+      case CommandConstants.BLUR:
+        return new BlurFilter(model);
+      case CommandConstants.SHARPEN:
+        return new SharpenFilter(model);
+      case CommandConstants.BOX_BLUR:
+        return new BoxBlurFilter(model);
+      case CommandConstants.GAUSSIAN_BLUR:
+        return new GaussianBlurFilter(model);
+      case CommandConstants.RGB_SPLIT:
+        return new RGBSplitFilter(model);
+      case CommandConstants.RGB_COMBINE:
+        return new RGBCombineFilter(model);
+      case CommandConstants.RED_COMPONENT:
+        return new RedComponentFilter(model);
+      case CommandConstants.GREEN_COMPONENT:
+        return new GreenComponentFilter(model);
+      case CommandConstants.BLUE_COMPONENT:
+        return new BlueComponentFilter(model);
+      case CommandConstants.LUMA_COMPONENT:
+        return new LumaFilter(model);
+      case CommandConstants.INTENSITY_COMPONENT:
+        return new IntensityFilter(model);
+      case CommandConstants.VALUE_COMPONENT:
+        return new ValueFilter(model);
+      case CommandConstants.HISTOGRAM:
+        return new HistogramFilter(model);
+      case CommandConstants.COLOR_CORRECT:
+        return new ColorCorrectFilter(model);
+      case CommandConstants.LEVELS_ADJUST:
+        return new LevelsAdjustFilter(model);
+      case CommandConstants.COMPRESS:
+        return new Compress(model);
+      case CommandConstants.DOWNSCALE:
+        return new ImageDownscaling(model);
+      case CommandConstants.DITHER:
+        return new ImageDither(model);
+      case CommandConstants.CROP:
+        return new CropFilter(model);
+      case CommandConstants.ROTATE_90:
+        return new RotateFilter(model, 1);
+      case CommandConstants.ROTATE_180:
+        return new RotateFilter(model, 2);
+      case CommandConstants.ROTATE_270:
+        return new RotateFilter(model, 3);
+      default:
+        throw new IllegalArgumentException(name + " Command not found");
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ime.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The values of one channel of an image, one byte per pixel in row-major order. Planes are shared
+ * between {@link PlanarImage} instances, and between the channels of a single grayscale image, so
+ * each plane counts the channel slots referencing it; a slot may only write to a plane it holds
+ * exclusively, and copies the plane first otherwise.
+ */
+final class ChannelPlane {
+
+  private final byte[] values;
+  private final AtomicInteger references;
+  // Content hash of the values, valid while hashed is true; see ImageTile for the volatile flag
+  private long hash;
+  private volatile boolean hashed;
+
+  /**
+   * Constructs a zero-filled plane with a single reference.
+   *
+   * @param size number of pixels in the plane
+   */
+  ChannelPlane(int size) {
+    this(new byte[size]);
+  }
+
+  private ChannelPlane(byte[] values) {
+    this.values = values;
+    this.references = new AtomicInteger(1);
+  }
+
+  /**
+   * Returns the channel value at the given offset.
+   *
+   * @param offset the pixel offset, row * width + column
+   * @return the value, between 0 and 255
+   */
+  int get(int offset) {
+    return values[offset] & 0xFF;
+  }
+
+  /**
+   * Sets the channel value at the given offset. Callers may only write while holding the only
+   * reference to the plane.
+   *
+   * @param offset the pixel offset, row * width + column
+   * @param value  the value, between 0 and 255
+   */
+  void set(int offset, int value) {
+    values[offset] = (byte) value;
+    if (hashed) {
+      hashed = false;
+    }
+  }
+
+  /**
+   * Returns the content hash of this plane's values, computing it only after the plane changed.
+   *
+   * @return the hash
+   */
+  long contentHash() {
+    if (!hashed) {
+      hash = ContentHash.of(values);
+      hashed = true;
+    }
+    return hash;
+  }
+
+  /**
+   * Adds a reference to this plane.
+   *
+   * @return this plane
+   */
+  ChannelPlane retain() {
+    references.incrementAndGet();
+    return this;
+  }
+
+  /**
+   * Drops a reference to this plane.
+   */
+  void release() {
+    references.decrementAndGet();
+  }
+
+  /**
+   * Tells whether more than one channel slot currently references this plane.
+   *
+   * @return true if the plane must be copied before being written
+   */
+  boolean isShared() {
+    return references.get() > 1;
+  }
+
+  /**
+   * Creates an unshared copy of this plane.
+   *
+   * @return a new plane holding the same values
+   */
+  ChannelPlane copy() {
+    ChannelPlane copy = new ChannelPlane(values.clone());
+    copy.hash = hash;
+    copy.hashed = hashed;
+    return copy;
+  }
+}
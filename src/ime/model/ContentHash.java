@@ -0,0 +1,121 @@
+package ime.model;
+
+/**
+ * Computes 64-bit hashes of image content, used to recognise an operation being repeated on the
+ * same pixels. Tiled and planar images combine hashes cached in their tiles and planes, so an image
+ * derived from another one only hashes the storage it does not share; other images are hashed by
+ * reading every pixel.
+ *
+ * <p>The hash is not cryptographic. Two different images are expected to collide with probability
+ * around 2^-64, which is negligible for a cache of a few hundred results.</p>
+ */
+final class ContentHash {
+
+  private static final long SEED = 0x1AE5_C0DE_5EED_0001L;
+  private static final long MULTIPLIER = 0x9E37_79B9_7F4A_7C15L;
+  private static final long SCRAMBLE = 0xBF58_476D_1CE4_E5B9L;
+
+  private ContentHash() {
+  }
+
+  /**
+   * Returns the content hash of an image, reusing the hashes cached in its storage where it has
+   * them.
+   *
+   * @param image the image to hash
+   * @return the hash
+   */
+  static long of(ImageInterface image) {
+    if (image instanceof AbstractImage) {
+      return ((AbstractImage) image).contentHash();
+    }
+    return scan(image);
+  }
+
+  /**
+   * Hashes an image by reading every pixel. Missing pixels hash as transparent black.
+   *
+   * @param image the image to hash
+   * @return the hash
+   */
+  static long scan(ImageInterface image) {
+    long hash = start(image.getClass().getName().hashCode(), image.getHeight(), image.getWidth());
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        PixelInterface pixel = image.getPixel(y, x);
+        hash = mix(hash, pixel == null ? 0 : (pixel.getA() & 0xFF) << 24
+            | (pixel.getR() & 0xFF) << 16 | (pixel.getG() & 0xFF) << 8 | (pixel.getB() & 0xFF));
+      }
+    }
+    return finish(hash);
+  }
+
+  /**
+   * Hashes an array of packed pixels.
+   *
+   * @param values the values to hash
+   * @return the hash
+   */
+  static long of(int[] values) {
+    long hash = start(0, values.length, 0);
+    for (int value : values) {
+      hash = mix(hash, value);
+    }
+    return finish(hash);
+  }
+
+  /**
+   * Hashes an array of channel values, four at a time.
+   *
+   * @param values the values to hash
+   * @return the hash
+   */
+  static long of(byte[] values) {
+    long hash = start(1, values.length, 0);
+    int index = 0;
+    for (; index + 4 <= values.length; index += 4) {
+      hash = mix(hash, (values[index] & 0xFF) << 24 | (values[index + 1] & 0xFF) << 16
+          | (values[index + 2] & 0xFF) << 8 | (values[index + 3] & 0xFF));
+    }
+    for (; index < values.length; index++) {
+      hash = mix(hash, values[index]);
+    }
+    return finish(hash);
+  }
+
+  /**
+   * Starts a hash for an image of the given kind and dimensions.
+   *
+   * @param kind   a value distinguishing the kind of content hashed
+   * @param height the height of the image
+   * @param width  the width of the image
+   * @return the initial hash state
+   */
+  static long start(int kind, int height, int width) {
+    return mix(mix(mix(SEED, kind), height), width);
+  }
+
+  /**
+   * Adds a value to a hash.
+   *
+   * @param hash  the hash state
+   * @param value the value to add
+   * @return the new hash state
+   */
+  static long mix(long hash, long value) {
+    return Long.rotateLeft(hash ^ (value * MULTIPLIER), 27) * SCRAMBLE + MULTIPLIER;
+  }
+
+  /**
+   * Finishes a hash, spreading every input bit over the whole result.
+   *
+   * @param hash the hash state
+   * @return the hash
+   */
+  static long finish(long hash) {
+    hash ^= hash >>> 31;
+    hash *= SCRAMBLE;
+    hash ^= hash >>> 29;
+    return hash;
+  }
+}
@@ -0,0 +1,37 @@
+package ime.model;
+
+import static java.lang.Integer.parseInt;
+
+import java.util.List;
+
+/**
+ * The CropFilter class extracts a rectangular region of an image. The cropped image is a view of
+ * the original, so no pixels are copied until the result is written to.
+ */
+public class CropFilter extends AbstractFilters {
+
+  private final ModelInterface model;
+
+  /**
+   * Constructs a crop filter with the given model.
+   *
+   * @param model the model used for image access and storage
+   */
+  public CropFilter(ModelInterface model) {
+    this.model = model;
+  }
+
+  @Override
+  public void execute(List<String> commandTokens) throws IllegalArgumentException {
+    /* crop x y width height image-name dest-image-name */
+    int x = parseInt(commandTokens.get(1));
+    int y = parseInt(commandTokens.get(2));
+    int width = parseInt(commandTokens.get(3));
+    int height = parseInt(commandTokens.get(4));
+    String imageName = commandTokens.get(5);
+    String destName = commandTokens.get(6);
+
+    ImageInterface originalImage = model.getImage(imageName);
+    model.storeImage(destName, ImageView.crop(originalImage, x, y, width, height));
+  }
+}
@@ -0,0 +1,43 @@
+package ime.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event spanning the execution of one filter by the model. Its duration is
+ * the time the filter took; the image dimensions and split percentage let GC and allocation events
+ * recorded in the same interval be attributed to a specific operation.
+ */
+@Name("ime.FilterExecution")
+@Label("Filter Execution")
+@Category({"Image Manipulation", "Model"})
+@Description("Execution of an image operation")
+class FilterExecutionEvent extends jdk.jfr.Event {
+
+  @Label("Command")
+  String command;
+
+  @Label("Width")
+  @Description("Width in pixels of the first image the command reads")
+  int width;
+
+  @Label("Height")
+  @Description("Height in pixels of the first image the command reads")
+  int height;
+
+  @Label("Split Percent")
+  @Description("Percentage of the image width processed, 100 without a split")
+  int splitPercent;
+
+  @Label("Retained Bytes")
+  @Description("Upper bound of the bytes held by the model's images after the command")
+  @DataAmount
+  long retainedBytes;
+
+  @Label("Reused Result")
+  @Description("Whether the result was taken from the result cache instead of computed")
+  boolean cached;
+}
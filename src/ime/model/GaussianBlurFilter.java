@@ -0,0 +1,77 @@
+package ime.model;
+
+import java.util.List;
+
+/**
+ * The GaussianBlur class represents a filter that blurs an image with a Gaussian of a given
+ * standard deviation. The Gaussian is approximated by three successive box blurs whose combined
+ * variance matches it, so a blur of any strength costs a few times the 3x3 {@link BlurFilter}.
+ */
+public class GaussianBlurFilter extends AbstractFilters {
+
+  private static final int PASSES = 3;
+
+  private final ModelInterface model;
+  private final ImageTransformation transformation;
+
+  /**
+   * Constructs a GaussianBlur filter with the given model.
+   *
+   * @param model the ImageInterface model to be used for image operations
+   */
+  public GaussianBlurFilter(ModelInterface model) {
+    this.model = model;
+    this.transformation = new ImageTransformation();
+  }
+
+  @Override
+  public void execute(List<String> commandTokens) throws IllegalArgumentException {
+    /* gaussian-blur sigma image-name dest-image-name [split percent] */
+
+    double sigma;
+    try {
+      sigma = Double.parseDouble(commandTokens.get(1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Sigma must be a number");
+    }
+    if (!(sigma > 0)) {
+      throw new IllegalArgumentException("Sigma must be positive");
+    }
+    int[] radii = sigma > BoxBlurFilter.MAX_RADIUS ? null : boxRadii(sigma);
+    if (radii == null || radii[PASSES - 1] > BoxBlurFilter.MAX_RADIUS) {
+      throw new IllegalArgumentException("Sigma is too large");
+    }
+    String img = commandTokens.get(2);
+    String destImg = commandTokens.get(3);
+    ImageInterface originalImage = model.getImage(img);
+
+    int splitPercent = extractSplitPercent(commandTokens);
+
+    ImageInterface blurredImage = transformation.applyBoxBlur(originalImage, radii, splitPercent);
+    model.storeImage(destImg, blurredImage);
+  }
+
+  /**
+   * Returns the radii of the box blurs approximating a Gaussian. A box of width w has a variance
+   * of (w * w - 1) / 12, so the widths are the two odd widths around the ideal one, mixed so that
+   * their variances add up to the square of sigma as closely as whole widths allow.
+   *
+   * @param sigma the standard deviation of the Gaussian, in pixels
+   * @return the radius of each box blur, in increasing order; 0 for passes which change nothing
+   */
+  static int[] boxRadii(double sigma) {
+    double variance = sigma * sigma;
+    int lower = (int) Math.floor(Math.sqrt(12 * variance / PASSES + 1));
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    long lowerPasses = Math.round((12 * variance - PASSES * (long) lower * lower
+        - 4L * PASSES * lower - 3 * PASSES) / (-4.0 * lower - 4));
+    int[] radii = new int[PASSES];
+    for (int pass = 0; pass < PASSES; pass++) {
+      int width = pass < lowerPasses ? lower : lower + 2;
+      radii[pass] = (width - 1) / 2;
+    }
+    return radii;
+  }
+}
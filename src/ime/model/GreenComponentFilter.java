@@ -30,7 +30,8 @@ public class GreenComponentFilter extends AbstractFilters {
 
     ImageInterface originalImage = model.getImage(imageName);
     ImageInterface greenComponent = imageTransformation.applyTransformation(originalImage,
-        (red, green, blue, alpha) -> new Pixel(green, green, green, alpha), 100);
+        (red, green, blue, alpha) -> new Pixel(green, green, green, alpha),
+        VectorOperations.channel(ImageChannelConstants.GREEN), 100);
     model.storeImage(outputImageName, greenComponent);
 
   }
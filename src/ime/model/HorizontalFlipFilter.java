@@ -10,7 +10,6 @@ import java.util.List;
 public class HorizontalFlipFilter extends AbstractFilters {
 
   private final ModelInterface model;
-  private final ImageTransformation imageTransformation;
 
   /**
    * Constructs a HorizontalFlip filter with the given model.
@@ -19,7 +18,6 @@ public class HorizontalFlipFilter extends AbstractFilters {
    */
   public HorizontalFlipFilter(ModelInterface model) {
     this.model = model;
-    this.imageTransformation = new ImageTransformation();
   }
 
   @Override
@@ -29,10 +27,9 @@ public class HorizontalFlipFilter extends AbstractFilters {
     String destName = commandTokens.get(2);
 
     ImageInterface originalImage = model.getImage(imageName);
-    int width = originalImage.getWidth();
 
-    ImageInterface horizontallyFlippedImage = imageTransformation.applyPixelSwapping(originalImage,
-        (x, y, img) -> img.getPixel(y, width - 1 - x));
+    // The flip only remaps coordinates; no pixels are copied
+    ImageInterface horizontallyFlippedImage = ImageView.horizontalFlip(originalImage);
 
     model.storeImage(destName, horizontallyFlippedImage);
 
@@ -55,15 +55,20 @@ class Image implements ImageInterface {
     return this.image.length;
   }
 
+  @Override
+  public void release() {
+    // Pixels are not shared between images, so there is nothing to hand back
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (this == obj) {
       return true;
     }
-    if (obj == null || getClass() != obj.getClass()) {
+    if (!(obj instanceof ImageInterface)) {
       return false;
     }
-    ImageInterface imageObj = (Image) obj;
+    ImageInterface imageObj = (ImageInterface) obj;
 
     if (this.getHeight() != imageObj.getHeight() || this.getWidth() != imageObj.getWidth()) {
       return false;
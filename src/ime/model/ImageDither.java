@@ -97,29 +97,22 @@ public class ImageDither extends AbstractFilters {
    */
   private ImageInterface getSplitImage(ImageInterface originalImage, ImageInterface ditheringImage,
       int splitPercent) {
-    int height = originalImage.getHeight();
     int width = originalImage.getWidth();
-    PixelInterface[][] splitPixels = new PixelInterface[height][width];
+    int height = originalImage.getHeight();
 
-    int splitPoint = (width * splitPercent) / 100;
+    int splitPoint = Math.min(Math.max((width * splitPercent) / 100, 0), width);
+    // Columns right of the split are shared with the original rather than copied
+    ImageInterface splitImage = TiledImage.derive(originalImage, splitPoint);
 
     for (int r = 0; r < height; r++) {
-      for (int c = 0; c < width; c++) {
+      for (int c = 0; c < splitPoint; c++) {
         PixelInterface originalPixel = originalImage.getPixel(r, c);
         PixelInterface ditheringPixel = ditheringImage.getPixel(r, c);
-
-        if (c < splitPoint) {
-          splitPixels[r][c] = new Pixel(ditheringPixel.getR(), ditheringPixel.getG(),
-              ditheringPixel.getB(), originalPixel.getA());
-        } else {
-          splitPixels[r][c] = new Pixel(originalPixel.getR(), originalPixel.getG(),
-              originalPixel.getB(), originalPixel.getA());
-        }
+        splitImage.updatePixel(r, c, new Pixel(ditheringPixel.getR(), ditheringPixel.getG(),
+            ditheringPixel.getB(), originalPixel.getA()));
       }
     }
 
-    ImageInterface splitImage = new Image(height, width);
-    splitImage.imageFill(splitPixels);
     return splitImage;
   }
 }
\ No newline at end of file
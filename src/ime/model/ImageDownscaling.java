@@ -1,15 +1,9 @@
 package ime.model;
 
-import static ime.model.ImageChannelConstants.ALPHA;
-import static ime.model.ImageChannelConstants.BLUE;
-import static ime.model.ImageChannelConstants.GREEN;
-import static ime.model.ImageChannelConstants.RED;
 import static java.lang.Integer.parseInt;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.function.IntFunction;
 
 /**
  * This class generates downscaled images from source images, and stores result in model. The
@@ -75,196 +69,181 @@ public class ImageDownscaling extends AbstractFilters {
   /**
    * Retrieves the 'A' pixel value from the given matrix at the specified coordinates.
    *
-   * @param originalMatrix the source matrix.
+   * @param source         the source channel.
    * @param xX             the x-coordinate.
    * @param yY             the y-coordinate.
    * @return the value at the specified location.
    */
-  private static double getA(double[][] originalMatrix, double xX, double yY) {
+  private static double getA(SourceChannel source, double xX, double yY) {
     int x = floor(xX);
     int y = floor(yY);
-    return originalMatrix[x][y];
+    return source.get(x, y);
   }
 
   /**
    * Retrieves the 'B' pixel value from the given matrix at the specified coordinates.
    *
-   * @param originalMatrix the source matrix.
+   * @param source         the source channel.
    * @param xX             the x-coordinate.
    * @param yY             the y-coordinate.
    * @return the value at the specified location.
    */
-  private static double getB(double[][] originalMatrix, double xX, double yY) {
-    int x = ceil(xX, originalMatrix.length);
+  private static double getB(SourceChannel source, double xX, double yY) {
+    int x = ceil(xX, source.height);
     int y = floor(yY);
-    return originalMatrix[x][y];
+    return source.get(x, y);
   }
 
   /**
    * Retrieves the 'C' pixel value from the given matrix at the specified coordinates.
    *
-   * @param originalMatrix the source matrix.
+   * @param source         the source channel.
    * @param xX             the x-coordinate.
    * @param yY             the y-coordinate.
    * @return the value at the specified location.
    */
-  private static double getC(double[][] originalMatrix, double xX, double yY) {
+  private static double getC(SourceChannel source, double xX, double yY) {
     int x = floor(xX);
-    int y = ceil(yY, originalMatrix[0].length);
-    return originalMatrix[x][y];
+    int y = ceil(yY, source.width);
+    return source.get(x, y);
   }
 
   /**
    * Retrieves the 'D' pixel value from the given matrix at the specified coordinates.
    *
-   * @param originalMatrix the source matrix.
+   * @param source         the source channel.
    * @param xX             the x-coordinate.
    * @param yY             the y-coordinate.
    * @return the value at the specified location.
    */
-  private static double getD(double[][] originalMatrix, double xX, double yY) {
-    int x = ceil(xX, originalMatrix.length);
-    int y = ceil(yY, originalMatrix[0].length);
-    return originalMatrix[x][y];
+  private static double getD(SourceChannel source, double xX, double yY) {
+    int x = ceil(xX, source.height);
+    int y = ceil(yY, source.width);
+    return source.get(x, y);
   }
 
   /**
    * Calculates a weighted average of two pixel values based on the x-coordinate.
    *
-   * @param originalMatrix the source matrix.
+   * @param source         the source channel.
    * @param pixelA         the first pixel value.
    * @param pixelB         the second pixel value.
    * @param xX             the x-coordinate.
    * @return the calculated weighted average.
    */
-  private static double getM(double[][] originalMatrix, double pixelA, double pixelB,
+  private static double getM(SourceChannel source, double pixelA, double pixelB,
       double xX) {
-    return (pixelB * (xX - floor(xX))) + (pixelA * (ceil(xX, originalMatrix.length) - xX));
+    return (pixelB * (xX - floor(xX))) + (pixelA * (ceil(xX, source.height) - xX));
   }
 
   /**
    * Method to get the N.
    *
-   * @param originalMatrix original matrix to be downscaled
+   * @param source         the source channel
    * @param pixelC         formula params
    * @param pixelD         formula params
    * @param xX             x value
    * @return double
    */
-  private static double getN(double[][] originalMatrix, double pixelC, double pixelD,
+  private static double getN(SourceChannel source, double pixelC, double pixelD,
       double xX) {
-    return (pixelD * (xX - floor(xX))) + (pixelC * (ceil(xX, originalMatrix.length) - xX));
+    return (pixelD * (xX - floor(xX))) + (pixelC * (ceil(xX, source.height) - xX));
   }
 
   /**
    * Method to extract downscaled pixel value from source.
    *
-   * @param originalMatrix original matrix to be downscaled
+   * @param source         the source channel
    * @param xX             x value
    * @param yY             y value
    * @return double
    */
   private static double extractDownscaledPixelValueFromSource(
-      double[][] originalMatrix, double xX, double yY
+      SourceChannel source, double xX, double yY
   ) {
     if (checkNoDecimal(xX) && checkNoDecimal(yY)) {
       int x = (int) xX;
       int y = (int) yY;
 
-      return originalMatrix[x][y];
+      return source.get(x, y);
     }
     double pixelValue;
-    double pixelA = getA(originalMatrix, xX, yY);
-    double pixelB = getB(originalMatrix, xX, yY);
-    double pixelC = getC(originalMatrix, xX, yY);
-    double pixelD = getD(originalMatrix, xX, yY);
-    double m = getM(originalMatrix, pixelA, pixelB, xX);
-    double n = getN(originalMatrix, pixelC, pixelD, xX);
-    pixelValue = n * (yY - floor(yY)) + m * (ceil(yY, originalMatrix[0].length) - yY);
+    double pixelA = getA(source, xX, yY);
+    double pixelB = getB(source, xX, yY);
+    double pixelC = getC(source, xX, yY);
+    double pixelD = getD(source, xX, yY);
+    double m = getM(source, pixelA, pixelB, xX);
+    double n = getN(source, pixelC, pixelD, xX);
+    pixelValue = n * (yY - floor(yY)) + m * (ceil(yY, source.width) - yY);
     return pixelValue;
   }
 
   /**
-   * Method to downscale matrix.
+   * Computes one row of a downscaled image from the rows of its source. Only the source rows from
+   * {@code floor(sourceHeight * row / targetHeight)} to {@link #lastSourceRow} are read, so the
+   * rows of a downscaled image can be computed in order while the source is read in order.
    *
-   * @param originalMatrix   original matrix to be downscaled
-   * @param downscaledHeight downscaled height.
-   * @param downscaledWidth  downscaled width.
-   * @return double[][]
+   * @param sourceRows   returns a row of the source by its index, as 0xAARRGGBB pixels
+   * @param sourceHeight the height of the source
+   * @param sourceWidth  the width of the source
+   * @param targetWidth  the width of the downscaled image
+   * @param targetHeight the height of the downscaled image
+   * @param row          the index of the downscaled row to compute
+   * @param argb         the array receiving the downscaled row, as 0xAARRGGBB pixels
    */
-  private static double[][] downscaleMatrix(double[][] originalMatrix, int downscaledHeight,
-      int downscaledWidth) {
-    double[][] downscaledImageMatrices = new double[downscaledHeight][downscaledWidth];
-    int originalMatrixHeight = originalMatrix.length;
-    int originalMatrixWidth = originalMatrix[0].length;
-    for (int i = 0; i < downscaledHeight; i++) {
-      for (int j = 0; j < downscaledWidth; j++) {
-        double xX = getSourceCoordinate(originalMatrixWidth, downscaledWidth, j);
-        double yY = getSourceCoordinate(originalMatrixHeight, downscaledHeight, i);
-        downscaledImageMatrices[i][j] =
-            extractDownscaledPixelValueFromSource(originalMatrix, yY, xX);
-      }
+  public static void downscaleRow(IntFunction<int[]> sourceRows, int sourceHeight,
+      int sourceWidth, int targetWidth, int targetHeight, int row, int[] argb) {
+    SourceChannel red = new SourceChannel(sourceRows, 16, sourceHeight, sourceWidth);
+    SourceChannel green = new SourceChannel(sourceRows, 8, sourceHeight, sourceWidth);
+    SourceChannel blue = new SourceChannel(sourceRows, 0, sourceHeight, sourceWidth);
+    double yY = getSourceCoordinate(sourceHeight, targetHeight, row);
+    for (int j = 0; j < targetWidth; j++) {
+      double xX = getSourceCoordinate(sourceWidth, targetWidth, j);
+      int r = clamp((int) Math.round(extractDownscaledPixelValueFromSource(red, yY, xX)));
+      int g = clamp((int) Math.round(extractDownscaledPixelValueFromSource(green, yY, xX)));
+      int b = clamp((int) Math.round(extractDownscaledPixelValueFromSource(blue, yY, xX)));
+      argb[j] = 0xFF000000 | r << 16 | g << 8 | b;
     }
-
-    return downscaledImageMatrices;
   }
 
   /**
-   * Retrieves the value of a specific channel (RED, GREEN, BLUE, or ALPHA) from a pixel.
+   * Returns the last source row read to compute a row of a downscaled image. A downscaled row
+   * reads at most three consecutive source rows, ending with this one.
    *
-   * @param p       the pixel to extract the channel value from.
-   * @param channel the channel to retrieve (e.g., RED, GREEN, BLUE, ALPHA).
-   * @return the value of the specified channel, or -1 if the channel is invalid.
+   * @param sourceHeight the height of the source
+   * @param targetHeight the height of the downscaled image
+   * @param row          the index of the downscaled row
+   * @return the index of the last source row it reads
    */
-  private int getChannelVal(PixelInterface p, String channel) {
-    if (Objects.equals(channel, RED)) {
-      return p.getR();
-    }
-    if (Objects.equals(channel, GREEN)) {
-      return p.getG();
-    }
-    if (Objects.equals(channel, BLUE)) {
-      return p.getB();
-    }
-    if (Objects.equals(channel, ALPHA)) {
-      return p.getA();
-    }
-    return -1;
+  public static int lastSourceRow(int sourceHeight, int targetHeight, int row) {
+    double yY = getSourceCoordinate(sourceHeight, targetHeight, row);
+    return Math.max(floor(yY), ceil(yY, sourceHeight));
   }
 
   /**
-   * Splits an image into its channel matrices (RED, GREEN, BLUE, ALPHA).
+   * Checks the size an image is downscaled to.
    *
-   * @param image  the image to process.
-   * @param width  the width of the image.
-   * @param height the height of the image.
-   * @return a map containing the channel names as keys and their respective matrices as values.
+   * @param sourceWidth  the width of the image
+   * @param sourceHeight the height of the image
+   * @param targetWidth  the width to downscale to
+   * @param targetHeight the height to downscale to
+   * @throws IllegalArgumentException if the target size is larger than the image or not positive
    */
-  private Map<String, double[][]> getImageSplitByChannelMatrix(ImageInterface image, int width,
-      int height) {
-    double[][] redChannel = new double[height][width];
-    double[][] greenChannel = new double[height][width];
-    double[][] blueChannel = new double[height][width];
-    double[][] alphaChannel = new double[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        redChannel[i][j] = getChannelVal(image.getPixel(i, j), RED);
-        greenChannel[i][j] = getChannelVal(image.getPixel(i, j), GREEN);
-        blueChannel[i][j] = getChannelVal(image.getPixel(i, j), BLUE);
-        alphaChannel[i][j] = getChannelVal(image.getPixel(i, j), ALPHA);
-      }
+  public static void checkTargetSize(int sourceWidth, int sourceHeight, int targetWidth,
+      int targetHeight) {
+    if (targetWidth > sourceWidth || targetHeight > sourceHeight) {
+      throw new IllegalArgumentException("Target width/height cannot be greater "
+          + "than original width/height in downscaling.");
+    }
+
+    if (targetWidth <= 0 || targetHeight <= 0) {
+      throw new IllegalArgumentException("Target width/height cannot be negative.");
     }
-    Map<String, double[][]> imageChannelMatrices = new HashMap<>();
-    imageChannelMatrices.put(RED, redChannel);
-    imageChannelMatrices.put(GREEN, greenChannel);
-    imageChannelMatrices.put(BLUE, blueChannel);
-    imageChannelMatrices.put(ALPHA, alphaChannel);
-    return imageChannelMatrices;
   }
 
   /**
-   * Method to downscale image.
+   * Method to downscale image. Source rows are read into a ring of three rows, which holds every
+   * row a downscaled row reads.
    *
    * @param image        Image to be downscaled
    * @param targetWidth  width to which we downscale
@@ -275,35 +254,27 @@ public class ImageDownscaling extends AbstractFilters {
 
     int height = image.getHeight();
     int width = image.getWidth();
-    Map<String, double[][]> imageChannelMatrices =
-        getImageSplitByChannelMatrix(image, width, height);
-    ImageInterface downscaledImage = new Image(targetHeight, targetWidth);
-
-    Map<String, double[][]> downscaledImageMatrices = new HashMap<>();
-    for (String channel : ImageChannelConstants.getAllChannels()) {
-      if (!Objects.equals(channel, ALPHA)) {
-        downscaledImageMatrices.put(channel, downscaleMatrix(imageChannelMatrices.get(channel),
-            targetHeight, targetWidth));
+    int[][] slotPixels = new int[3][width];
+    int[] slotRows = {-1, -1, -1};
+    IntFunction<int[]> sourceRows = row -> {
+      int slot = row % 3;
+      if (slotRows[slot] != row) {
+        ImageTransformation.readRow(image, row, slotPixels[slot], width);
+        slotRows[slot] = row;
       }
-    }
+      return slotPixels[slot];
+    };
 
-    PixelInterface[][] downscaledPixels = new PixelInterface[targetHeight][targetWidth];
+    TiledImage downscaledImage = new TiledImage(targetHeight, targetWidth);
+    int[] downscaledRow = new int[targetWidth];
     for (int i = 0; i < targetHeight; i++) {
-      for (int j = 0; j < targetWidth; j++) {
-        int red = clamp((int) Math.round(downscaledImageMatrices.get(RED)[i][j]));
-        int green = clamp((int) Math.round(downscaledImageMatrices.get(GREEN)[i][j]));
-        int blue = clamp((int) Math.round(downscaledImageMatrices.get(BLUE)[i][j]));
-        int alpha = 255;
-        PixelInterface downscaledPixel = new Pixel(red, green, blue, alpha);
-        downscaledPixels[i][j] = downscaledPixel;
-      }
+      downscaleRow(sourceRows, height, width, targetWidth, targetHeight, i, downscaledRow);
+      downscaledImage.writeRow(i, downscaledRow, targetWidth);
     }
-    downscaledImage.imageFill(downscaledPixels);
 
     return downscaledImage;
   }
 
-
   @Override
   public void execute(List<String> commandTokens) throws IllegalArgumentException {
     /* downscale width height image-name dest-image-name */
@@ -314,17 +285,32 @@ public class ImageDownscaling extends AbstractFilters {
     String destName = commandTokens.get(4);
     ImageInterface originalImage = model.getImage(imageName);
 
-    if (targetWidth > originalImage.getWidth() || targetHeight > originalImage.getHeight()) {
-      throw new IllegalArgumentException("Target width/height cannot be greater "
-          + "than original width/height in downscaling.");
-    }
-
-    if (targetWidth <= 0 || targetHeight <= 0) {
-      throw new IllegalArgumentException("Target width/height cannot be negative.");
-    }
+    checkTargetSize(originalImage.getWidth(), originalImage.getHeight(), targetWidth,
+        targetHeight);
 
     ImageInterface downscaledImage = downscaleImage(originalImage, targetWidth, targetHeight);
     model.storeImage(destName, downscaledImage);
   }
 
+  /**
+   * One color channel of the source image, read by row and column from its packed rows.
+   */
+  private static final class SourceChannel {
+
+    private final IntFunction<int[]> rows;
+    private final int shift;
+    private final int height;
+    private final int width;
+
+    private SourceChannel(IntFunction<int[]> rows, int shift, int height, int width) {
+      this.rows = rows;
+      this.shift = shift;
+      this.height = height;
+      this.width = width;
+    }
+
+    private double get(int row, int column) {
+      return (rows.apply(row)[column] >> shift) & 0xFF;
+    }
+  }
 }
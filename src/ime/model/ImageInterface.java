@@ -51,4 +51,11 @@ interface ImageInterface {
    */
   void imageFill(PixelInterface[][] pixelArray);
 
+  /**
+   * Releases the storage held by this image once it is no longer in use, so that storage shared
+   * with other images can be written by them without being copied. The image must not be used
+   * afterwards.
+   */
+  void release();
+
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package ime.model;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An unchanging copy of an image of a model, kept outside the model's store. A snapshot of a tiled
+ * image shares the image's tiles copy-on-write rather than copying its pixels, and restoring the
+ * snapshot shares them again, so a tile only exists twice once one side writes to it. Images held
+ * in any other form are copied into tiles when the snapshot is taken.
+ */
+public final class ImageSnapshot {
+
+  private final TiledImage image;
+
+  private ImageSnapshot(TiledImage image) {
+    this.image = image;
+  }
+
+  /**
+   * Takes a snapshot of an image of a model.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @return the snapshot
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static ImageSnapshot take(ModelInterface model, String imageName) {
+    try (Model.ReadScope scope = Model.reading(model)) {
+      ImageInterface source = model.getImage(imageName);
+      if (source == null) {
+        throw new IllegalArgumentException("Image not found: " + imageName);
+      }
+      if (source instanceof TiledImage) {
+        return new ImageSnapshot(TiledImage.derive(source, 0));
+      }
+      TiledImage copy = new TiledImage(source.getHeight(), source.getWidth());
+      int[] row = new int[source.getWidth()];
+      for (int y = 0; y < source.getHeight(); y++) {
+        ImageTransformation.readRow(source, y, row, row.length);
+        copy.writeRow(y, row, row.length);
+      }
+      return new ImageSnapshot(copy);
+    }
+  }
+
+  /**
+   * Stores the snapshot in a model as an image, sharing the snapshot's tiles with it.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   */
+  public void restore(ModelInterface model, String imageName) {
+    model.storeImage(imageName, TiledImage.derive(image, 0));
+  }
+
+  /**
+   * Passes every tile of the snapshot to an action, with the number of bytes it occupies. Tiles are
+   * opaque, but the same tile is passed as the same object by every snapshot sharing it, so callers
+   * can count shared memory once.
+   *
+   * @param action the action to run on each tile and its size in bytes
+   */
+  public void forEachTile(ObjLongConsumer<Object> action) {
+    for (ImageTile tile : image.tiles()) {
+      if (tile != null) {
+        action.accept(tile, tile.sizeInBytes());
+      }
+    }
+  }
+
+  /**
+   * Drops the snapshot's references to its tiles. The snapshot must not be used afterwards.
+   */
+  public void release() {
+    image.release();
+  }
+}
@@ -0,0 +1,35 @@
+package ime.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for an image being stored in, fetched from or removed from the
+ * model, recording how many images the model holds and roughly how much memory they take.
+ */
+@Name("ime.ImageStore")
+@Label("Image Store Access")
+@Category({"Image Manipulation", "Model"})
+@Description("An image stored in, fetched from or removed from the model")
+@StackTrace(false)
+class ImageStoreEvent extends jdk.jfr.Event {
+
+  @Label("Operation")
+  @Description("store, get or remove")
+  String operation;
+
+  @Label("Image Name")
+  String imageName;
+
+  @Label("Image Count")
+  int imageCount;
+
+  @Label("Retained Bytes")
+  @Description("Upper bound of the bytes held by the model's images")
+  @DataAmount
+  long retainedBytes;
+}
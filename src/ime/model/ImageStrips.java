@@ -0,0 +1,246 @@
+package ime.model;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Moves horizontal strips of packed ARGB rows into and out of the images of a model, for running a
+ * model's operations on part of an image at a time. A strip is stored as an image of its own, with
+ * as many rows as the strip; the operations run on it see its first and last rows as the edges of
+ * the image.
+ */
+public final class ImageStrips {
+
+  private ImageStrips() {
+  }
+
+  /**
+   * Stores a strip of rows in a model as an image.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   * @param rows      the rows of the strip, as 0xAARRGGBB pixels
+   * @param count     the number of leading rows making up the strip
+   * @param width     the number of leading pixels of each row making up the strip
+   * @throws IllegalArgumentException if the strip is empty
+   */
+  public static void store(ModelInterface model, String imageName, int[][] rows, int count,
+      int width) {
+    TiledImage image = new TiledImage(count, width);
+    for (int y = 0; y < count; y++) {
+      image.writeRow(y, rows[y], width);
+    }
+    model.storeImage(imageName, image);
+  }
+
+  /**
+   * Stores an image in a model a row at a time, writing each row straight into the storage the
+   * model keeps images of that size in, so no other copy of the whole image is made.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   * @param height    the height of the image in pixels
+   * @param width     the width of the image in pixels
+   * @param rows      fills the array it is given with the row of the index it is given, as
+   *                  0xAARRGGBB pixels; called for each row in order, with the same array
+   * @throws IllegalArgumentException if the image is empty
+   */
+  public static void store(ModelInterface model, String imageName, int height, int width,
+      ObjIntConsumer<int[]> rows) {
+    ImageInterface image = Model.newImage(model, height, width);
+    try {
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        rows.accept(row, y);
+        ImageTransformation.writeRow(image, y, row, width);
+      }
+    } catch (RuntimeException e) {
+      image.release();
+      throw e;
+    }
+    model.storeImage(imageName, image);
+  }
+
+  /**
+   * Tells whether a model keeps images of a size off the heap, in which case whole images should
+   * be moved into and out of it a row at a time rather than as channel matrices.
+   *
+   * @param model  the model
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @return true if the model stores such images off the heap
+   */
+  public static boolean isOffHeapSize(ModelInterface model, int height, int width) {
+    return model instanceof Model && ((Model) model).isOffHeapSize(height, width);
+  }
+
+  /**
+   * Tells whether an image of a model is of a size the model keeps off the heap.
+   *
+   * @param model     the model
+   * @param imageName the name of the image
+   * @return true if the image is stored and of a size kept off the heap
+   */
+  public static boolean isOffHeap(ModelInterface model, String imageName) {
+    if (!(model instanceof Model)) {
+      return false;
+    }
+    try (Model.ReadScope scope = Model.reading(model)) {
+      ImageInterface image = model.getImage(imageName);
+      return image != null && isOffHeapSize(model, image.getHeight(), image.getWidth());
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Opens an image of a model for reading a row at a time. The image stays readable, even if it
+   * is dropped from the model meanwhile, until the rows are closed, which must happen on the
+   * thread which opened them.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @return the rows of the image
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static Rows open(ModelInterface model, String imageName) {
+    Model.ReadScope scope = Model.reading(model);
+    try {
+      return new Rows(scope, find(model, imageName));
+    } catch (RuntimeException e) {
+      scope.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the width of an image of a model.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @return the width in pixels
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static int width(ModelInterface model, String imageName) {
+    return find(model, imageName).getWidth();
+  }
+
+  /**
+   * Returns the height of an image of a model.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @return the height in pixels
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static int height(ModelInterface model, String imageName) {
+    return find(model, imageName).getHeight();
+  }
+
+  /**
+   * Copies consecutive rows of an image of a model into arrays of packed ARGB values.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @param firstRow  the index of the first row to copy
+   * @param rows      the arrays receiving the rows, each at least as long as the image is wide
+   * @param count     the number of rows to copy
+   * @throws IllegalArgumentException if the image is not found, or the rows lie outside it
+   */
+  public static void fetch(ModelInterface model, String imageName, int firstRow, int[][] rows,
+      int count) {
+    try (Model.ReadScope scope = Model.reading(model)) {
+      ImageInterface image = find(model, imageName);
+      if (firstRow < 0 || firstRow + count > image.getHeight()
+          || (count > 0 && rows[0].length < image.getWidth())) {
+        throw new IllegalArgumentException("Rows lie outside the image " + imageName);
+      }
+      for (int y = 0; y < count; y++) {
+        ImageTransformation.readRow(image, firstRow + y, rows[y], image.getWidth());
+      }
+    }
+  }
+
+  /**
+   * Copies a run of consecutive pixels of one row of an image of a model into an array of packed
+   * ARGB values, reading only that run of the row.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @param row       the index of the row
+   * @param column    the index of the first column of the run
+   * @param length    the number of pixels to copy
+   * @param argb      the array receiving the run, from index 0
+   * @throws IllegalArgumentException if the image is not found, or the run lies outside it
+   */
+  public static void fetch(ModelInterface model, String imageName, int row, int column,
+      int length, int[] argb) {
+    try (Model.ReadScope scope = Model.reading(model)) {
+      ImageInterface image = find(model, imageName);
+      if (row < 0 || row >= image.getHeight() || column < 0 || length < 0
+          || column + length > image.getWidth() || argb.length < length) {
+        throw new IllegalArgumentException("Run lies outside the image " + imageName);
+      }
+      ImageTransformation.readRow(image, row, column, argb, length);
+    }
+  }
+
+  private static ImageInterface find(ModelInterface model, String imageName) {
+    ImageInterface image = model.getImage(imageName);
+    if (image == null) {
+      throw new IllegalArgumentException("Image not found: " + imageName);
+    }
+    return image;
+  }
+
+  /**
+   * The rows of an image of a model opened with {@link #open}.
+   */
+  public static final class Rows implements AutoCloseable {
+
+    private final Model.ReadScope scope;
+    private final ImageInterface image;
+
+    private Rows(Model.ReadScope scope, ImageInterface image) {
+      this.scope = scope;
+      this.image = image;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+      return image.getWidth();
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+      return image.getHeight();
+    }
+
+    /**
+     * Copies a row of the image into an array of packed ARGB values.
+     *
+     * @param row  the index of the row
+     * @param argb the array receiving the row, at least as long as the image is wide
+     * @throws IllegalArgumentException if the row lies outside the image, or the array is too
+     *                                  short
+     */
+    public void read(int row, int[] argb) {
+      if (row < 0 || row >= image.getHeight() || argb.length < image.getWidth()) {
+        throw new IllegalArgumentException("Row lies outside the image");
+      }
+      ImageTransformation.readRow(image, row, argb, image.getWidth());
+    }
+
+    @Override
+    public void close() {
+      scope.close();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package ime.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A square block of packed ARGB pixels shared between {@link TiledImage} instances. Each tile
+ * counts the images referencing it; an image may only write to a tile it holds exclusively, and
+ * copies the tile first otherwise.
+ */
+final class ImageTile {
+
+  private final int[] argb;
+  private final AtomicInteger references;
+  // Content hash of the pixels, valid while hashed is true. Threads hashing a published
+  // image at once see the hash through the volatile flag, which is only cleared by writers
+  private long hash;
+  private volatile boolean hashed;
+
+  /**
+   * Constructs a zero-filled tile with a single reference.
+   *
+   * @param size number of pixels in the tile
+   */
+  ImageTile(int size) {
+    this(new int[size]);
+  }
+
+  private ImageTile(int[] argb) {
+    this.argb = argb;
+    this.references = new AtomicInteger(1);
+  }
+
+  /**
+   * Returns the packed pixels of this tile. Callers must not write to the array; use
+   * {@link #set(int, int)}.
+   *
+   * @return the backing array
+   */
+  int[] pixels() {
+    return argb;
+  }
+
+  /**
+   * Sets a pixel of this tile. Callers may only write while holding the only reference to the
+   * tile.
+   *
+   * @param offset the offset of the pixel in the tile
+   * @param value  the pixel as 0xAARRGGBB
+   */
+  void set(int offset, int value) {
+    argb[offset] = value;
+    if (hashed) {
+      hashed = false;
+    }
+  }
+
+  /**
+   * Sets a run of pixels of this tile. Callers may only write while holding the only reference to
+   * the tile.
+   *
+   * @param offset the offset of the first pixel in the tile
+   * @param values the pixels, as 0xAARRGGBB
+   * @param from   the index of the first pixel in {@code values}
+   * @param length the number of pixels to set
+   */
+  void set(int offset, int[] values, int from, int length) {
+    System.arraycopy(values, from, argb, offset, length);
+    if (hashed) {
+      hashed = false;
+    }
+  }
+
+  /**
+   * Returns the content hash of this tile's pixels, computing it only after the tile changed.
+   *
+   * @return the hash
+   */
+  long contentHash() {
+    if (!hashed) {
+      hash = ContentHash.of(argb);
+      hashed = true;
+    }
+    return hash;
+  }
+
+  /**
+   * Adds a reference to this tile.
+   *
+   * @return this tile
+   */
+  ImageTile retain() {
+    references.incrementAndGet();
+    return this;
+  }
+
+  /**
+   * Drops a reference to this tile.
+   */
+  void release() {
+    references.decrementAndGet();
+  }
+
+  /**
+   * Tells whether more than one image currently references this tile.
+   *
+   * @return true if the tile must be copied before being written
+   */
+  boolean isShared() {
+    return references.get() > 1;
+  }
+
+  /**
+   * Creates an unshared copy of this tile.
+   *
+   * @return a new tile holding the same pixels
+   */
+  ImageTile copy() {
+    ImageTile copy = new ImageTile(argb.clone());
+    copy.hash = hash;
+    copy.hashed = hashed;
+    return copy;
+  }
+
+  /**
+   * Returns the approximate number of bytes this tile occupies.
+   *
+   * @return the tile size in bytes
+   */
+  long sizeInBytes() {
+    return 16L + (long) argb.length * Integer.BYTES;
+  }
+}
@@ -1,7 +1,9 @@
 package ime.model;
 
+import java.util.Arrays;
 import java.util.function.BiFunction;
 import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Provides various image transformation operations, including pixel transformations, matrix
@@ -12,6 +14,9 @@ import java.util.function.UnaryOperator;
  */
 class ImageTransformation {
 
+  // The width of the blocks of columns box blurs slide down in parallel
+  private static final int BOX_BLOCK = 256;
+
   private final UnaryOperator<Integer> clamp = value -> Math.min(Math.max(value, 0), 255);
 
   /**
@@ -25,13 +30,15 @@ class ImageTransformation {
       int splitPercent) {
     int height = image.getHeight();
     int width = image.getWidth();
-    ImageInterface result = new Image(height, width);
 
     int splitPosition = ((splitPercent * width) / 100);
+    int changedColumns = changedColumns(splitPosition, width);
+    // Columns right of the split are shared with the source rather than copied
+    ImageInterface result = derive(image, changedColumns);
 
-    // Traverse through all pixels
+    // Traverse the pixels left of, and on, the split line
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
+      for (int j = 0; j < changedColumns; j++) {
         if (j < splitPosition) {
           // Apply transformation on the left side (up to splitPosition)
           PixelInterface originalPixel = image.getPixel(i, j);
@@ -48,14 +55,11 @@ class ImageTransformation {
               originalPixel.getA()
           );
           result.updatePixel(i, j, resultPixel);
-        } else if (j == splitPosition) {
+        } else {
           // Insert black pixels for the split line
           // Black pixel with full opacity
           PixelInterface blackPixel = new Pixel(0, 0, 0, 255);
           result.updatePixel(i, j, blackPixel);
-        } else {
-          // Copy original pixel on the right side of the split
-          result.updatePixel(i, j, image.getPixel(i, j));
         }
       }
     }
@@ -63,6 +67,51 @@ class ImageTransformation {
     return result;
   }
 
+  /**
+   * Applies a transformation to each pixel in an image, a row at a time with its row form when
+   * there is one. Both forms compute the same pixels.
+   *
+   * @param image          the original image to transform
+   * @param transformation the transformation of a single pixel
+   * @param rows           the row form of the transformation, or null to transform pixel by pixel
+   * @param splitPercent   the percentage of the width to transform
+   * @return a new Image with transformed pixels
+   */
+  ImageInterface applyTransformation(ImageInterface image, PixelTransformation transformation,
+      RowTransformation rows, int splitPercent) {
+    if (rows == null) {
+      return applyTransformation(image, transformation, splitPercent);
+    }
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
+    int transformedColumns = Math.min(Math.max(splitPosition, 0), width);
+    ImageInterface result = derive(image, changedColumns);
+
+    int[] source = new int[width];
+    int[] destination = new int[width];
+    for (int y = 0; y < height; y++) {
+      readRow(image, y, source, transformedColumns);
+      rows.apply(source, destination, transformedColumns);
+      writeRow(result, y, destination, transformedColumns);
+      drawSplitLine(result, y, transformedColumns, changedColumns);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of leading columns a split operation writes: the transformed columns left
+   * of the split position plus the black split line, bounded by the image width.
+   *
+   * @param splitPosition the column of the split line
+   * @param width         the image width
+   * @return the number of columns which differ from the source image
+   */
+  static int changedColumns(int splitPosition, int width) {
+    return Math.min(Math.max(splitPosition + 1, 0), width);
+  }
+
 
   /**
    * Creates a matrix multiplication operation for transforming RGB values.
@@ -104,7 +153,7 @@ class ImageTransformation {
   public ImageInterface applyPixelSwapping(ImageInterface image, PixelSwapping swappingLogic) {
     int width = image.getWidth();
     int height = image.getHeight();
-    ImageInterface result = new Image(height, width);
+    ImageInterface result = new TiledImage(height, width);
 
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
@@ -125,13 +174,17 @@ class ImageTransformation {
    */
   public ImageInterface applyKernel(ImageInterface image, KernelOperation operation,
       int splitPercent) {
+    // Each pixel is read once per kernel cell, so views are laid out in memory first
+    image = ImageView.contiguous(image);
     int height = image.getHeight();
     int width = image.getWidth();
 
     // Calculate the split position based on the percentage
     int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
 
-    ImageInterface resultImage = new Image(height, width);
+    // Columns right of the split are shared with the source rather than copied
+    ImageInterface resultImage = derive(image, changedColumns);
     float[][] kernel = operation.getKernel();
     int padding = operation.getPadding();
 
@@ -139,9 +192,9 @@ class ImageTransformation {
     BiFunction<Float, Float, Integer> clamp = (sum, weight) ->
         Math.min(Math.max(Math.round(sum / weight), 0), 255);
 
-    // Traverse through all pixels
+    // Traverse the pixels left of, and on, the split line
     for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
+      for (int x = 0; x < changedColumns; x++) {
         // Only apply the kernel operation if we're on the left side of the split
         if (x < splitPosition) {
           float sumR = 0;
@@ -155,10 +208,11 @@ class ImageTransformation {
               int nx = Math.min(Math.max(x + kx, 0), width - 1);
               int ny = Math.min(Math.max(y + ky, 0), height - 1);
               float weight = kernel[ky + padding][kx + padding];
+              PixelInterface neighbour = image.getPixel(ny, nx);
 
-              sumR += image.getPixel(ny, nx).getR() * weight;
-              sumG += image.getPixel(ny, nx).getG() * weight;
-              sumB += image.getPixel(ny, nx).getB() * weight;
+              sumR += neighbour.getR() * weight;
+              sumG += neighbour.getG() * weight;
+              sumB += neighbour.getB() * weight;
               sumWeights += weight;
             }
           }
@@ -171,13 +225,10 @@ class ImageTransformation {
 
           PixelInterface resultPixel = new Pixel(newR, newG, newB, alpha);
           resultImage.updatePixel(y, x, resultPixel);
-        } else if (x == splitPosition) {
+        } else {
           // Insert black pixels for the split line
           PixelInterface blackPixel = new Pixel(0, 0, 0, 255);
           resultImage.updatePixel(y, x, blackPixel);
-        } else {
-          // Copy original pixel on the right side of the split
-          resultImage.updatePixel(y, x, image.getPixel(y, x));
         }
       }
     }
@@ -185,6 +236,296 @@ class ImageTransformation {
     return resultImage;
   }
 
+  /**
+   * Applies a kernel operation to an image, a row at a time with its row form when there is one.
+   * Both forms compute the same pixels.
+   *
+   * @param image        the original image to transform
+   * @param operation    a KernelOperation defining how kernels are applied
+   * @param rows         the row form of the operation, or null to apply it pixel by pixel
+   * @param splitPercent the percentage of the width to transform
+   * @return a new Image with applied kernel effects
+   */
+  ImageInterface applyKernel(ImageInterface image, KernelOperation operation, RowConvolution rows,
+      int splitPercent) {
+    if (rows == null) {
+      return applyKernel(image, operation, splitPercent);
+    }
+    image = ImageView.contiguous(image);
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
+    int transformedColumns = Math.min(Math.max(splitPosition, 0), width);
+    ImageInterface result = derive(image, changedColumns);
+    int padding = operation.getPadding();
+    int size = 2 * padding + 1;
+
+    // Every source row is unpacked once, into the slot of a ring holding the rows the kernel spans
+    int[] slotRows = new int[size];
+    Arrays.fill(slotRows, -1);
+    int[][] slotPixels = new int[size][width];
+    float[][][] slotChannels = new float[size][3][width + 2 * padding];
+    float[][] red = new float[size][];
+    float[][] green = new float[size][];
+    float[][] blue = new float[size][];
+    int[] destination = new int[width];
+    for (int y = 0; y < height; y++) {
+      for (int ky = 0; ky < size; ky++) {
+        int row = Math.min(Math.max(y + ky - padding, 0), height - 1);
+        int slot = row % size;
+        if (slotRows[slot] != row) {
+          readRow(image, row, slotPixels[slot], width);
+          unpackPadded(slotPixels[slot], width, padding, slotChannels[slot]);
+          slotRows[slot] = row;
+        }
+        red[ky] = slotChannels[slot][0];
+        green[ky] = slotChannels[slot][1];
+        blue[ky] = slotChannels[slot][2];
+      }
+      rows.apply(red, green, blue, slotPixels[y % size], destination, transformedColumns);
+      writeRow(result, y, destination, transformedColumns);
+      drawSplitLine(result, y, transformedColumns, changedColumns);
+    }
+    return result;
+  }
+
+  /**
+   * Blurs an image with successive box filters, each replacing a pixel with the mean of the
+   * pixels within a radius of it along its row and then along its column. Each pass slides a
+   * running sum along the pixels, adding the pixel entering the window and subtracting the one
+   * leaving it, so it costs the same per pixel whatever its radius. Rows, then blocks of columns,
+   * are blurred in parallel. Pixels beyond the edges repeat the edge pixels, as with kernels.
+   *
+   * @param image        the original image to blur
+   * @param radii        the radius of each pass, in order; passes of radius 0 change nothing
+   * @param splitPercent the percentage of the width to blur
+   * @return a new Image with blurred pixels
+   */
+  ImageInterface applyBoxBlur(ImageInterface image, int[] radii, int splitPercent) {
+    // Rows are read in parallel, so views are laid out in memory first
+    ImageInterface source = ImageView.contiguous(image);
+    int height = source.getHeight();
+    int width = source.getWidth();
+    int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
+    int transformedColumns = Math.min(Math.max(splitPosition, 0), width);
+    ImageInterface result = derive(source, changedColumns);
+
+    // Each channel is blurred as a plane of bytes, since every pass rounds back to 0-255
+    byte[][][] planes = new byte[3][][];
+    if (transformedColumns > 0) {
+      for (int channel = 0; channel < planes.length; channel++) {
+        planes[channel] = new byte[height][width];
+      }
+      IntStream.range(0, height).parallel().forEach(y -> {
+        int[] argb = new int[width];
+        readRow(source, y, argb, width);
+        for (int x = 0; x < width; x++) {
+          planes[0][y][x] = (byte) (argb[x] >> 16);
+          planes[1][y][x] = (byte) (argb[x] >> 8);
+          planes[2][y][x] = (byte) argb[x];
+        }
+      });
+      for (int channel = 0; channel < planes.length; channel++) {
+        planes[channel] = boxBlurPlane(planes[channel], width, transformedColumns, radii);
+      }
+    }
+
+    int[] argb = new int[width];
+    for (int y = 0; y < height; y++) {
+      if (transformedColumns > 0) {
+        readRow(source, y, argb, transformedColumns);
+        for (int x = 0; x < transformedColumns; x++) {
+          argb[x] = (argb[x] & 0xFF000000) | ((planes[0][y][x] & 0xFF) << 16)
+              | ((planes[1][y][x] & 0xFF) << 8) | (planes[2][y][x] & 0xFF);
+        }
+        writeRow(result, y, argb, transformedColumns);
+      }
+      drawSplitLine(result, y, transformedColumns, changedColumns);
+    }
+    return result;
+  }
+
+  /**
+   * Blurs a plane with box passes. Box passes along rows and along columns commute, so every row
+   * pass runs first, over whole rows, and the column passes then only blur the leading columns
+   * kept.
+   *
+   * @return the blurred plane, whose leading {@code columns} columns hold the result
+   */
+  private static byte[][] boxBlurPlane(byte[][] plane, int width, int columns, int[] radii) {
+    IntStream.range(0, plane.length).parallel().forEach(y -> {
+      int[] values = new int[width];
+      for (int radius : radii) {
+        if (radius > 0) {
+          boxBlurRow(plane[y], width, radius, values);
+        }
+      }
+    });
+    byte[][] from = plane;
+    byte[][] to = new byte[plane.length][columns];
+    for (int radius : radii) {
+      if (radius > 0) {
+        byte[][] in = from;
+        byte[][] out = to;
+        IntStream.range(0, (columns + BOX_BLOCK - 1) / BOX_BLOCK).parallel().forEach(block ->
+            boxBlurColumns(in, out, block * BOX_BLOCK,
+                Math.min(columns, (block + 1) * BOX_BLOCK), radius));
+        to = from;
+        from = out;
+      }
+    }
+    return from;
+  }
+
+  /**
+   * Box blurs the leading values of a row in place.
+   *
+   * @param values scratch space for the original values, at least {@code length} long
+   */
+  private static void boxBlurRow(byte[] row, int length, int radius, int[] values) {
+    for (int x = 0; x < length; x++) {
+      values[x] = row[x] & 0xFF;
+    }
+    int last = length - 1;
+    int size = 2 * radius + 1;
+    // The window around the first value, with the first and last values repeated past the ends
+    int sum = (radius + 1) * values[0] + Math.max(0, radius - last) * values[last];
+    for (int x = 1; x <= Math.min(radius, last); x++) {
+      sum += values[x];
+    }
+    for (int x = 0; x < length; x++) {
+      row[x] = (byte) ((sum + radius) / size);
+      sum += values[Math.min(x + radius + 1, last)] - values[Math.max(x - radius, 0)];
+    }
+  }
+
+  /**
+   * Box blurs a block of columns of a plane into another plane, sliding a row of running sums down
+   * the block so that every row is read in order.
+   *
+   * @param start the first column of the block
+   * @param end   the column after the last one of the block
+   */
+  private static void boxBlurColumns(byte[][] from, byte[][] to, int start, int end,
+      int radius) {
+    int last = from.length - 1;
+    int size = 2 * radius + 1;
+    int[] sums = new int[end - start];
+    for (int x = start; x < end; x++) {
+      sums[x - start] = (radius + 1) * (from[0][x] & 0xFF)
+          + Math.max(0, radius - last) * (from[last][x] & 0xFF);
+    }
+    for (int y = 1; y <= Math.min(radius, last); y++) {
+      for (int x = start; x < end; x++) {
+        sums[x - start] += from[y][x] & 0xFF;
+      }
+    }
+    for (int y = 0; y <= last; y++) {
+      byte[] entering = from[Math.min(y + radius + 1, last)];
+      byte[] leaving = from[Math.max(y - radius, 0)];
+      for (int x = start; x < end; x++) {
+        to[y][x] = (byte) ((sums[x - start] + radius) / size);
+        sums[x - start] += (entering[x] & 0xFF) - (leaving[x] & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Creates the result image of an operation which only rewrites the columns to the left of
+   * {@code changedColumns}: an off-heap image for an off-heap source, so that large images stay
+   * off the heap, and otherwise a tiled image sharing the unchanged tiles of the source.
+   */
+  private static ImageInterface derive(ImageInterface image, int changedColumns) {
+    if (image instanceof OffHeapImage) {
+      return OffHeapImage.derive(image, changedColumns);
+    }
+    return TiledImage.derive(image, changedColumns);
+  }
+
+  /**
+   * Copies the leading pixels of a row of any image into an array of packed ARGB values, in bulk
+   * for tiled, off-heap and tile source images.
+   *
+   * @param image  the image to read
+   * @param y      the row index
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to copy
+   */
+  static void readRow(ImageInterface image, int y, int[] argb, int length) {
+    readRow(image, y, 0, argb, length);
+  }
+
+  /**
+   * Copies a run of consecutive pixels of a row of any image into the start of an array of packed
+   * ARGB values, in bulk for tiled, off-heap and tile source images, reading only that run.
+   *
+   * @param image  the image to read
+   * @param y      the row index
+   * @param x      the column index of the first pixel
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of pixels to copy
+   */
+  static void readRow(ImageInterface image, int y, int x, int[] argb, int length) {
+    if (image instanceof TiledImage) {
+      ((TiledImage) image).readRow(y, x, argb, length);
+      return;
+    }
+    if (image instanceof OffHeapImage) {
+      ((OffHeapImage) image).readRow(y, x, argb, length);
+      return;
+    }
+    if (image instanceof TileSourceImage) {
+      ((TileSourceImage) image).readRow(y, x, argb, length);
+      return;
+    }
+    for (int i = 0; i < length; i++) {
+      PixelInterface pixel = image.getPixel(y, x + i);
+      argb[i] = (pixel.getA() << 24) | (pixel.getR() << 16) | (pixel.getG() << 8) | pixel.getB();
+    }
+  }
+
+  /**
+   * Writes the leading pixels of a row of a tiled or off-heap image from an array of packed ARGB
+   * values.
+   *
+   * @param image  the image to write, tiled or off-heap
+   * @param y      the row index
+   * @param argb   the new pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to write
+   */
+  static void writeRow(ImageInterface image, int y, int[] argb, int length) {
+    if (image instanceof OffHeapImage) {
+      ((OffHeapImage) image).writeRow(y, argb, length);
+    } else {
+      ((TiledImage) image).writeRow(y, argb, length);
+    }
+  }
+
+  /**
+   * Splits a row of packed pixels into its color channels, repeating the edge pixels
+   * {@code padding} times on both sides.
+   */
+  private static void unpackPadded(int[] argb, int width, int padding, float[][] channels) {
+    for (int x = -padding; x < width + padding; x++) {
+      int pixel = argb[Math.min(Math.max(x, 0), width - 1)];
+      channels[0][x + padding] = (pixel >> 16) & 0xFF;
+      channels[1][x + padding] = (pixel >> 8) & 0xFF;
+      channels[2][x + padding] = pixel & 0xFF;
+    }
+  }
+
+  /**
+   * Paints the black split line between the transformed columns and the changed columns of a row.
+   */
+  private static void drawSplitLine(ImageInterface image, int y, int transformedColumns,
+      int changedColumns) {
+    for (int x = transformedColumns; x < changedColumns; x++) {
+      image.updatePixel(y, x, new Pixel(0, 0, 0, 255));
+    }
+  }
+
   /**
    * Applies color correction by shifting pixel values based on calculated offsets for red, green,
    * and blue channels. The operation only applies to the left side of the image up to a specified
@@ -205,12 +546,14 @@ class ImageTransformation {
 
     // Calculate the split position based on the percentage
     int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
 
-    PixelInterface[][] correctedPixels = new Pixel[height][width];
+    // Columns right of the split are shared with the source rather than copied
+    ImageInterface correctedImage = derive(image, changedColumns);
 
     // Traverse through all pixels and adjust RGB values based on offsets
     for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
+      for (int x = 0; x < changedColumns; x++) {
         PixelInterface pixel = image.getPixel(y, x);
 
         if (x < splitPosition) {
@@ -219,21 +562,14 @@ class ImageTransformation {
           int newGreen = clamp.apply(pixel.getG() + greenOffset);
           int newBlue = clamp.apply(pixel.getB() + blueOffset);
 
-          correctedPixels[y][x] = new Pixel(newRed, newGreen, newBlue, pixel.getA());
-        } else if (x == splitPosition) {
-          // Insert a black pixel at the split position
-          correctedPixels[y][x] = new Pixel(0, 0, 0, 255);
+          correctedImage.updatePixel(y, x, new Pixel(newRed, newGreen, newBlue, pixel.getA()));
         } else {
-          // Copy original pixel on the right side of the split
-          correctedPixels[y][x] = pixel;
+          // Insert a black pixel at the split position
+          correctedImage.updatePixel(y, x, new Pixel(0, 0, 0, 255));
         }
       }
     }
 
-    // Create a new Image with corrected pixels
-    ImageInterface correctedImage = new Image(height, width);
-    correctedImage.imageFill(correctedPixels);
-
     return correctedImage;
   }
 
@@ -257,12 +593,14 @@ class ImageTransformation {
 
     // Calculate the split position based on the percentage
     int splitPosition = (splitPercent * width) / 100;
+    int changedColumns = changedColumns(splitPosition, width);
 
-    PixelInterface[][] adjustedPixels = new Pixel[height][width];
+    // Columns right of the split are shared with the source rather than copied
+    ImageInterface adjustedImage = derive(image, changedColumns);
 
     // Traverse through all pixels and adjust RGB values based on levels adjustment curve
     for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
+      for (int x = 0; x < changedColumns; x++) {
         PixelInterface pixel = image.getPixel(y, x);
 
         if (x < splitPosition) {
@@ -271,21 +609,14 @@ class ImageTransformation {
           int newGreen = clamp.apply((int) (a * Math.pow(pixel.getG(), 2) + b * pixel.getG() + c));
           int newBlue = clamp.apply((int) (a * Math.pow(pixel.getB(), 2) + b * pixel.getB() + c));
 
-          adjustedPixels[y][x] = new Pixel(newRed, newGreen, newBlue, pixel.getA());
-        } else if (x == splitPosition) {
-          // Insert a black pixel at the split position
-          adjustedPixels[y][x] = new Pixel(0, 0, 0, 255);
+          adjustedImage.updatePixel(y, x, new Pixel(newRed, newGreen, newBlue, pixel.getA()));
         } else {
-          // Copy original pixel on the right side of the split
-          adjustedPixels[y][x] = pixel;
+          // Insert a black pixel at the split position
+          adjustedImage.updatePixel(y, x, new Pixel(0, 0, 0, 255));
         }
       }
     }
 
-    // Create a new Image with adjusted pixels
-    ImageInterface adjustedImage = new Image(height, width);
-    adjustedImage.imageFill(adjustedPixels);
-
     return adjustedImage;
   }
 }
@@ -0,0 +1,286 @@
+package ime.model;
+
+/**
+ * Represents an image which is a geometric view of another one: flipped, rotated by quarter turns
+ * or cropped. A view holds no pixels of its own; each read is remapped to the source image, so
+ * creating a view costs the same whatever the image size. Views of views are flattened into a
+ * single mapping onto the original source.
+ *
+ * <p>A view copies its pixels into a {@link TiledImage}, or an {@link OffHeapImage} for an
+ * off-heap source, the first time it is written to, or when an operation asks for contiguous
+ * pixels through {@link #contiguous(ImageInterface)}. From then on it behaves as that image.
+ * Operations on several threads may materialize a stored view at once, so the copy is made once
+ * under the view's lock, and the source is dropped rather than released: threads still reading
+ * through the view keep a valid source, whose storage is reclaimed once it is unreachable.</p>
+ */
+class ImageView extends AbstractImage {
+
+  private final int height;
+  private final int width;
+  // Source coordinates are rowOffset + rowPerRow * row + rowPerCol * col for the source row, and
+  // the same with the col* coefficients for the source column
+  private final int rowOffset;
+  private final int rowPerRow;
+  private final int rowPerCol;
+  private final int colOffset;
+  private final int colPerRow;
+  private final int colPerCol;
+  // Null once materialized; both are volatile so that a reader finding no source finds the copy
+  private volatile ImageInterface source;
+  private volatile ImageInterface materialized;
+
+  private ImageView(ImageInterface source, int height, int width, int rowOffset, int rowPerRow,
+      int rowPerCol, int colOffset, int colPerRow, int colPerCol) {
+    this.source = source;
+    this.height = height;
+    this.width = width;
+    this.rowOffset = rowOffset;
+    this.rowPerRow = rowPerRow;
+    this.rowPerCol = rowPerCol;
+    this.colOffset = colOffset;
+    this.colPerRow = colPerRow;
+    this.colPerCol = colPerCol;
+  }
+
+  /**
+   * Creates a view of the image mirrored left to right.
+   *
+   * @param image the source image
+   * @return the flipped view
+   */
+  static ImageInterface horizontalFlip(ImageInterface image) {
+    return of(image, image.getHeight(), image.getWidth(), 0, 1, 0, image.getWidth() - 1, 0, -1);
+  }
+
+  /**
+   * Creates a view of the image mirrored top to bottom.
+   *
+   * @param image the source image
+   * @return the flipped view
+   */
+  static ImageInterface verticalFlip(ImageInterface image) {
+    return of(image, image.getHeight(), image.getWidth(), image.getHeight() - 1, -1, 0, 0, 0, 1);
+  }
+
+  /**
+   * Creates a view of the image rotated clockwise by the given number of quarter turns.
+   *
+   * @param image        the source image
+   * @param quarterTurns the number of clockwise quarter turns, 1, 2 or 3
+   * @return the rotated view
+   * @throws IllegalArgumentException if quarterTurns is not 1, 2 or 3
+   */
+  static ImageInterface rotate(ImageInterface image, int quarterTurns) {
+    int h = image.getHeight();
+    int w = image.getWidth();
+    switch (quarterTurns) {
+      case 1:
+        return of(image, w, h, h - 1, 0, -1, 0, 1, 0);
+      case 2:
+        return of(image, h, w, h - 1, -1, 0, w - 1, 0, -1);
+      case 3:
+        return of(image, w, h, 0, 0, 1, w - 1, -1, 0);
+      default:
+        throw new IllegalArgumentException("Rotation must be 1, 2 or 3 quarter turns");
+    }
+  }
+
+  /**
+   * Creates a view of a rectangular region of the image.
+   *
+   * @param image  the source image
+   * @param x      the column of the region's top left corner
+   * @param y      the row of the region's top left corner
+   * @param width  the width of the region
+   * @param height the height of the region
+   * @return the cropped view
+   * @throws IllegalArgumentException if the region is empty or not inside the image
+   */
+  static ImageInterface crop(ImageInterface image, int x, int y, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Crop width and height must be positive");
+    }
+    if (x < 0 || y < 0 || x + width > image.getWidth() || y + height > image.getHeight()) {
+      throw new IllegalArgumentException("Crop region must lie inside the image");
+    }
+    return of(image, height, width, y, 1, 0, x, 0, 1);
+  }
+
+  /**
+   * Returns the image with its pixels laid out in memory, materializing it if it is a view. Used by
+   * operations which read neighbourhoods of pixels many times.
+   *
+   * @param image the image to read from
+   * @return an image with the same pixels that is not a view
+   */
+  static ImageInterface contiguous(ImageInterface image) {
+    if (image instanceof ImageView) {
+      return ((ImageView) image).materialize();
+    }
+    return image;
+  }
+
+  /**
+   * Creates a view with the given mapping, composing it with the mapping of the source if the
+   * source is itself a view. The view takes a share of its source rather than a reference to it,
+   * whatever kind of image the source is, so the view stays valid after the source is released.
+   */
+  private static ImageInterface of(ImageInterface image, int height, int width,
+      int rowOffset, int rowPerRow, int rowPerCol, int colOffset, int colPerRow, int colPerCol) {
+    ImageInterface innerSource = image instanceof ImageView ? ((ImageView) image).source : null;
+    if (innerSource != null) {
+      ImageView inner = (ImageView) image;
+      return create(innerSource, height, width,
+          inner.rowOffset + inner.rowPerRow * rowOffset + inner.rowPerCol * colOffset,
+          inner.rowPerRow * rowPerRow + inner.rowPerCol * colPerRow,
+          inner.rowPerRow * rowPerCol + inner.rowPerCol * colPerCol,
+          inner.colOffset + inner.colPerRow * rowOffset + inner.colPerCol * colOffset,
+          inner.colPerRow * rowPerRow + inner.colPerCol * colPerRow,
+          inner.colPerRow * rowPerCol + inner.colPerCol * colPerCol);
+    }
+    if (image instanceof ImageView) {
+      image = ((ImageView) image).materialized;
+    }
+    return create(image, height, width, rowOffset, rowPerRow, rowPerCol, colOffset, colPerRow,
+        colPerCol);
+  }
+
+  private static ImageInterface create(ImageInterface image, int height, int width,
+      int rowOffset, int rowPerRow, int rowPerCol, int colOffset, int colPerRow, int colPerCol) {
+    return new ImageView(shareOf(image), height, width, rowOffset, rowPerRow, rowPerCol,
+        colOffset, colPerRow, colPerCol);
+  }
+
+  /**
+   * Copies the viewed pixels into a tiled image, or an off-heap image for an off-heap source, once,
+   * and drops the reference to the source.
+   *
+   * @return the materialized image
+   */
+  ImageInterface materialize() {
+    ImageInterface copy = materialized;
+    if (copy != null) {
+      return copy;
+    }
+    synchronized (this) {
+      if (materialized == null) {
+        ImageInterface viewed = source;
+        copy = viewed instanceof OffHeapImage
+            ? new OffHeapImage(height, width) : new TiledImage(height, width);
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            copy.updatePixel(y, x, read(viewed, y, x));
+          }
+        }
+        materialized = copy;
+        source = null;
+      }
+      return materialized;
+    }
+  }
+
+  /**
+   * Tells whether this view still reads through to its source.
+   *
+   * @return true if the view has not been materialized
+   */
+  boolean isView() {
+    return materialized == null;
+  }
+
+  @Override
+  public PixelInterface getPixel(int idx1, int idx2) {
+    ImageInterface viewed = source;
+    if (viewed == null) {
+      return materialized.getPixel(idx1, idx2);
+    }
+    checkBounds(idx1, idx2);
+    return read(viewed, idx1, idx2);
+  }
+
+  private PixelInterface read(ImageInterface viewed, int idx1, int idx2) {
+    return viewed.getPixel(rowOffset + rowPerRow * idx1 + rowPerCol * idx2,
+        colOffset + colPerRow * idx1 + colPerCol * idx2);
+  }
+
+  @Override
+  public void updatePixel(int idx1, int idx2, PixelInterface newPixelValue) {
+    materialize().updatePixel(idx1, idx2, newPixelValue);
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void imageFill(PixelInterface[][] pixelArray) {
+    materialize().imageFill(pixelArray);
+  }
+
+  /**
+   * Hashes the view as its mapping onto the hash of its source, without reading its pixels.
+   */
+  @Override
+  long contentHash() {
+    ImageInterface viewed = source;
+    if (viewed == null) {
+      return ContentHash.of(materialized);
+    }
+    long hash = ContentHash.start(-1, height, width);
+    for (int coefficient : new int[]{rowOffset, rowPerRow, rowPerCol, colOffset, colPerRow,
+        colPerCol}) {
+      hash = ContentHash.mix(hash, coefficient);
+    }
+    return ContentHash.finish(ContentHash.mix(hash, ContentHash.of(viewed)));
+  }
+
+  /**
+   * Returns a new image with the same pixels which is unaffected by later writes to this one or
+   * to its source. The new image is a view of a share of the source.
+   *
+   * @return the independent image
+   */
+  ImageInterface share() {
+    ImageInterface viewed = source;
+    if (viewed == null) {
+      return shareOf(materialized);
+    }
+    return new ImageView(shareOf(viewed), height, width, rowOffset, rowPerRow, rowPerCol,
+        colOffset, colPerRow, colPerCol);
+  }
+
+  /**
+   * Returns a share of an image which holds its own references to the image's storage, so that
+   * releasing the image leaves the share readable and writes to either side are copied first.
+   * Tiled, off-heap and planar images share their tiles, memory or planes; a tile source image
+   * shares its source; any other image is copied.
+   */
+  private static ImageInterface shareOf(ImageInterface image) {
+    if (image instanceof OffHeapImage) {
+      return OffHeapImage.derive(image, 0);
+    }
+    if (image instanceof PlanarImage) {
+      return PlanarImage.of(image);
+    }
+    if (image instanceof TileSourceImage) {
+      return ((TileSourceImage) image).share();
+    }
+    return TiledImage.derive(image, 0);
+  }
+
+  @Override
+  public void release() {
+    ImageInterface viewed = source;
+    if (viewed == null) {
+      materialized.release();
+    } else {
+      viewed.release();
+    }
+  }
+}
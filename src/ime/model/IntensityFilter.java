@@ -39,7 +39,7 @@ public class IntensityFilter extends AbstractFilters {
         (red, green, blue, alpha) -> {
           int intensity = (red + green + blue) / 3;
           return new Pixel(intensity, intensity, intensity, alpha);
-        }, splitPercent);
+        }, VectorOperations.intensity(), splitPercent);
     model.storeImage(destName, intensityComponent);
 
   }
@@ -35,7 +35,7 @@ public class LumaFilter extends AbstractFilters {
         (red, green, blue, alpha) -> {
           int luma = Math.round(red * 0.2126f + green * 0.7152f + blue * 0.0722f);
           return new Pixel(luma, luma, luma, alpha);
-        }, splitPercent);
+        }, VectorOperations.luma(), splitPercent);
     model.storeImage(destName, lumaComponent);
 
   }
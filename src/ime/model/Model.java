@@ -5,40 +5,143 @@ import static ime.model.ImageChannelConstants.BLUE;
 import static ime.model.ImageChannelConstants.GREEN;
 import static ime.model.ImageChannelConstants.RED;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.FlightRecorder;
 
 /**
  * The Model class implements the contract for the model component in the image processing
  * application. It implements methods for image operations, storage, retrieval, and conversion
  * between different image representations.
+ *
+ * <p>A model may be used from several threads at once. Stored images are never written to once
+ * published: operations read their inputs and store new images, so readers need no locks and see
+ * an image either before or after a command replaces it, never in between. The store is read
+ * without locking and changed under a lock held only for the change itself, and
+ * {@link #storeImageIfAbsent} and {@link #replaceImage} let threads claim or update a name
+ * atomically. An image dropped from the store is only released once every thread that was reading
+ * images when it was dropped has finished, since such a thread may still hold it.</p>
  */
 public class Model implements ModelInterface {
 
-  private final Map<String, ImageInterface> storedImages = new HashMap<>();
+  // Read without locking, and changed only while holding storeLock
+  private final Map<String, ImageInterface> storedImages = new ConcurrentHashMap<>();
+  private final Object storeLock = new Object();
+  // Images dropped from the store, with the generation they were dropped in, until the threads
+  // which may still read them are done; guarded by storeLock
+  private final Map<ImageInterface, Long> retired = new IdentityHashMap<>();
+  private volatile int retiredCount;
+  private final AtomicLong generation = new AtomicLong();
+  // The threads reading images, each with the generation it started reading in
+  private final Map<Thread, ReadScope> readers = new ConcurrentHashMap<>();
+  // Null when results are not memoized
+  private final ResultCache resultCache;
+  // Images of at least this many pixels are stored off the heap, none if 0
+  private final long offHeapPixels;
+  private volatile OperationsFactory operations;
+
+  /**
+   * Constructs an empty model which computes every operation it is asked to run.
+   */
+  public Model() {
+    this(0);
+  }
+
+  /**
+   * Constructs an empty model which memoizes operation results. An operation run again with the
+   * same parameters on images with the same content stores the results of the earlier run instead
+   * of recomputing them, whatever the images are named.
+   *
+   * @param resultCacheBytes the pixel bytes of results to keep, at four bytes per pixel, or 0 to
+   *                         compute every operation
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public Model(long resultCacheBytes) {
+    this(resultCacheBytes, 0);
+  }
+
+  /**
+   * Constructs an empty model which memoizes operation results and stores large images outside
+   * the Java heap. Off-heap images are neither counted nor scanned by the garbage collector, are
+   * not limited by the size of a Java array, and free their memory as soon as they are removed or
+   * replaced; they are bounded by {@code -XX:MaxDirectMemorySize} instead of the heap.
+   *
+   * @param resultCacheBytes the pixel bytes of results to keep, at four bytes per pixel, or 0 to
+   *                         compute every operation
+   * @param offHeapPixels    the number of pixels from which images are stored off the heap, or 0
+   *                         to keep every image on the heap
+   * @throws IllegalArgumentException if a size is negative
+   */
+  public Model(long resultCacheBytes, long offHeapPixels) {
+    if (resultCacheBytes < 0) {
+      throw new IllegalArgumentException("Result cache size cannot be negative");
+    }
+    if (offHeapPixels < 0) {
+      throw new IllegalArgumentException("Off-heap threshold cannot be negative");
+    }
+    this.resultCache = resultCacheBytes == 0 ? null : new ResultCache(resultCacheBytes);
+    this.offHeapPixels = offHeapPixels;
+  }
+
+  /**
+   * Returns a view of a model whose methods run one at a time, so that several threads can share
+   * the images of a model which is not safe for concurrent use itself. A {@code Model} needs no
+   * such view. The model should not be used directly while the view is shared.
+   *
+   * @param model the model to share
+   * @return the synchronized view
+   */
+  public static ModelInterface synchronizedModel(ModelInterface model) {
+    return new SynchronizedModel(model);
+  }
 
   @Override
   public void convertAndStoreImage(String imageName, Map<String, int[][]> imgPixelArr) {
-    int rows = imgPixelArr.get(RED).length;
-    int cols = imgPixelArr.get(RED)[0].length;
-    PixelInterface[][] pixelArr = new Pixel[rows][cols];
+    int[][] red = imgPixelArr.get(RED);
+    int[][] green = imgPixelArr.get(GREEN);
+    int[][] blue = imgPixelArr.get(BLUE);
+    int[][] alpha = imgPixelArr.get(ALPHA);
+    int rows = red.length;
+    int cols = red[0].length;
+    if (isOffHeapSize(rows, cols)) {
+      OffHeapImage image = new OffHeapImage(rows, cols);
+      int[] row = new int[cols];
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < cols; j++) {
+          row[j] = (alpha[i][j] & 0xFF) << 24 | (red[i][j] & 0xFF) << 16
+              | (green[i][j] & 0xFF) << 8 | (blue[i][j] & 0xFF);
+        }
+        image.writeRow(i, row, cols);
+      }
+      this.storeImage(imageName, image);
+      return;
+    }
+    TiledImage image = new TiledImage(rows, cols);
     for (int i = 0; i < rows; i++) {
       for (int j = 0; j < cols; j++) {
-        int red = imgPixelArr.get(RED)[i][j];
-        int green = imgPixelArr.get(GREEN)[i][j];
-        int blue = imgPixelArr.get(BLUE)[i][j];
-        int alpha = imgPixelArr.get(ALPHA)[i][j];
-        pixelArr[i][j] = new Pixel(red, green, blue, alpha);
+        image.setArgb(i, j, (alpha[i][j] & 0xFF) << 24 | (red[i][j] & 0xFF) << 16
+            | (green[i][j] & 0xFF) << 8 | (blue[i][j] & 0xFF));
       }
     }
-    ImageInterface image = new Image(rows, cols);
-    image.imageFill(pixelArr);
     this.storeImage(imageName, image);
   }
 
   @Override
   public Map<String, int[][]> convertAndFetchImage(String imageName) {
+    try (ReadScope scope = enterRead()) {
+      return fetchChannels(imageName);
+    }
+  }
+
+  private Map<String, int[][]> fetchChannels(String imageName) {
     ImageInterface image = this.getImage(imageName);
     // Check if the image was found
     if (image == null) {
@@ -77,16 +180,250 @@ public class Model implements ModelInterface {
   @Override
   public void operationsFactoryCall(String commandName, List<String> commandTokens,
       ModelInterface model) {
-    OperationsFactory opFactory = new OperationsFactory(model);
+    try (ReadScope scope = enterRead()) {
+      runOperation(commandName, commandTokens, model);
+    }
+  }
+
+  private void runOperation(String commandName, List<String> commandTokens,
+      ModelInterface model) {
+    OperationsFactory opFactory = model == this ? operations() : new OperationsFactory(model);
     if (!opFactory.commandExists(commandName)) {
       throw new IllegalArgumentException(commandName + " Command not found");
     }
-    opFactory.getCommandFilter(commandName).execute(commandTokens);
+    if (!FlightRecorder.isInitialized()) {
+      // Constructing the first event sets up the flight recorder, so skip it when not recording
+      execute(opFactory.getCommandFilter(commandName), opFactory.getOperationInfo(commandName),
+          commandTokens, model);
+      return;
+    }
+    FilterExecutionEvent event = new FilterExecutionEvent();
+    if (event.isEnabled()) {
+      event.command = commandName;
+      event.splitPercent = splitPercentOf(commandTokens);
+      for (int position : opFactory.getOperationInfo(commandName).getInputPositions()) {
+        ImageInterface source = position < commandTokens.size()
+            ? this.storedImages.get(commandTokens.get(position)) : null;
+        if (source != null) {
+          event.width = source.getWidth();
+          event.height = source.getHeight();
+          break;
+        }
+      }
+    }
+    event.begin();
+    event.cached = execute(opFactory.getCommandFilter(commandName),
+        opFactory.getOperationInfo(commandName), commandTokens, model);
+    event.end();
+    if (event.shouldCommit()) {
+      event.retainedBytes = retainedBytes();
+      event.commit();
+    }
+  }
+
+  /**
+   * Runs a filter, or stores the cached results of an earlier identical run when results are
+   * memoized, and caches the results of a new run.
+   *
+   * @param filter        the filter of the operation
+   * @param operation     the description of the operation
+   * @param commandTokens the command tokens
+   * @param model         the model the filter runs on
+   * @return true if the results came from the cache
+   */
+  private boolean execute(Filters filter, OperationInfo operation, List<String> commandTokens,
+      ModelInterface model) {
+    List<Integer> outputs = operation.getOutputPositions();
+    if (resultCache == null || model != this || outputs.isEmpty()
+        || commandTokens.size() <= operation.getParameters().size()) {
+      filter.execute(commandTokens);
+      return false;
+    }
+    List<ImageInterface> inputs = inputsOf(operation, commandTokens);
+    ResultCache.Key key = ResultCache.keyOf(operation, commandTokens, this);
+    List<ImageInterface> cached = resultCache.get(key);
+    if (cached != null) {
+      for (int output = 0; output < outputs.size(); output++) {
+        storeImage(commandTokens.get(outputs.get(output)), cached.get(output));
+      }
+      return true;
+    }
+    ReadScope scope = readers.get(Thread.currentThread());
+    Map<String, ImageInterface> stores = new HashMap<>();
+    Map<String, ImageInterface> outer = scope.stores;
+    scope.stores = stores;
+    try {
+      filter.execute(commandTokens);
+    } finally {
+      scope.stores = outer;
+    }
+    // Another thread replacing an input meanwhile may have changed what the filter read
+    List<ImageInterface> inputsAfter = inputsOf(operation, commandTokens);
+    for (int input = 0; input < inputs.size(); input++) {
+      if (inputs.get(input) != inputsAfter.get(input)) {
+        return false;
+      }
+    }
+    List<ImageInterface> results = new ArrayList<>();
+    for (int position : outputs) {
+      // The images this thread stored, whatever other threads stored under the names since
+      ImageInterface result = stores.get(commandTokens.get(position));
+      if (result == null) {
+        return false;
+      }
+      results.add(result);
+    }
+    resultCache.put(key, results);
+    return false;
+  }
+
+  /**
+   * Returns the images stored under the input names of a command, null for names not stored.
+   */
+  private List<ImageInterface> inputsOf(OperationInfo operation, List<String> commandTokens) {
+    List<ImageInterface> inputs = new ArrayList<>();
+    for (int position : operation.getInputPositions()) {
+      inputs.add(position < commandTokens.size()
+          ? this.storedImages.get(commandTokens.get(position)) : null);
+    }
+    return inputs;
+  }
+
+  /**
+   * Returns how many operations were answered from the result cache.
+   *
+   * @return the number of reused results, 0 if results are not memoized
+   */
+  long getResultCacheHits() {
+    return resultCache == null ? 0 : resultCache.getHits();
+  }
+
+  @Override
+  public OperationInfo getOperationInfo(String commandName) {
+    return operations().getOperationInfo(commandName);
+  }
+
+  @Override
+  public List<OperationInfo> getOperations() {
+    return operations().getOperations();
+  }
+
+  /**
+   * Returns the operations of this model, building them on first use. Filters hold no state
+   * between executions, so one set serves every command.
+   *
+   * @return the operations factory bound to this model
+   */
+  private OperationsFactory operations() {
+    OperationsFactory factory = operations;
+    if (factory == null) {
+      // Threads racing here may each build a set; any of them serves
+      factory = new OperationsFactory(this);
+      operations = factory;
+    }
+    return factory;
   }
 
   @Override
   public void storeImage(String imageName, ImageInterface image) {
-    this.storedImages.put(imageName, image);
+    ImageInterface stored = offHeap(image);
+    synchronized (storeLock) {
+      retire(this.storedImages.put(imageName, stored));
+      if (stored != image) {
+        retire(image);
+      }
+    }
+    recordStore(imageName, stored);
+  }
+
+  @Override
+  public boolean storeImageIfAbsent(String imageName, ImageInterface image) {
+    ImageInterface stored = offHeap(image);
+    boolean absent;
+    synchronized (storeLock) {
+      absent = this.storedImages.putIfAbsent(imageName, stored) == null;
+      if (stored != image) {
+        retire(absent ? image : stored);
+      }
+    }
+    if (absent) {
+      recordStore(imageName, stored);
+    }
+    return absent;
+  }
+
+  @Override
+  public boolean replaceImage(String imageName, ImageInterface expected, ImageInterface image) {
+    ImageInterface stored = offHeap(image);
+    boolean replaced;
+    synchronized (storeLock) {
+      replaced = this.storedImages.get(imageName) == expected;
+      if (replaced) {
+        this.storedImages.put(imageName, stored);
+        retire(expected);
+      }
+      if (stored != image) {
+        retire(replaced ? image : stored);
+      }
+    }
+    if (replaced) {
+      recordStore(imageName, stored);
+    }
+    return replaced;
+  }
+
+  private void recordStore(String imageName, ImageInterface stored) {
+    ReadScope scope = readers.get(Thread.currentThread());
+    if (scope != null && scope.stores != null) {
+      scope.stores.put(imageName, stored);
+    }
+    recordStoreAccess("store", imageName);
+  }
+
+  /**
+   * Returns the image to store for an image being stored: large images produced on the heap are
+   * copied off the heap, and the caller releases the heap copy once the copy is stored. Views keep
+   * reading through to their source, and images decoded a tile at a time are left to decode only
+   * the tiles operations read.
+   *
+   * @param image the image being stored
+   * @return the image to store
+   */
+  private ImageInterface offHeap(ImageInterface image) {
+    if (image instanceof OffHeapImage || image instanceof ImageView
+        || image instanceof TileSourceImage
+        || !isOffHeapSize(image.getHeight(), image.getWidth())) {
+      return image;
+    }
+    return OffHeapImage.of(image);
+  }
+
+  /**
+   * Tells whether images of a size are stored off the heap.
+   *
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @return true if such images are kept off the heap
+   */
+  boolean isOffHeapSize(int height, int width) {
+    return offHeapPixels > 0 && (long) height * width >= offHeapPixels;
+  }
+
+  /**
+   * Creates an empty image to be filled a row at a time and stored in a model, off the heap if the
+   * model keeps images of its size there, so that storing it makes no copy. Models other than this
+   * class get a tiled image.
+   *
+   * @param model  the model the image is for
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @return the empty image
+   */
+  static ImageInterface newImage(ModelInterface model, int height, int width) {
+    if (model instanceof Model && ((Model) model).isOffHeapSize(height, width)) {
+      return new OffHeapImage(height, width);
+    }
+    return new TiledImage(height, width);
   }
 
   @Override
@@ -95,7 +432,184 @@ public class Model implements ModelInterface {
     if (image == null) {
       throw new IllegalArgumentException("Image not found: " + imageName);
     }
+    recordStoreAccess("get", imageName);
     return image;
   }
 
+  @Override
+  public void removeImage(String imageName) {
+    synchronized (storeLock) {
+      retire(this.storedImages.remove(imageName));
+    }
+    recordStoreAccess("remove", imageName);
+  }
+
+  /**
+   * Emits a flight recorder event for an access to the image store, if such events are enabled.
+   *
+   * @param operation the kind of access
+   * @param imageName the name of the image accessed
+   */
+  private void recordStoreAccess(String operation, String imageName) {
+    if (!FlightRecorder.isInitialized()) {
+      return;
+    }
+    ImageStoreEvent event = new ImageStoreEvent();
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.imageName = imageName;
+      event.imageCount = this.storedImages.size();
+      event.retainedBytes = retainedBytes();
+      event.commit();
+    }
+  }
+
+  /**
+   * Estimates the memory held by the stored images at four bytes per pixel, counting an image
+   * stored under several names once. Images sharing tiles or planes are counted in full, so this is
+   * an upper bound.
+   *
+   * @return the estimated number of bytes
+   */
+  private long retainedBytes() {
+    Set<ImageInterface> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    long bytes = 0;
+    for (ImageInterface image : this.storedImages.values()) {
+      if (distinct.add(image)) {
+        bytes += 4L * image.getHeight() * image.getWidth();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads the split percentage of a command the way the filters do, from the token following
+   * {@code split}.
+   *
+   * @param commandTokens the command tokens
+   * @return the split percentage, or 100 if the command has no valid split
+   */
+  private static int splitPercentOf(List<String> commandTokens) {
+    int index = commandTokens.indexOf("split");
+    if (index < 0 || index + 1 >= commandTokens.size()) {
+      return 100;
+    }
+    try {
+      return Integer.parseInt(commandTokens.get(index + 1));
+    } catch (NumberFormatException e) {
+      return 100;
+    }
+  }
+
+  /**
+   * Opens a scope in which the calling thread may read images of a model. Images dropped from the
+   * store while the scope is open are not released until it is closed. Scopes may be nested, and
+   * models other than this class give a scope which does nothing.
+   *
+   * @param model the model whose images are read
+   * @return the scope, to be closed once the images read are no longer used
+   */
+  static ReadScope reading(ModelInterface model) {
+    return model instanceof Model ? ((Model) model).enterRead() : ReadScope.NONE;
+  }
+
+  private ReadScope enterRead() {
+    Thread thread = Thread.currentThread();
+    ReadScope scope = readers.get(thread);
+    if (scope != null) {
+      scope.depth++;
+      return scope;
+    }
+    // A generation read before the image is dropped holds back its release; one read after it
+    // belongs to a thread which can no longer find the image in the store
+    scope = new ReadScope(this, generation.get());
+    readers.put(thread, scope);
+    return scope;
+  }
+
+  private void exitRead(ReadScope scope) {
+    if (--scope.depth > 0) {
+      return;
+    }
+    readers.remove(Thread.currentThread());
+    if (retiredCount > 0) {
+      synchronized (storeLock) {
+        reclaim();
+      }
+    }
+  }
+
+  /**
+   * Queues an image dropped from the store for release, and releases the queued images no
+   * reading thread can hold. Called with storeLock held.
+   *
+   * @param image the image no longer stored under its name, or null
+   */
+  private void retire(ImageInterface image) {
+    if (image == null) {
+      return;
+    }
+    retired.put(image, generation.incrementAndGet());
+    reclaim();
+  }
+
+  /**
+   * Releases the dropped images that every reading thread started reading after, unless they are
+   * stored again. Called with storeLock held.
+   */
+  private void reclaim() {
+    long oldestReader = Long.MAX_VALUE;
+    for (ReadScope scope : readers.values()) {
+      oldestReader = Math.min(oldestReader, scope.generation);
+    }
+    Iterator<Map.Entry<ImageInterface, Long>> entries = retired.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<ImageInterface, Long> entry = entries.next();
+      if (entry.getValue() <= oldestReader) {
+        ImageInterface image = entry.getKey();
+        entries.remove();
+        // An image stored again is queued anew when it is dropped again
+        if (!isStored(image)) {
+          image.release();
+        }
+      }
+    }
+    retiredCount = retired.size();
+  }
+
+  private boolean isStored(ImageInterface image) {
+    for (ImageInterface stored : this.storedImages.values()) {
+      if (stored == image) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A span in which a thread reads images of a model, opened by {@link #reading}.
+   */
+  static final class ReadScope implements AutoCloseable {
+
+    private static final ReadScope NONE = new ReadScope(null, 0);
+
+    private final Model model;
+    private final long generation;
+    // Touched by the owning thread only
+    private int depth = 1;
+    // The images stored by the operation running in the scope, if its results are cached
+    private Map<String, ImageInterface> stores;
+
+    private ReadScope(Model model, long generation) {
+      this.model = model;
+      this.generation = generation;
+    }
+
+    @Override
+    public void close() {
+      if (model != null) {
+        model.exitRead(this);
+      }
+    }
+  }
 }
@@ -57,4 +57,52 @@ public interface ModelInterface {
    * @throws IllegalArgumentException if the image is null or if the name is already in use
    */
   void storeImage(String imageName, ImageInterface image);
-}
\ No newline at end of file
+
+  /**
+   * Stores an image under a name unless an image is already stored under it, as one atomic step
+   * with respect to other threads using the model.
+   *
+   * @param imageName the name under which to store the image
+   * @param image     the image to store
+   * @return true if the image was stored; false if the name was taken, in which case the image is
+   *         left to the caller
+   */
+  boolean storeImageIfAbsent(String imageName, ImageInterface image);
+
+  /**
+   * Replaces the image stored under a name if it is still the given one, as one atomic step with
+   * respect to other threads using the model.
+   *
+   * @param imageName the name of the image
+   * @param expected  the image the name must hold, compared by identity, or null for a name which
+   *                  must not be stored
+   * @param image     the image to store
+   * @return true if the image was stored; false if the name held another image, in which case the
+   *         image is left to the caller
+   */
+  boolean replaceImage(String imageName, ImageInterface expected, ImageInterface image);
+
+  /**
+   * Removes an image from the store, releasing the memory it holds. Removing a name which is not
+   * stored has no effect.
+   *
+   * @param imageName the name of the image to remove
+   */
+  void removeImage(String imageName);
+
+  /**
+   * Retrieves the description of an operation, telling which images it reads and writes and which
+   * pixels its results depend on.
+   *
+   * @param commandName the name of the operation
+   * @return the description, or null if no operation has that name
+   */
+  OperationInfo getOperationInfo(String commandName);
+
+  /**
+   * Returns the descriptions of all operations the model can run.
+   *
+   * @return the operations
+   */
+  List<OperationInfo> getOperations();
+}
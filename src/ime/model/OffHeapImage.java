@@ -0,0 +1,486 @@
+package ime.model;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents an image stored outside the Java heap, as packed ARGB values in direct buffers. The
+ * garbage collector neither counts nor scans its pixels, and the image is not bound by the size of
+ * a Java array: rows are spread over buffers of at most a gigabyte each, so an image may hold
+ * billions of pixels, as far as {@code -XX:MaxDirectMemorySize} allows.
+ *
+ * <p>The memory is reference counted and copied on write, like the planes of a
+ * {@link PlanarImage}, and is freed as soon as its last image is released, rather than whenever
+ * the garbage collector finds the buffers unreachable. An image must not be used after it is
+ * released.</p>
+ */
+class OffHeapImage extends AbstractImage {
+
+  private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+  private final int height;
+  private final int width;
+  private Memory memory;
+
+  /**
+   * Constructs an image of the given dimensions with every pixel transparent black.
+   *
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @throws IllegalArgumentException if a dimension is not positive, or a row does not fit in a
+   *                                  buffer
+   */
+  OffHeapImage(int height, int width) {
+    this(height, width, Memory.allocate(height, width));
+  }
+
+  private OffHeapImage(int height, int width, Memory memory) {
+    this.height = height;
+    this.width = width;
+    this.memory = memory;
+  }
+
+  /**
+   * Returns an off-heap image with the same pixels. An off-heap image has its memory shared; any
+   * other image is copied a row at a time.
+   *
+   * @param image the image to copy
+   * @return an off-heap image with the same pixels
+   */
+  static OffHeapImage of(ImageInterface image) {
+    return derive(image, 0);
+  }
+
+  /**
+   * Maps an image from a file holding its pixels as little-endian packed ARGB values in row-major
+   * order. Pixels are read from the file as they are used, and the first write to the image copies
+   * them into memory of its own. The file must not be truncated while the image is in use.
+   *
+   * @param file   the open file
+   * @param offset the position of the first pixel in the file
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @return the mapped image
+   * @throws IOException if the file could not be mapped
+   */
+  static OffHeapImage map(FileChannel file, long offset, int height, int width)
+      throws IOException {
+    return new OffHeapImage(height, width, Memory.map(file, offset, height, width));
+  }
+
+  /**
+   * Creates the result image of an operation which only rewrites the columns to the left of
+   * {@code changedColumns}, copying the other columns from the source. An off-heap source with no
+   * changed columns has its memory shared instead.
+   *
+   * @param source         the image the operation reads from
+   * @param changedColumns the number of leading columns the operation will overwrite
+   * @return a new off-heap image holding the unchanged columns of the source
+   */
+  static OffHeapImage derive(ImageInterface source, int changedColumns) {
+    if (source instanceof OffHeapImage && changedColumns <= 0) {
+      OffHeapImage offHeap = (OffHeapImage) source;
+      return new OffHeapImage(offHeap.height, offHeap.width, offHeap.memory().retain());
+    }
+    OffHeapImage result = new OffHeapImage(source.getHeight(), source.getWidth());
+    int first = Math.max(0, changedColumns);
+    if (first < result.width) {
+      int[] row = new int[result.width];
+      for (int y = 0; y < result.height; y++) {
+        if (source instanceof OffHeapImage) {
+          ((OffHeapImage) source).readRow(y, row, result.width);
+        } else {
+          for (int x = first; x < result.width; x++) {
+            PixelInterface pixel = source.getPixel(y, x);
+            row[x] = (pixel.getA() & 0xFF) << 24 | (pixel.getR() & 0xFF) << 16
+                | (pixel.getG() & 0xFF) << 8 | (pixel.getB() & 0xFF);
+          }
+        }
+        result.memory.write(y, first, row, first, result.width - first);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public PixelInterface getPixel(int idx1, int idx2) {
+    int argb = getArgb(idx1, idx2);
+    return new Pixel((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24) & 0xFF);
+  }
+
+  /**
+   * Retrieves the packed ARGB value of the pixel at the specified coordinates.
+   *
+   * @param idx1 the row index of the pixel
+   * @param idx2 the column index of the pixel
+   * @return the pixel as 0xAARRGGBB
+   * @throws IndexOutOfBoundsException if the indices are out of the image bounds
+   */
+  int getArgb(int idx1, int idx2) {
+    checkBounds(idx1, idx2);
+    return memory().get(idx1, idx2);
+  }
+
+  @Override
+  public void updatePixel(int idx1, int idx2, PixelInterface newPixelValue) {
+    setArgb(idx1, idx2, ((newPixelValue.getA() & 0xFF) << 24)
+        | ((newPixelValue.getR() & 0xFF) << 16)
+        | ((newPixelValue.getG() & 0xFF) << 8)
+        | (newPixelValue.getB() & 0xFF));
+  }
+
+  /**
+   * Updates the pixel at the specified coordinates, copying the memory first if it is shared.
+   *
+   * @param idx1 the row index of the pixel
+   * @param idx2 the column index of the pixel
+   * @param argb the new pixel as 0xAARRGGBB
+   * @throws IndexOutOfBoundsException if the indices are out of the image bounds
+   */
+  void setArgb(int idx1, int idx2, int argb) {
+    checkBounds(idx1, idx2);
+    writableMemory().set(idx1, idx2, argb);
+  }
+
+  /**
+   * Copies the leading pixels of a row into an array.
+   *
+   * @param idx1   the row index
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to copy
+   * @throws IndexOutOfBoundsException if the row or length are out of the image bounds
+   */
+  void readRow(int idx1, int[] argb, int length) {
+    readRow(idx1, 0, argb, length);
+  }
+
+  /**
+   * Copies a run of consecutive pixels of a row into the start of an array.
+   *
+   * @param idx1   the row index
+   * @param idx2   the column index of the first pixel
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of pixels to copy
+   * @throws IndexOutOfBoundsException if the run is out of the image bounds
+   */
+  void readRow(int idx1, int idx2, int[] argb, int length) {
+    if (length > 0) {
+      checkBounds(idx1, idx2);
+      checkBounds(idx1, idx2 + length - 1);
+    }
+    memory().read(idx1, idx2, argb, length);
+  }
+
+  /**
+   * Updates the leading pixels of a row from an array, copying the memory first if it is shared.
+   *
+   * @param idx1   the row index
+   * @param argb   the new pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to update
+   * @throws IndexOutOfBoundsException if the row or length are out of the image bounds
+   */
+  void writeRow(int idx1, int[] argb, int length) {
+    checkRun(idx1, length);
+    writableMemory().write(idx1, 0, argb, 0, length);
+  }
+
+  /**
+   * Writes the pixels to a channel as little-endian packed ARGB values in row-major order, straight
+   * from off-heap memory.
+   *
+   * @param channel the channel to write to
+   * @throws IOException if the channel could not be written
+   */
+  void writeTo(WritableByteChannel channel) throws IOException {
+    memory().writeTo(channel);
+  }
+
+  private void checkRun(int idx1, int length) {
+    if (length > 0) {
+      checkBounds(idx1, length - 1);
+    }
+  }
+
+  private Memory memory() {
+    if (memory == null) {
+      throw new IllegalStateException("Image was released");
+    }
+    return memory;
+  }
+
+  /**
+   * Returns the memory of this image, copying it first if another image shares it or it is mapped
+   * from a file.
+   *
+   * @return memory this image may write to
+   */
+  private Memory writableMemory() {
+    Memory current = memory();
+    if (current.isShared() || current.isReadOnly()) {
+      Memory copy = current.copy();
+      current.release();
+      memory = copy;
+      return copy;
+    }
+    return current;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void imageFill(PixelInterface[][] pixelArray) {
+    if (pixelArray.length != height || pixelArray[0].length != width) {
+      throw new IllegalArgumentException("Pixel array does not match the image dimensions");
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        updatePixel(y, x, pixelArray[y][x]);
+      }
+    }
+  }
+
+  @Override
+  long contentHash() {
+    return ContentHash.finish(ContentHash.mix(ContentHash.start(-2, height, width),
+        memory().contentHash()));
+  }
+
+  /**
+   * Drops this image's reference to its memory, freeing the memory if no other image shares it.
+   * Releasing an image twice has no further effect.
+   */
+  @Override
+  public void release() {
+    if (memory != null) {
+      memory.release();
+      memory = null;
+    }
+  }
+
+  /**
+   * The pixels of one or more off-heap images, as buffers of whole rows. Each image holding the
+   * memory counts as one reference, and the last release frees the buffers.
+   */
+  private static final class Memory {
+
+    // sun.misc.Unsafe and its invokeCleaner method, which frees a direct buffer immediately, or
+    // null where they are not available and buffers are freed once they are garbage collected
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+      Object unsafe = null;
+      Method invokeCleaner = null;
+      try {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field field = unsafeClass.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        unsafe = field.get(null);
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        invokeCleaner = null;
+      }
+      UNSAFE = unsafe;
+      INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final int width;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] buffers;
+    // Integer views of the buffers, in the byte order of each buffer
+    private final IntBuffer[] chunks;
+    private final AtomicInteger references;
+    // Content hash of the pixels, valid while hashed is true, which publishes it to other threads
+    private long hash;
+    private volatile boolean hashed;
+
+    private Memory(int height, int width) {
+      if (height <= 0 || width <= 0) {
+        throw new IllegalArgumentException("Image dimensions must be positive");
+      }
+      if (width > MAX_CHUNK_BYTES / Integer.BYTES) {
+        throw new IllegalArgumentException("Image rows are too wide: " + width);
+      }
+      this.width = width;
+      this.rowsPerChunk = MAX_CHUNK_BYTES / Integer.BYTES / width;
+      int chunkCount = (int) ((height + (long) rowsPerChunk - 1) / rowsPerChunk);
+      this.buffers = new ByteBuffer[chunkCount];
+      this.chunks = new IntBuffer[chunkCount];
+      this.references = new AtomicInteger(1);
+    }
+
+    /**
+     * Allocates zero-filled memory for the pixels of an image.
+     */
+    static Memory allocate(int height, int width) {
+      Memory memory = new Memory(height, width);
+      for (int chunk = 0; chunk < memory.buffers.length; chunk++) {
+        memory.setChunk(chunk, ByteBuffer.allocateDirect(memory.chunkBytes(chunk, height))
+            .order(ByteOrder.nativeOrder()));
+      }
+      return memory;
+    }
+
+    /**
+     * Maps the pixels of an image from a file, as little-endian packed ARGB values in row-major
+     * order. The mapping is read-only, so an image writing to it copies it first.
+     */
+    static Memory map(FileChannel file, long offset, int height, int width) throws IOException {
+      Memory memory = new Memory(height, width);
+      try {
+        long position = offset;
+        for (int chunk = 0; chunk < memory.buffers.length; chunk++) {
+          int bytes = memory.chunkBytes(chunk, height);
+          memory.setChunk(chunk, file.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+              .order(ByteOrder.LITTLE_ENDIAN));
+          position += bytes;
+        }
+      } catch (IOException | RuntimeException e) {
+        memory.release();
+        throw e;
+      }
+      return memory;
+    }
+
+    private int chunkBytes(int chunk, int height) {
+      return Math.min(rowsPerChunk, height - chunk * rowsPerChunk) * width * Integer.BYTES;
+    }
+
+    private void setChunk(int chunk, ByteBuffer buffer) {
+      buffers[chunk] = buffer;
+      chunks[chunk] = buffer.asIntBuffer();
+    }
+
+    int get(int y, int x) {
+      return chunks[y / rowsPerChunk].get((y % rowsPerChunk) * width + x);
+    }
+
+    void set(int y, int x, int argb) {
+      chunks[y / rowsPerChunk].put((y % rowsPerChunk) * width + x, argb);
+      if (hashed) {
+        hashed = false;
+      }
+    }
+
+    void read(int y, int x, int[] argb, int length) {
+      IntBuffer chunk = chunks[y / rowsPerChunk].duplicate();
+      chunk.position((y % rowsPerChunk) * width + x);
+      chunk.get(argb, 0, length);
+    }
+
+    void write(int y, int x, int[] argb, int from, int length) {
+      IntBuffer chunk = chunks[y / rowsPerChunk].duplicate();
+      chunk.position((y % rowsPerChunk) * width + x);
+      chunk.put(argb, from, length);
+      if (hashed) {
+        hashed = false;
+      }
+    }
+
+    long contentHash() {
+      if (!hashed) {
+        long rowHashes = ContentHash.start(0, chunks.length, width);
+        int[] row = new int[width];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+          int rows = chunks[chunk].capacity() / width;
+          for (int y = 0; y < rows; y++) {
+            read(chunk * rowsPerChunk + y, 0, row, width);
+            rowHashes = ContentHash.mix(rowHashes, ContentHash.of(row));
+          }
+        }
+        hash = ContentHash.finish(rowHashes);
+        hashed = true;
+      }
+      return hash;
+    }
+
+    Memory retain() {
+      references.incrementAndGet();
+      return this;
+    }
+
+    boolean isShared() {
+      return references.get() > 1;
+    }
+
+    boolean isReadOnly() {
+      return buffers[0].isReadOnly();
+    }
+
+    Memory copy() {
+      int height = 0;
+      for (IntBuffer chunk : chunks) {
+        height += chunk.capacity() / width;
+      }
+      Memory copy = allocate(height, width);
+      for (int chunk = 0; chunk < chunks.length; chunk++) {
+        // Copied as ints, which converts mapped little-endian pixels to the native byte order
+        copy.chunks[chunk].duplicate().put(chunks[chunk].duplicate().clear());
+      }
+      copy.hash = hash;
+      copy.hashed = hashed;
+      return copy;
+    }
+
+    /**
+     * Writes the pixels to a channel as little-endian packed ARGB values in row-major order,
+     * straight from the buffers when they are in that byte order.
+     */
+    void writeTo(WritableByteChannel channel) throws IOException {
+      ByteBuffer row = null;
+      for (int chunk = 0; chunk < buffers.length; chunk++) {
+        if (buffers[chunk].order() == ByteOrder.LITTLE_ENDIAN) {
+          writeFully(channel, buffers[chunk].duplicate().clear());
+          continue;
+        }
+        if (row == null) {
+          row = ByteBuffer.allocateDirect(width * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        IntBuffer pixels = chunks[chunk].duplicate();
+        while (pixels.hasRemaining()) {
+          row.clear();
+          row.asIntBuffer().put(pixels.slice().limit(width));
+          pixels.position(pixels.position() + width);
+          writeFully(channel, row);
+        }
+      }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer)
+        throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    void release() {
+      if (references.decrementAndGet() == 0 && INVOKE_CLEANER != null) {
+        for (ByteBuffer buffer : buffers) {
+          if (buffer == null) {
+            continue;
+          }
+          try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+          } catch (ReflectiveOperationException e) {
+            // Left to the garbage collector
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package ime.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Describes an operation the model can run: its command name, which input pixels each output pixel
+ * depends on, whether it can be previewed on part of the image with {@code split}, and the
+ * arguments it takes after the command name. Planners use it to tell which images a command reads
+ * and writes without running it.
+ */
+public final class OperationInfo {
+
+  private final String name;
+  private final OperationKind kind;
+  private final int radius;
+  private final boolean supportsSplit;
+  private final List<OperationParameter> parameters;
+
+  /**
+   * Constructs the description of an operation.
+   *
+   * @param name          the command name
+   * @param kind          which input pixels each output pixel depends on
+   * @param radius        for a neighborhood operation, the distance in pixels up to which input
+   *                      pixels are read around each output pixel; 0 otherwise
+   * @param supportsSplit whether the operation accepts a trailing {@code split <percent>}
+   * @param parameters    the arguments following the command name, in order
+   * @throws IllegalArgumentException if the radius is negative, or non-zero for an operation which
+   *                                  is not a neighborhood operation
+   */
+  public OperationInfo(String name, OperationKind kind, int radius, boolean supportsSplit,
+      List<OperationParameter> parameters) {
+    if (radius < 0 || (radius != 0 && kind != OperationKind.NEIGHBORHOOD)) {
+      throw new IllegalArgumentException("Only neighborhood operations have a radius");
+    }
+    this.name = Objects.requireNonNull(name);
+    this.kind = Objects.requireNonNull(kind);
+    this.radius = radius;
+    this.supportsSplit = supportsSplit;
+    this.parameters = List.copyOf(parameters);
+  }
+
+  /**
+   * Returns the command name of the operation.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns which input pixels each output pixel depends on.
+   *
+   * @return the kind of operation
+   */
+  public OperationKind getKind() {
+    return kind;
+  }
+
+  /**
+   * Tells whether each output pixel depends only on the input pixel at the same position.
+   *
+   * @return true for a pointwise operation
+   */
+  public boolean isPointwise() {
+    return kind == OperationKind.POINTWISE;
+  }
+
+  /**
+   * Tells whether each output pixel depends on the input pixels within {@link #getRadius()}.
+   *
+   * @return true for a neighborhood operation
+   */
+  public boolean isNeighborhood() {
+    return kind == OperationKind.NEIGHBORHOOD;
+  }
+
+  /**
+   * Returns how far around each output pixel a neighborhood operation reads.
+   *
+   * @return the radius in pixels, 0 for operations which are not neighborhood operations
+   */
+  public int getRadius() {
+    return radius;
+  }
+
+  /**
+   * Tells whether the operation accepts a trailing {@code split <percent>}.
+   *
+   * @return true if the operation supports split previews
+   */
+  public boolean supportsSplit() {
+    return supportsSplit;
+  }
+
+  /**
+   * Returns the arguments the operation takes after its command name, without the optional split.
+   *
+   * @return an unmodifiable list of the parameters
+   */
+  public List<OperationParameter> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Returns the positions, in a command's tokens, of the names of the images it reads.
+   *
+   * @return the token indices, counting the command name as 0
+   */
+  public List<Integer> getInputPositions() {
+    return positionsOf(OperationParameter.Role.INPUT_IMAGE);
+  }
+
+  /**
+   * Returns the positions, in a command's tokens, of the names of the images it stores.
+   *
+   * @return the token indices, counting the command name as 0
+   */
+  public List<Integer> getOutputPositions() {
+    return positionsOf(OperationParameter.Role.OUTPUT_IMAGE);
+  }
+
+  private List<Integer> positionsOf(OperationParameter.Role role) {
+    List<Integer> positions = new ArrayList<>();
+    for (int index = 0; index < parameters.size(); index++) {
+      if (parameters.get(index).getRole() == role) {
+        positions.add(index + 1);
+      }
+    }
+    return Collections.unmodifiableList(positions);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder usage = new StringBuilder(name);
+    for (OperationParameter parameter : parameters) {
+      usage.append(" <").append(parameter.getName()).append('>');
+    }
+    if (supportsSplit) {
+      usage.append(" [split <percent>]");
+    }
+    return usage.toString();
+  }
+}
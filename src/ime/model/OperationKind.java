@@ -0,0 +1,28 @@
+package ime.model;
+
+/**
+ * Classifies operations by the pixels each output pixel depends on, which tells a scheduler how an
+ * operation can be split up or fused with others.
+ */
+public enum OperationKind {
+
+  /**
+   * Each output pixel depends only on the input pixel at the same position.
+   */
+  POINTWISE,
+
+  /**
+   * Each output pixel depends on the input pixels within a fixed radius of its position.
+   */
+  NEIGHBORHOOD,
+
+  /**
+   * Output pixels are input pixels, or blends of a few of them, moved to new positions.
+   */
+  GEOMETRIC,
+
+  /**
+   * Output pixels may depend on any pixel of the input.
+   */
+  GLOBAL
+}
@@ -0,0 +1,106 @@
+package ime.model;
+
+import java.util.Objects;
+
+/**
+ * Describes one positional argument of an operation: its name and whether it is a plain value, the
+ * name of an image the operation reads, or the name under which it stores a result.
+ */
+public final class OperationParameter {
+
+  /**
+   * The part a parameter plays in an operation.
+   */
+  public enum Role {
+    /**
+     * A number or other value configuring the operation.
+     */
+    VALUE,
+    /**
+     * The name of a stored image the operation reads.
+     */
+    INPUT_IMAGE,
+    /**
+     * The name under which the operation stores an image it produces.
+     */
+    OUTPUT_IMAGE
+  }
+
+  private final String name;
+  private final Role role;
+
+  private OperationParameter(String name, Role role) {
+    this.name = Objects.requireNonNull(name);
+    this.role = Objects.requireNonNull(role);
+  }
+
+  /**
+   * Creates a value parameter.
+   *
+   * @param name the parameter name
+   * @return the parameter
+   */
+  public static OperationParameter value(String name) {
+    return new OperationParameter(name, Role.VALUE);
+  }
+
+  /**
+   * Creates a parameter naming an image the operation reads.
+   *
+   * @param name the parameter name
+   * @return the parameter
+   */
+  public static OperationParameter input(String name) {
+    return new OperationParameter(name, Role.INPUT_IMAGE);
+  }
+
+  /**
+   * Creates a parameter naming an image the operation stores.
+   *
+   * @param name the parameter name
+   * @return the parameter
+   */
+  public static OperationParameter output(String name) {
+    return new OperationParameter(name, Role.OUTPUT_IMAGE);
+  }
+
+  /**
+   * Returns the name of the parameter.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the part the parameter plays in the operation.
+   *
+   * @return the role
+   */
+  public Role getRole() {
+    return role;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof OperationParameter)) {
+      return false;
+    }
+    OperationParameter other = (OperationParameter) o;
+    return name.equals(other.name) && role == other.role;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, role);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
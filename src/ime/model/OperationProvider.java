@@ -0,0 +1,29 @@
+package ime.model;
+
+import java.util.List;
+
+/**
+ * A service supplying operations to the model. Implementations listed in
+ * {@code META-INF/services/ime.model.OperationProvider} on the class path are found with
+ * {@link java.util.ServiceLoader} and registered alongside the built-in operations when a model is
+ * created, so new filters can be added without changing the model.
+ */
+public interface OperationProvider {
+
+  /**
+   * Returns the descriptions of the operations this provider supplies.
+   *
+   * @return the operations
+   */
+  List<OperationInfo> getOperations();
+
+  /**
+   * Creates the filter running one of this provider's operations on a model. The model keeps the
+   * filter and reuses it for every command, so it must not hold state between executions.
+   *
+   * @param name  the name of one of the operations from {@link #getOperations()}
+   * @param model the model the filter reads its images from and stores its results in
+   * @return the filter
+   */
+  Filters createFilter(String name, ModelInterface model);
+}
@@ -1,57 +1,70 @@
 package ime.model;
 
-import ime.CommandConstants;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 
 /**
  * The OperationsFactory class is responsible for creating and managing image processing operations.
  * It uses the Factory pattern to instantiate different filter objects based on command strings.
+ *
+ * <p>A model builds its factory once and reuses it for every command. The factory registers the
+ * built-in operations, then those of every {@link OperationProvider} found by
+ * {@link ServiceLoader}, and keeps each operation's {@link OperationInfo} for planners to
+ * query.</p>
  */
 class OperationsFactory {
 
   private final Map<String, Filters> commandActions;
+  private final Map<String, OperationInfo> operations;
 
   /**
    * Constructs an OperationsFactory with a given model. Initializes all supported image processing
    * operations.
    *
    * @param model the ModelInterface instance to be used by the filters
+   * @throws IllegalArgumentException if two providers supply operations with the same name
    */
   OperationsFactory(ModelInterface model) {
-    this.commandActions = new HashMap<>();
-    initializeModelCommands(model);
+    this(model, ServiceLoader.load(OperationProvider.class));
   }
 
   /**
-   * Initializes all supported image processing operations. Each operation is associated with a
-   * command constant and its corresponding filter object.
+   * Constructs an OperationsFactory with the built-in operations and those of the given providers.
    *
-   * @param model the ModelInterface instance to be passed to each filter constructor
+   * @param model     the ModelInterface instance to be used by the filters
+   * @param providers the providers of further operations
+   * @throws IllegalArgumentException if two providers supply operations with the same name
    */
-  private void initializeModelCommands(ModelInterface model) {
-    commandActions.put(CommandConstants.BRIGHTEN, new BrightenFilter(model));
-    commandActions.put(CommandConstants.VERTICAL_FLIP, new VerticalFlipFilter(model));
-    commandActions.put(CommandConstants.HORIZONTAL_FLIP, new HorizontalFlipFilter(model));
-    commandActions.put(CommandConstants.SEPIA, new SepiaFilter(model));
-    commandActions.put(CommandConstants.BLUR, new BlurFilter(model));
-    commandActions.put(CommandConstants.SHARPEN, new SharpenFilter(model));
-    commandActions.put(CommandConstants.RGB_SPLIT, new RGBSplitFilter(model));
-    commandActions.put(CommandConstants.RGB_COMBINE, new RGBCombineFilter(model));
-    commandActions.put(CommandConstants.RED_COMPONENT, new RedComponentFilter(model));
-    commandActions.put(CommandConstants.GREEN_COMPONENT, new GreenComponentFilter(model));
-    commandActions.put(CommandConstants.BLUE_COMPONENT, new BlueComponentFilter(model));
-    commandActions.put(CommandConstants.LUMA_COMPONENT, new LumaFilter(model));
-    commandActions.put(CommandConstants.INTENSITY_COMPONENT, new IntensityFilter(model));
-    commandActions.put(CommandConstants.VALUE_COMPONENT, new ValueFilter(model));
-    commandActions.put(CommandConstants.HISTOGRAM, new HistogramFilter(model));
-    commandActions.put(CommandConstants.COLOR_CORRECT, new ColorCorrectFilter(model));
-    commandActions.put(CommandConstants.LEVELS_ADJUST, new LevelsAdjustFilter(model));
-    commandActions.put(CommandConstants.COMPRESS, new Compress(model));
-    commandActions.put(CommandConstants.DOWNSCALE, new ImageDownscaling(model));
+  OperationsFactory(ModelInterface model, Iterable<OperationProvider> providers) {
+    this.commandActions = new HashMap<>();
+    this.operations = new LinkedHashMap<>();
+    register(new BuiltInOperations(), model);
+    for (OperationProvider provider : providers) {
+      register(provider, model);
+    }
+  }
 
-    // Adds the ImageDither filter to the commandActions map with the DITHER command constant
-    commandActions.put(CommandConstants.DITHER, new ImageDither(model));
+  /**
+   * Registers every operation of a provider, each associated with a filter object bound to the
+   * model.
+   *
+   * @param provider the provider of the operations
+   * @param model    the ModelInterface instance to be passed to each filter
+   */
+  private void register(OperationProvider provider, ModelInterface model) {
+    for (OperationInfo operation : provider.getOperations()) {
+      if (operations.containsKey(operation.getName())) {
+        throw new IllegalArgumentException("Operation already registered: "
+            + operation.getName());
+      }
+      operations.put(operation.getName(), operation);
+      commandActions.put(operation.getName(), provider.createFilter(operation.getName(), model));
+    }
   }
 
   /**
@@ -73,4 +86,23 @@ class OperationsFactory {
   protected Boolean commandExists(String command) {
     return commandActions.containsKey(command);
   }
-}
\ No newline at end of file
+
+  /**
+   * Retrieves the description of the operation associated with the given command.
+   *
+   * @param command the string representation of the command
+   * @return the description, or null if the command is not found
+   */
+  OperationInfo getOperationInfo(String command) {
+    return operations.get(command);
+  }
+
+  /**
+   * Returns the descriptions of all registered operations, built-in ones first.
+   *
+   * @return an unmodifiable list of the operations
+   */
+  List<OperationInfo> getOperations() {
+    return Collections.unmodifiableList(new ArrayList<>(operations.values()));
+  }
+}
@@ -0,0 +1,207 @@
+package ime.model;
+
+import static ime.model.ImageChannelConstants.ALPHA;
+import static ime.model.ImageChannelConstants.BLUE;
+import static ime.model.ImageChannelConstants.GREEN;
+import static ime.model.ImageChannelConstants.RED;
+
+import java.util.List;
+
+/**
+ * Represents an image stored as one plane of values per channel. Planes are reference counted and
+ * copied on write, which makes channel manipulation nearly free: a single channel can be pulled out
+ * as a grayscale image by pointing its red, green and blue slots at the same plane, and channels of
+ * different images can be assembled into a new image without reading a single pixel.
+ */
+class PlanarImage extends AbstractImage {
+
+  private static final List<String> CHANNELS = ImageChannelConstants.getAllChannels();
+
+  private final int height;
+  private final int width;
+  // Indexed in the order of ImageChannelConstants.getAllChannels
+  private final ChannelPlane[] planes;
+
+  /**
+   * Constructs an image of the given dimensions, with every channel zero.
+   *
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   */
+  PlanarImage(int height, int width) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    this.height = height;
+    this.width = width;
+    this.planes = new ChannelPlane[CHANNELS.size()];
+    for (int channel = 0; channel < planes.length; channel++) {
+      planes[channel] = new ChannelPlane(height * width);
+    }
+  }
+
+  /**
+   * Constructs an image from existing planes, taking a reference to each of them.
+   */
+  private PlanarImage(int height, int width, ChannelPlane red, ChannelPlane green,
+      ChannelPlane blue, ChannelPlane alpha) {
+    this.height = height;
+    this.width = width;
+    this.planes = new ChannelPlane[]{red.retain(), green.retain(), blue.retain(), alpha.retain()};
+  }
+
+  /**
+   * Returns an image with the same pixels in planar layout. A planar image has its planes shared;
+   * any other image is converted in a single pass over its pixels.
+   *
+   * @param image the image to convert
+   * @return a planar image with the same pixels
+   */
+  static PlanarImage of(ImageInterface image) {
+    if (image instanceof PlanarImage) {
+      PlanarImage planar = (PlanarImage) image;
+      return new PlanarImage(planar.height, planar.width, planar.planes[0], planar.planes[1],
+          planar.planes[2], planar.planes[3]);
+    }
+    PlanarImage result = new PlanarImage(image.getHeight(), image.getWidth());
+    TiledImage tiled = image instanceof TiledImage ? (TiledImage) image : null;
+    int offset = 0;
+    for (int y = 0; y < result.height; y++) {
+      for (int x = 0; x < result.width; x++) {
+        if (tiled != null) {
+          int argb = tiled.getArgb(y, x);
+          result.planes[0].set(offset, (argb >> 16) & 0xFF);
+          result.planes[1].set(offset, (argb >> 8) & 0xFF);
+          result.planes[2].set(offset, argb & 0xFF);
+          result.planes[3].set(offset, (argb >>> 24) & 0xFF);
+        } else {
+          PixelInterface pixel = image.getPixel(y, x);
+          result.planes[0].set(offset, pixel.getR());
+          result.planes[1].set(offset, pixel.getG());
+          result.planes[2].set(offset, pixel.getB());
+          result.planes[3].set(offset, pixel.getA());
+        }
+        offset++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Assembles an image from the red channel of one image, the green channel of another and the
+   * blue channel of a third, taking alpha from the first. The planes are shared, not copied.
+   *
+   * @param red   the image supplying the red and alpha channels
+   * @param green the image supplying the green channel
+   * @param blue  the image supplying the blue channel
+   * @return the combined image
+   * @throws IllegalArgumentException if the images do not have the same dimensions
+   */
+  static PlanarImage combine(PlanarImage red, PlanarImage green, PlanarImage blue) {
+    if (red.height != green.height || red.height != blue.height
+        || red.width != green.width || red.width != blue.width) {
+      throw new IllegalArgumentException("Images to combine must have the same dimensions");
+    }
+    return new PlanarImage(red.height, red.width, red.getPlane(RED), green.getPlane(GREEN),
+        blue.getPlane(BLUE), red.getPlane(ALPHA));
+  }
+
+  /**
+   * Returns a grayscale image of one channel of this image, keeping this image's alpha. The
+   * channel's plane is shared by the red, green and blue channels of the result.
+   *
+   * @param channel the channel, one of the {@link ImageChannelConstants} color channels
+   * @return the grayscale image
+   */
+  PlanarImage channel(String channel) {
+    ChannelPlane plane = getPlane(channel);
+    return new PlanarImage(height, width, plane, plane, plane, getPlane(ALPHA));
+  }
+
+  /**
+   * Returns the plane backing a channel. Callers must not write to it.
+   *
+   * @param channel the channel, one of the {@link ImageChannelConstants}
+   * @return the plane
+   */
+  ChannelPlane getPlane(String channel) {
+    int index = CHANNELS.indexOf(channel);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown channel: " + channel);
+    }
+    return planes[index];
+  }
+
+  @Override
+  public PixelInterface getPixel(int idx1, int idx2) {
+    checkBounds(idx1, idx2);
+    int offset = idx1 * width + idx2;
+    return new Pixel(planes[0].get(offset), planes[1].get(offset), planes[2].get(offset),
+        planes[3].get(offset));
+  }
+
+  @Override
+  public void updatePixel(int idx1, int idx2, PixelInterface newPixelValue) {
+    checkBounds(idx1, idx2);
+    int offset = idx1 * width + idx2;
+    writablePlane(0).set(offset, newPixelValue.getR());
+    writablePlane(1).set(offset, newPixelValue.getG());
+    writablePlane(2).set(offset, newPixelValue.getB());
+    writablePlane(3).set(offset, newPixelValue.getA());
+  }
+
+  /**
+   * Returns the plane of a channel, copying it first if any other slot references it.
+   *
+   * @param channel the channel index
+   * @return a plane this image may write to
+   */
+  private ChannelPlane writablePlane(int channel) {
+    ChannelPlane plane = planes[channel];
+    if (plane.isShared()) {
+      ChannelPlane copy = plane.copy();
+      plane.release();
+      planes[channel] = copy;
+      return copy;
+    }
+    return plane;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void imageFill(PixelInterface[][] pixelArray) {
+    if (pixelArray.length != height || pixelArray[0].length != width) {
+      throw new IllegalArgumentException("Pixel array does not match the image dimensions");
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        updatePixel(y, x, pixelArray[y][x]);
+      }
+    }
+  }
+
+  @Override
+  long contentHash() {
+    long hash = ContentHash.start(CHANNELS.size(), height, width);
+    for (ChannelPlane plane : planes) {
+      hash = ContentHash.mix(hash, plane.contentHash());
+    }
+    return ContentHash.finish(hash);
+  }
+
+  @Override
+  public void release() {
+    for (ChannelPlane plane : planes) {
+      plane.release();
+    }
+  }
+}
@@ -0,0 +1,464 @@
+package ime.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The QOI ("Quite OK Image") format, a lossless format for intermediate images which encodes and
+ * decodes many times faster than PNG at a similar size. A file is a 14 byte header, a stream of
+ * one to five byte chunks each giving one pixel or a run of pixels as a difference from the
+ * previous pixel or a reference into a table of recently seen ones, and an 8 byte end marker:
+ *
+ * <pre>
+ *   offset 0   the magic bytes "qoif"
+ *   offset 4   the width in pixels, as a big-endian 32-bit value
+ *   offset 8   the height in pixels, as a big-endian 32-bit value
+ *   offset 12  the channels, 3 for RGB or 4 for RGBA
+ *   offset 13  the color space, 0 for sRGB with linear alpha or 1 for all channels linear
+ * </pre>
+ *
+ * <p>The codec works a row of packed ARGB values at a time through an {@link Encoder} and a
+ * {@link Decoder}, which buffer their bytes themselves and allocate nothing per pixel. Saving reads
+ * the rows of a stored image in bulk, and loading writes the decoded rows straight into a tiled
+ * image, so no other copy of the image is made.</p>
+ */
+public final class QoiImageFormat {
+
+  /**
+   * The file extension of the format.
+   */
+  public static final String EXTENSION = "qoi";
+
+  private static final int MAGIC = 'q' << 24 | 'o' << 16 | 'i' << 8 | 'f';
+  private static final int HEADER_BYTES = 14;
+  private static final int END_MARKER_BYTES = 8;
+  private static final int OP_INDEX = 0x00;
+  private static final int OP_DIFF = 0x40;
+  private static final int OP_LUMA = 0x80;
+  private static final int OP_RUN = 0xC0;
+  private static final int OP_RGB = 0xFE;
+  private static final int OP_RGBA = 0xFF;
+  private static final int MASK = 0xC0;
+  private static final int MAX_RUN = 62;
+  // The format's limit, which keeps the decoded size of any valid file within reach
+  private static final long MAX_PIXELS = 400_000_000L;
+  private static final int BUFFER_BYTES = 64 * 1024;
+  private static final int OPAQUE_BLACK = 0xFF000000;
+
+  private QoiImageFormat() {
+  }
+
+  /**
+   * Tells whether a path names a file of this format, by its extension.
+   *
+   * @param path the file path
+   * @return true if the path ends with {@code .qoi}, in any case
+   */
+  public static boolean isQoi(String path) {
+    int lastDot = path.lastIndexOf('.');
+    return lastDot >= 0 && path.substring(lastDot + 1).equalsIgnoreCase(EXTENSION);
+  }
+
+  /**
+   * Loads an image from a file, and stores it in a model.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   * @param path      the path of the file
+   * @return the header of the file
+   * @throws IOException if the file could not be read, or is not a valid QOI image
+   */
+  public static Header load(ModelInterface model, String imageName, String path)
+      throws IOException {
+    try (Decoder decoder = new Decoder(Files.newInputStream(Paths.get(path)))) {
+      Header header = decoder.getHeader();
+      TiledImage image = new TiledImage(header.getHeight(), header.getWidth());
+      int[] row = new int[header.getWidth()];
+      for (int y = 0; y < header.getHeight(); y++) {
+        decoder.readRow(row, row.length);
+        image.writeRow(y, row, row.length);
+      }
+      model.storeImage(imageName, image);
+      return header;
+    }
+  }
+
+  /**
+   * Saves an image of a model to a file, with an alpha channel. The file is written under a
+   * temporary name and then moved over the target.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @param path      the path of the file
+   * @return the header written
+   * @throws IOException              if the file could not be written
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static Header save(ModelInterface model, String imageName, String path)
+      throws IOException {
+    // Other threads may drop the image from the store meanwhile; it is released once written
+    try (Model.ReadScope scope = Model.reading(model)) {
+      return write(model.getImage(imageName), path);
+    }
+  }
+
+  private static Header write(ImageInterface image, String path) throws IOException {
+    Header header = new Header(image.getWidth(), image.getHeight(), true);
+    Path target = Paths.get(path);
+    Path temporary = target.resolveSibling(target.getFileName() + ".part");
+    try (Encoder encoder = new Encoder(Files.newOutputStream(temporary), header)) {
+      int[] row = new int[image.getWidth()];
+      for (int y = 0; y < image.getHeight(); y++) {
+        ImageTransformation.readRow(image, y, row, row.length);
+        encoder.writeRow(row, row.length);
+      }
+      encoder.finish();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    return header;
+  }
+
+  private static int hash(int argb) {
+    int a = argb >>> 24;
+    int r = (argb >> 16) & 0xFF;
+    int g = (argb >> 8) & 0xFF;
+    int b = argb & 0xFF;
+    return (r * 3 + g * 5 + b * 7 + a * 11) & 63;
+  }
+
+  /**
+   * The header of a QOI file.
+   */
+  public static final class Header {
+
+    private final int width;
+    private final int height;
+    private final boolean alpha;
+
+    /**
+     * Constructs a header.
+     *
+     * @param width  the width of the image in pixels
+     * @param height the height of the image in pixels
+     * @param alpha  true for an image with an alpha channel
+     * @throws IllegalArgumentException if the dimensions are not positive, or the image is larger
+     *                                  than the format allows
+     */
+    public Header(int width, int height, boolean alpha) {
+      if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS) {
+        throw new IllegalArgumentException("Invalid QOI image dimensions: " + width + "x" + height);
+      }
+      this.width = width;
+      this.height = height;
+      this.alpha = alpha;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+      return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+      return height;
+    }
+
+    /**
+     * Tells whether the image has an alpha channel.
+     *
+     * @return true for 4 channels, false for 3
+     */
+    public boolean hasAlpha() {
+      return alpha;
+    }
+  }
+
+  /**
+   * Encodes an image a row at a time into a stream.
+   */
+  public static final class Encoder implements Closeable {
+
+    private final OutputStream out;
+    private final long pixels;
+    private final int[] index = new int[64];
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+    private int previous = OPAQUE_BLACK;
+    private int run;
+    private long written;
+
+    /**
+     * Constructs an encoder, writing the header.
+     *
+     * @param out    the stream to write to, which the encoder closes
+     * @param header the header of the image
+     * @throws IOException if the header could not be written
+     */
+    public Encoder(OutputStream out, Header header) throws IOException {
+      this.out = out;
+      this.pixels = (long) header.getWidth() * header.getHeight();
+      putInt(MAGIC);
+      putInt(header.getWidth());
+      putInt(header.getHeight());
+      buffer[position++] = (byte) (header.hasAlpha() ? 4 : 3);
+      buffer[position++] = 0;
+    }
+
+    /**
+     * Encodes the leading pixels of a row.
+     *
+     * @param argb   the pixels, as 0xAARRGGBB
+     * @param length the number of pixels to encode, the width of the image
+     * @throws IOException           if the stream could not be written
+     * @throws IllegalStateException if more pixels are written than the image has
+     */
+    public void writeRow(int[] argb, int length) throws IOException {
+      if (written + length > pixels) {
+        throw new IllegalStateException("More pixels written than the image has");
+      }
+      for (int x = 0; x < length; x++) {
+        int pixel = argb[x];
+        // A pixel writes at most a run chunk and a five byte chunk
+        if (position > buffer.length - 6) {
+          flush();
+        }
+        if (pixel == previous) {
+          run++;
+          if (run == MAX_RUN) {
+            buffer[position++] = (byte) (OP_RUN | (run - 1));
+            run = 0;
+          }
+          continue;
+        }
+        if (run > 0) {
+          buffer[position++] = (byte) (OP_RUN | (run - 1));
+          run = 0;
+        }
+        int slot = hash(pixel);
+        if (index[slot] == pixel) {
+          buffer[position++] = (byte) (OP_INDEX | slot);
+        } else {
+          index[slot] = pixel;
+          encode(pixel);
+        }
+        previous = pixel;
+      }
+      written += length;
+    }
+
+    private void encode(int pixel) {
+      if ((pixel >>> 24) != (previous >>> 24)) {
+        buffer[position++] = (byte) OP_RGBA;
+        buffer[position++] = (byte) (pixel >> 16);
+        buffer[position++] = (byte) (pixel >> 8);
+        buffer[position++] = (byte) pixel;
+        buffer[position++] = (byte) (pixel >>> 24);
+        return;
+      }
+      int dr = (byte) ((pixel >> 16) - (previous >> 16));
+      int dg = (byte) ((pixel >> 8) - (previous >> 8));
+      int db = (byte) (pixel - previous);
+      int drDg = dr - dg;
+      int dbDg = db - dg;
+      if (dr >= -2 && dr <= 1 && dg >= -2 && dg <= 1 && db >= -2 && db <= 1) {
+        buffer[position++] = (byte) (OP_DIFF | (dr + 2) << 4 | (dg + 2) << 2 | (db + 2));
+      } else if (dg >= -32 && dg <= 31 && drDg >= -8 && drDg <= 7 && dbDg >= -8 && dbDg <= 7) {
+        buffer[position++] = (byte) (OP_LUMA | (dg + 32));
+        buffer[position++] = (byte) ((drDg + 8) << 4 | (dbDg + 8));
+      } else {
+        buffer[position++] = (byte) OP_RGB;
+        buffer[position++] = (byte) (pixel >> 16);
+        buffer[position++] = (byte) (pixel >> 8);
+        buffer[position++] = (byte) pixel;
+      }
+    }
+
+    /**
+     * Ends the image, writing the last run and the end marker.
+     *
+     * @throws IOException           if the stream could not be written
+     * @throws IllegalStateException if fewer pixels were written than the image has
+     */
+    public void finish() throws IOException {
+      if (written != pixels) {
+        throw new IllegalStateException("Fewer pixels written than the image has");
+      }
+      if (run > 0) {
+        buffer[position++] = (byte) (OP_RUN | (run - 1));
+        run = 0;
+      }
+      if (position > buffer.length - END_MARKER_BYTES) {
+        flush();
+      }
+      for (int i = 0; i < END_MARKER_BYTES - 1; i++) {
+        buffer[position++] = 0;
+      }
+      buffer[position++] = 1;
+      flush();
+    }
+
+    private void putInt(int value) {
+      buffer[position++] = (byte) (value >>> 24);
+      buffer[position++] = (byte) (value >>> 16);
+      buffer[position++] = (byte) (value >>> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    private void flush() throws IOException {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Decodes an image a row at a time from a stream.
+   */
+  public static final class Decoder implements Closeable {
+
+    private final InputStream in;
+    private final Header header;
+    private final int[] index = new int[64];
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+    private int limit;
+    private int previous = OPAQUE_BLACK;
+    private int run;
+
+    /**
+     * Constructs a decoder, reading the header.
+     *
+     * @param in the stream to read from, which the decoder closes
+     * @throws IOException if the header could not be read, or is not a valid QOI header
+     */
+    public Decoder(InputStream in) throws IOException {
+      this.in = in;
+      if (getInt() != MAGIC) {
+        throw new IOException("Invalid QOI file format");
+      }
+      int width = getInt();
+      int height = getInt();
+      int channels = get();
+      int colorSpace = get();
+      if ((channels != 3 && channels != 4) || (colorSpace != 0 && colorSpace != 1)) {
+        throw new IOException("Invalid QOI channels " + channels + " or color space "
+            + colorSpace);
+      }
+      try {
+        this.header = new Header(width, height, channels == 4);
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+
+    /**
+     * Returns the header of the image.
+     *
+     * @return the header
+     */
+    public Header getHeader() {
+      return header;
+    }
+
+    /**
+     * Decodes the next row of pixels.
+     *
+     * @param argb   the array receiving the pixels, as 0xAARRGGBB
+     * @param length the number of pixels to decode, the width of the image
+     * @throws IOException if the stream ends early
+     */
+    public void readRow(int[] argb, int length) throws IOException {
+      for (int x = 0; x < length; x++) {
+        if (run > 0) {
+          run--;
+          argb[x] = previous;
+          continue;
+        }
+        int op = get();
+        int pixel;
+        if (op == OP_RGB) {
+          pixel = (previous & 0xFF000000) | get() << 16 | get() << 8 | get();
+        } else if (op == OP_RGBA) {
+          int rgb = get() << 16 | get() << 8 | get();
+          pixel = get() << 24 | rgb;
+        } else {
+          switch (op & MASK) {
+            case OP_INDEX:
+              pixel = index[op];
+              break;
+            case OP_DIFF:
+              pixel = add(previous, ((op >> 4) & 3) - 2, ((op >> 2) & 3) - 2, (op & 3) - 2);
+              break;
+            case OP_LUMA:
+              int dg = (op & 0x3F) - 32;
+              int second = get();
+              pixel = add(previous, dg + (second >> 4) - 8, dg, dg + (second & 0x0F) - 8);
+              break;
+            default:
+              run = op & 0x3F;
+              pixel = previous;
+              break;
+          }
+        }
+        index[hash(pixel)] = pixel;
+        previous = pixel;
+        argb[x] = pixel;
+      }
+    }
+
+    private static int add(int pixel, int dr, int dg, int db) {
+      return (pixel & 0xFF000000)
+          | ((((pixel >> 16) + dr) & 0xFF) << 16)
+          | ((((pixel >> 8) + dg) & 0xFF) << 8)
+          | ((pixel + db) & 0xFF);
+    }
+
+    private int getInt() throws IOException {
+      return get() << 24 | get() << 16 | get() << 8 | get();
+    }
+
+    private int get() throws IOException {
+      if (position == limit) {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          throw new IOException("Invalid QOI file: pixels are truncated");
+        }
+      }
+      return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -31,16 +31,28 @@ public class RGBCombineFilter extends AbstractFilters {
     ImageInterface greenImage = model.getImage(greenImageName);
     ImageInterface blueImage = model.getImage(blueImageName);
 
-    int height = redImage.getHeight();
-    int width = redImage.getWidth();
-    ImageInterface resultImage = new Image(height, width);
     String destImageName = commandTokens.get(1);
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Pixel updatedPixel = new Pixel(redImage.getPixel(i, j).getR(),
-            greenImage.getPixel(i, j).getG(),
-            blueImage.getPixel(i, j).getB(), redImage.getPixel(i, j).getA());
-        resultImage.updatePixel(i, j, updatedPixel);
+    ImageInterface resultImage;
+    if (redImage instanceof PlanarImage && greenImage instanceof PlanarImage
+        && blueImage instanceof PlanarImage) {
+      // Planar components are assembled by sharing their planes, without reading any pixel
+      resultImage = PlanarImage.combine((PlanarImage) redImage, (PlanarImage) greenImage,
+          (PlanarImage) blueImage);
+    } else {
+      int height = redImage.getHeight();
+      int width = redImage.getWidth();
+      if (greenImage.getHeight() != height || blueImage.getHeight() != height
+          || greenImage.getWidth() != width || blueImage.getWidth() != width) {
+        throw new IllegalArgumentException("Images to combine must have the same dimensions");
+      }
+      resultImage = new PlanarImage(height, width);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          PixelInterface redPixel = redImage.getPixel(i, j);
+          Pixel updatedPixel = new Pixel(redPixel.getR(), greenImage.getPixel(i, j).getG(),
+              blueImage.getPixel(i, j).getB(), redPixel.getA());
+          resultImage.updatePixel(i, j, updatedPixel);
+        }
       }
     }
     model.storeImage(destImageName, resultImage);
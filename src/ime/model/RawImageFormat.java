@@ -0,0 +1,222 @@
+package ime.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The native uncompressed image format, for handing images between pipeline stages at the speed of
+ * the disk. A file is a 16 byte header followed by the pixels as packed ARGB values in row-major
+ * order, all little-endian:
+ *
+ * <pre>
+ *   offset 0   the magic bytes "IMER"
+ *   offset 4   the format version, 1, as a 16-bit value
+ *   offset 6   the pixel layout, 0 for packed ARGB, as a 16-bit value
+ *   offset 8   the width in pixels, as a 32-bit value
+ *   offset 12  the height in pixels, as a 32-bit value
+ *   offset 16  4 * width * height bytes of pixels
+ * </pre>
+ *
+ * <p>Loading maps the file into an {@link OffHeapImage} without decoding it, so pixels are only
+ * read from disk as operations use them. Saving writes the header and the pixels with bulk channel
+ * transfers, straight from off-heap memory for off-heap images. A file is written under a
+ * temporary name and then moved over the target, so images still mapped from the file it replaces
+ * keep reading the old pixels.</p>
+ */
+public final class RawImageFormat {
+
+  /**
+   * The file extension of the format.
+   */
+  public static final String EXTENSION = "imr";
+
+  /**
+   * The size of the header, which is the offset of the first pixel.
+   */
+  public static final int HEADER_BYTES = 16;
+
+  private static final int MAGIC = 'I' | 'M' << 8 | 'E' << 16 | 'R' << 24;
+  private static final short VERSION = 1;
+  private static final short PACKED_ARGB = 0;
+
+  private RawImageFormat() {
+  }
+
+  /**
+   * Tells whether a path names a file of this format, by its extension.
+   *
+   * @param path the file path
+   * @return true if the path ends with {@code .imr}, in any case
+   */
+  public static boolean isRaw(String path) {
+    int lastDot = path.lastIndexOf('.');
+    return lastDot >= 0 && path.substring(lastDot + 1).equalsIgnoreCase(EXTENSION);
+  }
+
+  /**
+   * Loads an image by mapping its file, and stores it in a model.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   * @param path      the path of the file
+   * @return the header of the file
+   * @throws IOException if the file could not be read, or is not a valid raw image
+   */
+  public static Header load(ModelInterface model, String imageName, String path)
+      throws IOException {
+    try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      Header header = readHeader(file);
+      model.storeImage(imageName,
+          OffHeapImage.map(file, HEADER_BYTES, header.getHeight(), header.getWidth()));
+      return header;
+    }
+  }
+
+  /**
+   * Saves an image of a model to a file.
+   *
+   * @param model     the model holding the image
+   * @param imageName the name of the image
+   * @param path      the path of the file
+   * @return the header written
+   * @throws IOException              if the file could not be written
+   * @throws IllegalArgumentException if the image is not found
+   */
+  public static Header save(ModelInterface model, String imageName, String path)
+      throws IOException {
+    // Other threads may drop the image from the store meanwhile; it is released once written
+    try (Model.ReadScope scope = Model.reading(model)) {
+      return write(model.getImage(imageName), path);
+    }
+  }
+
+  private static Header write(ImageInterface image, String path) throws IOException {
+    Path target = Paths.get(path);
+    Path temporary = target.resolveSibling(target.getFileName() + ".part");
+    try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeHeader(file, image.getHeight(), image.getWidth());
+      if (image instanceof OffHeapImage) {
+        ((OffHeapImage) image).writeTo(file);
+      } else {
+        int width = image.getWidth();
+        int[] argb = new int[width];
+        ByteBuffer row = ByteBuffer.allocateDirect(width * Integer.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = 0; y < image.getHeight(); y++) {
+          ImageTransformation.readRow(image, y, argb, width);
+          row.clear();
+          row.asIntBuffer().put(argb);
+          writeFully(file, row);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    return new Header(image.getHeight(), image.getWidth());
+  }
+
+  /**
+   * Reads and checks the header of a raw image file, leaving the channel positioned at the first
+   * pixel.
+   *
+   * @param file the file, positioned at its start
+   * @return the header
+   * @throws IOException if the file could not be read, is not a raw image, or is shorter than its
+   *                     pixels
+   */
+  public static Header readHeader(FileChannel file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    while (header.hasRemaining()) {
+      if (file.read(header) < 0) {
+        throw new IOException("Invalid raw image file: header is truncated");
+      }
+    }
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Invalid raw image file format");
+    }
+    short version = header.getShort();
+    short layout = header.getShort();
+    if (version != VERSION || layout != PACKED_ARGB) {
+      throw new IOException("Unsupported raw image version " + version + " or layout " + layout);
+    }
+    int width = header.getInt();
+    int height = header.getInt();
+    if (width <= 0 || height <= 0) {
+      throw new IOException("Invalid raw image dimensions: " + width + "x" + height);
+    }
+    if (file.size() < HEADER_BYTES + (long) Integer.BYTES * width * height) {
+      throw new IOException("Invalid raw image file: pixels are truncated");
+    }
+    return new Header(height, width);
+  }
+
+  /**
+   * Writes the header of a raw image file.
+   *
+   * @param file   the file, positioned at its start
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   * @throws IOException if the file could not be written
+   */
+  public static void writeHeader(FileChannel file, int height, int width) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putShort(VERSION).putShort(PACKED_ARGB).putInt(width).putInt(height);
+    header.flip();
+    writeFully(file, header);
+  }
+
+  private static void writeFully(FileChannel file, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      file.write(buffer);
+    }
+  }
+
+  /**
+   * The dimensions held by the header of a raw image file.
+   */
+  public static final class Header {
+
+    private final int height;
+    private final int width;
+
+    private Header(int height, int width) {
+      this.height = height;
+      this.width = width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+      return height;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+      return width;
+    }
+  }
+}
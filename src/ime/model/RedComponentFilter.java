@@ -30,7 +30,8 @@ public class RedComponentFilter extends AbstractFilters {
 
     ImageInterface originalImage = model.getImage(imageName);
     ImageInterface redComponent = transformation.applyTransformation(originalImage,
-        (red, green, blue, alpha) -> new Pixel(red, red, red, alpha), 100);
+        (red, green, blue, alpha) -> new Pixel(red, red, red, alpha),
+        VectorOperations.channel(ImageChannelConstants.RED), 100);
     model.storeImage(imageOutputRedName, redComponent);
 
   }
@@ -0,0 +1,216 @@
+package ime.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded cache of operation results, keyed by the operation, its normalized parameters and the
+ * content hashes of the images it reads. The output names are not part of the key, so a result can
+ * be reused under any name.
+ *
+ * <p>The cache holds its own copy-on-write shares of the results, so images stored from it, or
+ * stored by the operation that produced them, can be written to or released without affecting the
+ * cached copy. The least recently used results are evicted once the pixels held exceed the
+ * capacity. Its methods are synchronized, as a model may run operations on several threads.</p>
+ */
+class ResultCache {
+
+  private final long capacityBytes;
+  private final LinkedHashMap<Key, List<ImageInterface>> results;
+  private long sizeBytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param capacityBytes the pixel bytes, at four bytes per pixel, above which results are evicted
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  ResultCache(long capacityBytes) {
+    if (capacityBytes <= 0) {
+      throw new IllegalArgumentException("Cache capacity must be positive");
+    }
+    this.capacityBytes = capacityBytes;
+    this.results = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Builds the cache key of a command: its name, its value parameters and split written in a
+   * canonical form, and the content hashes of its input images.
+   *
+   * @param operation     the description of the operation
+   * @param commandTokens the command tokens
+   * @param model         the model holding the input images
+   * @return the key
+   * @throws IllegalArgumentException if an input image is not stored
+   */
+  static Key keyOf(OperationInfo operation, List<String> commandTokens, ModelInterface model) {
+    List<Object> parts = new ArrayList<>();
+    parts.add(operation.getName());
+    List<OperationParameter> parameters = operation.getParameters();
+    for (int position = 1; position < commandTokens.size(); position++) {
+      String token = commandTokens.get(position);
+      OperationParameter.Role role = position <= parameters.size()
+          ? parameters.get(position - 1).getRole() : OperationParameter.Role.VALUE;
+      switch (role) {
+        case INPUT_IMAGE:
+          parts.add(ContentHash.of(model.getImage(token)));
+          break;
+        case OUTPUT_IMAGE:
+          parts.add(OperationParameter.Role.OUTPUT_IMAGE);
+          break;
+        default:
+          parts.add(normalize(token));
+      }
+    }
+    return new Key(parts);
+  }
+
+  /**
+   * Writes a value parameter in canonical form, so that {@code 50}, {@code 050} and {@code 50.0}
+   * give the same key.
+   */
+  private static String normalize(String token) {
+    try {
+      return new BigDecimal(token.trim()).stripTrailingZeros().toPlainString();
+    } catch (NumberFormatException e) {
+      return token.trim().toLowerCase();
+    }
+  }
+
+  /**
+   * Looks up the results of a command.
+   *
+   * @param key the key of the command
+   * @return new shares of the cached results, in output order, or null if they are not cached
+   */
+  synchronized List<ImageInterface> get(Key key) {
+    List<ImageInterface> cached = results.get(key);
+    if (cached == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    List<ImageInterface> shares = new ArrayList<>();
+    for (ImageInterface image : cached) {
+      shares.add(share(image));
+    }
+    return shares;
+  }
+
+  /**
+   * Caches the results of a command, evicting the least recently used results if needed.
+   * Results larger than the whole capacity are not cached.
+   *
+   * @param key     the key of the command
+   * @param outputs the images the command stored, in output order
+   */
+  synchronized void put(Key key, List<ImageInterface> outputs) {
+    long bytes = 0;
+    for (ImageInterface output : outputs) {
+      bytes += bytesOf(output);
+    }
+    if (bytes > capacityBytes) {
+      return;
+    }
+    List<ImageInterface> shares = new ArrayList<>();
+    for (ImageInterface output : outputs) {
+      shares.add(share(output));
+    }
+    List<ImageInterface> previous = results.put(key, shares);
+    if (previous != null) {
+      discard(previous);
+    }
+    sizeBytes += bytes;
+    Iterator<List<ImageInterface>> eldest = results.values().iterator();
+    while (sizeBytes > capacityBytes && eldest.hasNext()) {
+      List<ImageInterface> evicted = eldest.next();
+      eldest.remove();
+      discard(evicted);
+    }
+  }
+
+  /**
+   * Drops every cached result.
+   */
+  synchronized void clear() {
+    for (List<ImageInterface> cached : results.values()) {
+      discard(cached);
+    }
+    results.clear();
+  }
+
+  /**
+   * Returns the number of lookups which found a result.
+   *
+   * @return the hit count
+   */
+  synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of lookups which found nothing.
+   *
+   * @return the miss count
+   */
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  private void discard(List<ImageInterface> cached) {
+    for (ImageInterface image : cached) {
+      sizeBytes -= bytesOf(image);
+      image.release();
+    }
+  }
+
+  private static long bytesOf(ImageInterface image) {
+    return 4L * image.getHeight() * image.getWidth();
+  }
+
+  /**
+   * Returns a new image with the same pixels which later writes to the given image cannot affect.
+   * Tiled, planar, off-heap and view images share their storage copy-on-write; other images are
+   * copied.
+   */
+  private static ImageInterface share(ImageInterface image) {
+    if (image instanceof PlanarImage) {
+      return PlanarImage.of(image);
+    }
+    if (image instanceof ImageView) {
+      return ((ImageView) image).share();
+    }
+    if (image instanceof OffHeapImage) {
+      return OffHeapImage.derive(image, 0);
+    }
+    return TiledImage.derive(image, 0);
+  }
+
+  /**
+   * The key of a cached result.
+   */
+  static final class Key {
+
+    private final List<Object> parts;
+
+    private Key(List<Object> parts) {
+      this.parts = List.copyOf(parts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && parts.equals(((Key) o).parts);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(parts);
+    }
+  }
+}
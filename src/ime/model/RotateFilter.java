@@ -0,0 +1,34 @@
+package ime.model;
+
+import java.util.List;
+
+/**
+ * The RotateFilter class rotates an image clockwise by a fixed number of quarter turns. The rotated
+ * image is a view of the original, so no pixels are copied until the result is written to.
+ */
+public class RotateFilter extends AbstractFilters {
+
+  private final ModelInterface model;
+  private final int quarterTurns;
+
+  /**
+   * Constructs a rotate filter for the given number of clockwise quarter turns.
+   *
+   * @param model        the model used for image access and storage
+   * @param quarterTurns the number of clockwise quarter turns, 1, 2 or 3
+   */
+  public RotateFilter(ModelInterface model, int quarterTurns) {
+    this.model = model;
+    this.quarterTurns = quarterTurns;
+  }
+
+  @Override
+  public void execute(List<String> commandTokens) {
+    /* rotate-90 koala koala-rotated */
+    String imageName = commandTokens.get(1);
+    String destName = commandTokens.get(2);
+
+    ImageInterface originalImage = model.getImage(imageName);
+    model.storeImage(destName, ImageView.rotate(originalImage, quarterTurns));
+  }
+}
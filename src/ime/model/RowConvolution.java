@@ -0,0 +1,23 @@
+package ime.model;
+
+/**
+ * The RowConvolution interface is the row-at-a-time form of applying a {@link KernelOperation},
+ * computing a run of output pixels from the rows of the image around them. Each neighbouring row is
+ * given as one array of values per color channel, padded on both sides with copies of its edge
+ * pixels as wide as the kernel's padding, so that the convolution needs no bounds checks.
+ */
+interface RowConvolution {
+
+  /**
+   * Convolves the leading pixels of a row.
+   *
+   * @param red         the red values of the rows above, at and below the output row, padded
+   * @param green       the green values of the same rows, padded
+   * @param blue        the blue values of the same rows, padded
+   * @param source      the pixels of the output row itself, supplying alpha, as 0xAARRGGBB
+   * @param destination the array receiving the convolved pixels, as 0xAARRGGBB
+   * @param length      the number of leading pixels to convolve
+   */
+  void apply(float[][] red, float[][] green, float[][] blue, int[] source, int[] destination,
+      int length);
+}
@@ -0,0 +1,19 @@
+package ime.model;
+
+/**
+ * The RowTransformation interface is the row-at-a-time form of a {@link PixelTransformation},
+ * transforming a run of packed ARGB pixels in one call so that implementations can process several
+ * pixels per instruction. Results are clamped to [0, 255] and keep the alpha of their source pixel,
+ * as {@link ImageTransformation#applyTransformation} does for single pixels.
+ */
+interface RowTransformation {
+
+  /**
+   * Transforms the leading pixels of a row.
+   *
+   * @param source      the pixels to transform, as 0xAARRGGBB
+   * @param destination the array receiving the transformed pixels, as 0xAARRGGBB
+   * @param length      the number of leading pixels to transform
+   */
+  void apply(int[] source, int[] destination, int length);
+}
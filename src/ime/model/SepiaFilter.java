@@ -40,7 +40,7 @@ public class SepiaFilter extends AbstractFilters {
     PixelTransformation sepiaTransformation
         = transformation.createTransformation(sepiaMatrix);
     ImageInterface sepiaImage = transformation.applyTransformation(originalImage,
-        sepiaTransformation, splitPercent);
+        sepiaTransformation, VectorOperations.matrix(sepiaMatrix), splitPercent);
     model.storeImage(destImageName, sepiaImage);
 
   }
@@ -38,7 +38,7 @@ public class SharpenFilter extends AbstractFilters {
         {-1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f}};
 
     ImageInterface sharpenedPixels = transformation.applyKernel(originalImage,
-        sharpenKernel, splitPercent);
+        sharpenKernel, VectorOperations.convolution(sharpenKernel), splitPercent);
     model.storeImage(destImg, sharpenedPixels);
 
   }
@@ -0,0 +1,76 @@
+package ime.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A model whose methods run one at a time, so that several threads can share the images of the
+ * model it wraps. Obtained through {@link Model#synchronizedModel}.
+ */
+class SynchronizedModel implements ModelInterface {
+
+  private final ModelInterface model;
+
+  /**
+   * Constructs a synchronized view of a model.
+   *
+   * @param model the model to wrap
+   */
+  SynchronizedModel(ModelInterface model) {
+    this.model = model;
+  }
+
+  @Override
+  public synchronized void operationsFactoryCall(String commandName, List<String> commandTokens,
+      ModelInterface model) {
+    // Operations read and write the wrapped model's images
+    this.model.operationsFactoryCall(commandName, commandTokens, this.model);
+  }
+
+  @Override
+  public synchronized void convertAndStoreImage(String imageName,
+      Map<String, int[][]> imgPixelArr) {
+    model.convertAndStoreImage(imageName, imgPixelArr);
+  }
+
+  @Override
+  public synchronized Map<String, int[][]> convertAndFetchImage(String imageName) {
+    return model.convertAndFetchImage(imageName);
+  }
+
+  @Override
+  public synchronized ImageInterface getImage(String imageName) {
+    return model.getImage(imageName);
+  }
+
+  @Override
+  public synchronized void storeImage(String imageName, ImageInterface image) {
+    model.storeImage(imageName, image);
+  }
+
+  @Override
+  public synchronized boolean storeImageIfAbsent(String imageName, ImageInterface image) {
+    return model.storeImageIfAbsent(imageName, image);
+  }
+
+  @Override
+  public synchronized boolean replaceImage(String imageName, ImageInterface expected,
+      ImageInterface image) {
+    return model.replaceImage(imageName, expected, image);
+  }
+
+  @Override
+  public synchronized void removeImage(String imageName) {
+    model.removeImage(imageName);
+  }
+
+  @Override
+  public synchronized OperationInfo getOperationInfo(String commandName) {
+    return model.getOperationInfo(commandName);
+  }
+
+  @Override
+  public synchronized List<OperationInfo> getOperations() {
+    return model.getOperations();
+  }
+}
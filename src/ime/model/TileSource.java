@@ -0,0 +1,92 @@
+package ime.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of image pixels which are decoded a rectangular tile at a time, such as a tiled image
+ * file. An image stored from a tile source decodes each tile the first time an operation reads a
+ * pixel of it, so operations which only look at part of the image, such as crops, never decode the
+ * rest of it.
+ *
+ * <p>The image owns the source: it closes the source once the image and every share of it are
+ * released.</p>
+ */
+public interface TileSource extends Closeable {
+
+  /**
+   * Returns the width of the image.
+   *
+   * @return the width in pixels
+   */
+  int getWidth();
+
+  /**
+   * Returns the height of the image.
+   *
+   * @return the height in pixels
+   */
+  int getHeight();
+
+  /**
+   * Returns the width of every tile but those of the last tile column, which are cut by the right
+   * edge of the image.
+   *
+   * @return the tile width in pixels
+   */
+  int getTileWidth();
+
+  /**
+   * Returns the height of every tile but those of the last tile row, which are cut by the bottom
+   * edge of the image.
+   *
+   * @return the tile height in pixels
+   */
+  int getTileHeight();
+
+  /**
+   * Decodes one tile. May be called from several threads at once, for different tiles.
+   *
+   * @param tileColumn the column of the tile, counted in tiles from the left
+   * @param tileRow    the row of the tile, counted in tiles from the top
+   * @param argb       the array receiving the pixels as 0xAARRGGBB, in rows of
+   *                   {@link #getTileWidth()} pixels; pixels beyond the edges of the image are
+   *                   left as they are
+   * @throws IOException if the tile could not be read
+   */
+  void readTile(int tileColumn, int tileRow, int[] argb) throws IOException;
+
+  /**
+   * Releases what the source reads from. No tile is read after the source is closed. Does nothing
+   * by default.
+   *
+   * @throws IOException if the source could not be closed
+   */
+  @Override
+  default void close() throws IOException {
+  }
+
+  /**
+   * Stores the image of a tile source in a model, without decoding any of it. The image takes
+   * over the source, which is closed if the image cannot be made.
+   *
+   * @param model     the model to store the image in
+   * @param imageName the name to store the image under
+   * @param source    the tile source
+   * @throws IllegalArgumentException if the image or tile dimensions are not positive
+   */
+  static void store(ModelInterface model, String imageName, TileSource source) {
+    TileSourceImage image;
+    try {
+      image = new TileSourceImage(source);
+    } catch (IllegalArgumentException e) {
+      try {
+        source.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    model.storeImage(imageName, image);
+  }
+}
@@ -0,0 +1,273 @@
+package ime.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Represents an image whose pixels are decoded from a {@link TileSource} a tile at a time, the
+ * first time one of its pixels is read. Reading a single pixel decodes only the tile holding it;
+ * reading a row decodes the missing tiles of its band of tiles in parallel, since operations
+ * reading rows go on to read the rest of the band. Views of the image, such as crops, read through
+ * a share of it, so they only ever decode the tiles they cover. The source is closed once the
+ * image and all its shares are released.
+ *
+ * <p>Shares of an image decode into the same tiles, so a tile is decoded once however many of
+ * them read it. Written pixels are kept in the decoded tiles; an image written to while it is
+ * shared copies the tiles decoded so far first.</p>
+ */
+class TileSourceImage extends AbstractImage {
+
+  private final TileSource source;
+  private final AtomicInteger sourceReferences;
+  private final int height;
+  private final int width;
+  private final int tileWidth;
+  private final int tileHeight;
+  private final int tileColumns;
+  private volatile DecodedTiles decoded;
+  private boolean released;
+
+  /**
+   * Constructs an image reading from a tile source, with no tiles decoded yet.
+   *
+   * @param source the tile source
+   * @throws IllegalArgumentException if the image or tile dimensions are not positive
+   */
+  TileSourceImage(TileSource source) {
+    this.source = source;
+    this.sourceReferences = new AtomicInteger(1);
+    this.height = source.getHeight();
+    this.width = source.getWidth();
+    this.tileWidth = source.getTileWidth();
+    this.tileHeight = source.getTileHeight();
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    if (tileWidth <= 0 || tileHeight <= 0) {
+      throw new IllegalArgumentException("Tile dimensions must be positive");
+    }
+    this.tileColumns = (width + tileWidth - 1) / tileWidth;
+    int tileRows = (height + tileHeight - 1) / tileHeight;
+    this.decoded = new DecodedTiles(new AtomicReferenceArray<>(tileColumns * tileRows));
+  }
+
+  /**
+   * Constructs a share of an image, decoding into the given tiles.
+   */
+  private TileSourceImage(TileSourceImage image, DecodedTiles decoded) {
+    this.source = image.source;
+    this.sourceReferences = image.sourceReferences;
+    this.height = image.height;
+    this.width = image.width;
+    this.tileWidth = image.tileWidth;
+    this.tileHeight = image.tileHeight;
+    this.tileColumns = image.tileColumns;
+    this.decoded = decoded;
+  }
+
+  @Override
+  public PixelInterface getPixel(int idx1, int idx2) {
+    checkBounds(idx1, idx2);
+    int argb = tile(decoded.tiles, idx1 / tileHeight, idx2 / tileWidth)[offsetInTile(idx1, idx2)];
+    return new Pixel((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24) & 0xFF);
+  }
+
+  @Override
+  public void updatePixel(int idx1, int idx2, PixelInterface newPixelValue) {
+    checkBounds(idx1, idx2);
+    tile(writableTiles(), idx1 / tileHeight, idx2 / tileWidth)[offsetInTile(idx1, idx2)] =
+        ((newPixelValue.getA() & 0xFF) << 24)
+            | ((newPixelValue.getR() & 0xFF) << 16)
+            | ((newPixelValue.getG() & 0xFF) << 8)
+            | (newPixelValue.getB() & 0xFF);
+  }
+
+  /**
+   * Copies the leading pixels of a row into an array, decoding the tiles they lie in first.
+   *
+   * @param idx1   the row index
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to copy
+   * @throws IndexOutOfBoundsException if the row or length are out of the image bounds
+   * @throws UncheckedIOException      if a tile could not be read
+   */
+  void readRow(int idx1, int[] argb, int length) {
+    readRow(idx1, 0, argb, length);
+  }
+
+  /**
+   * Copies a run of consecutive pixels of a row into the start of an array, decoding only the tiles
+   * the run crosses first.
+   *
+   * @param idx1   the row index
+   * @param idx2   the column index of the first pixel
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of pixels to copy
+   * @throws IndexOutOfBoundsException if the run is out of the image bounds
+   * @throws UncheckedIOException      if a tile could not be read
+   */
+  void readRow(int idx1, int idx2, int[] argb, int length) {
+    if (length <= 0) {
+      return;
+    }
+    checkBounds(idx1, idx2);
+    checkBounds(idx1, idx2 + length - 1);
+    AtomicReferenceArray<int[]> tiles = decoded.tiles;
+    int tileRow = idx1 / tileHeight;
+    int end = idx2 + length;
+    IntStream.rangeClosed(idx2 / tileWidth, (end - 1) / tileWidth)
+        .filter(column -> tiles.get(tileIndex(tileRow, column)) == null)
+        .parallel()
+        .forEach(column -> tile(tiles, tileRow, column));
+    int x = idx2;
+    while (x < end) {
+      int count = Math.min(tileWidth - x % tileWidth, end - x);
+      System.arraycopy(tile(tiles, tileRow, x / tileWidth), offsetInTile(idx1, x), argb, x - idx2,
+          count);
+      x += count;
+    }
+  }
+
+  /**
+   * Returns the decoded pixels of a tile, decoding it if no thread has yet.
+   */
+  private int[] tile(AtomicReferenceArray<int[]> tiles, int tileRow, int tileColumn) {
+    int index = tileIndex(tileRow, tileColumn);
+    int[] tile = tiles.get(index);
+    if (tile != null) {
+      return tile;
+    }
+    int[] decoded = new int[tileWidth * tileHeight];
+    try {
+      source.readTile(tileColumn, tileRow, decoded);
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Could not read tile (" + tileColumn + ", " + tileRow + "): " + e.getMessage(), e);
+    }
+    return tiles.compareAndSet(index, null, decoded) ? decoded : tiles.get(index);
+  }
+
+  /**
+   * Returns the tiles this image may write to, copying the tiles decoded so far if another image
+   * shares them.
+   */
+  private synchronized AtomicReferenceArray<int[]> writableTiles() {
+    DecodedTiles current = decoded;
+    if (current.references.get() > 1) {
+      AtomicReferenceArray<int[]> copy = new AtomicReferenceArray<>(current.tiles.length());
+      for (int index = 0; index < copy.length(); index++) {
+        int[] tile = current.tiles.get(index);
+        if (tile != null) {
+          copy.set(index, tile.clone());
+        }
+      }
+      decoded = new DecodedTiles(copy);
+      current.release();
+    }
+    return decoded.tiles;
+  }
+
+  /**
+   * Returns an image with the same pixels which reads from the same source and decoded tiles, so
+   * it stays readable after this image is released. Writes to either image are made to a copy of
+   * the tiles.
+   *
+   * @return the share
+   */
+  synchronized ImageInterface share() {
+    sourceReferences.incrementAndGet();
+    decoded.references.incrementAndGet();
+    return new TileSourceImage(this, decoded);
+  }
+
+  /**
+   * Returns the number of tiles decoded so far.
+   *
+   * @return the count of decoded tiles
+   */
+  int getDecodedTileCount() {
+    AtomicReferenceArray<int[]> tiles = decoded.tiles;
+    int count = 0;
+    for (int index = 0; index < tiles.length(); index++) {
+      if (tiles.get(index) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void imageFill(PixelInterface[][] pixelArray) {
+    if (pixelArray.length != height || pixelArray[0].length != width) {
+      throw new IllegalArgumentException("Pixel array does not match the image dimensions");
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        updatePixel(y, x, pixelArray[y][x]);
+      }
+    }
+  }
+
+  /**
+   * Drops this image's references to its decoded tiles and its source. Tiles no share of the image
+   * holds any more are dropped, and the source is closed once every share is released. The image
+   * must not be read afterwards.
+   */
+  @Override
+  public synchronized void release() {
+    if (released) {
+      return;
+    }
+    released = true;
+    decoded.release();
+    if (sourceReferences.decrementAndGet() == 0) {
+      try {
+        source.close();
+      } catch (IOException e) {
+        // Nothing is left to read the source
+      }
+    }
+  }
+
+  private int tileIndex(int tileRow, int tileColumn) {
+    return tileRow * tileColumns + tileColumn;
+  }
+
+  private int offsetInTile(int idx1, int idx2) {
+    return (idx1 % tileHeight) * tileWidth + idx2 % tileWidth;
+  }
+
+  /**
+   * The decoded tiles of a source, counting the images sharing them.
+   */
+  private static final class DecodedTiles {
+
+    private final AtomicReferenceArray<int[]> tiles;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private DecodedTiles(AtomicReferenceArray<int[]> tiles) {
+      this.tiles = tiles;
+    }
+
+    private void release() {
+      if (references.decrementAndGet() == 0) {
+        for (int index = 0; index < tiles.length(); index++) {
+          tiles.set(index, null);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,291 @@
+package ime.model;
+
+import java.util.Arrays;
+
+/**
+ * Represents an image stored as a grid of square tiles of packed ARGB values. Tiles are reference
+ * counted and copied on write, so an image derived from another one can share every tile it does
+ * not change with its source: a filter previewed on the left tenth of an image only allocates the
+ * tiles covering that tenth. Tiles which were never written are not allocated at all and read as
+ * fully transparent black.
+ */
+class TiledImage extends AbstractImage {
+
+  /**
+   * Edge length, in pixels, of a tile.
+   */
+  static final int TILE_SIZE = 64;
+
+  private final int height;
+  private final int width;
+  private final int tileColumns;
+  private final ImageTile[] tiles;
+
+  /**
+   * Constructs an image of the given dimensions with no tiles allocated yet.
+   *
+   * @param height the height of the image in pixels
+   * @param width  the width of the image in pixels
+   */
+  TiledImage(int height, int width) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive");
+    }
+    this.height = height;
+    this.width = width;
+    this.tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    this.tiles = new ImageTile[tileColumns * tileRows];
+  }
+
+  /**
+   * Creates the result image of an operation which only rewrites the columns to the left of
+   * {@code changedColumns}. Tiles lying entirely in that region are left unallocated, since the
+   * operation is about to overwrite them; every other tile is shared with the source, and is only
+   * copied if the operation writes into it.
+   *
+   * @param source         the image the operation reads from
+   * @param changedColumns the number of leading columns the operation will overwrite
+   * @return a new image whose untouched region shares the source's tiles
+   */
+  static TiledImage derive(ImageInterface source, int changedColumns) {
+    TiledImage result = new TiledImage(source.getHeight(), source.getWidth());
+    int firstSharedColumn = Math.max(0, changedColumns) / TILE_SIZE;
+    if (source instanceof TiledImage) {
+      TiledImage tiled = (TiledImage) source;
+      for (int index = 0; index < result.tiles.length; index++) {
+        ImageTile tile = tiled.tiles[index];
+        if (index % result.tileColumns >= firstSharedColumn && tile != null) {
+          result.tiles[index] = tile.retain();
+        }
+      }
+    } else {
+      for (int y = 0; y < result.height; y++) {
+        for (int x = firstSharedColumn * TILE_SIZE; x < result.width; x++) {
+          result.updatePixel(y, x, source.getPixel(y, x));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public PixelInterface getPixel(int idx1, int idx2) {
+    int argb = getArgb(idx1, idx2);
+    return new Pixel((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24) & 0xFF);
+  }
+
+  /**
+   * Retrieves the packed ARGB value of the pixel at the specified coordinates.
+   *
+   * @param idx1 the row index of the pixel
+   * @param idx2 the column index of the pixel
+   * @return the pixel as 0xAARRGGBB
+   * @throws IndexOutOfBoundsException if the indices are out of the image bounds
+   */
+  int getArgb(int idx1, int idx2) {
+    checkBounds(idx1, idx2);
+    ImageTile tile = tiles[tileIndex(idx1, idx2)];
+    return tile == null ? 0 : tile.pixels()[offsetInTile(idx1, idx2)];
+  }
+
+  @Override
+  public void updatePixel(int idx1, int idx2, PixelInterface newPixelValue) {
+    setArgb(idx1, idx2, ((newPixelValue.getA() & 0xFF) << 24)
+        | ((newPixelValue.getR() & 0xFF) << 16)
+        | ((newPixelValue.getG() & 0xFF) << 8)
+        | (newPixelValue.getB() & 0xFF));
+  }
+
+  /**
+   * Updates the pixel at the specified coordinates, copying its tile first if it is shared.
+   *
+   * @param idx1 the row index of the pixel
+   * @param idx2 the column index of the pixel
+   * @param argb the new pixel as 0xAARRGGBB
+   * @throws IndexOutOfBoundsException if the indices are out of the image bounds
+   */
+  void setArgb(int idx1, int idx2, int argb) {
+    checkBounds(idx1, idx2);
+    writableTile(tileIndex(idx1, idx2)).set(offsetInTile(idx1, idx2), argb);
+  }
+
+  /**
+   * Copies the leading pixels of a row into an array, a tile's run at a time.
+   *
+   * @param idx1   the row index
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to copy
+   * @throws IndexOutOfBoundsException if the row or length are out of the image bounds
+   */
+  void readRow(int idx1, int[] argb, int length) {
+    readRow(idx1, 0, argb, length);
+  }
+
+  /**
+   * Copies a run of consecutive pixels of a row into the start of an array, a tile's run at a
+   * time, reading only the tiles the run crosses.
+   *
+   * @param idx1   the row index
+   * @param idx2   the column index of the first pixel
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB
+   * @param length the number of pixels to copy
+   * @throws IndexOutOfBoundsException if the run is out of the image bounds
+   */
+  void readRow(int idx1, int idx2, int[] argb, int length) {
+    checkRun(idx1, idx2, length);
+    int end = idx2 + length;
+    int x = idx2;
+    while (x < end) {
+      int count = Math.min(TILE_SIZE - x % TILE_SIZE, end - x);
+      ImageTile tile = tiles[tileIndex(idx1, x)];
+      if (tile == null) {
+        Arrays.fill(argb, x - idx2, x - idx2 + count, 0);
+      } else {
+        System.arraycopy(tile.pixels(), offsetInTile(idx1, x), argb, x - idx2, count);
+      }
+      x += count;
+    }
+  }
+
+  /**
+   * Updates the leading pixels of a row from an array, copying shared tiles first.
+   *
+   * @param idx1   the row index
+   * @param argb   the new pixels, as 0xAARRGGBB
+   * @param length the number of leading pixels to update
+   * @throws IndexOutOfBoundsException if the row or length are out of the image bounds
+   */
+  void writeRow(int idx1, int[] argb, int length) {
+    checkRun(idx1, length);
+    for (int x = 0; x < length; x += TILE_SIZE) {
+      writableTile(tileIndex(idx1, x))
+          .set(offsetInTile(idx1, x), argb, x, Math.min(TILE_SIZE, length - x));
+    }
+  }
+
+  /**
+   * Returns the tiles of this image in row-major tile order, null where no tile was allocated.
+   * Callers must not modify the array or write to the tiles.
+   *
+   * @return the tiles
+   */
+  ImageTile[] tiles() {
+    return tiles;
+  }
+
+  private void checkRun(int idx1, int length) {
+    checkRun(idx1, 0, length);
+  }
+
+  private void checkRun(int idx1, int idx2, int length) {
+    if (length > 0) {
+      checkBounds(idx1, idx2);
+      checkBounds(idx1, idx2 + length - 1);
+    }
+  }
+
+  /**
+   * Returns the tile at a position, allocating it if it was never written and copying it if it is
+   * shared.
+   *
+   * @param index the tile index
+   * @return a tile this image may write to
+   */
+  private ImageTile writableTile(int index) {
+    ImageTile tile = tiles[index];
+    if (tile == null) {
+      tile = new ImageTile(tileWidth(index) * tileHeight(index));
+      tiles[index] = tile;
+    } else if (tile.isShared()) {
+      ImageTile copy = tile.copy();
+      tile.release();
+      tile = copy;
+      tiles[index] = tile;
+    }
+    return tile;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public void imageFill(PixelInterface[][] pixelArray) {
+    if (pixelArray.length != height || pixelArray[0].length != width) {
+      throw new IllegalArgumentException("Pixel array does not match the image dimensions");
+    }
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        updatePixel(y, x, pixelArray[y][x]);
+      }
+    }
+  }
+
+  @Override
+  public void release() {
+    for (int index = 0; index < tiles.length; index++) {
+      if (tiles[index] != null) {
+        tiles[index].release();
+        tiles[index] = null;
+      }
+    }
+  }
+
+  @Override
+  long contentHash() {
+    long hash = ContentHash.start(TILE_SIZE, height, width);
+    for (ImageTile tile : tiles) {
+      hash = ContentHash.mix(hash, tile == null ? 0 : tile.contentHash());
+    }
+    return ContentHash.finish(hash);
+  }
+
+  /**
+   * Returns the number of tiles this image holds exclusively, which is the memory it does not share
+   * with any other image.
+   *
+   * @return the count of allocated, unshared tiles
+   */
+  int getOwnedTileCount() {
+    int owned = 0;
+    for (ImageTile tile : tiles) {
+      if (tile != null && !tile.isShared()) {
+        owned++;
+      }
+    }
+    return owned;
+  }
+
+  /**
+   * Returns the total number of tile positions in the image.
+   *
+   * @return the tile count
+   */
+  int getTileCount() {
+    return tiles.length;
+  }
+
+  private int tileIndex(int idx1, int idx2) {
+    return (idx1 / TILE_SIZE) * tileColumns + idx2 / TILE_SIZE;
+  }
+
+  private int offsetInTile(int idx1, int idx2) {
+    int index = tileIndex(idx1, idx2);
+    return (idx1 % TILE_SIZE) * tileWidth(index) + idx2 % TILE_SIZE;
+  }
+
+  private int tileWidth(int index) {
+    return Math.min(TILE_SIZE, width - (index % tileColumns) * TILE_SIZE);
+  }
+
+  private int tileHeight(int index) {
+    return Math.min(TILE_SIZE, height - (index / tileColumns) * TILE_SIZE);
+  }
+}
@@ -38,7 +38,7 @@ public class ValueFilter extends AbstractFilters {
         (red, green, blue, alpha) -> {
           int value = Math.max(Math.max(red, green), blue);
           return new Pixel(value, value, value, alpha);
-        }, splitPercent);
+        }, VectorOperations.value(), splitPercent);
     model.storeImage(destName, valueComponent);
 
   }
@@ -0,0 +1,65 @@
+package ime.model;
+
+/**
+ * The VectorBackend interface provides row forms of the point operations and convolutions which
+ * process several pixels per instruction. Every form computes exactly the pixels of the scalar loop
+ * it replaces, so the backend may be switched on or off without changing any result. See
+ * {@link VectorOperations} for how an implementation is found.
+ */
+interface VectorBackend {
+
+  /**
+   * Returns the row form of adding an increment to every color channel.
+   *
+   * @param increment the value added, clamped per channel
+   * @return the row transformation
+   */
+  RowTransformation brighten(int increment);
+
+  /**
+   * Returns the row form of replacing every color channel by one of them.
+   *
+   * @param shift the bit position of the channel in a packed pixel: 16, 8 or 0 for red, green or
+   *              blue
+   * @return the row transformation
+   */
+  RowTransformation channel(int shift);
+
+  /**
+   * Returns the row form of replacing every color channel by the largest of them.
+   *
+   * @return the row transformation
+   */
+  RowTransformation value();
+
+  /**
+   * Returns the row form of replacing every color channel by their integer average.
+   *
+   * @return the row transformation
+   */
+  RowTransformation intensity();
+
+  /**
+   * Returns the row form of replacing every color channel by the rounded Rec. 709 luma.
+   *
+   * @return the row transformation
+   */
+  RowTransformation luma();
+
+  /**
+   * Returns the row form of {@link ImageTransformation#createTransformation(double[][])}.
+   *
+   * @param matrix a 3x3 transformation matrix
+   * @return the row transformation
+   */
+  RowTransformation matrix(double[][] matrix);
+
+  /**
+   * Returns the row form of {@link ImageTransformation#applyKernel} for a square kernel of odd
+   * size.
+   *
+   * @param kernel the kernel
+   * @return the row convolution
+   */
+  RowConvolution convolution(float[][] kernel);
+}
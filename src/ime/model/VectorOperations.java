@@ -0,0 +1,139 @@
+package ime.model;
+
+/**
+ * Finds the {@link VectorBackend} of the running JVM. The backend uses the incubating Java Vector
+ * API, so it is compiled separately, for Java 17, and is only loaded when the
+ * {@code jdk.incubator.vector} module was added to the JVM
+ * ({@code --add-modules jdk.incubator.vector}) and the processor has vector registers. Otherwise
+ * every method here returns null, and operations keep to their scalar loops.
+ */
+final class VectorOperations {
+
+  private static final String MODULE = "jdk.incubator.vector";
+  private static final String IMPLEMENTATION = "ime.model.SimdBackend";
+  private static final VectorBackend BACKEND = load();
+  private static volatile boolean enabled = true;
+
+  private VectorOperations() {
+  }
+
+  private static VectorBackend load() {
+    if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+      return null;
+    }
+    try {
+      return (VectorBackend) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+      // Not compiled into this build, or no vector registers to run it on
+      return null;
+    }
+  }
+
+  /**
+   * Tells whether a backend was loaded.
+   *
+   * @return true if operations can run on the vector backend
+   */
+  static boolean isAvailable() {
+    return BACKEND != null;
+  }
+
+  /**
+   * Turns the loaded backend on or off, to compare its results with the scalar loops.
+   *
+   * @param enabled false to make every method here return null
+   */
+  static void setEnabled(boolean enabled) {
+    VectorOperations.enabled = enabled;
+  }
+
+  private static VectorBackend backend() {
+    return enabled ? BACKEND : null;
+  }
+
+  /**
+   * Returns the row form of brightening, or null without a backend.
+   *
+   * @param increment the value added to every color channel
+   * @return the row transformation, or null
+   */
+  static RowTransformation brighten(int increment) {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.brighten(increment);
+  }
+
+  /**
+   * Returns the row form of extracting a color channel, or null without a backend.
+   *
+   * @param channel the channel, one of the {@link ImageChannelConstants} color channels
+   * @return the row transformation, or null
+   */
+  static RowTransformation channel(String channel) {
+    VectorBackend backend = backend();
+    if (backend == null) {
+      return null;
+    }
+    switch (channel) {
+      case ImageChannelConstants.RED:
+        return backend.channel(16);
+      case ImageChannelConstants.GREEN:
+        return backend.channel(8);
+      case ImageChannelConstants.BLUE:
+        return backend.channel(0);
+      default:
+        throw new IllegalArgumentException("Not a color channel: " + channel);
+    }
+  }
+
+  /**
+   * Returns the row form of the value component, or null without a backend.
+   *
+   * @return the row transformation, or null
+   */
+  static RowTransformation value() {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.value();
+  }
+
+  /**
+   * Returns the row form of the intensity component, or null without a backend.
+   *
+   * @return the row transformation, or null
+   */
+  static RowTransformation intensity() {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.intensity();
+  }
+
+  /**
+   * Returns the row form of the luma component, or null without a backend.
+   *
+   * @return the row transformation, or null
+   */
+  static RowTransformation luma() {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.luma();
+  }
+
+  /**
+   * Returns the row form of a color matrix, or null without a backend.
+   *
+   * @param matrix a 3x3 transformation matrix
+   * @return the row transformation, or null
+   */
+  static RowTransformation matrix(double[][] matrix) {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.matrix(matrix);
+  }
+
+  /**
+   * Returns the row form of a convolution, or null without a backend.
+   *
+   * @param operation the kernel operation
+   * @return the row convolution, or null
+   */
+  static RowConvolution convolution(KernelOperation operation) {
+    VectorBackend backend = backend();
+    return backend == null ? null : backend.convolution(operation.getKernel());
+  }
+}
@@ -9,7 +9,6 @@ import java.util.List;
 public class VerticalFlipFilter extends AbstractFilters {
 
   private final ModelInterface model;
-  private final ImageTransformation imageTransformation;
 
   /**
    * Constructs a {@code VerticalFlip} filter with the provided model.
@@ -18,7 +17,6 @@ public class VerticalFlipFilter extends AbstractFilters {
    */
   public VerticalFlipFilter(ModelInterface model) {
     this.model = model;
-    this.imageTransformation = new ImageTransformation();
   }
 
   @Override
@@ -28,9 +26,8 @@ public class VerticalFlipFilter extends AbstractFilters {
     String destName = commandTokens.get(2);
 
     ImageInterface originalImage = model.getImage(imageName);
-    int height = originalImage.getHeight();
-    ImageInterface verticallyFlippedImage = imageTransformation.applyPixelSwapping(originalImage,
-        (x, y, img) -> img.getPixel(height - 1 - y, x));
+    // The flip only remaps coordinates; no pixels are copied
+    ImageInterface verticallyFlippedImage = ImageView.verticalFlip(originalImage);
 
     model.storeImage(destName, verticallyFlippedImage);
 
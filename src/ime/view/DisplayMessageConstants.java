@@ -33,4 +33,19 @@ public class DisplayMessageConstants {
    * Message indicating where an image has been saved.
    */
   public static final String SAVED_TO = "Image saved to = ";
-}
\ No newline at end of file
+
+  /**
+   * Message giving how many deferred commands were never run in lazy mode.
+   */
+  public static final String SKIPPED_COMMANDS = "Commands skipped as never saved = ";
+
+  /**
+   * Message giving the height of the strips a streamed script is run in.
+   */
+  public static final String STREAMING = "Streaming in strips of rows = ";
+
+  /**
+   * Message giving why a script cannot be streamed.
+   */
+  public static final String CANNOT_STREAM = "Cannot stream script: ";
+}
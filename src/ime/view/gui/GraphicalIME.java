@@ -60,7 +60,7 @@ public class GraphicalIME extends JFrame implements GraphicalIMEInterface {
     });
 
     NavigationPanel navigationPanel = new NavigationPanel(guiController::previousVersion,
-        guiController::nextVersion);
+        guiController::nextVersion, () -> promptForVersion(guiController));
     imageDisplayPanel = new ImageDisplayPanel();
     histogramPanel = new HistogramPanel();
     buttonPanel = new ButtonPanel(createOperationsMap(guiController));
@@ -72,6 +72,23 @@ public class GraphicalIME extends JFrame implements GraphicalIMEInterface {
     add(buttonPanel, BorderLayout.WEST);
   }
 
+  /**
+   * Asks the user for a version number and switches to that version.
+   *
+   * @param guiController Controller object
+   */
+  private void promptForVersion(GUIFeaturesInterface guiController) {
+    String version = offerPromptToGetOperationParameters("Enter version number to go to:");
+    if (version == null) {
+      return;
+    }
+    try {
+      guiController.jumpToVersion(Integer.parseInt(version.trim()));
+    } catch (NumberFormatException e) {
+      displayError("Version must be a number");
+    }
+  }
+
   /**
    * Disables all filter buttons in the button panel except for "Load Image" and "Save" buttons.
    * This method is typically called when no image is loaded or when the current image becomes
@@ -369,9 +386,9 @@ public class GraphicalIME extends JFrame implements GraphicalIMEInterface {
   /**
    * Updates the main image display with the current version of the image.
    *
-   * @param img BufferedImage that needs to be displayed
+   * @param img source of the image that needs to be displayed
    */
-  public void updateImageDisplay(BufferedImage img) {
+  public void updateImageDisplay(ImageTileSource img) {
     try {
       if (img != null) {
         imageDisplayPanel.updateImage(img);
@@ -37,11 +37,12 @@ public interface GraphicalIMEInterface extends ViewInterface {
       String filterName, List<String> args, String destImg);
 
   /**
-   * Updates the displayed image in the GUI with the specified {@code BufferedImage}.
+   * Updates the displayed image in the GUI. Only the visible part of the image is read from the
+   * source, as it is painted.
    *
-   * @param img the {@code BufferedImage} to display
+   * @param img the {@code ImageTileSource} of the image to display
    */
-  void updateImageDisplay(BufferedImage img);
+  void updateImageDisplay(ImageTileSource img);
 
   /**
    * Updates the histogram display in the GUI based on the specified {@code BufferedImage}.
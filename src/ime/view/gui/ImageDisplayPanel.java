@@ -1,43 +1,167 @@
 package ime.view.gui;
 
 import java.awt.BorderLayout;
-import java.awt.image.BufferedImage;
-import javax.swing.ImageIcon;
+import java.awt.FlowLayout;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 
 /**
  * The ImageDisplayPanel class represents a panel for displaying images. It extends JPanel and
- * provides functionality to update the displayed image.
+ * provides functionality to update the displayed image, zoom in and out of it, and pan around it.
+ * The image is painted by a {@link TiledImageCanvas}, so only the visible part is rendered.
  */
 public class ImageDisplayPanel extends JPanel {
 
-  private final JLabel imageLabel;
+  private static final double ZOOM_STEP = 1.25;
+
+  private final TiledImageCanvas canvas;
+  private final JScrollPane scrollPane;
+  private final JLabel zoomLabel;
 
   /**
    * Constructs a new ImageDisplayPanel. Initializes the panel with a BorderLayout and sets up a
-   * JLabel within a JScrollPane for displaying images.
+   * TiledImageCanvas within a JScrollPane for displaying images, along with zoom controls.
    */
   public ImageDisplayPanel() {
     setLayout(new BorderLayout());
-    imageLabel = new JLabel();
-    imageLabel.setHorizontalAlignment(JLabel.CENTER);
-    JScrollPane scrollPane = new JScrollPane(imageLabel);
+    canvas = new TiledImageCanvas();
+    scrollPane = new JScrollPane(canvas);
+    scrollPane.getViewport().setScrollMode(JViewport.BLIT_SCROLL_MODE);
+    scrollPane.setWheelScrollingEnabled(true);
+    installPanAndZoom();
     add(scrollPane, BorderLayout.CENTER);
+
+    zoomLabel = new JLabel();
+    add(createZoomBar(), BorderLayout.SOUTH);
+    refreshZoomLabel();
   }
 
   /**
-   * Updates the displayed image with a new BufferedImage.
+   * Updates the displayed image. The canvas reads the pixels it shows from the source as it paints.
    *
-   * @param image The BufferedImage to be displayed. If null, no update will occur.
+   * @param image The source of the image to be displayed. If null, no update will occur.
    */
-  public void updateImage(BufferedImage image) {
+  public void updateImage(ImageTileSource image) {
     if (image != null) {
-      ImageIcon icon = new ImageIcon(image);
-      imageLabel.setIcon(icon);
-      imageLabel.revalidate();
-      imageLabel.repaint();
+      canvas.setImage(image);
+      scrollPane.revalidate();
+      scrollPane.repaint();
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Zooms in by one step, around the centre of the visible region.
+   */
+  public void zoomIn() {
+    canvas.setZoom(canvas.getZoom() * ZOOM_STEP);
+    refreshZoomLabel();
+  }
+
+  /**
+   * Zooms out by one step, around the centre of the visible region.
+   */
+  public void zoomOut() {
+    canvas.setZoom(canvas.getZoom() / ZOOM_STEP);
+    refreshZoomLabel();
+  }
+
+  /**
+   * Resets the zoom so that one image pixel maps to one screen pixel.
+   */
+  public void actualSize() {
+    canvas.setZoom(1.0);
+    refreshZoomLabel();
+  }
+
+  /**
+   * Zooms so that the whole image fits in the visible region.
+   */
+  public void zoomToFit() {
+    canvas.zoomToFit(scrollPane.getViewport().getExtentSize());
+    refreshZoomLabel();
+  }
+
+  /**
+   * Creates the row of zoom buttons shown under the image.
+   *
+   * @return the zoom controls panel
+   */
+  private JPanel createZoomBar() {
+    JPanel zoomBar = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    JButton zoomOutButton = new JButton("-");
+    JButton zoomInButton = new JButton("+");
+    JButton actualSizeButton = new JButton("1:1");
+    JButton fitButton = new JButton("Fit");
+    zoomOutButton.addActionListener(e -> zoomOut());
+    zoomInButton.addActionListener(e -> zoomIn());
+    actualSizeButton.addActionListener(e -> actualSize());
+    fitButton.addActionListener(e -> zoomToFit());
+    zoomBar.add(zoomLabel);
+    zoomBar.add(zoomOutButton);
+    zoomBar.add(zoomInButton);
+    zoomBar.add(actualSizeButton);
+    zoomBar.add(fitButton);
+    return zoomBar;
+  }
+
+  /**
+   * Installs mouse handling on the canvas: dragging pans the view, and the wheel zooms around the
+   * cursor while Ctrl is held (plain wheel events keep scrolling the view).
+   */
+  private void installPanAndZoom() {
+    MouseAdapter handler = new MouseAdapter() {
+      private Point dragOrigin;
+
+      @Override
+      public void mousePressed(MouseEvent e) {
+        dragOrigin = e.getPoint();
+      }
+
+      @Override
+      public void mouseDragged(MouseEvent e) {
+        if (dragOrigin == null) {
+          return;
+        }
+        JViewport viewport = scrollPane.getViewport();
+        Rectangle view = viewport.getViewRect();
+        view.translate(dragOrigin.x - e.getX(), dragOrigin.y - e.getY());
+        canvas.scrollRectToVisible(view);
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        dragOrigin = null;
+      }
+
+      @Override
+      public void mouseWheelMoved(MouseWheelEvent e) {
+        if (!e.isControlDown()) {
+          scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(canvas, e, scrollPane));
+          return;
+        }
+        double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+        canvas.setZoom(canvas.getZoom() * factor, e.getX(), e.getY());
+        refreshZoomLabel();
+      }
+    };
+    canvas.addMouseListener(handler);
+    canvas.addMouseMotionListener(handler);
+    canvas.addMouseWheelListener(handler);
+  }
+
+  /**
+   * Shows the current zoom level as a percentage.
+   */
+  private void refreshZoomLabel() {
+    zoomLabel.setText(Math.round(canvas.getZoom() * 100) + "%");
+  }
+}
@@ -0,0 +1,34 @@
+package ime.view.gui;
+
+/**
+ * The ImageTileSource interface gives the view read access to the pixels of an image a row run at
+ * a time, so that a display can read only the region it shows instead of a copy of the whole
+ * image.
+ */
+public interface ImageTileSource {
+
+  /**
+   * Returns the width of the image.
+   *
+   * @return the width in pixels
+   */
+  int getWidth();
+
+  /**
+   * Returns the height of the image.
+   *
+   * @return the height in pixels
+   */
+  int getHeight();
+
+  /**
+   * Copies a run of consecutive pixels of one row into an array.
+   *
+   * @param y      the row index
+   * @param x      the column index of the first pixel
+   * @param argb   the array receiving the pixels, as 0xAARRGGBB, from index 0
+   * @param length the number of pixels to copy
+   * @throws IllegalArgumentException if the run lies outside the image
+   */
+  void readRow(int y, int x, int[] argb, int length);
+}
@@ -13,6 +13,7 @@ public class NavigationPanel extends JPanel {
 
   private final Runnable previousVersionAction;
   private final Runnable nextVersionAction;
+  private final Runnable jumpToVersionAction;
 
   /**
    * Constructs a new NavigationPanel with specified actions for previous and next version
@@ -22,10 +23,14 @@ public class NavigationPanel extends JPanel {
    *                              clicked.
    * @param nextVersionAction     The Runnable to be executed when the "Next Version" button is
    *                              clicked.
+   * @param jumpToVersionAction   The Runnable to be executed when the "Go to Version" button is
+   *                              clicked.
    */
-  public NavigationPanel(Runnable previousVersionAction, Runnable nextVersionAction) {
+  public NavigationPanel(Runnable previousVersionAction, Runnable nextVersionAction,
+      Runnable jumpToVersionAction) {
     this.previousVersionAction = previousVersionAction;
     this.nextVersionAction = nextVersionAction;
+    this.jumpToVersionAction = jumpToVersionAction;
     initializePanel();
   }
 
@@ -37,9 +42,12 @@ public class NavigationPanel extends JPanel {
     setLayout(new FlowLayout());
     JButton prevButton = new JButton("Previous Version");
     JButton nextButton = new JButton("Next Version");
+    JButton jumpButton = new JButton("Go to Version");
     prevButton.addActionListener(e -> previousVersionAction.run());
     nextButton.addActionListener(e -> nextVersionAction.run());
+    jumpButton.addActionListener(e -> jumpToVersionAction.run());
     add(prevButton);
     add(nextButton);
+    add(jumpButton);
   }
 }
\ No newline at end of file
@@ -0,0 +1,326 @@
+package ime.view.gui;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+
+/**
+ * The TiledImageCanvas class is a Swing component which paints an image as a grid of fixed size
+ * tiles. Only the tiles which intersect the visible region are rendered, at the current zoom level,
+ * by reading the pixels they show from an {@link ImageTileSource}. Each rendered tile is kept in a
+ * bounded least-recently-used cache, so the canvas never holds a copy of the whole image, at any
+ * zoom, and panning over a large image only reads the tiles coming into view.
+ */
+public class TiledImageCanvas extends JComponent implements Scrollable {
+
+  /**
+   * Edge length, in screen pixels, of a rendered tile.
+   */
+  static final int TILE_SIZE = 256;
+
+  /**
+   * Smallest zoom factor allowed.
+   */
+  static final double MIN_ZOOM = 1 / 32.0;
+
+  /**
+   * Largest zoom factor allowed.
+   */
+  static final double MAX_ZOOM = 32.0;
+
+  private static final int DEFAULT_MAX_CACHED_TILES = 256;
+
+  private final Map<TileKey, BufferedImage> tileCache;
+  private ImageTileSource source;
+  private int sourceWidth;
+  private int sourceHeight;
+  private double zoom;
+
+  /**
+   * Constructs an empty canvas, at 100% zoom, caching up to a default number of rendered tiles.
+   */
+  public TiledImageCanvas() {
+    this(DEFAULT_MAX_CACHED_TILES);
+  }
+
+  /**
+   * Constructs an empty canvas, at 100% zoom, caching up to the given number of rendered tiles.
+   *
+   * @param maxCachedTiles upper bound on the number of rendered tiles kept in memory
+   */
+  public TiledImageCanvas(int maxCachedTiles) {
+    if (maxCachedTiles <= 0) {
+      throw new IllegalArgumentException("Tile cache size must be positive");
+    }
+    this.tileCache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TileKey, BufferedImage> eldest) {
+        return size() > maxCachedTiles;
+      }
+    };
+    this.zoom = 1.0;
+    setOpaque(false);
+  }
+
+  /**
+   * Replaces the displayed image. Previously rendered tiles are discarded.
+   *
+   * @param image the source of the image to display, or null to clear the canvas
+   */
+  public void setImage(ImageTileSource image) {
+    this.source = image;
+    this.sourceWidth = image == null ? 0 : image.getWidth();
+    this.sourceHeight = image == null ? 0 : image.getHeight();
+    tileCache.clear();
+    revalidate();
+    repaint();
+  }
+
+  /**
+   * Returns the zoom factor currently applied to the image.
+   *
+   * @return the zoom factor, where 1.0 is one image pixel per screen pixel
+   */
+  public double getZoom() {
+    return zoom;
+  }
+
+  /**
+   * Sets the zoom factor, keeping the image point at the centre of the visible region in place.
+   * Values outside [{@link #MIN_ZOOM}, {@link #MAX_ZOOM}] are clamped.
+   *
+   * @param newZoom the requested zoom factor
+   */
+  public void setZoom(double newZoom) {
+    Rectangle visible = getVisibleRect();
+    setZoom(newZoom, visible.x + visible.width / 2, visible.y + visible.height / 2);
+  }
+
+  /**
+   * Sets the zoom factor, keeping the image point under the given component coordinates in place.
+   * Values outside [{@link #MIN_ZOOM}, {@link #MAX_ZOOM}] are clamped.
+   *
+   * @param newZoom the requested zoom factor
+   * @param anchorX x coordinate, in this component, which should stay fixed
+   * @param anchorY y coordinate, in this component, which should stay fixed
+   */
+  public void setZoom(double newZoom, int anchorX, int anchorY) {
+    newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+    if (newZoom == zoom) {
+      return;
+    }
+    Rectangle visible = getVisibleRect();
+    double imageX = anchorX / zoom;
+    double imageY = anchorY / zoom;
+    this.zoom = newZoom;
+    tileCache.clear();
+    revalidate();
+
+    int offsetX = anchorX - visible.x;
+    int offsetY = anchorY - visible.y;
+    Rectangle target = new Rectangle((int) Math.round(imageX * zoom) - offsetX,
+        (int) Math.round(imageY * zoom) - offsetY, visible.width, visible.height);
+    setSize(getPreferredSize());
+    scrollRectToVisible(target);
+    repaint();
+  }
+
+  /**
+   * Chooses the zoom factor at which the whole image fits into the given viewport size.
+   *
+   * @param viewport size of the area available for the image
+   */
+  public void zoomToFit(Dimension viewport) {
+    if (source == null || viewport.width <= 0 || viewport.height <= 0) {
+      return;
+    }
+    double fit = Math.min((double) viewport.width / sourceWidth,
+        (double) viewport.height / sourceHeight);
+    setZoom(Math.min(1.0, fit), 0, 0);
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (source == null) {
+      return new Dimension(0, 0);
+    }
+    return new Dimension((int) Math.ceil(sourceWidth * zoom),
+        (int) Math.ceil(sourceHeight * zoom));
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    if (source == null) {
+      return;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(getPreferredSize());
+    }
+    Dimension size = getPreferredSize();
+    int firstColumn = Math.max(0, clip.x / TILE_SIZE);
+    int firstRow = Math.max(0, clip.y / TILE_SIZE);
+    int lastColumn = Math.min((size.width - 1) / TILE_SIZE, (clip.x + clip.width - 1) / TILE_SIZE);
+    int lastRow = Math.min((size.height - 1) / TILE_SIZE, (clip.y + clip.height - 1) / TILE_SIZE);
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        BufferedImage tile = getTile(column, row, size);
+        g.drawImage(tile, column * TILE_SIZE, row * TILE_SIZE, null);
+      }
+    }
+  }
+
+  /**
+   * Fetches a rendered tile from the cache, rendering and caching it on a miss.
+   *
+   * @param column tile column, in screen space
+   * @param row    tile row, in screen space
+   * @param size   size of the zoomed image
+   * @return the rendered tile
+   */
+  private BufferedImage getTile(int column, int row, Dimension size) {
+    TileKey key = new TileKey(column, row, zoom);
+    BufferedImage tile = tileCache.get(key);
+    if (tile == null) {
+      tile = renderTile(column, row, size);
+      tileCache.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Renders one tile of the zoomed image. Each screen pixel shows the source pixel it falls on, so
+   * only the source rows sampled by the tile are read, each over the run of columns the tile
+   * covers, and a row is read once however many screen rows show it.
+   *
+   * @param column tile column, in screen space
+   * @param row    tile row, in screen space
+   * @param size   size of the zoomed image
+   * @return a new image holding the tile
+   */
+  private BufferedImage renderTile(int column, int row, Dimension size) {
+    int screenX = column * TILE_SIZE;
+    int screenY = row * TILE_SIZE;
+    int width = Math.min(TILE_SIZE, size.width - screenX);
+    int height = Math.min(TILE_SIZE, size.height - screenY);
+
+    int firstSourceX = toSource(screenX, sourceWidth);
+    int[] sourceColumns = new int[width];
+    for (int x = 0; x < width; x++) {
+      sourceColumns[x] = toSource(screenX + x, sourceWidth) - firstSourceX;
+    }
+    int[] run = new int[sourceColumns[width - 1] + 1];
+    int[] pixels = new int[width * height];
+    int sourceY = -1;
+    for (int y = 0; y < height; y++) {
+      int nextSourceY = toSource(screenY + y, sourceHeight);
+      if (nextSourceY != sourceY) {
+        sourceY = nextSourceY;
+        source.readRow(sourceY, firstSourceX, run, run.length);
+      }
+      for (int x = 0; x < width; x++) {
+        pixels[y * width + x] = run[sourceColumns[x]];
+      }
+    }
+
+    BufferedImage tile = createTileImage(width, height);
+    tile.setRGB(0, 0, width, height, pixels, 0, width);
+    return tile;
+  }
+
+  /**
+   * Maps a screen coordinate to the coordinate of the source pixel it falls on.
+   *
+   * @param screen the coordinate in the zoomed image
+   * @param extent the source width or height along that axis
+   * @return the source coordinate
+   */
+  private int toSource(int screen, int extent) {
+    return Math.min(extent - 1, (int) (screen / zoom));
+  }
+
+  /**
+   * Creates an empty tile image, in the screen's native format when one is available so that
+   * painting the tile later needs no further conversion.
+   *
+   * @param width  tile width
+   * @param height tile height
+   * @return a blank tile image
+   */
+  private BufferedImage createTileImage(int width, int height) {
+    GraphicsConfiguration config = getGraphicsConfiguration();
+    if (config != null) {
+      return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+    return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+  }
+
+  @Override
+  public Dimension getPreferredScrollableViewportSize() {
+    return getPreferredSize();
+  }
+
+  @Override
+  public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return Math.max(1, TILE_SIZE / 8);
+  }
+
+  @Override
+  public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportWidth() {
+    return false;
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportHeight() {
+    return false;
+  }
+
+  /**
+   * Identifies a rendered tile by its grid position and the zoom it was rendered at.
+   */
+  private static final class TileKey {
+
+    private final int column;
+    private final int row;
+    private final double zoom;
+
+    TileKey(int column, int row, double zoom) {
+      this.column = column;
+      this.row = row;
+      this.zoom = zoom;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof TileKey)) {
+        return false;
+      }
+      TileKey other = (TileKey) obj;
+      return column == other.column && row == other.row && zoom == other.zoom;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(column, row, zoom);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package ime.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ime.controller.metrics.CommandMetrics;
+import ime.model.Model;
+import ime.view.ViewInterface;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for running a script template over many files with the BatchRunner.
+ */
+public class BatchRunnerTest {
+
+  private static final Path SAMPLE =
+      Paths.get("test/ime/controller/testResources/controller_tests_image_ppm.ppm");
+  private static final List<String> TEMPLATE = List.of("load {input} img", "sepia img img",
+      "save {output}/{name}-sepia.{ext} img");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private List<String> log;
+  private ViewInterface view;
+
+  /**
+   * Sets up a view recording what the runner reports.
+   */
+  @Before
+  public void setUp() {
+    log = Collections.synchronizedList(new ArrayList<>());
+    view = new MockView(log);
+  }
+
+  /**
+   * Tests that the placeholders of the template are replaced for an input.
+   */
+  @Test
+  public void testSubstitute() {
+    BatchRunner runner = new BatchRunner(TEMPLATE, 1, 1, Model::new, view, new CommandMetrics());
+    assertEquals(List.of(List.of("load", "in/photo.png", "img"), List.of("sepia", "img", "img"),
+        List.of("save", "out/photo-sepia.png", "img")),
+        runner.substitute(Paths.get("in", "photo.png"), Paths.get("out")));
+  }
+
+  /**
+   * Tests that input and output paths containing spaces are processed whole.
+   */
+  @Test
+  public void testRunWithSpacesInPaths() throws IOException, InterruptedException {
+    Path directory = folder.newFolder("in put").toPath();
+    Path input = Files.copy(SAMPLE, directory.resolve("my photo.ppm"));
+    Path output = folder.getRoot().toPath().resolve("out put");
+
+    BatchRunner runner = new BatchRunner(TEMPLATE, 1, 1, Model::new, view,
+        new CommandMetrics());
+    assertEquals(0, runner.run(List.of(input), output));
+    assertTrue(Files.exists(output.resolve("my photo-sepia.ppm")));
+    assertEquals(List.of("displayMessage: " + input + ": done",
+        "displayMessage: Processed 1 files, 0 failed"), log);
+  }
+
+  /**
+   * Tests that directories and glob patterns are expanded to the images they contain.
+   */
+  @Test
+  public void testExpandInputs() throws IOException {
+    Path directory = folder.newFolder("in").toPath();
+    Files.copy(SAMPLE, directory.resolve("b.ppm"));
+    Files.copy(SAMPLE, directory.resolve("a.ppm"));
+    Files.writeString(directory.resolve("notes.txt"), "not an image");
+
+    assertEquals(List.of(directory.resolve("a.ppm"), directory.resolve("b.ppm")),
+        BatchRunner.expandInputs(List.of(directory.toString())));
+    assertEquals(List.of(directory.resolve("b.ppm")),
+        BatchRunner.expandInputs(List.of(directory.resolve("b*").toString())));
+    assertEquals(List.of(Paths.get("missing.png")),
+        BatchRunner.expandInputs(List.of("missing.png")));
+  }
+
+  /**
+   * Tests that every input is processed with several workers and a budget smaller than one image,
+   * and that a failing input is reported without stopping the others.
+   */
+  @Test
+  public void testRunProcessesEveryFile() throws IOException, InterruptedException {
+    Path directory = folder.newFolder("in").toPath();
+    List<Path> inputs = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      inputs.add(Files.copy(SAMPLE, directory.resolve("image" + i + ".ppm")));
+    }
+    inputs.add(directory.resolve("missing.ppm"));
+    Path output = folder.getRoot().toPath().resolve("out");
+
+    BatchRunner runner = new BatchRunner(TEMPLATE, 3, 1, () -> new Model(1 << 20), view,
+        new CommandMetrics());
+    assertEquals(1, runner.run(inputs, output));
+
+    for (int i = 0; i < 8; i++) {
+      assertTrue(Files.exists(output.resolve("image" + i + "-sepia.ppm")));
+    }
+    assertEquals(10, log.size());
+    assertTrue(log.contains("displayError: " + directory.resolve("missing.ppm") + ": "
+        + "java.io.FileNotFoundException: " + directory.resolve("missing.ppm")
+        + " (No such file or directory)"));
+    assertEquals("displayMessage: Processed 9 files, 1 failed", log.get(9));
+  }
+
+  /**
+   * Tests that the estimate of an input's memory follows its dimensions.
+   */
+  @Test
+  public void testEstimateBytes() {
+    assertEquals(4 * 4 * BatchRunner.BYTES_PER_PIXEL, BatchRunner.estimateBytes(
+        Paths.get("test/ime/controller/testResources/controller_tests_image_png.png")));
+    assertEquals(0, BatchRunner.estimateBytes(Paths.get("missing.png")));
+  }
+
+  /**
+   * Tests that a runner without workers is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoWorkers() {
+    new BatchRunner(TEMPLATE, 0, 1, Model::new, view, new CommandMetrics());
+  }
+}
@@ -0,0 +1,179 @@
+package ime.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ime.controller.metrics.CommandMetrics;
+import ime.model.Model;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test class for serving the command language over a socket with the CommandServer.
+ */
+public class CommandServerTest {
+
+  private static final String LOAD_SAMPLE =
+      "load test/ime/controller/testResources/controller_tests_image_ppm.ppm sample";
+
+  private CommandServer server;
+
+  /**
+   * Stops the server started by a test.
+   */
+  @After
+  public void tearDown() throws IOException {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  private void start(CommandServer commandServer) {
+    server = commandServer;
+    Thread serving = new Thread(() -> {
+      try {
+        server.serve();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    serving.setDaemon(true);
+    serving.start();
+  }
+
+  /**
+   * Tests that a session answers every command, ends each answer with the end of response line,
+   * and survives an invalid command.
+   */
+  @Test
+  public void testSessionRunsCommands() throws IOException {
+    start(new CommandServer(0, Model::new, new CommandMetrics()));
+    try (Session session = new Session(server.getPort())) {
+      assertEquals(List.of("Enter commands (type 'exit' to quit) = "), session.response());
+      assertEquals(List.of("Processing Command = " + LOAD_SAMPLE, "Executed command = true"),
+          session.send(LOAD_SAMPLE));
+      assertEquals(List.of("Processing Command = unknown sample",
+          "Error: Invalid command: unknown"), session.send("unknown sample"));
+      assertEquals(List.of("Processing Command = sepia sample sepia", "Executed command = true"),
+          session.send("sepia sample sepia"));
+      assertEquals(List.of(), session.send("# comment"));
+      session.out.println("exit");
+      session.out.flush();
+      assertEquals("Thank you for using this program!", session.in.readLine());
+      assertEquals(null, session.in.readLine());
+    }
+  }
+
+  /**
+   * Tests that sessions have their own images unless the store is shared.
+   */
+  @Test
+  public void testSessionStores() throws IOException {
+    start(new CommandServer(0, Model::new, new CommandMetrics()));
+    try (Session first = new Session(server.getPort());
+        Session second = new Session(server.getPort())) {
+      first.response();
+      second.response();
+      first.send(LOAD_SAMPLE);
+      assertTrue(second.send("sepia sample sepia").get(1).startsWith("Error: "));
+    }
+    server.close();
+
+    start(CommandServer.shared(0, new Model(), new CommandMetrics()));
+    try (Session first = new Session(server.getPort());
+        Session second = new Session(server.getPort())) {
+      first.response();
+      second.response();
+      first.send(LOAD_SAMPLE);
+      assertEquals("Executed command = true", second.send("sepia sample sepia").get(1));
+    }
+  }
+
+  /**
+   * Tests that concurrent sessions on a shared store with a result cache and off-heap images all
+   * succeed while they replace a common image and read it back into their own.
+   */
+  @Test
+  public void testConcurrentSharedSessions() throws Exception {
+    start(CommandServer.shared(0, new Model(1 << 20, 1), new CommandMetrics()));
+    int sessions = 4;
+    ExecutorService pool = Executors.newFixedThreadPool(sessions);
+    try {
+      List<Callable<List<String>>> clients = new ArrayList<>();
+      for (int i = 0; i < sessions; i++) {
+        String own = "own" + i;
+        clients.add(() -> {
+          List<String> failures = new ArrayList<>();
+          try (Session session = new Session(server.getPort())) {
+            session.response();
+            for (int round = 0; round < 20; round++) {
+              for (String command : List.of(LOAD_SAMPLE, "sepia sample " + own,
+                  "brighten 10 " + own + " " + own, "horizontal-flip sample shared",
+                  "blur shared " + own)) {
+                List<String> response = session.send(command);
+                if (!response.get(1).equals("Executed command = true")) {
+                  failures.add(command + ": " + response);
+                }
+              }
+            }
+          }
+          return failures;
+        });
+      }
+      for (Future<List<String>> failures : pool.invokeAll(clients)) {
+        assertEquals(List.of(), failures.get());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * A client connection reading responses up to their end line.
+   */
+  private static final class Session implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private Session(int port) throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+    }
+
+    private List<String> send(String command) throws IOException {
+      out.println(command);
+      return response();
+    }
+
+    private List<String> response() throws IOException {
+      List<String> lines = new ArrayList<>();
+      String line;
+      while (!(line = in.readLine()).equals(CommandServer.END_OF_RESPONSE)) {
+        lines.add(line);
+      }
+      return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+}
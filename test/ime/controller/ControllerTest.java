@@ -5,15 +5,37 @@ import static ime.controller.ControllerTestConstants.BLUE_MATRIX_READ;
 import static ime.controller.ControllerTestConstants.GREEN_MATRIX_READ;
 import static ime.controller.ControllerTestConstants.RED_MATRIX_READ;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import ime.controller.metrics.CommandMetrics;
 import ime.model.MockModel;
+import ime.model.Model;
 import ime.model.ModelInterface;
+import ime.model.ModelTest;
+import ime.model.OperationProvider;
+import ime.view.DisplayMessageConstants;
 import ime.view.ViewInterface;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Adler32;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -555,4 +577,664 @@ public class ControllerTest {
     System.out.println(log);
     assertTrue(log.contains(expectedExitMessage));
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests that the stats command reports the phases recorded for the commands run before it, and
+   * that the metrics passed to the controller receive them.
+   */
+  @Test
+  public void testStatsCommand() throws IOException {
+    String commands = "load test/ime/controller/testResources/controller_tests_image_ppm.ppm "
+        + "sample\nsepia sample sample-sepia\nstats";
+    CommandMetrics metrics = new CommandMetrics();
+    inputReader = new StringReader(commands); /* Simulated user input */
+    controller = new Controller(inputReader, mockView, mockModel, metrics);
+    controller.run(); /* Execute the controller */
+
+    String stats = log.get(log.size() - 2);
+    assertTrue(stats.startsWith("displayMessage: command"));
+    assertTrue(stats.contains("load                 decode"));
+    assertTrue(stats.contains("load                 execute"));
+    assertTrue(stats.contains("sepia                validate"));
+    assertEquals("displayMessage: Executed command = true", log.get(log.size() - 1));
+    assertTrue(metrics.toJson().contains("\"stats\": {"));
+  }
+
+  /**
+   * Tests that in lazy mode only the commands a saved image needs are run, a repeated command is
+   * run once, and the images it made are given versioned names.
+   */
+  @Test
+  public void testLazyModeSkipsUnsavedResults() throws IOException {
+    String commands = "load test/ime/controller/testResources/controller_tests_image_ppm.ppm "
+        + "sample\nsepia sample sample-sepia\nblur sample unused\nsepia sample again\n"
+        + "brighten 10 again bright\nsave test/ime/controller/testOutputs/lazy.ppm bright";
+    inputReader = new StringReader(commands); /* Simulated user input */
+    Controller lazyController = new Controller(inputReader, mockView, mockModel);
+    lazyController.setLazy(true);
+    lazyController.run(); /* Execute the controller */
+
+    List<String> calls = new ArrayList<>();
+    for (String entry : log) {
+      if (!entry.startsWith("displayMessage: Processing")
+          && !entry.startsWith("displayMessage: Executed")) {
+        calls.add(entry.replaceAll("\\{red=.*", "{...})"));
+      }
+    }
+    assertEquals(List.of("displayMessage: Enter commands (type 'exit' to quit) = \n",
+        "convertAndStoreImage(#0:sample, {...})",
+        "commandFactoryCall(sepia, [sepia, #0:sample, #1:sample-sepia])",
+        "commandFactoryCall(brighten, [brighten, 10, #1:sample-sepia, #3:bright])",
+        "convertAndFetchImage(#3:bright)",
+        "displayMessage: Image saved to = test/ime/controller/testOutputs/lazy.ppm",
+        "displayMessage: Commands skipped as never saved = 1"), calls);
+  }
+
+  /**
+   * Tests that in lazy mode a load of a file the script saved to reads what was saved, and that a
+   * load made before a save to its file keeps the pixels the file had, as when run eagerly.
+   */
+  @Test
+  public void testLazyModeReloadsSavedFile() throws IOException {
+    Path directory = Files.createTempDirectory("ime-lazy-reload");
+    try {
+      List<List<byte[]>> outputs = new ArrayList<>();
+      for (boolean lazy : new boolean[]{false, true}) {
+        Path in = directory.resolve(lazy + "-in.ppm");
+        Files.copy(Paths.get("test/ime/controller/testResources/controller_tests_image_ppm.ppm"),
+            in);
+        Path first = directory.resolve(lazy + "-first.ppm");
+        Path second = directory.resolve(lazy + "-second.ppm");
+        Controller controller = new Controller(new StringReader("load " + in + " a\n"
+            + "brighten 100 a b\nsave " + in + " b\nload " + in + " c\nsave " + first + " c\n"
+            + "load " + in + " d\nsave " + in + " a\nsave " + second + " d"), mockView,
+            new Model());
+        controller.setLazy(lazy);
+        controller.run();
+        outputs.add(List.of(Files.readAllBytes(first), Files.readAllBytes(second)));
+      }
+
+      byte[] original = Files.readAllBytes(
+          Paths.get("test/ime/controller/testResources/controller_tests_image_ppm.ppm"));
+      assertFalse(Arrays.equals(original, outputs.get(0).get(0)));
+      assertTrue(Arrays.equals(outputs.get(0).get(0), outputs.get(0).get(1)));
+      assertTrue(Arrays.equals(outputs.get(0).get(0), outputs.get(1).get(0)));
+      assertTrue(Arrays.equals(outputs.get(0).get(1), outputs.get(1).get(1)));
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that in lazy mode an image which a later command renames over is still computed from
+   * the image the name held when the command was read, and intermediate images are removed once
+   * no name refers to them.
+   */
+  @Test
+  public void testLazyModeVersionsReusedNames() throws IOException {
+    String commands = "load test/ime/controller/testResources/controller_tests_image_ppm.ppm "
+        + "img\nsepia img img\nsave test/ime/controller/testOutputs/lazy.ppm img\n"
+        + "horizontal-flip img img\nsave test/ime/controller/testOutputs/lazy.ppm img";
+    inputReader = new StringReader(commands); /* Simulated user input */
+    Controller lazyController = new Controller(inputReader, mockView, mockModel);
+    lazyController.setLazy(true);
+    lazyController.run(); /* Execute the controller */
+
+    assertTrue(log.contains("commandFactoryCall(sepia, [sepia, #0:img, #1:img])"));
+    assertTrue(log.contains("removeImage(#0:img)"));
+    assertTrue(log.contains(
+        "commandFactoryCall(horizontal-flip, [horizontal-flip, #1:img, #2:img])"));
+    assertTrue(log.contains("removeImage(#1:img)"));
+    assertEquals("displayMessage: Commands skipped as never saved = 0", log.get(log.size() - 1));
+  }
+
+  /**
+   * Tests that with asynchronous I/O every load and save still happens, in script order as seen by
+   * the model, a load of a file saved earlier waits for the save, and errors are still reported.
+   */
+  @Test
+  public void testAsyncIoPreservesDependencies() throws IOException {
+    String commands = "load test/ime/controller/testResources/controller_tests_image_ppm.ppm a\n"
+        + "load test/ime/controller/testResources/controller_tests_image_png.png b\n"
+        + "save test/ime/controller/testOutputs/async.ppm a\n"
+        + "load test/ime/controller/testOutputs/async.ppm c\n"
+        + "load test/ime/controller/testResources/missing.png d\n"
+        + "save test/ime/controller/testOutputs/async.png b";
+    inputReader = new StringReader(commands); /* Simulated user input */
+    Controller asyncController = new Controller(inputReader, mockView, mockModel);
+    asyncController.setAsyncIo(true);
+    asyncController.run(); /* Execute the controller */
+
+    List<String> calls = new ArrayList<>();
+    for (String entry : log) {
+      if (!entry.startsWith("displayMessage: Processing")
+          && !entry.startsWith("displayMessage: Executed")) {
+        calls.add(entry.replaceAll("\\{red=.*", "{...})"));
+      }
+    }
+    assertEquals(List.of("displayMessage: Enter commands (type 'exit' to quit) = \n",
+        "convertAndStoreImage(a, {...})",
+        "convertAndStoreImage(b, {...})",
+        "convertAndFetchImage(a)",
+        "displayMessage: Image saved to = test/ime/controller/testOutputs/async.ppm",
+        "convertAndStoreImage(c, {...})",
+        "displayError: Processing Command = Can't read input file!",
+        "convertAndFetchImage(b)",
+        "displayMessage: Image saved to = test/ime/controller/testOutputs/async.png"), calls);
+  }
+
+  /**
+   * Tests that a script run with asynchronous I/O, followed by more loads than can be decoded
+   * ahead, runs to the end rather than waiting for the permits the enclosing lines hold.
+   */
+  @Test(timeout = 30000)
+  public void testAsyncIoNestedRun() throws IOException {
+    Path directory = Files.createTempDirectory("ime-async-run");
+    Path inner = directory.resolve("inner.txt");
+    String ppm = "test/ime/controller/testResources/controller_tests_image_ppm.ppm";
+    String png = "test/ime/controller/testResources/controller_tests_image_png.png";
+    try {
+      Files.writeString(inner, "load " + ppm + " x\nload " + png + " y\n");
+      inputReader = new StringReader("load " + ppm + " a\nrun " + inner + "\nload " + png
+          + " b\nload " + ppm + " c\nload " + png + " d");
+      Controller asyncController = new Controller(inputReader, mockView, mockModel);
+      asyncController.setAsyncIo(true);
+      asyncController.run();
+
+      List<String> stores = new ArrayList<>();
+      for (String entry : log) {
+        if (entry.startsWith("convertAndStoreImage(")) {
+          stores.add(entry.substring(0, entry.indexOf(',')));
+        }
+      }
+      assertEquals(List.of("convertAndStoreImage(a", "convertAndStoreImage(x",
+          "convertAndStoreImage(y", "convertAndStoreImage(b", "convertAndStoreImage(c",
+          "convertAndStoreImage(d"), stores);
+    } finally {
+      Files.deleteIfExists(inner);
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  /**
+   * Tests that an image saved in the raw format and loaded back, which maps it into the model, has
+   * the same pixels, alpha included, and that the raw reader and writer used by the GUI agree.
+   */
+  @Test
+  public void testRawFormatRoundTrip() throws IOException {
+    Path directory = Files.createTempDirectory("ime-raw");
+    String raw = directory.resolve("image.imr").toString();
+    String copy = directory.resolve("copy.imr").toString();
+    ModelInterface model = new Model();
+    try {
+      String commands = "load test/ime/controller/testResources/controller_tests_image_png.png a\n"
+          + "brighten 30 a a\n"
+          + "save " + raw + " a\n"
+          + "load " + raw + " b\n"
+          + "sepia b c\n"
+          + "save " + raw + " c\n"
+          + "load " + raw + " d";
+      new Controller(new StringReader(commands), mockView, model).run();
+
+      assertRawEquals(model.convertAndFetchImage("a"), model.convertAndFetchImage("b"));
+      assertRawEquals(model.convertAndFetchImage("c"), model.convertAndFetchImage("d"));
+
+      BufferedImage read = ImageReaderFactory.getReader("imr").read(raw);
+      ImageWriterFactory.getWriter("imr").write(read, "imr", new File(copy));
+      new Controller(new StringReader("load " + copy + " e"), mockView, model).run();
+      assertRawEquals(model.convertAndFetchImage("d"), model.convertAndFetchImage("e"));
+    } finally {
+      model.removeImage("b");
+      model.removeImage("d");
+      model.removeImage("e");
+      Files.deleteIfExists(Paths.get(raw));
+      Files.deleteIfExists(Paths.get(copy));
+      Files.delete(directory);
+    }
+  }
+
+  /**
+   * Tests that a script streamed in strips of a few rows saves the same images as running it on
+   * the whole image, across neighborhood operations whose halos span several strips and the
+   * stages started by vertical-flip and downscale.
+   */
+  @Test
+  public void testStreamedScriptMatchesInMemoryRun() throws IOException {
+    Path directory = Files.createTempDirectory("ime-stream");
+    String source = directory.resolve("source.imr").toString();
+    Path inMemory = Files.createDirectory(directory.resolve("memory"));
+    Path streamed = Files.createDirectory(directory.resolve("stream"));
+    BufferedImage image = new BufferedImage(37, 53, BufferedImage.TYPE_INT_ARGB);
+    Random random = new Random(7);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    String script = "load " + source + " a\n"
+        + "brighten 20 a a\n"
+        + "blur a b\n"
+        + "sharpen b c split 50\n"
+        + "horizontal-flip c d\n"
+        + "save {out}/d.imr d\n"
+        + "vertical-flip d e\n"
+        + "sepia e f split 30\n"
+        + "downscale 20 29 f g\n"
+        + "blur g h\n"
+        + "save {out}/h.ppm h\n"
+        + "save {out}/b.imr b";
+    try {
+      ImageWriterFactory.getWriter("imr").write(image, "imr", new File(source));
+      new Controller(new StringReader(script.replace("{out}", inMemory.toString())), mockView,
+          new Model()).run();
+      assertTrue(new StripStreamer(Arrays.asList(
+          script.replace("{out}", streamed.toString()).split("\n")), 4, Model::new, mockView,
+          new CommandMetrics()).run());
+
+      ModelInterface model = new Model();
+      for (String file : List.of("d.imr", "h.ppm", "b.imr")) {
+        new Controller(new StringReader("load " + inMemory.resolve(file) + " m\n"
+            + "load " + streamed.resolve(file) + " s"), mockView, model).run();
+        assertRawEquals(model.convertAndFetchImage("m"), model.convertAndFetchImage("s"));
+      }
+
+      assertFalse(new StripStreamer(List.of("load " + source + " a", "color-correct a b",
+          "save " + streamed.resolve("b.ppm") + " b"), 4, Model::new, mockView,
+          new CommandMetrics()).run());
+      assertTrue(log.get(log.size() - 1).startsWith("displayError: "
+          + DisplayMessageConstants.CANNOT_STREAM + "color-correct"));
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTiledTiffRoundTripAndRegionLoad() throws IOException {
+    Path directory = Files.createTempDirectory("ime-tiff");
+    String source = directory.resolve("source.imr").toString();
+    String tiff = directory.resolve("tiled.tif").toString();
+    BufferedImage image = new BufferedImage(300, 270, BufferedImage.TYPE_INT_ARGB);
+    Random random = new Random(5);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    try {
+      ImageWriterFactory.getWriter("imr").write(image, "imr", new File(source));
+      ModelInterface model = new Model();
+      new Controller(new StringReader("load " + source + " a\n"
+          + "save " + tiff + " a\n"
+          + "load " + tiff + " b\n"
+          + "crop 250 240 40 25 a ca\n"
+          + "crop 250 240 40 25 b cb"), mockView, model).run();
+      assertRawEquals(model.convertAndFetchImage("ca"), model.convertAndFetchImage("cb"));
+      assertRawEquals(model.convertAndFetchImage("a"), model.convertAndFetchImage("b"));
+
+      try (ImageInputStream stream = ImageIO.createImageInputStream(new File(tiff))) {
+        javax.imageio.ImageReader reader = ImageIO.getImageReaders(stream).next();
+        reader.setInput(stream);
+        assertTrue(reader.isImageTiled(0));
+        assertEquals(TiffImageWriter.TILE_SIZE, reader.getTileWidth(0));
+        reader.dispose();
+      }
+      BufferedImage decoded = ImageReaderFactory.getReader("tif").read(tiff);
+      for (int y = 0; y < image.getHeight(); y++) {
+        for (int x = 0; x < image.getWidth(); x++) {
+          assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the sized blurs require an integer box radius, a numeric sigma, and a split keyword
+   * followed by an integer percent from 0 to 100.
+   */
+  @Test
+  public void testSizedBlurValidation() {
+    Controller controller = new Controller(new StringReader(""), mockView, mockModel);
+    for (String invalid : List.of("box-blur 2.5 a b", "gaussian-blur wide a b",
+        "box-blur 2 a b splat 50", "gaussian-blur 1.5 a b split half",
+        "box-blur 2 a b split 150", "gaussian-blur 1.5 a b split -1")) {
+      try {
+        controller.executeCommandLine(invalid);
+        fail("Accepted " + invalid);
+      } catch (IllegalArgumentException e) {
+        // The command was rejected before it reached the model
+      }
+    }
+    assertTrue(log.stream().noneMatch(entry -> entry.startsWith("commandFactoryCall")));
+
+    controller.executeCommandLine("box-blur 2 a b split 0");
+    controller.executeCommandLine("gaussian-blur 1.5 a b split 100");
+    assertTrue(log.contains("commandFactoryCall(box-blur, [box-blur, 2, a, b, split, 0])"));
+    assertTrue(log.contains(
+        "commandFactoryCall(gaussian-blur, [gaussian-blur, 1.5, a, b, split, 100])"));
+  }
+
+  /**
+   * Tests that a command of an operation registered through the service loader is validated
+   * against the operation's parameters and runs through the controller.
+   */
+  @Test
+  public void testServiceLoaderOperationRuns() throws IOException {
+    Path services = Files.createTempDirectory("ime-services");
+    Path descriptor = services.resolve("META-INF/services/" + OperationProvider.class.getName());
+    Files.createDirectories(descriptor.getParent());
+    Files.writeString(descriptor, ModelTest.InvertProvider.class.getName() + "\n");
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{services.toUri().toURL()},
+        getClass().getClassLoader())) {
+      thread.setContextClassLoader(loader);
+      ModelInterface model = new Model();
+      model.convertAndStoreImage("a", Map.of("red", new int[][]{{10}}, "green",
+          new int[][]{{20}}, "blue", new int[][]{{30}}, "alpha", new int[][]{{255}}));
+      Controller controller = new Controller(new StringReader(""), mockView, model);
+
+      controller.executeCommandLine("invert a b");
+      assertEquals(245, model.convertAndFetchImage("b").get("red")[0][0]);
+      assertEquals(225, model.convertAndFetchImage("b").get("blue")[0][0]);
+      for (String invalid : List.of("invert a", "invert a b c", "invert a b split 50",
+          "invert split b", "unknown a b")) {
+        try {
+          controller.executeCommandLine(invalid);
+          fail("Accepted " + invalid);
+        } catch (IllegalArgumentException e) {
+          // The command does not match the operation's parameters
+        }
+      }
+    } finally {
+      thread.setContextClassLoader(previous);
+      Files.delete(descriptor);
+      Files.delete(descriptor.getParent());
+      Files.delete(descriptor.getParent().getParent());
+      Files.delete(services);
+    }
+  }
+
+  @Test
+  public void testClosedTiffSourceStopsReading() throws IOException {
+    Path directory = Files.createTempDirectory("ime-tiff");
+    String tiff = directory.resolve("small.tif").toString();
+    BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB(3, 4, 0xFF102030);
+    try {
+      ImageWriterFactory.getWriter("tif").write(image, "tif", new File(tiff));
+      assertEquals(0xFF102030, ImageReaderFactory.getReader("tif").read(tiff).getRGB(3, 4));
+
+      TiffTileSource source = TiffTileSource.open(tiff);
+      int[] tile = new int[source.getTileWidth() * source.getTileHeight()];
+      source.readTile(0, 0, tile);
+      assertEquals(0xFF102030, tile[4 * source.getTileWidth() + 3]);
+      source.close();
+      try {
+        source.readTile(0, 0, tile);
+        fail("Closed source was read");
+      } catch (IOException e) {
+        // The file was closed
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that images a model keeps off the heap are loaded from and saved to PNG and PPM files a
+   * row at a time, without going through channel matrices.
+   */
+  @Test
+  public void testOffHeapLoadAndSaveStreamRows() throws IOException {
+    Path directory = Files.createTempDirectory("ime-offheap-io");
+    BufferedImage image = new BufferedImage(70, 45, BufferedImage.TYPE_INT_ARGB);
+    Random random = new Random(9);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    List<String> matrixCalls = new ArrayList<>();
+    ModelInterface model = new Model(0, 1) {
+      @Override
+      public void convertAndStoreImage(String imageName, Map<String, int[][]> imgPixelArr) {
+        matrixCalls.add("store " + imageName);
+        super.convertAndStoreImage(imageName, imgPixelArr);
+      }
+
+      @Override
+      public Map<String, int[][]> convertAndFetchImage(String imageName) {
+        matrixCalls.add("fetch " + imageName);
+        return super.convertAndFetchImage(imageName);
+      }
+    };
+    try {
+      String source = directory.resolve("source.png").toString();
+      String png = directory.resolve("copy.png").toString();
+      String ppm = directory.resolve("copy.ppm").toString();
+      ImageWriterFactory.getWriter("png").write(image, "png", new File(source));
+      new Controller(new StringReader("load " + source + " img\n"
+          + "save " + png + " img\n"
+          + "save " + ppm + " img"), mockView, model).run();
+      assertEquals(List.of(), matrixCalls);
+
+      BufferedImage savedPng = ImageReaderFactory.getReader("png").read(png);
+      BufferedImage savedPpm = ImageReaderFactory.getReader("ppm").read(ppm);
+      for (int y = 0; y < image.getHeight(); y++) {
+        for (int x = 0; x < image.getWidth(); x++) {
+          assertEquals(image.getRGB(x, y), savedPng.getRGB(x, y));
+          assertEquals(image.getRGB(x, y) | 0xFF000000, savedPpm.getRGB(x, y));
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLoadRegionAndSubsampling() throws IOException {
+    Path directory = Files.createTempDirectory("ime-load-options");
+    BufferedImage image = new BufferedImage(61, 47, BufferedImage.TYPE_INT_ARGB);
+    Random random = new Random(3);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        image.setRGB(x, y, random.nextInt());
+      }
+    }
+    try {
+      for (String format : List.of("png", "ppm", "imr", "tif", "qoi")) {
+        String file = directory.resolve("image." + format).toString();
+        ImageWriterFactory.getWriter(format).write(image, format, new File(file));
+        ModelInterface model = new Model();
+        new Controller(new StringReader("load " + file + " full\n"
+            + "load " + file + " part region 5 7 30 20 subsample 3\n"
+            + "load " + file + " thumb size 10 10"), mockView, model).run();
+        Map<String, int[][]> full = model.convertAndFetchImage("full");
+        Map<String, int[][]> part = model.convertAndFetchImage("part");
+        assertEquals(format, 7, part.get("red").length);
+        assertEquals(format, 10, part.get("red")[0].length);
+        for (String channel : List.of("red", "green", "blue", "alpha")) {
+          for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 10; x++) {
+              assertEquals(format + " " + channel, full.get(channel)[7 + 3 * y][5 + 3 * x],
+                  part.get(channel)[y][x]);
+            }
+          }
+        }
+        Map<String, int[][]> thumb = model.convertAndFetchImage("thumb");
+        assertEquals(format, 12, thumb.get("red").length);
+        assertEquals(format, 16, thumb.get("red")[0].length);
+        assertEquals(format, full.get("green")[44][60], thumb.get("green")[11][15]);
+      }
+
+      for (String options : List.of("region 0 0 62 10", "subsample 0", "subsample 2 size 4 4",
+          "region 1 2 3", "scale 2")) {
+        try {
+          new Controller(new StringReader("load " + directory.resolve("image.png")
+              + " bad " + options), mockView, new Model()).run();
+          fail("Load accepted " + options);
+        } catch (IllegalArgumentException e) {
+          // Expected
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParallelPngWriterRoundTrip() throws IOException {
+    Path directory = Files.createTempDirectory("ime-png");
+    Random random = new Random(9);
+    BufferedImage noise = new BufferedImage(97, 83, BufferedImage.TYPE_INT_ARGB);
+    BufferedImage gradient = new BufferedImage(97, 83, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < noise.getHeight(); y++) {
+      for (int x = 0; x < noise.getWidth(); x++) {
+        noise.setRGB(x, y, random.nextInt());
+        gradient.setRGB(x, y, (x * 2) << 16 | (y * 3) << 8 | (x + y));
+      }
+    }
+    try {
+      for (BufferedImage image : List.of(noise, gradient)) {
+        for (int level : List.of(0, PngImageWriter.DEFAULT_LEVEL, 9)) {
+          File file = directory.resolve("image.png").toFile();
+          // Strips of a few rows, so the image is deflated as many strips
+          new PngImageWriter(level, 1000).write(image, "png", file);
+          BufferedImage decoded = ImageIO.read(file);
+          assertEquals(image.getColorModel().hasAlpha(), decoded.getColorModel().hasAlpha());
+          for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+              assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+            }
+          }
+        }
+      }
+
+      byte[] first = new byte[70000];
+      byte[] second = new byte[123457];
+      random.nextBytes(first);
+      random.nextBytes(second);
+      Adler32 whole = new Adler32();
+      whole.update(first);
+      whole.update(second);
+      Adler32 firstSum = new Adler32();
+      firstSum.update(first);
+      Adler32 secondSum = new Adler32();
+      secondSum.update(second);
+      assertEquals(whole.getValue(), PngImageWriter.combineAdler32(firstSum.getValue(),
+          secondSum.getValue(), second.length));
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that QOI files round trip every pixel, both through the model and through the
+   * BufferedImage reader and writer, over pixels covering every chunk of the format: long runs,
+   * repeated colors, small and larger differences, and alpha changes.
+   */
+  @Test
+  public void testQoiFormatRoundTrip() throws IOException {
+    Path directory = Files.createTempDirectory("ime-qoi");
+    Random random = new Random(11);
+    BufferedImage image = new BufferedImage(131, 37, BufferedImage.TYPE_INT_ARGB);
+    int[] palette = {0xFF102030, 0x80FFFFFF, 0x00000000, 0xFF7F7F7F};
+    int previous = 0xFF000000;
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        int pixel;
+        switch (y % 5) {
+          case 0:
+            pixel = x < 100 ? 0xFF336699 : random.nextInt();
+            break;
+          case 1:
+            pixel = palette[random.nextInt(palette.length)];
+            break;
+          case 2:
+            pixel = (previous & 0xFF000000)
+                | (((previous >> 16) + random.nextInt(3) - 1) & 0xFF) << 16
+                | (((previous >> 8) + random.nextInt(40) - 20) & 0xFF) << 8
+                | ((previous + random.nextInt(3) - 1) & 0xFF);
+            break;
+          default:
+            pixel = random.nextInt();
+            break;
+        }
+        image.setRGB(x, y, pixel);
+        previous = pixel;
+      }
+    }
+    BufferedImage opaque = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < opaque.getHeight(); y++) {
+      for (int x = 0; x < opaque.getWidth(); x++) {
+        opaque.setRGB(x, y, (x * 6) << 16 | (y * 8) << 8 | (x * y) & 0xFF);
+      }
+    }
+    try {
+      String file = directory.resolve("image.qoi").toString();
+      String copy = directory.resolve("copy.qoi").toString();
+      ImageWriterFactory.getWriter("qoi").write(image, "qoi", new File(file));
+      ModelInterface model = new Model();
+      new Controller(new StringReader("load " + file + " a\n"
+          + "save " + copy + " a"), mockView, model).run();
+      BufferedImage decoded = ImageReaderFactory.getReader("qoi").read(copy);
+      for (int y = 0; y < image.getHeight(); y++) {
+        for (int x = 0; x < image.getWidth(); x++) {
+          assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+        }
+      }
+      assertTrue(Files.size(Paths.get(copy)) < 4L * image.getWidth() * image.getHeight());
+
+      ImageWriterFactory.getWriter("qoi").write(opaque, "qoi", new File(file));
+      decoded = ImageReaderFactory.getReader("qoi").read(file);
+      for (int y = 0; y < opaque.getHeight(); y++) {
+        for (int x = 0; x < opaque.getWidth(); x++) {
+          assertEquals(opaque.getRGB(x, y), decoded.getRGB(x, y));
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private static void assertRawEquals(Map<String, int[][]> expected,
+      Map<String, int[][]> actual) {
+    for (String channel : List.of("red", "green", "blue", "alpha")) {
+      assertTrue(channel, Arrays.deepEquals(expected.get(channel), actual.get(channel)));
+    }
+  }
+}
@@ -10,6 +10,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import ime.controller.gui.GUIController;
+import ime.controller.gui.VersionRetentionPolicy;
 import ime.model.MockModel;
 import ime.model.ModelInterface;
 import ime.view.gui.GraphicalIMEInterface;
@@ -84,7 +85,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + currentImageName + ", "
             + currentImageNameHistogram + "])");
@@ -116,7 +117,7 @@ public class GuiControllerTest {
             + "green=" + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha="
             + ALPHA_MATRIX_READ + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: "); // Log for updating image display
         add("commandFactoryCall(histogram, [histogram, " + currentImageName + ", "
             + currentImageNameHistogram + "])");
@@ -148,7 +149,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + currentImageName + ", "
             + currentImageNameHistogram + "])");
@@ -299,7 +300,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -333,21 +334,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
         add("offerPromptToGetOperationParameters(Enter brighten intensity " + "(-255 to 255): )");
+        add("getImage(controller_tests_image_ppm-brighten)");
         add("commandFactoryCall(brighten, [brighten, 255, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-brighten])");
-        add("convertAndFetchImage(controller_tests_image_ppm-brighten)");
+        add("getImage(controller_tests_image_ppm-brighten)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-brighten, "
             + "controller_tests_image_ppm-brighten-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-brighten-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-brighten, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-brighten)");
+        add("getImage(controller_tests_image_ppm-brighten)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-brighten, "
             + "controller_tests_image_ppm-brighten-histogram])");
@@ -366,12 +368,12 @@ public class GuiControllerTest {
   @Test
   public void brightenTest3() {
     /* brighten intensity set to invalid in the prompt */
+    // The image name belongs to the controller, so the same one loads and then fails
+    mockView = new MockGuiView(log, selectedFile, "1000");
     controller = new GUIController(mockModel, mockView);
     controller.loadImage();
 
-    mockView = new MockGuiView(log, null, "1000");
-    mockModel = new MockModel(log, true);
-    controller = new GUIController(mockModel, mockView);
+    ((MockModel) mockModel).setThrowExceptionOperationsFactoryCall(true);
     controller.brighten();
 
     List<String> expectedLog = new ArrayList<>() {
@@ -381,12 +383,13 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
         add("offerPromptToGetOperationParameters(Enter brighten intensity " + "(-255 to 255): )");
+        add("getImage(controller_tests_image_ppm-brighten)");
         add("displayError: Exception trying to process: " + "commandFactoryCall(brighten, "
             + "[brighten, 1000, controller_tests_image_ppm, "
             + "controller_tests_image_ppm-brighten])");
@@ -415,7 +418,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -449,21 +452,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
         add("offerPromptToGetOperationParameters(Enter compression ratio " + "(0-100): )");
+        add("getImage(controller_tests_image_ppm-compress)");
         add("commandFactoryCall(compress, [compress, 20, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-compress])");
-        add("convertAndFetchImage(controller_tests_image_ppm-compress)");
+        add("getImage(controller_tests_image_ppm-compress)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-compress, "
             + "controller_tests_image_ppm-compress-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-compress-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-compress, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-compress)");
+        add("getImage(controller_tests_image_ppm-compress)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-compress, "
             + "controller_tests_image_ppm-compress-histogram])");
@@ -482,12 +486,12 @@ public class GuiControllerTest {
   @Test
   public void compressTest3() {
     /* compression ratio set to invalid in the prompt */
+    // The image name belongs to the controller, so the same one loads and then fails
+    mockView = new MockGuiView(log, selectedFile, "1000");
     controller = new GUIController(mockModel, mockView);
     controller.loadImage();
 
-    mockView = new MockGuiView(log, null, "1000");
-    mockModel = new MockModel(log, true);
-    controller = new GUIController(mockModel, mockView);
+    ((MockModel) mockModel).setThrowExceptionOperationsFactoryCall(true);
     controller.compress();
 
     List<String> expectedLog = new ArrayList<>() {
@@ -497,12 +501,13 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
         add("offerPromptToGetOperationParameters(Enter compression ratio " + "(0-100): )");
+        add("getImage(controller_tests_image_ppm-compress)");
         add("displayError: Exception trying to process: " + "commandFactoryCall(compress, "
             + "[compress, 1000, controller_tests_image_ppm, "
             + "controller_tests_image_ppm-compress])");
@@ -535,21 +540,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(" + currentImageName + ")");
+        add("getImage(" + currentImageName + ")");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + currentImageName + ", "
             + currentImageNameHistogram + "])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("commandFactoryCall(horizontal-flip, [horizontal-flip, " + "controller_tests_image_ppm,"
             + " controller_tests_image_ppm-horizontal-flip])");
-        add("convertAndFetchImage(controller_tests_image_ppm-horizontal-flip)");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-horizontal-flip, "
             + "controller_tests_image_ppm-horizontal-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-horizontal-flip-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-horizontal-flip, " + "ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-horizontal-flip)");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-horizontal-flip, "
@@ -582,21 +588,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("commandFactoryCall(vertical-flip, [vertical-flip, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-vertical-flip])");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
             + "controller_tests_image_ppm-vertical-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-vertical-flip, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
@@ -627,21 +634,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-red-component)");
         add("commandFactoryCall(red-component, [red-component, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-red-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-red-component)");
+        add("getImage(controller_tests_image_ppm-red-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-red-component, "
             + "controller_tests_image_ppm-red-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-red-component-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-red-component, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-red-component)");
+        add("getImage(controller_tests_image_ppm-red-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-red-component,"
@@ -673,21 +681,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-green-component)");
         add("commandFactoryCall(green-component, [green-component, "
             + "controller_tests_image_ppm, " + "controller_tests_image_ppm-green-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-green-component)");
+        add("getImage(controller_tests_image_ppm-green-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-green-component, "
             + "controller_tests_image_ppm-green-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-green-component-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-green-component, " + "ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-green-component)");
+        add("getImage(controller_tests_image_ppm-green-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-green-component, "
@@ -719,21 +728,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-blue-component)");
         add("commandFactoryCall(blue-component, [blue-component, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-blue-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-blue-component)");
+        add("getImage(controller_tests_image_ppm-blue-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-blue-component, "
             + "controller_tests_image_ppm-blue-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-blue-component-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-blue-component, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-blue-component)");
+        add("getImage(controller_tests_image_ppm-blue-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-blue-component, "
@@ -765,21 +775,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-value-component)");
         add("commandFactoryCall(value-component, [value-component, "
             + "controller_tests_image_ppm, " + "controller_tests_image_ppm-value-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-value-component)");
+        add("getImage(controller_tests_image_ppm-value-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-value-component, "
             + "controller_tests_image_ppm-value-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-value-component-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-value-component, " + "ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-value-component)");
+        add("getImage(controller_tests_image_ppm-value-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-value-component, "
@@ -811,21 +822,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-intensity-component)");
         add("commandFactoryCall(intensity-component, [intensity-component, "
             + "controller_tests_image_ppm, " + "controller_tests_image_ppm-intensity-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-intensity-" + "component)");
+        add("getImage(controller_tests_image_ppm-intensity-" + "component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-intensity-component, "
             + "controller_tests_image_ppm-intensity-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-intensity-" + "component-histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-intensity-component, " + "ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-intensity-" + "component)");
+        add("getImage(controller_tests_image_ppm-intensity-" + "component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-intensity-component, "
@@ -857,21 +869,22 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-luma-component)");
         add("commandFactoryCall(luma-component, [luma-component, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-luma-component])");
-        add("convertAndFetchImage(controller_tests_image_ppm-luma-component)");
+        add("getImage(controller_tests_image_ppm-luma-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-luma-component, "
             + "controller_tests_image_ppm-luma-component-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-luma-component-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-luma-component, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-luma-component)");
+        add("getImage(controller_tests_image_ppm-luma-component)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-luma-component, "
@@ -903,11 +916,12 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-color-correct)");
         add("splitView(color-correct, [color-correct, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-color-correct], " + "controller_tests_image_ppm)");
       }
@@ -935,11 +949,12 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-blur)");
         add("splitView(blur, [blur, controller_tests_image_ppm, "
             + "controller_tests_image_ppm-blur], controller_tests_image_ppm)");
       }
@@ -967,11 +982,12 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-sharpen)");
         add("splitView(sharpen, [sharpen, controller_tests_image_ppm, "
             + "controller_tests_image_ppm-sharpen], " + "controller_tests_image_ppm)");
       }
@@ -999,11 +1015,12 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-sepia)");
         add("splitView(sepia, [sepia, controller_tests_image_ppm, "
             + "controller_tests_image_ppm-sepia], controller_tests_image_ppm)");
       }
@@ -1033,7 +1050,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1066,7 +1083,7 @@ public class GuiControllerTest {
             + "green=" + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha="
             + ALPHA_MATRIX_READ + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1100,7 +1117,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1135,7 +1152,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1143,6 +1160,7 @@ public class GuiControllerTest {
         add("offerPromptToGetOperationParameters(Enter black point (0-255):)");
         add("offerPromptToGetOperationParameters(Enter mid point (0-255):)");
         add("offerPromptToGetOperationParameters(Enter white point (0-255):)");
+        add("getImage(controller_tests_image_ppm-levels-adjust)");
         add("splitView(levels-adjust, [levels-adjust, 50, 50, 50, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-levels-adjust], " + "controller_tests_image_ppm)");
       }
@@ -1171,7 +1189,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1204,7 +1222,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1239,22 +1257,23 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
         add("offerPromptToGetOperationParameters(Enter target width: )");
         add("offerPromptToGetOperationParameters(Enter target height: )");
+        add("getImage(controller_tests_image_ppm-downscale)");
         add("commandFactoryCall(downscale, [downscale, 50, 50, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-downscale])");
-        add("convertAndFetchImage(controller_tests_image_ppm-downscale)");
+        add("getImage(controller_tests_image_ppm-downscale)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-downscale, "
             + "controller_tests_image_ppm-downscale-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-downscale-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-downscale, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-downscale)");
+        add("getImage(controller_tests_image_ppm-downscale)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm-downscale, "
             + "controller_tests_image_ppm-downscale-histogram])");
@@ -1287,48 +1306,49 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("commandFactoryCall(vertical-flip, [vertical-flip, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-vertical-flip])");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
             + "controller_tests_image_ppm-vertical-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-vertical-flip, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
             + "controller_tests_image_ppm-vertical-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "histogram)");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("commandFactoryCall(horizontal-flip, [horizontal-flip, "
             + "controller_tests_image_ppm-vertical-flip, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip])");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "horizontal-flip)");
+            + "controller_tests_image_ppm-horizontal-flip])");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip-" + "histogram])");
-        add("convertAndFetchImage(" + "controller_tests_image_ppm-vertical-flip-horizontal-flip-"
-            + "histogram)");
-        add("offerToSaveImage(controller_tests_image_ppm-vertical-flip-" + "horizontal-flip, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "horizontal-flip)");
+            + "controller_tests_image_ppm-horizontal-flip, "
+            + "controller_tests_image_ppm-horizontal-flip-histogram])");
+        add("convertAndFetchImage(controller_tests_image_ppm-horizontal-flip-histogram)");
+        add("offerToSaveImage(controller_tests_image_ppm-horizontal-flip, ppm)");
+        add("getImage(controller_tests_image_ppm-horizontal-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip-" + "histogram])");
-        add("convertAndFetchImage(" + "controller_tests_image_ppm-vertical-flip-horizontal-flip-"
-            + "histogram)");
+            + "controller_tests_image_ppm-horizontal-flip, "
+            + "controller_tests_image_ppm-horizontal-flip-histogram])");
+        add("convertAndFetchImage(controller_tests_image_ppm-horizontal-flip-histogram)");
+        add("getImage(controller_tests_image_ppm-color-correct)");
         add("splitView(color-correct, [color-correct, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip, "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip-color-" + "correct], "
-            + "controller_tests_image_ppm-vertical-flip-horizontal-flip)]");
+            + "controller_tests_image_ppm-horizontal-flip, "
+            + "controller_tests_image_ppm-color-correct], "
+            + "controller_tests_image_ppm-horizontal-flip)");
       }
     };
     assertEquals(expectedLog, log);
@@ -1359,32 +1379,33 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("commandFactoryCall(vertical-flip, [vertical-flip, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-vertical-flip])");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
             + "controller_tests_image_ppm-vertical-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "histogram)");
         add("offerToSaveImage(controller_tests_image_ppm-vertical-flip, ppm)");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
             + "controller_tests_image_ppm-vertical-flip-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip-" + "histogram)");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
         add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
-        add("convertAndFetchImage(controller_tests_image_ppm-vertical-flip)");
+        add("getImage(controller_tests_image_ppm-vertical-flip)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, "
             + "controller_tests_image_ppm-vertical-flip, "
@@ -1418,7 +1439,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1450,7 +1471,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1480,7 +1501,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1518,7 +1539,7 @@ public class GuiControllerTest {
             + GREEN_MATRIX_READ + ", blue=" + BLUE_MATRIX_READ + ", alpha=" + ALPHA_MATRIX_READ
             + "})");
         add("displayMessage: Image loaded successfully.");
-        add("convertAndFetchImage(controller_tests_image_ppm)");
+        add("getImage(controller_tests_image_ppm)");
         add("updateImageDisplay: ");
         add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
             + "controller_tests_image_ppm-histogram])");
@@ -1530,4 +1551,73 @@ public class GuiControllerTest {
 
     assertEquals(expectedLog, log);
   }
+
+  /**
+   * Test to check that jumping to a version switches straight to it and displays it, without going
+   * through the versions in between.
+   */
+  @Test
+  public void jumpToVersion1() {
+    mockView = new MockGuiView(log, selectedFile, "width-height");
+    controller = new GUIController(mockModel, mockView);
+    controller.loadImage();
+    controller.verticalFlip();
+    controller.horizontalFlip();
+    log.clear();
+    controller.jumpToVersion(1);
+
+    List<String> expectedLog = new ArrayList<String>() {
+      {
+        add("getImage(controller_tests_image_ppm)");
+        add("updateImageDisplay: ");
+        add("commandFactoryCall(histogram, [histogram, " + "controller_tests_image_ppm, "
+            + "controller_tests_image_ppm-histogram])");
+        add("convertAndFetchImage(controller_tests_image_ppm-histogram)");
+      }
+    };
+    assertEquals(expectedLog, log);
+  }
+
+  /**
+   * Test to check that jumping to a version which does not exist shows an error and changes
+   * nothing.
+   */
+  @Test
+  public void jumpToVersion2() {
+    controller = new GUIController(mockModel, mockView);
+    controller.loadImage();
+    log.clear();
+    controller.jumpToVersion(5);
+
+    List<String> expectedLog = new ArrayList<String>() {
+      {
+        add("displayError: Version must be between 1 and 1");
+      }
+    };
+    assertEquals(expectedLog, log);
+  }
+
+  /**
+   * Test to check that, with a retention policy keeping a single version in the model and no
+   * snapshot budget, older derived versions are released from the model and recomputed from their
+   * parent and operation when navigated back to. The mock model holds no images to snapshot, so
+   * the root version has to stay in it.
+   */
+  @Test
+  public void versionRetention() {
+    mockView = new MockGuiView(log, selectedFile, "width-height");
+    controller = new GUIController(mockModel, mockView, new VersionRetentionPolicy(1, 0));
+    controller.loadImage();
+    controller.verticalFlip();
+    controller.horizontalFlip();
+    assertTrue(log.contains("removeImage(controller_tests_image_ppm-vertical-flip)"));
+    log.clear();
+    controller.jumpToVersion(2);
+
+    assertEquals("commandFactoryCall(vertical-flip, [vertical-flip, controller_tests_image_ppm, "
+        + "controller_tests_image_ppm-vertical-flip])", log.get(0));
+    assertEquals("removeImage(controller_tests_image_ppm-horizontal-flip)", log.get(1));
+    assertEquals("getImage(controller_tests_image_ppm-vertical-flip)", log.get(2));
+    assertEquals("updateImageDisplay: ", log.get(3));
+  }
 }
@@ -3,6 +3,7 @@ package ime.controller;
 import ime.controller.gui.GUIControllerInterface;
 import ime.controller.gui.GUIFeaturesInterface;
 import ime.view.gui.GraphicalIMEInterface;
+import ime.view.gui.ImageTileSource;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.List;
@@ -59,7 +60,7 @@ public class MockGuiView implements GraphicalIMEInterface {
 
 
   @Override
-  public void updateImageDisplay(BufferedImage img) {
+  public void updateImageDisplay(ImageTileSource img) {
     log.add("updateImageDisplay: ");
   }
 
@@ -0,0 +1,40 @@
+package ime.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import ime.model.Model;
+import ime.model.OperationInfo;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Test class for the training run used to warm up the JIT compiler and record class data sharing
+ * archives.
+ */
+public class WarmupTest {
+
+  /**
+   * Tests that the training run has a command for every operation and its split variant.
+   */
+  @Test
+  public void testCommandsCoverEveryOperation() {
+    Model model = new Model();
+    List<String> commands = Warmup.commands(model);
+    for (OperationInfo operation : model.getOperations()) {
+      assertTrue(operation.getName(), commands.stream()
+          .anyMatch(command -> command.startsWith(operation.getName() + " ")));
+    }
+    assertTrue(commands.contains("sepia warmup warmup-sepia-dest split 50"));
+    assertTrue(commands.contains("levels-adjust 20 100 230 warmup warmup-levels-adjust-dest"));
+  }
+
+  /**
+   * Tests that every command of the training run succeeds on the built-in operations.
+   */
+  @Test
+  public void testRunSucceeds() throws IOException {
+    assertEquals(0, Warmup.run(1));
+  }
+}
@@ -0,0 +1,45 @@
+package ime.controller.gui;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import ime.model.ImageStrips;
+import ime.model.Model;
+import org.junit.Test;
+
+/**
+ * Test class for reading images of a model for the view with the ModelTileSource.
+ */
+public class ModelTileSourceTest {
+
+  /**
+   * Tests that a source reports the image size and reads runs of a row in place, forcing alpha
+   * only for opaque formats.
+   */
+  @Test
+  public void testReadsRowRuns() {
+    Model model = new Model();
+    int[][] rows = {{0x10203040, 0x11213141, 0x12223242}, {0x13233343, 0x14243444, 0x15253545}};
+    ImageStrips.store(model, "img", rows, 2, 3);
+
+    ModelTileSource source = new ModelTileSource(model, "img", false);
+    assertEquals(3, source.getWidth());
+    assertEquals(2, source.getHeight());
+    int[] run = new int[2];
+    source.readRow(1, 1, run, 2);
+    assertArrayEquals(new int[] {0x14243444, 0x15253545}, run);
+
+    new ModelTileSource(model, "img", true).readRow(0, 0, run, 2);
+    assertArrayEquals(new int[] {0xFF203040, 0xFF213141}, run);
+  }
+
+  /**
+   * Tests that a run reaching past the end of a row is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testRunOutsideImageRejected() {
+    Model model = new Model();
+    ImageStrips.store(model, "img", new int[1][3], 1, 3);
+    new ModelTileSource(model, "img", false).readRow(0, 2, new int[2], 2);
+  }
+}
@@ -0,0 +1,84 @@
+package ime.controller.gui;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import ime.model.ImageStrips;
+import ime.model.Model;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for keeping the versions of an image with the VersionHistory.
+ */
+public class VersionHistoryTest {
+
+  // Edge length of the tiles the model stores images in
+  private static final int TILE = 64;
+  private static final int SIZE = 2 * TILE;
+
+  private Model model;
+  private int[][] rows;
+
+  /**
+   * Stores a gradient image of two by two tiles in a new model.
+   */
+  @Before
+  public void setUp() {
+    model = new Model();
+    rows = new int[SIZE][SIZE];
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        rows[y][x] = 0xFF000000 | (y << 8) | x;
+      }
+    }
+    ImageStrips.store(model, "img", rows, SIZE, SIZE);
+  }
+
+  /**
+   * Tests that a snapshot shares the tiles of the model's image, and that an evicted version is
+   * restored from it with the same pixels and without copying the tiles again.
+   */
+  @Test
+  public void testSnapshotRestoresEvictedVersion() {
+    VersionHistory history = new VersionHistory(model, new VersionRetentionPolicy(1, 1L << 30));
+    int root = history.addRoot("img");
+    history.capture(root);
+    long tileBytes = 4 * (16L + TILE * TILE * Integer.BYTES);
+    assertEquals(tileBytes, history.getSnapshotBytes());
+
+    List<String> args = List.of("sepia", "img", "img-sepia");
+    model.operationsFactoryCall("sepia", args, model);
+    history.addVersion(root, "sepia", args);
+    try {
+      model.getImage("img");
+      fail("Root version was not evicted");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image not found: img", e.getMessage());
+    }
+
+    history.ensureResident(root);
+    int[][] restored = new int[SIZE][SIZE];
+    ImageStrips.fetch(model, "img", 0, restored, SIZE);
+    assertArrayEquals(rows, restored);
+    assertEquals(tileBytes, history.getSnapshotBytes());
+  }
+
+  /**
+   * Tests that proposed names skip names already used by images of the model, not only by
+   * versions.
+   */
+  @Test
+  public void testProposeNameSkipsModelImages() {
+    VersionHistory history = new VersionHistory(model, VersionRetentionPolicy.defaults());
+    int root = history.addRoot("img");
+    assertEquals("img-sepia", history.proposeName(root, "sepia"));
+
+    ImageStrips.store(model, "img-sepia", rows, SIZE, SIZE);
+    assertEquals("img-sepia-1", history.proposeName(root, "sepia"));
+    ImageStrips.store(model, "img-sepia-1", rows, SIZE, SIZE);
+    assertEquals("img-sepia-2", history.proposeName(root, "sepia"));
+  }
+}
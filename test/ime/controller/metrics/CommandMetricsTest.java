@@ -0,0 +1,82 @@
+package ime.controller.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for the command metrics and the histograms backing them.
+ */
+public class CommandMetricsTest {
+
+  /**
+   * Tests that percentiles are reported within the histogram's bucket precision.
+   */
+  @Test
+  public void testHistogramPercentiles() {
+    Histogram histogram = new Histogram();
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500.5, histogram.getMean(), 1e-9);
+    assertEquals(1000, histogram.getMax());
+    long p50 = histogram.getPercentile(0.5);
+    long p99 = histogram.getPercentile(0.99);
+    assertTrue("p50 was " + p50, p50 >= 500 && p50 <= 500 * 1.07);
+    assertTrue("p99 was " + p99, p99 >= 990 && p99 <= 1000);
+    assertEquals(1, histogram.getPercentile(0));
+    assertEquals(1000, histogram.getPercentile(1));
+  }
+
+  /**
+   * Tests that small values are recorded exactly and an empty histogram reports zero.
+   */
+  @Test
+  public void testHistogramSmallValues() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getPercentile(0.5));
+    histogram.record(3);
+    histogram.record(-5);
+    assertEquals(0, histogram.getPercentile(0.5));
+    assertEquals(3, histogram.getPercentile(1));
+  }
+
+  /**
+   * Tests that a quantile outside [0, 1] is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testHistogramInvalidQuantile() {
+    new Histogram().getPercentile(1.5);
+  }
+
+  /**
+   * Tests that recorded phases appear in the table and in the JSON export.
+   */
+  @Test
+  public void testRecordAndExport() {
+    CommandMetrics metrics = new CommandMetrics();
+    assertEquals("No commands recorded yet", metrics.formatTable());
+
+    for (int i = 0; i < 3; i++) {
+      CommandMetrics.Timer timer = metrics.start();
+      byte[] allocation = new byte[1 << 16];
+      assertEquals(0, allocation[0]);
+      metrics.record("blur", CommandPhase.EXECUTE, timer);
+    }
+    metrics.record("load", CommandPhase.DECODE, metrics.start());
+
+    String[] rows = metrics.formatTable().split("\\R");
+    assertEquals(3, rows.length);
+    assertTrue(rows[0].startsWith("command"));
+    assertTrue(rows[1].startsWith("blur                 execute         3"));
+    assertTrue(rows[2].startsWith("load                 decode          1"));
+
+    String json = metrics.toJson();
+    assertTrue(json.startsWith("{\n  \"commands\": {\n    \"blur\": {\n      \"execute\": {"
+        + "\"count\": 3, \"wallNanos\": {\"count\": 3,"));
+    assertTrue(json.contains("\"load\": {\n      \"decode\": {\"count\": 1"));
+    assertTrue(json.contains("\"allocatedBytes\": {"));
+  }
+}
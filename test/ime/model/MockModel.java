@@ -29,6 +29,15 @@ public class MockModel implements ModelInterface {
     this.throwExceptionOperationsFactoryCall = throwExceptionOperationsFactoryCall;
   }
 
+  /**
+   * Sets whether operations throw an exception from now on.
+   *
+   * @param throwExceptionOperationsFactoryCall true to make operations throw
+   */
+  public void setThrowExceptionOperationsFactoryCall(boolean throwExceptionOperationsFactoryCall) {
+    this.throwExceptionOperationsFactoryCall = throwExceptionOperationsFactoryCall;
+  }
+
   @Override
   public void operationsFactoryCall(String commandName, List<String> commandTokens,
       ModelInterface model) {
@@ -105,5 +114,41 @@ public class MockModel implements ModelInterface {
     log.add("storeImage(" + imageName + ", " + image + ")");
   }
 
+  @Override
+  public boolean storeImageIfAbsent(String imageName, ImageInterface image) {
+    log.add("storeImageIfAbsent(" + imageName + ", " + image + ")");
+    return true;
+  }
+
+  @Override
+  public boolean replaceImage(String imageName, ImageInterface expected, ImageInterface image) {
+    log.add("replaceImage(" + imageName + ", " + expected + ", " + image + ")");
+    return true;
+  }
 
+  @Override
+  public void removeImage(String imageName) {
+    log.add("removeImage(" + imageName + ")");
+  }
+
+  /**
+   * Returns the real description of an operation, since planners only read it.
+   *
+   * @param commandName the name of the operation
+   * @return the description, or null if no operation has that name
+   */
+  @Override
+  public OperationInfo getOperationInfo(String commandName) {
+    return new Model().getOperationInfo(commandName);
+  }
+
+  /**
+   * Returns the real descriptions of the operations, since planners only read them.
+   *
+   * @return the operations
+   */
+  @Override
+  public List<OperationInfo> getOperations() {
+    return new Model().getOperations();
+  }
 }
@@ -1,7 +1,9 @@
 package ime.model;
 
 import static ime.model.SplitTransformExpectedOutputs.getExpectedPixelsWithSplitLine;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -11,11 +13,28 @@ import ime.controller.ImageReader;
 import ime.controller.ImageReaderFactory;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -601,6 +620,114 @@ public class ModelTest {
     assertEquals(expectedBlurredImage, blurredImage);
   }
 
+  /**
+   * Tests that a box blur of a small and of a larger than image radius is within rounding of the
+   * mean of the pixels around each pixel, with the edge pixels repeated past the edges.
+   */
+  @Test
+  public void testBoxBlurMatchesDirectMean() {
+    Random random = new Random(5);
+    TiledImage source = new TiledImage(13, 17);
+    for (int y = 0; y < 13; y++) {
+      for (int x = 0; x < 17; x++) {
+        source.setArgb(y, x, random.nextInt());
+      }
+    }
+    model.storeImage("source", source);
+    for (int radius : new int[]{1, 3, 40}) {
+      model.operationsFactoryCall(CommandConstants.BOX_BLUR, List.of(CommandConstants.BOX_BLUR,
+          String.valueOf(radius), "source", "blurred"), model);
+      ImageInterface blurred = model.getImage("blurred");
+      for (int y = 0; y < 13; y++) {
+        for (int x = 0; x < 17; x++) {
+          double red = 0;
+          for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+              red += source.getPixel(Math.min(Math.max(y + dy, 0), 12),
+                  Math.min(Math.max(x + dx, 0), 16)).getR();
+            }
+          }
+          red /= (2 * radius + 1) * (2 * radius + 1);
+          assertEquals(red, blurred.getPixel(y, x).getR(), 1.0);
+          assertEquals(source.getPixel(y, x).getA(), blurred.getPixel(y, x).getA());
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that box and Gaussian blurs keep a uniform area unchanged, and only blur the columns left
+   * of the split line.
+   */
+  @Test
+  public void testSizedBlursWithSplit() {
+    TiledImage source = new TiledImage(20, 20);
+    for (int y = 0; y < 20; y++) {
+      for (int x = 0; x < 20; x++) {
+        source.setArgb(y, x, x < 10 ? 0xFF405060 : 0x80FFFFFF);
+      }
+    }
+    model.storeImage("source", source);
+    model.operationsFactoryCall(CommandConstants.GAUSSIAN_BLUR, List.of(
+        CommandConstants.GAUSSIAN_BLUR, "1.5", "source", "gaussian", "split", "20"), model);
+    model.operationsFactoryCall(CommandConstants.BOX_BLUR, List.of(CommandConstants.BOX_BLUR,
+        "4", "source", "box", "split", "20"), model);
+
+    for (String name : List.of("gaussian", "box")) {
+      ImageInterface blurred = model.getImage(name);
+      for (int y = 0; y < 20; y++) {
+        for (int x = 0; x < 4; x++) {
+          assertEquals(name, new Pixel(0x40, 0x50, 0x60, 255), blurred.getPixel(y, x));
+        }
+        assertEquals(name, new Pixel(0, 0, 0, 255), blurred.getPixel(y, 4));
+        for (int x = 5; x < 20; x++) {
+          assertEquals(name, source.getPixel(y, x), blurred.getPixel(y, x));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the three box blurs approximating a Gaussian have about its variance, and that blur
+   * sizes out of range are rejected.
+   */
+  @Test
+  public void testGaussianBoxRadii() {
+    for (double sigma : new double[]{0.8, 1.5, 3, 10, 57.3}) {
+      double variance = 0;
+      for (int radius : GaussianBlurFilter.boxRadii(sigma)) {
+        variance += ((2.0 * radius + 1) * (2 * radius + 1) - 1) / 12;
+      }
+      assertEquals(sigma * sigma, variance, 2 * sigma + 1);
+    }
+
+    model.storeImage("source", new TiledImage(2, 2));
+    for (List<String> tokens : List.of(List.of("box-blur", "0", "source", "dest"),
+        List.of("box-blur", "2.5", "source", "dest"), List.of("gaussian-blur", "0", "source",
+            "dest"), List.of("gaussian-blur", "1e9", "source", "dest"))) {
+      try {
+        model.operationsFactoryCall(tokens.get(0), tokens, model);
+        fail("Accepted " + tokens);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Tests that a split after a leading size argument is only read for the sized blurs.
+   */
+  @Test
+  public void testSplitAfterSizeOnlyForSizedBlurs() {
+    AbstractFilters filters = new AbstractFilters();
+    assertEquals(20, filters.extractSplitPercent(
+        List.of(CommandConstants.BOX_BLUR, "2", "source", "dest", "split", "20")));
+    assertEquals(30, filters.extractSplitPercent(
+        List.of(CommandConstants.GAUSSIAN_BLUR, "1.5", "source", "dest", "split", "30")));
+    assertEquals(100, filters.extractSplitPercent(
+        List.of(CommandConstants.SEPIA, "source", "dest", "extra", "split", "20")));
+  }
+
   /**
    * Tests the sharpen operation on an image. The sharpening operation enhances the contrast of the
    * image, making the edges more defined by increasing the intensity of pixels that differ from
@@ -1548,4 +1675,957 @@ public class ModelTest {
         {new Pixel(255, 255, 255, 255), new Pixel(50, 50, 50, 255)}};
     assertImagesEqual(expectedDitheredPixels, ditheredImage, "Dithering Split");
   }
-}
\ No newline at end of file
+
+  /**
+   * Tests that a split view preview only allocates tiles for the region left of the split, sharing
+   * the rest of the image with its source, and that removing the source hands the shared tiles
+   * over to the preview.
+   */
+  @Test
+  public void testSplitViewSharesUnchangedTiles() {
+    int height = 2 * TiledImage.TILE_SIZE;
+    int width = 10 * TiledImage.TILE_SIZE;
+    Map<String, int[][]> channels = new HashMap<>();
+    channels.put("red", new int[height][width]);
+    channels.put("green", new int[height][width]);
+    channels.put("blue", new int[height][width]);
+    channels.put("alpha", new int[height][width]);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        channels.get("red")[y][x] = x % 256;
+        channels.get("green")[y][x] = y % 256;
+        channels.get("blue")[y][x] = (x + y) % 256;
+        channels.get("alpha")[y][x] = 255;
+      }
+    }
+    model.convertAndStoreImage("large", channels);
+
+    model.operationsFactoryCall("sepia", List.of("sepia", "large", "largeSepia"), model);
+    List<String> commandTokens = List.of("sepia", "large", "largeSplit", "split", "10");
+    model.operationsFactoryCall("sepia", commandTokens, model);
+
+    TiledImage source = (TiledImage) model.getImage("large");
+    TiledImage preview = (TiledImage) model.getImage("largeSplit");
+    // The left tile column is rewritten; the split line spills into the second one
+    assertEquals(4, preview.getOwnedTileCount());
+    assertEquals(4, source.getOwnedTileCount());
+    assertEquals(model.getImage("largeSepia").getPixel(40, 10), preview.getPixel(40, 10));
+    assertEquals(new Pixel(0, 0, 0, 255), preview.getPixel(40, 64));
+    assertEquals(new Pixel(100, 40, 140, 255), preview.getPixel(40, 100));
+    assertEquals(source.getPixel(127, 639), preview.getPixel(127, 639));
+
+    model.removeImage("large");
+    assertEquals(preview.getTileCount(), preview.getOwnedTileCount());
+  }
+
+  /**
+   * Tests rotating a non-square image by 90 degrees clockwise, which swaps its dimensions.
+   */
+  @Test
+  public void testRotate90() {
+    PixelInterface[][] pixels = {
+        {new Pixel(1, 1, 1, 255), new Pixel(2, 2, 2, 255), new Pixel(3, 3, 3, 255)},
+        {new Pixel(4, 4, 4, 255), new Pixel(5, 5, 5, 255), new Pixel(6, 6, 6, 255)}};
+    Image wide = new Image(2, 3);
+    wide.imageFill(pixels);
+    model.storeImage("wide", wide);
+
+    model.operationsFactoryCall("rotate-90", List.of("rotate-90", "wide", "rotated"), model);
+
+    ImageInterface rotatedImage = model.getImage("rotated");
+    PixelInterface[][] expectedPixels = {
+        {new Pixel(4, 4, 4, 255), new Pixel(1, 1, 1, 255)},
+        {new Pixel(5, 5, 5, 255), new Pixel(2, 2, 2, 255)},
+        {new Pixel(6, 6, 6, 255), new Pixel(3, 3, 3, 255)}};
+    assertEquals(3, rotatedImage.getHeight());
+    assertEquals(2, rotatedImage.getWidth());
+    assertImagesEqual(expectedPixels, rotatedImage, "Rotate 90");
+  }
+
+  /**
+   * Tests rotating an image by 180 degrees.
+   */
+  @Test
+  public void testRotate180() {
+    model.operationsFactoryCall("rotate-180", List.of("rotate-180", "original", "rotated"), model);
+
+    PixelInterface[][] expectedPixels = {
+        {new Pixel(50, 50, 50, 255), new Pixel(200, 200, 200, 255)},
+        {new Pixel(150, 150, 150, 255), new Pixel(100, 100, 100, 255)}};
+    assertImagesEqual(expectedPixels, model.getImage("rotated"), "Rotate 180");
+  }
+
+  /**
+   * Tests rotating an image by 270 degrees clockwise.
+   */
+  @Test
+  public void testRotate270() {
+    model.operationsFactoryCall("rotate-270", List.of("rotate-270", "original", "rotated"), model);
+
+    PixelInterface[][] expectedPixels = {
+        {new Pixel(150, 150, 150, 255), new Pixel(50, 50, 50, 255)},
+        {new Pixel(100, 100, 100, 255), new Pixel(200, 200, 200, 255)}};
+    assertImagesEqual(expectedPixels, model.getImage("rotated"), "Rotate 270");
+  }
+
+  /**
+   * Tests that a flip of a rotated image composes both mappings, here into a transpose.
+   */
+  @Test
+  public void testFlipOfRotatedImage() {
+    model.operationsFactoryCall("rotate-90", List.of("rotate-90", "original", "rotated"), model);
+    model.operationsFactoryCall("horizontal-flip",
+        List.of("horizontal-flip", "rotated", "transposed"), model);
+
+    PixelInterface[][] expectedPixels = {
+        {new Pixel(100, 100, 100, 255), new Pixel(200, 200, 200, 255)},
+        {new Pixel(150, 150, 150, 255), new Pixel(50, 50, 50, 255)}};
+    assertImagesEqual(expectedPixels, model.getImage("transposed"), "Transpose");
+  }
+
+  /**
+   * Tests cropping a column out of an image.
+   */
+  @Test
+  public void testCrop() {
+    List<String> commandTokens = List.of("crop", "1", "0", "1", "2", "original", "cropped");
+    model.operationsFactoryCall("crop", commandTokens, model);
+
+    ImageInterface croppedImage = model.getImage("cropped");
+    PixelInterface[][] expectedPixels = {
+        {new Pixel(150, 150, 150, 255)},
+        {new Pixel(50, 50, 50, 255)}};
+    assertEquals(2, croppedImage.getHeight());
+    assertEquals(1, croppedImage.getWidth());
+    assertImagesEqual(expectedPixels, croppedImage, "Crop");
+  }
+
+  /**
+   * Tests that cropping a region extending past the image is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testCropOutsideImage() {
+    List<String> commandTokens = List.of("crop", "1", "1", "2", "1", "original", "cropped");
+    model.operationsFactoryCall("crop", commandTokens, model);
+  }
+
+  /**
+   * Tests that writing to a flipped view copies its pixels first and leaves the source unchanged.
+   */
+  @Test
+  public void testViewMaterializesOnWrite() {
+    List<String> commandTokens = List.of("horizontal-flip", "original", "flipped");
+    model.operationsFactoryCall("horizontal-flip", commandTokens, model);
+    ImageView flipped = (ImageView) model.getImage("flipped");
+    assertTrue(flipped.isView());
+
+    flipped.updatePixel(0, 0, new Pixel(1, 2, 3, 255));
+
+    assertFalse(flipped.isView());
+    assertEquals(new Pixel(1, 2, 3, 255), flipped.getPixel(0, 0));
+    assertEquals(new Pixel(100, 100, 100, 255), flipped.getPixel(0, 1));
+    assertEquals(new Pixel(150, 150, 150, 255), originalImage.getPixel(0, 1));
+  }
+
+  /**
+   * Tests that a view stays valid after the image it was taken from is replaced in the model.
+   */
+  @Test
+  public void testViewOutlivesReplacedSource() {
+    Map<String, int[][]> channels = new HashMap<>();
+    channels.put("red", new int[][]{{10, 20}});
+    channels.put("green", new int[][]{{30, 40}});
+    channels.put("blue", new int[][]{{50, 60}});
+    channels.put("alpha", new int[][]{{255, 255}});
+    model.convertAndStoreImage("loaded", channels);
+
+    model.operationsFactoryCall("horizontal-flip",
+        List.of("horizontal-flip", "loaded", "loaded"), model);
+
+    ImageInterface flipped = model.getImage("loaded");
+    assertEquals(new Pixel(20, 40, 60, 255), flipped.getPixel(0, 0));
+    assertEquals(new Pixel(10, 30, 50, 255), flipped.getPixel(0, 1));
+  }
+
+  /**
+   * Tests that rgb-split shares the source's channel planes with its component images, and that
+   * rgb-combine of those components assembles the same planes back into the original image.
+   */
+  @Test
+  public void testRgbSplitAndCombineSharePlanes() {
+    PixelInterface[][] pixels = {
+        {new Pixel(100, 150, 200, 255), new Pixel(50, 100, 150, 128)},
+        {new Pixel(0, 50, 100, 255), new Pixel(200, 220, 240, 0)}};
+    Image image = new Image(pixels.length, pixels[0].length);
+    image.imageFill(pixels);
+    model.storeImage("colors", image);
+
+    model.operationsFactoryCall("rgb-split",
+        List.of("rgb-split", "colors", "colors-red", "colors-green", "colors-blue"), model);
+    PlanarImage red = (PlanarImage) model.getImage("colors-red");
+    PlanarImage green = (PlanarImage) model.getImage("colors-green");
+    PlanarImage blue = (PlanarImage) model.getImage("colors-blue");
+    assertTrue(red.getPlane("red") == red.getPlane("blue"));
+    assertTrue(red.getPlane("alpha") == green.getPlane("alpha"));
+
+    model.operationsFactoryCall("rgb-combine",
+        List.of("rgb-combine", "combined", "colors-red", "colors-green", "colors-blue"), model);
+    PlanarImage combined = (PlanarImage) model.getImage("combined");
+    assertTrue(combined.getPlane("red") == red.getPlane("red"));
+    assertTrue(combined.getPlane("green") == green.getPlane("green"));
+    assertTrue(combined.getPlane("blue") == blue.getPlane("blue"));
+    assertEquals(image, combined);
+  }
+
+  /**
+   * Tests that writing to one component of an rgb-split leaves the other components unchanged.
+   */
+  @Test
+  public void testRgbSplitComponentsCopyOnWrite() {
+    model.operationsFactoryCall("rgb-split",
+        List.of("rgb-split", "original", "red", "green", "blue"), model);
+    ImageInterface red = model.getImage("red");
+
+    red.updatePixel(0, 0, new Pixel(1, 2, 3, 4));
+
+    assertEquals(new Pixel(1, 2, 3, 4), red.getPixel(0, 0));
+    assertEquals(new Pixel(100, 100, 100, 255), model.getImage("green").getPixel(0, 0));
+    assertEquals(new Pixel(100, 100, 100, 255), model.getImage("blue").getPixel(0, 0));
+    assertEquals(new Pixel(100, 100, 100, 255), originalImage.getPixel(0, 0));
+  }
+
+  /**
+   * Tests that a flipped view of an rgb-split component keeps its pixels after the component is
+   * overwritten and the planes it shared are written through another image.
+   */
+  @Test
+  public void testViewOfSplitComponentOutlivesOverwrite() {
+    model.operationsFactoryCall("rgb-split",
+        List.of("rgb-split", "original", "red", "green", "blue"), model);
+    model.operationsFactoryCall("rgb-combine",
+        List.of("rgb-combine", "combined", "red", "green", "blue"), model);
+    model.operationsFactoryCall("horizontal-flip",
+        List.of("horizontal-flip", "red", "red-flipped"), model);
+    ImageInterface flipped = model.getImage("red-flipped");
+    assertEquals(new Pixel(100, 100, 100, 255), flipped.getPixel(0, 1));
+
+    model.storeImage("red", new TiledImage(1, 1));
+    model.getImage("combined").updatePixel(0, 0, new Pixel(1, 2, 3, 4));
+
+    assertEquals(new Pixel(1, 2, 3, 4), model.getImage("combined").getPixel(0, 0));
+    assertEquals(new Pixel(100, 100, 100, 255), flipped.getPixel(0, 1));
+    assertEquals(new Pixel(150, 150, 150, 255), flipped.getPixel(0, 0));
+  }
+
+  /**
+   * Tests that executing a filter emits a flight recorder event describing the command and its
+   * source image, and that storing its result emits an image store event.
+   */
+  @Test
+  public void testFilterAndStoreEventsRecorded() throws IOException {
+    Path dump = Files.createTempFile("ime-events", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("ime.FilterExecution");
+      recording.enable("ime.ImageStore");
+      recording.start();
+      model.operationsFactoryCall("sepia", List.of("sepia", "original", "sepia", "split", "50"),
+          model);
+      recording.stop();
+      recording.dump(dump);
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+      RecordedEvent filter = events.stream()
+          .filter(event -> event.getEventType().getName().equals("ime.FilterExecution"))
+          .findFirst().orElseThrow();
+      assertEquals("sepia", filter.getString("command"));
+      assertEquals(originalImage.getWidth(), filter.getInt("width"));
+      assertEquals(originalImage.getHeight(), filter.getInt("height"));
+      assertEquals(50, filter.getInt("splitPercent"));
+      assertTrue(filter.getLong("retainedBytes") > 0);
+
+      assertTrue(events.stream().anyMatch(event ->
+          event.getEventType().getName().equals("ime.ImageStore")
+              && event.getString("operation").equals("store")
+              && event.getString("imageName").equals("sepia")
+              && event.getInt("imageCount") >= 2));
+    } finally {
+      Files.delete(dump);
+    }
+  }
+
+  /**
+   * Tests that the model describes its built-in operations, including the images each one reads
+   * and writes.
+   */
+  @Test
+  public void testOperationMetadata() {
+    assertEquals(26, model.getOperations().size());
+
+    OperationInfo blur = model.getOperationInfo(CommandConstants.BLUR);
+    assertTrue(blur.isNeighborhood());
+    assertEquals(1, blur.getRadius());
+    assertTrue(blur.supportsSplit());
+    assertEquals(List.of(1), blur.getInputPositions());
+    assertEquals(List.of(2), blur.getOutputPositions());
+    assertEquals(2, model.getOperationInfo(CommandConstants.SHARPEN).getRadius());
+
+    OperationInfo brighten = model.getOperationInfo(CommandConstants.BRIGHTEN);
+    assertTrue(brighten.isPointwise());
+    assertFalse(brighten.supportsSplit());
+    assertEquals(OperationParameter.Role.VALUE, brighten.getParameters().get(0).getRole());
+    assertEquals("brighten <increment> <source> <dest>", brighten.toString());
+
+    OperationInfo combine = model.getOperationInfo(CommandConstants.RGB_COMBINE);
+    assertEquals(List.of(2, 3, 4), combine.getInputPositions());
+    assertEquals(List.of(1), combine.getOutputPositions());
+    assertEquals(OperationKind.GEOMETRIC, model.getOperationInfo("crop").getKind());
+    assertEquals(null, model.getOperationInfo("no-such-operation"));
+  }
+
+  /**
+   * Tests that only neighborhood operations may have a radius.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testPointwiseOperationWithRadius() {
+    new OperationInfo("invert", OperationKind.POINTWISE, 1, false, List.of());
+  }
+
+  /**
+   * Tests that an operation provider listed as a service is registered next to the built-in
+   * operations and can be run like them.
+   */
+  @Test
+  public void testOperationProviderFromServiceLoader() throws IOException {
+    Path services = Files.createTempDirectory("ime-services");
+    Path descriptor = services.resolve("META-INF/services/" + OperationProvider.class.getName());
+    Files.createDirectories(descriptor.getParent());
+    Files.writeString(descriptor, InvertProvider.class.getName() + "\n");
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{services.toUri().toURL()},
+        getClass().getClassLoader())) {
+      OperationsFactory factory = new OperationsFactory(model,
+          ServiceLoader.load(OperationProvider.class, loader));
+      assertEquals(27, factory.getOperations().size());
+      assertTrue(factory.getOperationInfo("invert").isPointwise());
+
+      factory.getCommandFilter("invert").execute(List.of("invert", "original", "inverted"));
+      assertEquals(new Pixel(155, 155, 155, 255), model.getImage("inverted").getPixel(0, 0));
+    } finally {
+      Files.delete(descriptor);
+      Files.delete(descriptor.getParent());
+      Files.delete(descriptor.getParent().getParent());
+      Files.delete(services);
+    }
+  }
+
+  /**
+   * Tests that a provider may not replace a built-in operation.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testOperationProviderDuplicateName() {
+    OperationProvider duplicate = new OperationProvider() {
+      @Override
+      public List<OperationInfo> getOperations() {
+        return List.of(new OperationInfo(CommandConstants.BLUR, OperationKind.POINTWISE, 0,
+            false, List.of()));
+      }
+
+      @Override
+      public Filters createFilter(String name, ModelInterface model) {
+        return new AbstractFilters();
+      }
+    };
+    new OperationsFactory(model, List.of(duplicate));
+  }
+
+  /**
+   * An operation provider supplying an {@code invert} operation, loaded as a service.
+   */
+  public static class InvertProvider implements OperationProvider {
+
+    @Override
+    public List<OperationInfo> getOperations() {
+      return List.of(new OperationInfo("invert", OperationKind.POINTWISE, 0, false,
+          List.of(OperationParameter.input("source"), OperationParameter.output("dest"))));
+    }
+
+    @Override
+    public Filters createFilter(String name, ModelInterface model) {
+      return commandTokens -> {
+        ImageInterface source = model.getImage(commandTokens.get(1));
+        ImageInterface result = new Image(source.getHeight(), source.getWidth());
+        for (int y = 0; y < source.getHeight(); y++) {
+          for (int x = 0; x < source.getWidth(); x++) {
+            PixelInterface pixel = source.getPixel(y, x);
+            result.updatePixel(y, x, new Pixel(255 - pixel.getR(), 255 - pixel.getG(),
+                255 - pixel.getB(), pixel.getA()));
+          }
+        }
+        model.storeImage(commandTokens.get(2), result);
+      };
+    }
+  }
+
+  /**
+   * Creates a tiled image with distinct pixels.
+   */
+  private static TiledImage gradientImage(int height, int width) {
+    TiledImage image = new TiledImage(height, width);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.updatePixel(y, x, new Pixel(x % 256, y % 256, (x + y) % 256, 255));
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Tests that repeating an operation with equivalent parameters on the same content reuses the
+   * earlier result, whatever the output is named.
+   */
+  @Test
+  public void testMemoizedOperationReused() {
+    Model memoModel = new Model(1 << 20);
+    memoModel.storeImage("source", gradientImage(70, 90));
+
+    memoModel.operationsFactoryCall("sepia", List.of("sepia", "source", "first", "split", "50"),
+        memoModel);
+    memoModel.operationsFactoryCall("sepia", List.of("sepia", "source", "second", "split", "050"),
+        memoModel);
+
+    assertEquals(1, memoModel.getResultCacheHits());
+    assertEquals(memoModel.getImage("first"), memoModel.getImage("second"));
+    assertTrue(memoModel.getImage("first") != memoModel.getImage("second"));
+
+    memoModel.operationsFactoryCall("sepia", List.of("sepia", "source", "third", "split", "60"),
+        memoModel);
+    assertEquals(1, memoModel.getResultCacheHits());
+  }
+
+  /**
+   * Tests that the result cache is keyed by the content of the inputs rather than their names.
+   */
+  @Test
+  public void testMemoizationKeyedByContent() {
+    Model memoModel = new Model(1 << 20);
+    memoModel.storeImage("source", gradientImage(70, 90));
+    memoModel.operationsFactoryCall("blur", List.of("blur", "source", "blurred"), memoModel);
+
+    memoModel.storeImage("copy", TiledImage.derive(memoModel.getImage("source"), 0));
+    memoModel.operationsFactoryCall("blur", List.of("blur", "copy", "copy-blurred"), memoModel);
+    assertEquals(1, memoModel.getResultCacheHits());
+
+    memoModel.getImage("copy").updatePixel(69, 89, new Pixel(1, 2, 3, 255));
+    memoModel.operationsFactoryCall("blur", List.of("blur", "copy", "changed"), memoModel);
+    assertEquals(1, memoModel.getResultCacheHits());
+    assertNotEquals(memoModel.getImage("blurred"), memoModel.getImage("changed"));
+  }
+
+  /**
+   * Tests that writing to a stored result does not change the cached copy of it.
+   */
+  @Test
+  public void testMemoizedResultIsIndependent() {
+    Model memoModel = new Model(1 << 20);
+    memoModel.storeImage("source", gradientImage(20, 20));
+    memoModel.operationsFactoryCall("horizontal-flip",
+        List.of("horizontal-flip", "source", "flipped"), memoModel);
+    ImageInterface expected = TiledImage.derive(memoModel.getImage("flipped"), 0);
+
+    memoModel.getImage("flipped").updatePixel(0, 0, new Pixel(9, 9, 9, 9));
+    memoModel.removeImage("flipped");
+    memoModel.operationsFactoryCall("horizontal-flip",
+        List.of("horizontal-flip", "source", "again"), memoModel);
+
+    assertEquals(1, memoModel.getResultCacheHits());
+    assertEquals(expected, memoModel.getImage("again"));
+  }
+
+  /**
+   * Tests that the result cache evicts the least recently used results beyond its capacity.
+   */
+  @Test
+  public void testResultCacheEviction() {
+    // Room for exactly one 20x20 result
+    Model memoModel = new Model(4 * 20 * 20);
+    memoModel.storeImage("source", gradientImage(20, 20));
+    memoModel.operationsFactoryCall("sepia", List.of("sepia", "source", "a"), memoModel);
+    memoModel.operationsFactoryCall("blur", List.of("blur", "source", "b"), memoModel);
+    memoModel.operationsFactoryCall("blur", List.of("blur", "source", "c"), memoModel);
+    memoModel.operationsFactoryCall("sepia", List.of("sepia", "source", "d"), memoModel);
+
+    assertEquals(1, memoModel.getResultCacheHits());
+    assertEquals(memoModel.getImage("a"), memoModel.getImage("d"));
+  }
+
+  /**
+   * Tests that content hashes follow the pixels: images sharing all their tiles hash alike, a
+   * write changes the hash, and writing the old value back restores it.
+   */
+  @Test
+  public void testContentHashFollowsPixels() {
+    TiledImage image = gradientImage(130, 70);
+    TiledImage derived = TiledImage.derive(image, 0);
+    long hash = ContentHash.of(image);
+    assertEquals(hash, ContentHash.of(derived));
+
+    PixelInterface pixel = derived.getPixel(100, 10);
+    derived.updatePixel(100, 10, new Pixel(0, 0, 0, 0));
+    assertNotEquals(hash, ContentHash.of(derived));
+    assertEquals(hash, ContentHash.of(image));
+
+    derived.updatePixel(100, 10, pixel);
+    assertEquals(hash, ContentHash.of(derived));
+    assertNotEquals(hash, ContentHash.of(ImageView.horizontalFlip(image)));
+  }
+
+  /**
+   * Tests that the vector backend computes exactly the pixels of the scalar loops, for random
+   * pixels with alpha, widths which are not a multiple of the vector length, splits, and sources
+   * in every layout.
+   */
+  @Test
+  public void testVectorBackendMatchesScalar() {
+    Assume.assumeTrue(VectorOperations.isAvailable());
+    Random random = new Random(42);
+    TiledImage tiled = new TiledImage(70, 131);
+    for (int y = 0; y < tiled.getHeight(); y++) {
+      for (int x = 0; x < tiled.getWidth(); x++) {
+        tiled.setArgb(y, x, random.nextInt());
+      }
+    }
+    List<ImageInterface> sources = List.of(tiled, PlanarImage.of(tiled),
+        ImageView.horizontalFlip(tiled));
+    List<String> commands = List.of("brighten 37 source result", "brighten -200 source result",
+        "red-component source result", "green-component source result",
+        "blue-component source result", "value-component source result split 40",
+        "intensity-component source result", "luma-component source result",
+        "sepia source result", "sepia source result split 55", "blur source result",
+        "blur source result split 0", "sharpen source result split 99");
+
+    try {
+      for (ImageInterface source : sources) {
+        for (String command : commands) {
+          List<String> tokens = Arrays.asList(command.split(" "));
+          VectorOperations.setEnabled(false);
+          Model scalar = new Model();
+          scalar.storeImage("source", source);
+          scalar.operationsFactoryCall(tokens.get(0), tokens, scalar);
+          VectorOperations.setEnabled(true);
+          Model vector = new Model();
+          vector.storeImage("source", source);
+          vector.operationsFactoryCall(tokens.get(0), tokens, vector);
+
+          assertEquals(command, scalar.getImage("result"), vector.getImage("result"));
+        }
+      }
+    } finally {
+      VectorOperations.setEnabled(true);
+    }
+  }
+
+  @Test
+  public void testOffHeapModelMatchesHeapModel() {
+    Random random = new Random(7);
+    TiledImage tiled = new TiledImage(70, 131);
+    for (int y = 0; y < tiled.getHeight(); y++) {
+      for (int x = 0; x < tiled.getWidth(); x++) {
+        tiled.setArgb(y, x, random.nextInt());
+      }
+    }
+    List<String> commands = List.of("brighten 37 source result", "luma-component source result",
+        "sepia source result split 55", "blur source result split 30", "sharpen source result",
+        "color-correct source result split 20", "levels-adjust 20 100 220 source result",
+        "horizontal-flip source result", "rotate-90 source result",
+        "crop 3 5 40 60 source result", "rgb-split source result green blue",
+        "downscale 65 35 source result");
+
+    for (String command : commands) {
+      List<String> tokens = Arrays.asList(command.split(" "));
+      Model heap = new Model();
+      heap.storeImage("source", TiledImage.derive(tiled, 0));
+      heap.operationsFactoryCall(tokens.get(0), tokens, heap);
+      Model offHeap = new Model(0, 1);
+      offHeap.storeImage("source", TiledImage.derive(tiled, 0));
+      assertTrue(offHeap.getImage("source") instanceof OffHeapImage);
+      offHeap.operationsFactoryCall(tokens.get(0), tokens, offHeap);
+
+      assertEquals(command, heap.getImage("result"), offHeap.getImage("result"));
+    }
+  }
+
+  @Test
+  public void testOffHeapImageIsCopiedOnWriteAndFreedOnRelease() {
+    OffHeapImage image = new OffHeapImage(3, 2);
+    image.setArgb(1, 1, 0x12345678);
+    OffHeapImage share = OffHeapImage.of(image);
+    share.setArgb(1, 1, 0xFF000000);
+    assertEquals(0x12345678, image.getArgb(1, 1));
+    assertEquals(0xFF000000, share.getArgb(1, 1));
+    assertEquals(0, share.getArgb(0, 0));
+
+    Model offHeap = new Model(0, 1);
+    offHeap.storeImage("image", image);
+    offHeap.storeImage("copy", image);
+    offHeap.removeImage("image");
+    assertEquals(0x12345678, image.getArgb(1, 1));
+    offHeap.removeImage("copy");
+    try {
+      image.getArgb(1, 1);
+      fail("Released image was read");
+    } catch (IllegalStateException e) {
+      assertEquals("Image was released", e.getMessage());
+    }
+    assertEquals(0xFF000000, share.getArgb(1, 1));
+  }
+
+  @Test
+  public void testTileSourceImageDecodesOnlyTilesRead() {
+    Random random = new Random(11);
+    int[][] argb = new int[50][70];
+    for (int[] row : argb) {
+      for (int x = 0; x < row.length; x++) {
+        row[x] = random.nextInt();
+      }
+    }
+    List<String> decoded = new ArrayList<>();
+    TileSource source = new TileSource() {
+      @Override
+      public int getWidth() {
+        return 70;
+      }
+
+      @Override
+      public int getHeight() {
+        return 50;
+      }
+
+      @Override
+      public int getTileWidth() {
+        return 16;
+      }
+
+      @Override
+      public int getTileHeight() {
+        return 8;
+      }
+
+      @Override
+      public void readTile(int tileColumn, int tileRow, int[] tile) {
+        synchronized (decoded) {
+          decoded.add(tileColumn + "," + tileRow);
+        }
+        for (int y = 0; y < 8 && tileRow * 8 + y < 50; y++) {
+          for (int x = 0; x < 16 && tileColumn * 16 + x < 70; x++) {
+            tile[y * 16 + x] = argb[tileRow * 8 + y][tileColumn * 16 + x];
+          }
+        }
+      }
+    };
+    Model model = new Model(0, 1);
+    TileSource.store(model, "source", source);
+    assertTrue(model.getImage("source") instanceof TileSourceImage);
+    assertTrue(decoded.isEmpty());
+
+    model.operationsFactoryCall(CommandConstants.CROP,
+        Arrays.asList("crop", "20", "10", "10", "5", "source", "crop"), model);
+    Map<String, int[][]> crop = model.convertAndFetchImage("crop");
+    assertEquals(List.of("1,1"), decoded);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 10; x++) {
+        assertEquals((argb[10 + y][20 + x] >> 16) & 0xFF, crop.get("red")[y][x]);
+        assertEquals(argb[10 + y][20 + x] >>> 24, crop.get("alpha")[y][x]);
+      }
+    }
+
+    model.operationsFactoryCall("brighten", Arrays.asList("brighten", "10", "source", "bright"),
+        model);
+    assertEquals(35, decoded.size());
+    assertEquals(35, ((TileSourceImage) model.getImage("source")).getDecodedTileCount());
+    TiledImage expected = new TiledImage(50, 70);
+    for (int y = 0; y < 50; y++) {
+      expected.writeRow(y, argb[y], 70);
+    }
+    assertEquals(expected, model.getImage("source"));
+  }
+
+  /**
+   * Tests that a tile source stays open while a view of its image is stored, and is closed once
+   * the image and the view are both dropped.
+   */
+  @Test
+  public void testTileSourceClosedWithLastShare() {
+    AtomicBoolean closed = new AtomicBoolean();
+    TileSource source = new TileSource() {
+      @Override
+      public int getWidth() {
+        return 20;
+      }
+
+      @Override
+      public int getHeight() {
+        return 10;
+      }
+
+      @Override
+      public int getTileWidth() {
+        return 8;
+      }
+
+      @Override
+      public int getTileHeight() {
+        return 8;
+      }
+
+      @Override
+      public void readTile(int tileColumn, int tileRow, int[] tile) {
+        assertFalse(closed.get());
+        Arrays.fill(tile, 0xFF000000 | tileColumn << 16 | tileRow);
+      }
+
+      @Override
+      public void close() {
+        assertFalse(closed.getAndSet(true));
+      }
+    };
+    Model model = new Model();
+    TileSource.store(model, "source", source);
+    model.operationsFactoryCall(CommandConstants.CROP,
+        Arrays.asList("crop", "8", "8", "12", "2", "source", "crop"), model);
+
+    model.removeImage("source");
+    assertFalse(closed.get());
+    assertEquals(new Pixel(1, 0, 1, 255), model.getImage("crop").getPixel(1, 2));
+
+    model.removeImage("crop");
+    assertTrue(closed.get());
+  }
+
+  /**
+   * Tests that threads running operations and storing, claiming and replacing images on one
+   * memoizing, off-heap model all see consistent images and lose no updates.
+   */
+  @Test
+  public void testConcurrentUseOfModel() throws Exception {
+    int threads = 4;
+    int rounds = 40;
+    TiledImage first = gradientImage(30, 40);
+    TiledImage second = TiledImage.derive(first, 0);
+    second.setArgb(0, 0, 0xFF010203);
+    Model expected = new Model();
+    expected.storeImage("first", first);
+    expected.storeImage("second", second);
+    expected.operationsFactoryCall("brighten",
+        Arrays.asList("brighten", "25", "first", "first-bright"), expected);
+    expected.operationsFactoryCall("brighten",
+        Arrays.asList("brighten", "25", "second", "second-bright"), expected);
+    ImageInterface firstBright = expected.getImage("first-bright");
+    ImageInterface secondBright = expected.getImage("second-bright");
+
+    Model model = new Model(1 << 20, 1);
+    model.storeImage("source", TiledImage.derive(first, 0));
+    model.storeImage("counter", new TiledImage(1, 1));
+    AtomicInteger[] claims = new AtomicInteger[rounds];
+    for (int round = 0; round < rounds; round++) {
+      claims[round] = new AtomicInteger();
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+        String output = "bright-" + thread;
+        tasks.add(() -> {
+          for (int round = 0; round < rounds; round++) {
+            model.storeImage("source", TiledImage.derive(round % 2 == 0 ? first : second, 0));
+            model.operationsFactoryCall("brighten",
+                Arrays.asList("brighten", "25", "source", output), model);
+            try (Model.ReadScope scope = Model.reading(model)) {
+              ImageInterface bright = model.getImage(output);
+              assertTrue(firstBright.equals(bright) || secondBright.equals(bright));
+            }
+
+            if (model.storeImageIfAbsent("claim-" + round, new TiledImage(2, 2))) {
+              claims[round].incrementAndGet();
+            }
+
+            boolean replaced = false;
+            while (!replaced) {
+              try (Model.ReadScope scope = Model.reading(model)) {
+                ImageInterface counter = model.getImage("counter");
+                TiledImage next = new TiledImage(1, 1);
+                next.setArgb(0, 0, counter.getPixel(0, 0).getB() + 1);
+                replaced = model.replaceImage("counter", counter, next);
+              }
+            }
+          }
+          return null;
+        });
+      }
+      for (Future<Void> result : pool.invokeAll(tasks)) {
+        result.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(threads * rounds, model.getImage("counter").getPixel(0, 0).getB());
+    for (int round = 0; round < rounds; round++) {
+      assertEquals(1, claims[round].get());
+    }
+    assertTrue(model.getResultCacheHits() > 0);
+    assertFalse(model.replaceImage("counter", firstBright, new TiledImage(1, 1)));
+  }
+
+  /**
+   * Tests that an off-heap image removed while another thread reads it inside a read scope stays
+   * readable until that scope closes, and is released once it does.
+   */
+  @Test
+  public void testRemovedImageReleasedAfterReadScopeCloses() throws Exception {
+    Model model = new Model(0, 1);
+    TiledImage source = new TiledImage(4, 5);
+    source.setArgb(2, 3, 0x11223344);
+    model.storeImage("image", source);
+    OffHeapImage stored = (OffHeapImage) model.getImage("image");
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch removed = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<Integer> read = pool.submit(() -> {
+        try (Model.ReadScope scope = Model.reading(model)) {
+          OffHeapImage image = (OffHeapImage) model.getImage("image");
+          reading.countDown();
+          removed.await();
+          return image.getArgb(2, 3);
+        }
+      });
+      reading.await();
+      model.removeImage("image");
+      model.storeImage("other", new TiledImage(4, 5));
+      assertEquals(0x11223344, stored.getArgb(2, 3));
+      removed.countDown();
+      assertEquals(0x11223344, (int) read.get());
+    } finally {
+      pool.shutdown();
+    }
+
+    try {
+      stored.getArgb(2, 3);
+      fail("Removed image was not released");
+    } catch (IllegalStateException e) {
+      assertEquals("Image was released", e.getMessage());
+    }
+  }
+
+  /**
+   * Tests that threads reading and running operations on an off-heap image which another thread
+   * keeps replacing always read a whole, unreleased image. Freeing memory a reader still holds
+   * would fail the read or crash the JVM.
+   */
+  @Test
+  public void testOffHeapReplacementUnderConcurrentReads() throws Exception {
+    int readers = 3;
+    int replacements = 200;
+    Model model = new Model(0, 1);
+    model.storeImage("shared", uniformImage(0));
+    AtomicBoolean replacing = new AtomicBoolean(true);
+    ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+    try {
+      List<Callable<Void>> tasks = new ArrayList<>();
+      tasks.add(() -> {
+        try {
+          for (int value = 1; value <= replacements; value++) {
+            model.storeImage("shared", uniformImage(value));
+            if (value % 2 == 0) {
+              model.removeImage("shared");
+              model.storeImage("shared", uniformImage(value));
+            }
+          }
+        } finally {
+          replacing.set(false);
+        }
+        return null;
+      });
+      for (int reader = 0; reader < readers; reader++) {
+        String output = "out-" + reader;
+        tasks.add(() -> {
+          while (replacing.get()) {
+            try (Model.ReadScope scope = Model.reading(model)) {
+              assertUniform(model.getImage("shared"));
+            } catch (IllegalArgumentException e) {
+              // Caught between a remove and the store that follows it
+              continue;
+            }
+            try {
+              model.operationsFactoryCall("horizontal-flip",
+                  List.of("horizontal-flip", "shared", output), model);
+              model.operationsFactoryCall("brighten", List.of("brighten", "0", output, output),
+                  model);
+            } catch (IllegalArgumentException e) {
+              continue;
+            }
+            try (Model.ReadScope scope = Model.reading(model)) {
+              assertUniform(model.getImage(output));
+            }
+          }
+          return null;
+        });
+      }
+      for (Future<Void> result : pool.invokeAll(tasks)) {
+        result.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(replacements, model.getImage("shared").getPixel(0, 0).getB());
+  }
+
+  /**
+   * Creates an image of 64 by 64 pixels which all have the given blue value.
+   */
+  private static TiledImage uniformImage(int value) {
+    TiledImage image = new TiledImage(64, 64);
+    for (int y = 0; y < 64; y++) {
+      for (int x = 0; x < 64; x++) {
+        image.setArgb(y, x, 0xFF000000 | value);
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Asserts that every pixel of an image equals its first pixel.
+   */
+  private static void assertUniform(ImageInterface image) {
+    PixelInterface first = image.getPixel(0, 0);
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        assertEquals(first, image.getPixel(y, x));
+      }
+    }
+  }
+
+  /**
+   * Tests that reading a run of a row which starts and ends inside tiles copies exactly that run,
+   * from tiled and off-heap images alike.
+   */
+  @Test
+  public void testReadRowRunAcrossTiles() {
+    TiledImage tiled = new TiledImage(3, 200);
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 200; x++) {
+        tiled.setArgb(y, x, (y << 16) | x);
+      }
+    }
+    OffHeapImage offHeap = OffHeapImage.of(tiled);
+    int[] expected = new int[81];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (2 << 16) | (60 + i);
+    }
+    for (ImageInterface image : List.of(tiled, offHeap)) {
+      int[] run = new int[expected.length];
+      ImageTransformation.readRow(image, 2, 60, run, run.length);
+      assertArrayEquals(expected, run);
+    }
+    offHeap.release();
+  }
+}
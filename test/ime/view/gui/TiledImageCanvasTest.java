@@ -0,0 +1,146 @@
+package ime.view.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for painting an image a tile at a time with the TiledImageCanvas.
+ */
+public class TiledImageCanvasTest {
+
+  private static final int TILE = TiledImageCanvas.TILE_SIZE;
+
+  private List<int[]> reads;
+
+  /**
+   * Clears the record of row runs read from the sources.
+   */
+  @Before
+  public void setUp() {
+    reads = new ArrayList<>();
+  }
+
+  /**
+   * Tests that painting part of the canvas reads only the rows and columns of the tile under it.
+   */
+  @Test
+  public void testPaintReadsOnlyVisibleTile() {
+    TiledImageCanvas canvas = new TiledImageCanvas();
+    canvas.setImage(source(4 * TILE, 3 * TILE));
+    BufferedImage screen = paint(canvas, new Rectangle(TILE + 44, 2 * TILE + 8, 10, 10));
+
+    assertEquals(TILE, reads.size());
+    for (int i = 0; i < reads.size(); i++) {
+      assertEquals(2 * TILE + i, reads.get(i)[0]);
+      assertEquals(TILE, reads.get(i)[1]);
+      assertEquals(TILE, reads.get(i)[2]);
+    }
+    assertEquals(pixel(TILE + 50, 2 * TILE + 10), screen.getRGB(TILE + 50, 2 * TILE + 10));
+  }
+
+  /**
+   * Tests that a zoomed out tile reads only the source rows it samples, and shows the source pixel
+   * each screen pixel falls on.
+   */
+  @Test
+  public void testZoomedOutTileSamplesSourceRows() {
+    TiledImageCanvas canvas = new TiledImageCanvas();
+    canvas.setImage(source(4 * TILE, 3 * TILE));
+    canvas.setZoom(0.5, 0, 0);
+    BufferedImage screen = paint(canvas, new Rectangle(0, 0, 10, 10));
+
+    assertEquals(TILE, reads.size());
+    for (int i = 0; i < reads.size(); i++) {
+      assertEquals(2 * i, reads.get(i)[0]);
+      assertEquals(0, reads.get(i)[1]);
+      assertEquals(2 * TILE - 1, reads.get(i)[2]);
+    }
+    assertEquals(pixel(6, 8), screen.getRGB(3, 4));
+  }
+
+  /**
+   * Tests that the canvas keeps no more rendered tiles than its cache size, evicting the least
+   * recently painted tile first.
+   */
+  @Test
+  public void testTileCacheIsBounded() {
+    TiledImageCanvas canvas = new TiledImageCanvas(2);
+    canvas.setImage(source(4 * TILE, TILE));
+    paint(canvas, new Rectangle(0, 0, 3 * TILE, TILE));
+    assertEquals(3 * TILE, reads.size());
+
+    reads.clear();
+    paint(canvas, new Rectangle(2 * TILE, 0, TILE, TILE));
+    assertTrue(reads.isEmpty());
+
+    paint(canvas, new Rectangle(0, 0, TILE, TILE));
+    assertEquals(TILE, reads.size());
+    reads.clear();
+    paint(canvas, new Rectangle(TILE, 0, TILE, TILE));
+    assertEquals(TILE, reads.size());
+  }
+
+  /**
+   * Tests that a cache which could not hold a single tile is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyTileCacheRejected() {
+    new TiledImageCanvas(0);
+  }
+
+  /**
+   * Returns the pixel of the test images at a position.
+   */
+  private static int pixel(int x, int y) {
+    return 0xFF000000 | (y << 12) | x;
+  }
+
+  /**
+   * Creates a source of the given size, recording every row run read from it.
+   */
+  private ImageTileSource source(int width, int height) {
+    return new ImageTileSource() {
+      @Override
+      public int getWidth() {
+        return width;
+      }
+
+      @Override
+      public int getHeight() {
+        return height;
+      }
+
+      @Override
+      public void readRow(int y, int x, int[] argb, int length) {
+        reads.add(new int[] {y, x, length});
+        for (int i = 0; i < length; i++) {
+          argb[i] = pixel(x + i, y);
+        }
+      }
+    };
+  }
+
+  /**
+   * Paints the canvas into an image of its size, within the given clip.
+   */
+  private static BufferedImage paint(TiledImageCanvas canvas, Rectangle clip) {
+    BufferedImage screen = new BufferedImage(canvas.getPreferredSize().width,
+        canvas.getPreferredSize().height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = screen.createGraphics();
+    try {
+      g.setClip(clip);
+      canvas.paintComponent(g);
+    } finally {
+      g.dispose();
+    }
+    return screen;
+  }
+}